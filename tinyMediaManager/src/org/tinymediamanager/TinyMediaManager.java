@@ -53,6 +53,7 @@ import org.tinymediamanager.core.Constants;
 import org.tinymediamanager.core.License;
 import org.tinymediamanager.core.TmmModuleManager;
 import org.tinymediamanager.core.Utils;
+import org.tinymediamanager.core.metrics.MetricsRegistry;
 import org.tinymediamanager.core.movie.MovieModuleManager;
 import org.tinymediamanager.core.threading.TmmTaskManager;
 import org.tinymediamanager.core.tvshow.TvShowModuleManager;
@@ -136,6 +137,9 @@ public class TinyMediaManager {
       LOGGER.info("java.webstart    : true");
     }
 
+    // expose the metrics of all subsystems over JMX
+    MetricsRegistry.enableJmx();
+
     // initialize SWT if found
     try {
       TmmUIHelper.init();
@@ -376,6 +380,7 @@ public class TinyMediaManager {
             while (TmmTaskManager.getInstance().poolRunning()) {
               Thread.sleep(2000);
             }
+            TinyMediaManagerCMD.dumpMetrics();
 
             LOGGER.info("bye bye");
             // MainWindows.shutdown()
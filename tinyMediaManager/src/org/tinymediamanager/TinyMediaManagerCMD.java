@@ -15,17 +15,21 @@
  */
 package org.tinymediamanager;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 
 import javax.swing.SwingWorker;
 
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.core.UpdaterTask;
 import org.tinymediamanager.core.Utils;
+import org.tinymediamanager.core.entities.MediaEntity;
 import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.metrics.MetricsRegistry;
 import org.tinymediamanager.core.movie.MovieList;
 import org.tinymediamanager.core.movie.MovieModuleManager;
 import org.tinymediamanager.core.movie.MovieSearchAndScrapeOptions;
@@ -57,6 +61,8 @@ public class TinyMediaManagerCMD {
   private static boolean          scrapeUnscraped = false;
   private static boolean          renameNew       = false;
   private static boolean          checkFiles      = false;
+  private static String           searchQuery     = null;
+  private static File             metricsFile     = null;
 
   // datasource IDs
   private static HashSet<Integer> updateMovieDs   = new HashSet<Integer>();
@@ -68,7 +74,8 @@ public class TinyMediaManagerCMD {
    * @param args
    */
   static void parseParams(String[] args) {
-    for (String cmd : args) {
+    for (int i = 0; i < args.length; i++) {
+      String cmd = args[i];
       if (cmd.equalsIgnoreCase("-updateMovies")) {
         updateMovies = true;
       }
@@ -99,6 +106,12 @@ public class TinyMediaManagerCMD {
       else if (cmd.equalsIgnoreCase("-renameNew")) {
         renameNew = true;
       }
+      else if (cmd.equalsIgnoreCase("-search") && i + 1 < args.length) {
+        searchQuery = args[++i];
+      }
+      else if (cmd.equalsIgnoreCase("-dumpMetrics") && i + 1 < args.length) {
+        metricsFile = new File(args[++i]);
+      }
       else if (cmd.toLowerCase().contains("help")) { // -help, --help, help ...
         printSyntax();
         System.exit(0);
@@ -136,10 +149,30 @@ public class TinyMediaManagerCMD {
         "    -renameNew           rename & cleanup of the new found movies/TvShows/episodes\n" +
         "\n" +
         "    -checkFiles          does a physical check, if all files in DB are existent on filesystem (might take long!)\n" +
+        "\n" +
+        "    -search <query>      full text search in all movies/TvShows/episodes (title, plot, cast, tags, filenames)\n" +
+        "\n" +
+        "    -dumpMetrics <file>  write the metrics (throughput/latency per subsystem) to the file after all tasks have been finished\n" +
         "\n");
     // @formatter:on
   }
 
+  /**
+   * write the metrics to the file given with -dumpMetrics (after all tasks have been finished)
+   */
+  static void dumpMetrics() {
+    if (metricsFile == null) {
+      return;
+    }
+    try {
+      MetricsRegistry.dump(metricsFile);
+      LOGGER.info("Commandline - metrics written to " + metricsFile.getAbsolutePath());
+    }
+    catch (Exception e) {
+      LOGGER.error("could not write metrics to " + metricsFile, e);
+    }
+  }
+
   /**
    * executes all the command line tasks, one after another
    */
@@ -316,6 +349,23 @@ public class TinyMediaManagerCMD {
         }
       }
 
+      if (StringUtils.isNotBlank(searchQuery)) {
+        LOGGER.info("Commandline - searching for '" + searchQuery + "'");
+        for (Movie movie : MovieList.getInstance().searchMovies(searchQuery, 100)) {
+          System.out.println("MOVIE:   " + movie.getTitle() + " (" + movie.getYear() + ") - " + movie.getPath());
+        }
+        for (MediaEntity entity : TvShowList.getInstance().searchTvShowsAndEpisodes(searchQuery, 100)) {
+          if (entity instanceof TvShowEpisode) {
+            TvShowEpisode episode = (TvShowEpisode) entity;
+            System.out.println("EPISODE: " + episode.getTvShow().getTitle() + " - S" + episode.getSeason() + "E" + episode.getEpisode() + " "
+                + episode.getTitle() + " - " + episode.getPath());
+          }
+          else {
+            System.out.println("TVSHOW:  " + entity.getTitle() + " - " + entity.getPath());
+          }
+        }
+      }
+
       if (updateAvailable) {
         LOGGER.warn("=====================================================");
         LOGGER.warn("There's a new TMM version available! Please update!");
@@ -22,7 +22,9 @@ import java.beans.PropertyChangeSupport;
 import javax.swing.event.SwingPropertyChangeSupport;
 
 /**
- * The Class AbstractModelObject.
+ * The Class AbstractModelObject.<br>
+ * Listeners of the core ({@link CorePropertyChangeListener}) are informed synchronously in the firing thread; all other listeners (the UI) are
+ * informed on the EDT - coalesced if the firing thread has suspended the delivery (see {@link PropertyChangeCoalescer}).
  * 
  * @author Manuel Laggner
  */
@@ -31,7 +33,8 @@ public abstract class AbstractModelObject {
   /** The property change support. */
   // private final PropertyChangeSupport propertyChangeSupport = new PropertyChangeSupport(this);
 
-  private final PropertyChangeSupport propertyChangeSupport = new SwingPropertyChangeSupport(this, true);
+  private final PropertyChangeSupport propertyChangeSupport     = new SwingPropertyChangeSupport(this, true);
+  private final PropertyChangeSupport corePropertyChangeSupport = new PropertyChangeSupport(this);
 
   /**
    * Adds the property change listener.
@@ -40,7 +43,7 @@ public abstract class AbstractModelObject {
    *          the listener
    */
   public void addPropertyChangeListener(PropertyChangeListener listener) {
-    propertyChangeSupport.addPropertyChangeListener(listener);
+    getPropertyChangeSupport(listener).addPropertyChangeListener(listener);
   }
 
   /**
@@ -52,7 +55,7 @@ public abstract class AbstractModelObject {
    *          the listener
    */
   public void addPropertyChangeListener(String propertyName, PropertyChangeListener listener) {
-    propertyChangeSupport.addPropertyChangeListener(propertyName, listener);
+    getPropertyChangeSupport(listener).addPropertyChangeListener(propertyName, listener);
   }
 
   /**
@@ -62,7 +65,7 @@ public abstract class AbstractModelObject {
    *          the listener
    */
   public void removePropertyChangeListener(PropertyChangeListener listener) {
-    propertyChangeSupport.removePropertyChangeListener(listener);
+    getPropertyChangeSupport(listener).removePropertyChangeListener(listener);
   }
 
   /**
@@ -75,12 +78,16 @@ public abstract class AbstractModelObject {
    */
   public void removePropertyChangeListener(String propertyName, PropertyChangeListener listener) {
     try {
-      propertyChangeSupport.removePropertyChangeListener(propertyName, listener);
+      getPropertyChangeSupport(listener).removePropertyChangeListener(propertyName, listener);
     }
     catch (AssertionError e) {
     }
   }
 
+  private PropertyChangeSupport getPropertyChangeSupport(PropertyChangeListener listener) {
+    return listener instanceof CorePropertyChangeListener ? corePropertyChangeSupport : propertyChangeSupport;
+  }
+
   /**
    * Fire property change.
    * 
@@ -92,20 +99,38 @@ public abstract class AbstractModelObject {
    *          the new value
    */
   protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+    firePropertyChange(new PropertyChangeEvent(this, propertyName, oldValue, newValue));
+  }
+
+  /**
+   * Fire property change.
+   * 
+   * @param evt
+   *          the evt
+   */
+  protected void firePropertyChange(PropertyChangeEvent evt) {
     try {
-      propertyChangeSupport.firePropertyChange(propertyName, oldValue, newValue);
+      corePropertyChangeSupport.firePropertyChange(evt);
+      // while suspended (see PropertyChangeCoalescer) the events for the UI are being coalesced and delivered later
+      if (propertyChangeSupport.hasListeners(evt.getPropertyName()) && !PropertyChangeCoalescer.offer(this, evt)) {
+        propertyChangeSupport.firePropertyChange(evt);
+      }
     }
     catch (AssertionError e) {
     }
   }
 
   /**
-   * Fire property change.
+   * deliver a (coalesced) event to the UI listeners
    * 
    * @param evt
    *          the evt
    */
-  protected void firePropertyChange(PropertyChangeEvent evt) {
-    propertyChangeSupport.firePropertyChange(evt);
+  void deliverPropertyChange(PropertyChangeEvent evt) {
+    try {
+      propertyChangeSupport.firePropertyChange(evt);
+    }
+    catch (AssertionError e) {
+    }
   }
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.beans.PropertyChangeListener;
+
+/**
+ * The interface CorePropertyChangeListener. Marks the listeners of the core (e.g. the aggregated lists and filter indices of the movie/TV show
+ * list or the forwarding of episode events to the TV show): they are informed synchronously in the firing thread, even while the events for the UI
+ * are being coalesced (see {@link PropertyChangeCoalescer}). Core listeners must be thread safe and must not touch Swing components.
+ * 
+ * @author Manuel Laggner
+ */
+public interface CorePropertyChangeListener extends PropertyChangeListener {
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.ResourceBundle;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.threading.TmmTaskHandle;
+import org.tinymediamanager.core.threading.TmmTaskManager;
+import org.tinymediamanager.ui.UTF8Control;
+
+/**
+ * The class FileTransfer. Copies a file with FileChannel.transferTo (zero-copy where the OS supports it) in big chunks; used to move files across
+ * volumes where renameTo() does not work.<br>
+ * The copy is written to a <i>.tmmpart</i> file first; an interrupted/cancelled copy keeps this file and the next attempt resumes at its end. Big
+ * files show their progress in the task list.
+ *
+ * @author Manuel Laggner
+ */
+public class FileTransfer implements TmmTaskHandle {
+  private static final Logger         LOGGER             = LoggerFactory.getLogger(FileTransfer.class);
+  private static final ResourceBundle BUNDLE             = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+
+  public static final String          PART_EXTENSION     = ".tmmpart";
+  private static final long           CHUNK_SIZE         = 16 * 1024 * 1024;
+  // only files bigger than this show up in the task list
+  private static final long           PROGRESS_THRESHOLD = 10 * 1024 * 1024;
+
+  private final File                  source;
+  private final File                  destination;
+  private final boolean               verify;
+
+  private long                        length             = 0;
+  private long                        bytesDone          = 0;
+  private double                      speed              = 0;
+  private TaskState                   state              = TaskState.CREATED;
+  private volatile boolean            cancel             = false;
+
+  /**
+   * @param source
+   *          the file to copy
+   * @param destination
+   *          the destination (must not exist)
+   * @param verify
+   *          compare the checksums of the source and the copy
+   */
+  public FileTransfer(File source, File destination, boolean verify) {
+    this.source = source;
+    this.destination = destination;
+    this.verify = verify;
+  }
+
+  /**
+   * move the file by copying and deleting the source afterwards
+   *
+   * @param source
+   *          the file to move
+   * @param destination
+   *          the destination (must not exist)
+   * @param verify
+   *          compare the checksums of the source and the copy
+   * @return true, if successful
+   * @throws IOException
+   *           if an IO error occurs copying the file
+   */
+  public static boolean move(File source, File destination, boolean verify) throws IOException {
+    FileTransfer transfer = new FileTransfer(source, destination, verify);
+    if (!transfer.copy()) {
+      return false;
+    }
+    if (!source.delete()) {
+      // we don't like to have the file twice
+      LOGGER.warn("could not delete '" + source + "' after copying - removing the copy");
+      FileUtils.deleteQuietly(destination);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * copy the file
+   *
+   * @return true, if the file has been copied (and verified)
+   * @throws IOException
+   *           if an IO error occurs copying the file
+   */
+  public boolean copy() throws IOException {
+    length = source.length();
+    File part = new File(destination.getPath() + PART_EXTENSION);
+
+    // resume an interrupted copy if the source did not change in the meantime
+    bytesDone = 0;
+    if (part.exists()) {
+      if (part.length() <= length && part.lastModified() >= source.lastModified()) {
+        bytesDone = part.length();
+        LOGGER.info("resuming copy of " + source + " at " + bytesDone + " bytes");
+      }
+      else {
+        FileUtils.deleteQuietly(part);
+      }
+    }
+
+    LOGGER.info("copy file " + source + " to " + destination);
+    boolean showProgress = length > PROGRESS_THRESHOLD;
+    if (showProgress) {
+      setState(TaskState.STARTED);
+    }
+
+    FileInputStream in = null;
+    FileOutputStream out = null;
+    try {
+      in = new FileInputStream(source);
+      out = new FileOutputStream(part, true);
+      FileChannel input = in.getChannel();
+      FileChannel output = out.getChannel();
+
+      long timestamp1 = System.nanoTime();
+      long bytesDonePrevious = bytesDone;
+      while (bytesDone < length) {
+        if (cancel || Thread.currentThread().isInterrupted()) {
+          LOGGER.info("copy of " + source + " interrupted - keeping " + part + " to resume");
+          return false;
+        }
+
+        long count = input.transferTo(bytesDone, Math.min(CHUNK_SIZE, length - bytesDone), output);
+        if (count <= 0) {
+          break; // source shrunk?
+        }
+        bytesDone += count;
+
+        // we push the progress only once per 250ms
+        long timestamp2 = System.nanoTime();
+        if (showProgress && timestamp2 - timestamp1 > 250000000) {
+          speed = (bytesDone - bytesDonePrevious) / ((double) (timestamp2 - timestamp1) / 1000000000);
+          timestamp1 = timestamp2;
+          bytesDonePrevious = bytesDone;
+          informListeners();
+        }
+      }
+      output.force(true);
+    }
+    finally {
+      IOUtils.closeQuietly(out);
+      IOUtils.closeQuietly(in);
+      if (showProgress) {
+        setState(TaskState.FINISHED);
+      }
+    }
+
+    if (part.length() != length) {
+      LOGGER.error("copy of " + source + " failed: size mismatch (" + part.length() + " of " + length + " bytes)");
+      FileUtils.deleteQuietly(part);
+      return false;
+    }
+    if (verify && checksum(source) != checksum(part)) {
+      LOGGER.error("copy of " + source + " failed: checksum mismatch");
+      FileUtils.deleteQuietly(part);
+      return false;
+    }
+    if (!Utils.renameWithRetry(part, destination)) {
+      LOGGER.error("could not rename " + part + " to " + destination);
+      return false;
+    }
+    destination.setLastModified(source.lastModified());
+    return true;
+  }
+
+  private static long checksum(File file) throws IOException {
+    CRC32 crc = new CRC32();
+    InputStream is = null;
+    try {
+      is = new FileInputStream(file);
+      byte[] buffer = new byte[1024 * 1024];
+      int count;
+      while ((count = is.read(buffer)) != -1) {
+        crc.update(buffer, 0, count);
+      }
+    }
+    finally {
+      IOUtils.closeQuietly(is);
+    }
+    return crc.getValue();
+  }
+
+  private void setState(TaskState newState) {
+    state = newState;
+    informListeners();
+  }
+
+  private void informListeners() {
+    TmmTaskManager.getInstance().processTaskEvent(this);
+  }
+
+  @Override
+  public String getTaskName() {
+    return BUNDLE.getString("task.move") + " " + source.getName();
+  }
+
+  @Override
+  public int getWorkUnits() {
+    return 100;
+  }
+
+  @Override
+  public int getProgressDone() {
+    if (length == 0) {
+      return 0;
+    }
+    return (int) (bytesDone * 100 / length);
+  }
+
+  @Override
+  public String getTaskDescription() {
+    return String.format("%.2fM/%.2fM @%.2fkB/s", bytesDone / (1024d * 1024d), length / (1024d * 1024d), speed / 1024d);
+  }
+
+  @Override
+  public TaskState getState() {
+    return state;
+  }
+
+  @Override
+  public TaskType getType() {
+    return TaskType.BACKGROUND_TASK;
+  }
+
+  @Override
+  public void cancel() {
+    cancel = true;
+  }
+}
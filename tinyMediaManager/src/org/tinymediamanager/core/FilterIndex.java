@@ -0,0 +1,301 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The class FilterIndex. An in-memory index which assigns every entity a slot and keeps one bitset per (field, value) pair, so that combined
+ * filters can be evaluated as bitset intersections. The index keeps itself up to date by listening to property changes of the indexed entities.
+ *
+ * @param <T>
+ *          the type of the indexed entities
+ * @param <F>
+ *          the enum of the indexed fields
+ * @author Manuel Laggner
+ */
+public abstract class FilterIndex<T extends AbstractModelObject, F extends Enum<F>> {
+  private final Class<T>               type;
+  private final Map<T, Entry>          entries   = new IdentityHashMap<T, Entry>();
+  private final List<T>                slots     = new ArrayList<T>();
+  private final LinkedList<Integer>    freeSlots = new LinkedList<Integer>();
+  private final Map<Key, BitSet>       bitsets   = new HashMap<Key, BitSet>();
+  private final BitSet                 all       = new BitSet();
+  private final PropertyChangeListener listener;
+  private volatile int                 version   = 0;
+
+  public FilterIndex(Class<T> type) {
+    this.type = type;
+    this.listener = new CorePropertyChangeListener() {
+      @Override
+      public void propertyChange(PropertyChangeEvent evt) {
+        // forwarded events (e.g. from episodes through the TV show) have another source type
+        if (FilterIndex.this.type.isInstance(evt.getSource())) {
+          update(FilterIndex.this.type.cast(evt.getSource()));
+        }
+      }
+    };
+  }
+
+  /**
+   * collect all (field, value) pairs of the given entity by calling {@link #put(Set, Enum, Object)} for every indexed value
+   *
+   * @param entity
+   *          the entity to index
+   * @param keys
+   *          the set of keys to fill
+   */
+  protected abstract void collectKeys(T entity, Set<Object> keys);
+
+  /**
+   * add a (field, value) pair to the set of keys; null values are ignored
+   */
+  protected final void put(Set<Object> keys, F field, Object value) {
+    if (value != null) {
+      keys.add(new Key(field, value));
+    }
+  }
+
+  /**
+   * add the entity to the index and start listening to its changes. Call this <b>before</b> the entity is being added to any other observing
+   * list to have the index up to date when the other listeners are being informed
+   *
+   * @param entity
+   *          the entity to add
+   */
+  public void add(T entity) {
+    update(entity);
+    entity.removePropertyChangeListener(listener);
+    entity.addPropertyChangeListener(listener);
+  }
+
+  /**
+   * remove the entity from the index
+   *
+   * @param entity
+   *          the entity to remove
+   */
+  public synchronized void remove(T entity) {
+    entity.removePropertyChangeListener(listener);
+    Entry entry = entries.remove(entity);
+    if (entry == null) {
+      return;
+    }
+
+    for (Object key : entry.keys) {
+      clearBit(key, entry.slot);
+    }
+    all.clear(entry.slot);
+    slots.set(entry.slot, null);
+    freeSlots.add(entry.slot);
+    version++;
+  }
+
+  /**
+   * re-evaluate all indexed values of the given entity
+   *
+   * @param entity
+   *          the entity to update
+   */
+  public synchronized void update(T entity) {
+    Set<Object> newKeys = new HashSet<Object>();
+    collectKeys(entity, newKeys);
+
+    Entry entry = entries.get(entity);
+    if (entry == null) {
+      entry = new Entry(nextSlot());
+      slots.set(entry.slot, entity);
+      all.set(entry.slot);
+      entries.put(entity, entry);
+      version++;
+    }
+
+    boolean changed = false;
+    for (Object key : entry.keys) {
+      if (!newKeys.contains(key)) {
+        clearBit(key, entry.slot);
+        changed = true;
+      }
+    }
+    for (Object key : newKeys) {
+      if (!entry.keys.contains(key)) {
+        BitSet bitset = bitsets.get(key);
+        if (bitset == null) {
+          bitset = new BitSet();
+          bitsets.put((Key) key, bitset);
+        }
+        bitset.set(entry.slot);
+        changed = true;
+      }
+    }
+
+    entry.keys = newKeys;
+    if (changed) {
+      version++;
+    }
+  }
+
+  /**
+   * get the slot of the given entity
+   *
+   * @param entity
+   *          the entity
+   * @return the slot or -1 if the entity is not indexed
+   */
+  public synchronized int getSlot(T entity) {
+    Entry entry = entries.get(entity);
+    return entry == null ? -1 : entry.slot;
+  }
+
+  /**
+   * get the entity in the given slot
+   *
+   * @param slot
+   *          the slot
+   * @return the entity or null
+   */
+  public synchronized T getEntity(int slot) {
+    if (slot < 0 || slot >= slots.size()) {
+      return null;
+    }
+    return slots.get(slot);
+  }
+
+  /**
+   * get a copy of the bitset of all entities having the given value in the given field
+   *
+   * @param field
+   *          the field
+   * @param value
+   *          the value
+   * @return a (possibly empty) bitset
+   */
+  public synchronized BitSet get(F field, Object value) {
+    if (value == null) {
+      return new BitSet();
+    }
+    BitSet bitset = bitsets.get(new Key(field, value));
+    if (bitset == null) {
+      return new BitSet();
+    }
+    return (BitSet) bitset.clone();
+  }
+
+  /**
+   * get a copy of the bitset of all indexed entities
+   *
+   * @return the bitset of all occupied slots
+   */
+  public synchronized BitSet getAll() {
+    return (BitSet) all.clone();
+  }
+
+  /**
+   * get the entities of all set bits in the given bitset
+   *
+   * @param bitset
+   *          the bitset (e.g. result of an intersection)
+   * @return a list of all entities
+   */
+  public synchronized List<T> getEntities(BitSet bitset) {
+    List<T> result = new ArrayList<T>(bitset.cardinality());
+    for (int i = bitset.nextSetBit(0); i >= 0; i = bitset.nextSetBit(i + 1)) {
+      if (i < slots.size() && slots.get(i) != null) {
+        result.add(slots.get(i));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * the version of the index; changes with every modification of a bitset
+   *
+   * @return the version
+   */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * get the amount of indexed entities
+   *
+   * @return the amount of indexed entities
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  private int nextSlot() {
+    if (!freeSlots.isEmpty()) {
+      return freeSlots.removeFirst();
+    }
+    slots.add(null);
+    return slots.size() - 1;
+  }
+
+  private void clearBit(Object key, int slot) {
+    BitSet bitset = bitsets.get(key);
+    if (bitset != null) {
+      bitset.clear(slot);
+      if (bitset.isEmpty()) {
+        bitsets.remove(key);
+      }
+    }
+  }
+
+  private static class Entry {
+    private final int   slot;
+    private Set<Object> keys = new HashSet<Object>();
+
+    private Entry(int slot) {
+      this.slot = slot;
+    }
+  }
+
+  private static class Key {
+    private final Enum<?> field;
+    private final Object  value;
+
+    private Key(Enum<?> field, Object value) {
+      this.field = field;
+      this.value = value;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return field == other.field && value.equals(other.value);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * field.hashCode() + value.hashCode();
+    }
+  }
+}
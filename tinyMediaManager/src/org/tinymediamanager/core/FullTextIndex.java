@@ -0,0 +1,267 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * The class FullTextIndex. An embedded, in-memory inverted index for full text searches. All texts are being tokenized, accent-folded and lower
+ * cased; every query token is being matched as a prefix of the indexed terms. Results are ranked by the sum of the (field) weights of the matched
+ * terms; an entity has to match all query tokens to be found.
+ *
+ * @param <T>
+ *          the type of the indexed entities
+ * @author Manuel Laggner
+ */
+public abstract class FullTextIndex<T> {
+  private static final Pattern                 DIACRITICS    = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+  private static final Pattern                 SEPARATOR     = Pattern.compile("[^\\p{L}\\p{N}]+");
+  private static final float                   EXACT_BONUS   = 2f;
+
+  private final ReadWriteLock                  readWriteLock = new ReentrantReadWriteLock();
+  private final TreeMap<String, Map<T, Float>> postings      = new TreeMap<String, Map<T, Float>>();
+  private final Map<T, Map<String, Float>>     documents     = new IdentityHashMap<T, Map<String, Float>>();
+
+  /**
+   * collect all texts of the given entity by calling {@link #addText(Map, String, float)} for every text to index
+   *
+   * @param entity
+   *          the entity to index
+   * @param terms
+   *          the map of terms and their weights to fill
+   */
+  protected abstract void collectTexts(T entity, Map<String, Float> terms);
+
+  /**
+   * tokenize the given text and add all terms with the given weight
+   */
+  protected final void addText(Map<String, Float> terms, String text, float weight) {
+    for (String token : tokenize(text)) {
+      Float oldWeight = terms.get(token);
+      terms.put(token, oldWeight == null ? weight : oldWeight + weight);
+    }
+  }
+
+  /**
+   * add or re-index the given entity
+   *
+   * @param entity
+   *          the entity to index
+   */
+  public void update(T entity) {
+    Map<String, Float> terms = new HashMap<String, Float>();
+    collectTexts(entity, terms);
+
+    readWriteLock.writeLock().lock();
+    try {
+      removeInternal(entity);
+      documents.put(entity, terms);
+      for (Map.Entry<String, Float> entry : terms.entrySet()) {
+        Map<T, Float> posting = postings.get(entry.getKey());
+        if (posting == null) {
+          posting = new IdentityHashMap<T, Float>();
+          postings.put(entry.getKey(), posting);
+        }
+        posting.put(entity, entry.getValue());
+      }
+    }
+    finally {
+      readWriteLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * re-index the given entity, but only if it is already in the index
+   *
+   * @param entity
+   *          the entity to re-index
+   */
+  public void refresh(T entity) {
+    readWriteLock.readLock().lock();
+    boolean indexed;
+    try {
+      indexed = documents.containsKey(entity);
+    }
+    finally {
+      readWriteLock.readLock().unlock();
+    }
+
+    if (indexed) {
+      update(entity);
+    }
+  }
+
+  /**
+   * remove the given entity from the index
+   *
+   * @param entity
+   *          the entity to remove
+   */
+  public void remove(T entity) {
+    readWriteLock.writeLock().lock();
+    try {
+      removeInternal(entity);
+    }
+    finally {
+      readWriteLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * search the index
+   *
+   * @param query
+   *          the query
+   * @param maxResults
+   *          the max amount of results
+   * @return a list of all matching entities; ranked by the score
+   */
+  public List<T> search(String query, int maxResults) {
+    List<String> tokens = tokenize(query);
+    if (tokens.isEmpty()) {
+      return new ArrayList<T>(0);
+    }
+
+    final Map<T, Float> scores;
+    readWriteLock.readLock().lock();
+    try {
+      scores = score(tokens);
+    }
+    finally {
+      readWriteLock.readLock().unlock();
+    }
+
+    List<T> result = new ArrayList<T>(scores.keySet());
+    Collections.sort(result, new Comparator<T>() {
+      @Override
+      public int compare(T o1, T o2) {
+        return scores.get(o2).compareTo(scores.get(o1));
+      }
+    });
+
+    if (result.size() > maxResults) {
+      return new ArrayList<T>(result.subList(0, maxResults));
+    }
+    return result;
+  }
+
+  /**
+   * get the amount of indexed entities
+   *
+   * @return the amount of indexed entities
+   */
+  public int size() {
+    readWriteLock.readLock().lock();
+    try {
+      return documents.size();
+    }
+    finally {
+      readWriteLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * split the given text into accent-folded and lower cased terms
+   *
+   * @param text
+   *          the text to tokenize
+   * @return a list of all terms
+   */
+  public static List<String> tokenize(String text) {
+    List<String> tokens = new ArrayList<String>();
+    if (StringUtils.isBlank(text)) {
+      return tokens;
+    }
+
+    String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+    for (String token : SEPARATOR.split(folded.toLowerCase(Locale.ROOT))) {
+      if (!token.isEmpty()) {
+        tokens.add(token);
+      }
+    }
+    return tokens;
+  }
+
+  private Map<T, Float> score(List<String> tokens) {
+    Map<T, Float> scores = null;
+
+    for (String token : tokens) {
+      Map<T, Float> tokenScores = new IdentityHashMap<T, Float>();
+      for (Map.Entry<String, Map<T, Float>> entry : postings.subMap(token, true, token + Character.MAX_VALUE, true).entrySet()) {
+        float bonus = entry.getKey().equals(token) ? EXACT_BONUS : 1f;
+        for (Map.Entry<T, Float> posting : entry.getValue().entrySet()) {
+          // only the best matching term per token counts
+          if (scores != null && !scores.containsKey(posting.getKey())) {
+            continue;
+          }
+          float score = posting.getValue() * bonus;
+          Float oldScore = tokenScores.get(posting.getKey());
+          if (oldScore == null || oldScore < score) {
+            tokenScores.put(posting.getKey(), score);
+          }
+        }
+      }
+
+      if (scores == null) {
+        scores = tokenScores;
+      }
+      else {
+        // all tokens have to match
+        Map<T, Float> combined = new IdentityHashMap<T, Float>();
+        for (Map.Entry<T, Float> entry : tokenScores.entrySet()) {
+          combined.put(entry.getKey(), scores.get(entry.getKey()) + entry.getValue());
+        }
+        scores = combined;
+      }
+
+      if (scores.isEmpty()) {
+        break;
+      }
+    }
+
+    return scores;
+  }
+
+  private void removeInternal(T entity) {
+    Map<String, Float> terms = documents.remove(entity);
+    if (terms == null) {
+      return;
+    }
+    for (String term : terms.keySet()) {
+      Map<T, Float> posting = postings.get(term);
+      if (posting != null) {
+        posting.remove(entity);
+        if (posting.isEmpty()) {
+          postings.remove(term);
+        }
+      }
+    }
+  }
+}
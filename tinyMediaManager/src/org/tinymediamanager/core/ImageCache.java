@@ -47,6 +47,8 @@ import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
 import org.tinymediamanager.core.entities.MediaEntity;
 import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.metrics.MetricsRegistry;
+import org.tinymediamanager.core.metrics.Timer;
 import org.tinymediamanager.scraper.util.Url;
 
 /**
@@ -122,6 +124,46 @@ public class ImageCache {
     BufferedImage scaledImage = Scalr.resize(originalImage, Scalr.Method.QUALITY, Scalr.Mode.AUTOMATIC, size.x, size.y, Scalr.OP_ANTIALIAS);
     originalImage = null;
 
+    return new ByteArrayInputStream(encodeImage(scaledImage));
+  }
+
+  /**
+   * Scale the image file to fit in the given width; smaller images are not scaled up.
+   * 
+   * @param originalFile
+   *          the image file
+   * @param width
+   *          the max width
+   * @return the encoded image (png if the image has transparent pixels, jpg otherwise)
+   * @throws Exception
+   */
+  public static byte[] scaleImage(File originalFile, int width) throws Exception {
+    if (!originalFile.exists()) {
+      throw new FileNotFoundException("unable to scale file: " + originalFile.getName() + "; file does not exist");
+    }
+    if (FileUtils.sizeOf(originalFile) == 0) {
+      throw new EmptyFileException(originalFile);
+    }
+
+    BufferedImage originalImage = null;
+    try {
+      originalImage = com.bric.image.ImageLoader.createImage(originalFile);
+    }
+    catch (Exception e) {
+      throw new Exception("cannot create image - file seems not to be valid? " + originalFile);
+    }
+
+    BufferedImage scaledImage = originalImage;
+    if (originalImage.getWidth() > width) {
+      Point size = calculateSize(width, originalImage.getHeight(), originalImage.getWidth(), originalImage.getHeight(), true);
+      scaledImage = Scalr.resize(originalImage, Scalr.Method.QUALITY, Scalr.Mode.FIT_EXACT, size.x, size.y);
+    }
+    originalImage = null;
+
+    return encodeImage(scaledImage);
+  }
+
+  private static byte[] encodeImage(BufferedImage scaledImage) throws IOException {
     ImageWriter imgWrtr = null;
     ImageWriteParam imgWrtrPrm = null;
 
@@ -156,13 +198,11 @@ public class ImageCache {
     imgWrtr.dispose();
     scaledImage = null;
 
-    byte[] bytes = baos.toByteArray();
-
     output.flush();
     output.close();
     baos.close();
 
-    return new ByteArrayInputStream(bytes);
+    return baos.toByteArray();
   }
 
   /**
@@ -174,10 +214,24 @@ public class ImageCache {
    * @throws Exception
    */
   public static File cacheImage(MediaFile mf) throws Exception {
+    try {
+      return createCachedImage(mf);
+    }
+    catch (Exception e) {
+      MetricsRegistry.counter("imagecache.errors").inc();
+      throw e;
+    }
+  }
+
+  private static File createCachedImage(MediaFile mf) throws Exception {
     File originalFile = mf.getFile();
     String cacheFilename = ImageCache.getCachedFileName(originalFile.getPath());
     File cachedFile = new File(ImageCache.getCacheDir(), cacheFilename + ".jpg");
-    if (!cachedFile.exists()) {
+    if (cachedFile.exists()) {
+      MetricsRegistry.counter("imagecache.hits").inc();
+    }
+    else {
+      Timer.Context timer = MetricsRegistry.timer("imagecache.create").start();
       // check if the original file exists && size > 0
       if (!originalFile.exists()) {
         throw new FileNotFoundException("unable to cache file: " + originalFile.getName() + "; file does not exist");
@@ -273,6 +327,7 @@ public class ImageCache {
       output.flush();
       output.close();
       scaledImage = null;
+      timer.stop();
     }
 
     if (!cachedFile.exists()) {
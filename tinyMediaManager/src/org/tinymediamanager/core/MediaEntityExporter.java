@@ -1,22 +1,53 @@
 package org.tinymediamanager.core;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
-
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.Transient;
+
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.core.entities.MediaEntity;
+import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.threading.TmmThreadPool.TmmThreadFactory;
 
 import com.floreysoft.jmte.Engine;
 import com.floreysoft.jmte.NamedRenderer;
@@ -26,21 +57,50 @@ import com.floreysoft.jmte.encoder.XMLEncoder;
 import com.floreysoft.jmte.message.ParseException;
 
 public abstract class MediaEntityExporter {
-  private final static Logger   LOGGER             = LoggerFactory.getLogger(MediaEntityExporter.class);
-  protected static final String TEMPLATE_DIRECTORY = "templates";
-
-  protected Engine              engine;
-  protected Properties          properties;
-  protected String              fileExtension;
-  protected String              listTemplate       = "";
-  protected String              detailTemplate     = "";
-  protected File                templateDir;
+  private final static Logger           LOGGER             = LoggerFactory.getLogger(MediaEntityExporter.class);
+  protected static final String         TEMPLATE_DIRECTORY = "templates";
+  // holds the path, the change stamp and the checksum of every detail page of the last export (one per template type)
+  protected static final String         MANIFEST_FILE      = ".tmm-export";
+  // holds the source, the size and the exported file of every image of the last export (one per template type)
+  protected static final String         IMAGE_MANIFEST     = ".tmm-export-images";
+  protected static final String         IMAGE_DIRECTORY    = "images";
+  private static final int              BUFFER_SIZE        = 64 * 1024;
+
+  protected Engine                      engine;
+  protected TemplateType                templateType;
+  protected Properties                  properties;
+  protected String                      fileExtension;
+  protected String                      listTemplate       = "";
+  protected String                      detailTemplate     = "";
+  protected File                        templateDir;
+  protected int                         threads            = Runtime.getRuntime().availableProcessors();
+  // the artwork types (and their max. width) to export; from "images=POSTER:350,FANART:1000" in the template.conf
+  protected Map<MediaFileType, Integer> imageSizes         = new LinkedHashMap<MediaFileType, Integer>();
+  // the path of the exported images (relative to the export dir) per artwork
+  private final Map<String, String>     imagePaths         = new ConcurrentHashMap<String, String>();
+  // the path from the page being rendered (in this thread) to the export dir; "" for the list, "../" for movies/<movie>.html, ...
+  private final ThreadLocal<String>     pathToExportDir    = new ThreadLocal<String>() {
+                                                             @Override
+                                                             protected String initialValue() {
+                                                               return "";
+                                                             }
+                                                           };
+
+  // the JMTE engine (and its template cache) is not thread safe; every render thread gets its own
+  private final ThreadLocal<Engine>     engines            = new ThreadLocal<Engine>() {
+                                                             @Override
+                                                             protected Engine initialValue() {
+                                                               return createEngine();
+                                                             }
+                                                           };
 
   public enum TemplateType {
     MOVIE, TV_SHOW
   }
 
   protected MediaEntityExporter(String pathToTemplate, TemplateType type) throws Exception {
+    templateType = type;
+
     // check if template exists and is valid
     templateDir = new File(pathToTemplate);
     if (!templateDir.exists() || !templateDir.isDirectory()) {
@@ -76,8 +136,53 @@ public abstract class MediaEntityExporter {
       fileExtension = "html";
     }
 
+    String images = properties.getProperty("images");
+    if (StringUtils.isNotBlank(images)) {
+      for (String image : images.split(",")) {
+        String[] typeAndWidth = image.trim().split(":");
+        try {
+          imageSizes.put(MediaFileType.valueOf(typeAndWidth[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(typeAndWidth[1].trim()));
+        }
+        catch (Exception e) {
+          LOGGER.warn("illegal image definition in template: " + image);
+        }
+      }
+    }
+
     // set up engine
-    engine = Engine.createCachingEngine();
+    engine = createEngine();
+
+    // load list template from File
+    listTemplate = FileUtils.readFileToString(new File(pathToTemplate, listTemplateFile), "UTF-8");
+    if (StringUtils.isNotBlank(detailTemplateFile)) {
+      detailTemplate = FileUtils.readFileToString(new File(pathToTemplate, detailTemplateFile), "UTF-8");
+    }
+  }
+
+  abstract public <T extends MediaEntity> void export(List<T> entitiesToExport, String pathToExport) throws Exception;
+
+  /**
+   * get the manifest of the detail pages; movies and TV shows may be exported into the same directory, so every template type has its own
+   * 
+   * @param exportDir
+   *          the export directory
+   * @return the manifest file
+   */
+  protected File getManifestFile(File exportDir) {
+    return new File(exportDir, MANIFEST_FILE + "-" + templateType.name().toLowerCase(Locale.ROOT));
+  }
+
+  private File getImageManifestFile(File exportDir) {
+    return new File(exportDir, IMAGE_MANIFEST + "-" + templateType.name().toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * create a new JMTE engine with the encoder for the file type and all renderers
+   * 
+   * @return the engine
+   */
+  protected Engine createEngine() {
+    Engine engine = Engine.createCachingEngine();
 
     if (fileExtension.equalsIgnoreCase("html")) {
       engine.setEncoder(new HtmlEncoder()); // special char replacement
@@ -86,14 +191,409 @@ public abstract class MediaEntityExporter {
       engine.setEncoder(new XMLEncoder()); // special char replacement
     }
 
-    // load list template from File
-    listTemplate = FileUtils.readFileToString(new File(pathToTemplate, listTemplateFile), "UTF-8");
-    if (StringUtils.isNotBlank(detailTemplateFile)) {
-      detailTemplate = FileUtils.readFileToString(new File(pathToTemplate, detailTemplateFile), "UTF-8");
+    engine.registerNamedRenderer(new NamedDateRenderer());
+    engine.registerNamedRenderer(new ImageRenderer());
+    registerRenderers(engine);
+    return engine;
+  }
+
+  /**
+   * register the renderers of the exporter (called for every created engine)
+   * 
+   * @param engine
+   *          the engine
+   */
+  protected void registerRenderers(Engine engine) {
+  }
+
+  /**
+   * render the list template and write it directly to the list file
+   * 
+   * @param listExportFile
+   *          the list file
+   * @param model
+   *          the model for the template
+   * @throws IOException
+   */
+  protected void exportList(File listExportFile, Map<String, Object> model) throws IOException {
+    // JMTE renders into a String; we write it through a buffered writer to avoid another copy of the whole list in memory
+    write(listExportFile, engine.transform(listTemplate, model));
+  }
+
+  /**
+   * render all detail pages in parallel (one engine per thread); pages of unchanged entities (same change stamp as in the last export) are not
+   * being rendered at all, only pages which differ from the last export are being written and pages of entities which are not exported any more
+   * are being removed
+   * 
+   * @param exportDir
+   *          the export directory
+   * @param pages
+   *          the pages to render
+   * @throws Exception
+   */
+  protected void exportDetails(final File exportDir, List<DetailPage> pages) throws Exception {
+    File manifestFile = getManifestFile(exportDir);
+    final Properties lastExport = loadManifest(manifestFile);
+    final Map<String, String> thisExport = new ConcurrentHashMap<String, String>();
+    final AtomicInteger rendered = new AtomicInteger(0);
+    final AtomicInteger written = new AtomicInteger(0);
+
+    List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+    for (final DetailPage page : pages) {
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          String stamp = getPageStamp(page);
+          String last = lastExport.getProperty(page.path);
+          File file = new File(exportDir, page.path);
+          if (last != null && last.startsWith(stamp + ";") && file.exists()) {
+            // the entity did not change since the last export
+            thisExport.put(page.path, last);
+            return null;
+          }
+
+          pathToExportDir.set(StringUtils.repeat("../", StringUtils.countMatches(page.path, "/")));
+          String output;
+          try {
+            output = engines.get().transform(page.template, page.model);
+          }
+          finally {
+            pathToExportDir.remove();
+          }
+          String checksum = DigestUtils.md5Hex(output);
+          thisExport.put(page.path, stamp + ";" + checksum);
+          rendered.incrementAndGet();
+
+          if (last == null || !checksum.equals(StringUtils.substringAfter(last, ";")) || !file.exists()) {
+            write(file, output);
+            written.incrementAndGet();
+          }
+          return null;
+        }
+      });
     }
+    runParallel(tasks);
+
+    // remove the pages of the last export which have not been exported this time
+    int removed = 0;
+    for (String path : lastExport.stringPropertyNames()) {
+      if (thisExport.containsKey(path)) {
+        continue;
+      }
+      File file = new File(exportDir, path);
+      if (file.delete()) {
+        removed++;
+      }
+      // and their (now empty) folders
+      File parent = file.getParentFile();
+      while (parent != null && !parent.equals(exportDir) && parent.delete()) {
+        parent = parent.getParentFile();
+      }
+    }
+
+    storeManifest(manifestFile, thisExport);
+    LOGGER.info("detail pages: " + rendered.get() + " rendered, " + written.get() + " written, " + (pages.size() - written.get()) + " unchanged, "
+        + removed + " removed");
   }
 
-  abstract public <T extends MediaEntity> void export(List<T> entitiesToExport, String pathToExport) throws Exception;
+  /**
+   * the stamp of a detail page: changes if the template, the entity (or one of its dependencies) or their exported images change
+   */
+  private String getPageStamp(DetailPage page) {
+    StringBuilder sb = new StringBuilder(DigestUtils.md5Hex(page.template));
+    for (Object entity : page.entities) {
+      sb.append(';').append(getChangeStamp(entity));
+      if (entity instanceof MediaEntity) {
+        for (MediaFileType type : imageSizes.keySet()) {
+          List<MediaFile> mfs = ((MediaEntity) entity).getMediaFiles(type);
+          if (!mfs.isEmpty()) {
+            sb.append(';').append(imagePaths.get(imageKey(type, mfs.get(0).getFile())));
+          }
+        }
+      }
+    }
+    return DigestUtils.md5Hex(sb.toString());
+  }
+
+  /**
+   * the change stamp of an entity: a checksum over all its persisted fields (including media files, actors, ...); other media entities (like the
+   * TV show of an episode) are only represented by their id and title
+   * 
+   * @param entity
+   *          the entity
+   * @return the change stamp
+   */
+  protected static String getChangeStamp(Object entity) {
+    StringBuilder sb = new StringBuilder();
+    appendValue(sb, entity, true, Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>()));
+    return DigestUtils.md5Hex(sb.toString());
+  }
+
+  private static void appendValue(StringBuilder sb, Object value, boolean root, Set<Object> visited) {
+    if (value == null) {
+      sb.append("null");
+    }
+    else if (value instanceof MediaEntity && !root) {
+      MediaEntity entity = (MediaEntity) value;
+      sb.append(entity.getClass().getSimpleName()).append('#').append(entity.getId()).append(':').append(entity.getTitle());
+    }
+    else if (value instanceof AbstractModelObject) {
+      if (!visited.add(value)) {
+        return;
+      }
+      sb.append('{');
+      for (Class<?> clazz = value.getClass(); clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+        for (Field field : clazz.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers()) || field.isAnnotationPresent(Transient.class)) {
+            continue;
+          }
+          Object fieldValue;
+          try {
+            field.setAccessible(true);
+            fieldValue = field.get(value);
+          }
+          catch (Exception e) {
+            continue;
+          }
+          // locks, property change support, ... are not part of the entity
+          if (fieldValue != null && !isPersistedType(fieldValue)) {
+            continue;
+          }
+          sb.append(field.getName()).append('=');
+          appendValue(sb, fieldValue, false, visited);
+          sb.append(';');
+        }
+      }
+      sb.append('}');
+    }
+    else if (value instanceof Collection) {
+      sb.append('[');
+      for (Object element : (Collection<?>) value) {
+        appendValue(sb, element, false, visited);
+        sb.append(',');
+      }
+      sb.append(']');
+    }
+    else if (value instanceof Map) {
+      // the order of a hash map is not stable
+      Map<String, Object> sorted = new TreeMap<String, Object>();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        sorted.put(String.valueOf(entry.getKey()), entry.getValue());
+      }
+      sb.append('{');
+      for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+        sb.append(entry.getKey()).append('=');
+        appendValue(sb, entry.getValue(), false, visited);
+        sb.append(',');
+      }
+      sb.append('}');
+    }
+    else if (value instanceof Date) {
+      sb.append(((Date) value).getTime());
+    }
+    else {
+      sb.append(value);
+    }
+  }
+
+  private static boolean isPersistedType(Object value) {
+    return value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Character || value instanceof Date
+        || value instanceof Enum || value instanceof Collection || value instanceof Map || value instanceof AbstractModelObject;
+  }
+
+  /**
+   * scale the artwork of the given entities (like defined in the template) in parallel into the image folder of the export. The images are named
+   * by the checksum of their content, so the same artwork is exported only once; images of unchanged artwork are not being scaled again.<br>
+   * The templates get the path of the image (relative to the rendered page) via <code>${movie;image(POSTER)}</code>
+   * 
+   * @param exportDir
+   *          the export directory
+   * @param entities
+   *          all entities with artwork to export
+   * @throws Exception
+   */
+  protected void exportImages(final File exportDir, List<? extends MediaEntity> entities) throws Exception {
+    imagePaths.clear();
+    if (imageSizes.isEmpty()) {
+      return;
+    }
+
+    File manifestFile = getImageManifestFile(exportDir);
+    final Properties lastExport = loadManifest(manifestFile);
+    final Map<String, String> thisExport = new ConcurrentHashMap<String, String>();
+    final Set<String> exportedImages = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    final AtomicInteger scaled = new AtomicInteger(0);
+
+    List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+    Set<String> artwork = new HashSet<String>();
+    for (MediaEntity entity : entities) {
+      for (Map.Entry<MediaFileType, Integer> entry : imageSizes.entrySet()) {
+        List<MediaFile> mfs = entity.getMediaFiles(entry.getKey());
+        if (mfs.isEmpty()) {
+          continue;
+        }
+        final File source = mfs.get(0).getFile();
+        final int width = entry.getValue();
+        final String key = imageKey(entry.getKey(), source);
+        if (!artwork.add(key)) {
+          continue;
+        }
+
+        tasks.add(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            if (!source.exists()) {
+              return null;
+            }
+
+            // unchanged artwork?
+            String fingerprint = source.length() + ":" + source.lastModified() + ":" + width;
+            String last = lastExport.getProperty(key);
+            String path = null;
+            if (last != null && last.startsWith(fingerprint + ";")) {
+              path = last.substring(fingerprint.length() + 1);
+              if (!new File(exportDir, path).exists()) {
+                path = null;
+              }
+            }
+
+            if (path == null) {
+              byte[] image;
+              try {
+                image = ImageCache.scaleImage(source, width);
+              }
+              catch (Exception e) {
+                LOGGER.warn("could not export image " + source + ": " + e.getMessage());
+                return null;
+              }
+              // png starts with 0x89 'P' 'N' 'G'
+              String extension = image.length > 0 && image[0] == (byte) 0x89 ? ".png" : ".jpg";
+              path = IMAGE_DIRECTORY + "/" + DigestUtils.md5Hex(image) + extension;
+              File file = new File(exportDir, path);
+              if (exportedImages.add(path) && !file.exists()) {
+                FileUtils.writeByteArrayToFile(file, image);
+              }
+              scaled.incrementAndGet();
+            }
+
+            exportedImages.add(path);
+            imagePaths.put(key, path);
+            thisExport.put(key, fingerprint + ";" + path);
+            return null;
+          }
+        });
+      }
+    }
+    runParallel(tasks);
+
+    // remove the images which are not in use any more
+    int removed = 0;
+    for (String key : lastExport.stringPropertyNames()) {
+      String path = StringUtils.substringAfter(lastExport.getProperty(key), ";");
+      if (StringUtils.isNotBlank(path) && !exportedImages.contains(path) && new File(exportDir, path).delete()) {
+        exportedImages.add(path); // do not count twice
+        removed++;
+      }
+    }
+
+    storeManifest(manifestFile, thisExport);
+    LOGGER.info("images: " + scaled.get() + " scaled, " + (thisExport.size() - scaled.get()) + " unchanged, " + removed + " removed");
+  }
+
+  private static String imageKey(MediaFileType type, File source) {
+    return type.name() + "|" + source.getPath();
+  }
+
+  /**
+   * run the tasks on a pool with the configured amount of threads; the first exception of a task is being rethrown
+   */
+  private void runParallel(List<Callable<Void>> tasks) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), new TmmThreadFactory("export"));
+    try {
+      List<Future<Void>> futures = executor.invokeAll(tasks);
+      for (Future<Void> future : futures) {
+        try {
+          future.get();
+        }
+        catch (ExecutionException e) {
+          if (e.getCause() instanceof Exception) {
+            throw (Exception) e.getCause();
+          }
+          throw e;
+        }
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void storeManifest(File manifestFile, Map<String, String> entries) throws IOException {
+    Properties manifest = new Properties();
+    manifest.putAll(entries);
+    OutputStream os = null;
+    try {
+      os = new BufferedOutputStream(FileUtils.openOutputStream(manifestFile));
+      manifest.store(os, "tinyMediaManager export");
+      os.close();
+    }
+    finally {
+      IOUtils.closeQuietly(os);
+    }
+  }
+
+  private static Properties loadManifest(File manifestFile) {
+    Properties manifest = new Properties();
+    if (!manifestFile.exists()) {
+      return manifest;
+    }
+    InputStream is = null;
+    try {
+      is = new BufferedInputStream(new FileInputStream(manifestFile));
+      manifest.load(is);
+    }
+    catch (IOException e) {
+      LOGGER.warn("could not read export manifest: " + e.getMessage());
+      manifest.clear();
+    }
+    finally {
+      IOUtils.closeQuietly(is);
+    }
+    return manifest;
+  }
+
+  private static void write(File file, String content) throws IOException {
+    Writer writer = null;
+    try {
+      writer = new BufferedWriter(new OutputStreamWriter(FileUtils.openOutputStream(file), "UTF-8"), BUFFER_SIZE);
+      writer.write(content);
+      writer.close();
+    }
+    finally {
+      IOUtils.closeQuietly(writer);
+    }
+  }
+
+  /**
+   * a detail page to render: the template and the model for the given path (relative to the export directory). The page is only being rendered
+   * again if the entity or one of the given dependencies (other entities the template shows) has been changed
+   */
+  protected static class DetailPage {
+    private final String              path;
+    private final String              template;
+    private final Map<String, Object> model;
+    private final List<Object>        entities;
+
+    public DetailPage(String path, String template, String name, Object entity, Object... dependencies) {
+      this.path = path.replace(File.separatorChar, '/');
+      this.template = template;
+      this.model = new HashMap<String, Object>();
+      this.model.put(name, entity);
+      this.entities = new ArrayList<Object>();
+      this.entities.add(entity);
+      Collections.addAll(this.entities, dependencies);
+    }
+  }
 
   /**
    * Find templates for the given type.
@@ -223,6 +723,50 @@ public abstract class MediaEntityExporter {
     }
   }
 
+  /**
+   * renders the path of the exported image of an entity relative to the page being rendered: <code>${movie;image(POSTER)}</code> renders
+   * images/&lt;md5&gt;.jpg in the list and ../images/&lt;md5&gt;.jpg in movies/&lt;movie&gt;.html
+   */
+  public class ImageRenderer implements NamedRenderer {
+    @Override
+    public String getName() {
+      return "image";
+    }
+
+    @Override
+    public Class<?>[] getSupportedClasses() {
+      return new Class[] { MediaEntity.class };
+    }
+
+    @Override
+    public String render(Object o, String pattern, Locale locale) {
+      if (!(o instanceof MediaEntity) || StringUtils.isBlank(pattern)) {
+        return null;
+      }
+      MediaFileType type;
+      try {
+        type = MediaFileType.valueOf(pattern.trim().toUpperCase(Locale.ROOT));
+      }
+      catch (IllegalArgumentException e) {
+        return null;
+      }
+      List<MediaFile> mfs = ((MediaEntity) o).getMediaFiles(type);
+      if (mfs.isEmpty()) {
+        return null;
+      }
+      String path = imagePaths.get(imageKey(type, mfs.get(0).getFile()));
+      if (path == null) {
+        return null;
+      }
+      return pathToExportDir.get() + path;
+    }
+
+    @Override
+    public RenderFormatInfo getFormatInfo() {
+      return null;
+    }
+  }
+
   public static class HtmlEncoder implements Encoder {
     @Override
     public String encode(String arg0) {
@@ -25,6 +25,7 @@ import org.slf4j.LoggerFactory;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.entities.MediaEntity;
 import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.metrics.TaskProfile;
 import org.tinymediamanager.core.movie.entities.Movie;
 import org.tinymediamanager.core.tvshow.entities.TvShowEpisode;
 
@@ -58,6 +59,21 @@ public class MediaFileInformationFetcherTask implements Callable<Object> {
 
   @Override
   public String call() {
+    // deliver all changes of the media files/entity as one coalesced update to the UI
+    PropertyChangeCoalescer.suspend();
+    long start = System.currentTimeMillis();
+    try {
+      return fetchMediaInformation();
+    }
+    finally {
+      PropertyChangeCoalescer.resume();
+      if (mediaEntity != null) {
+        TaskProfile.recordEntity(mediaEntity.getTitle(), start);
+      }
+    }
+  }
+
+  private String fetchMediaInformation() {
     // try/catch block in the root of the thread to log crashes
     try {
       for (MediaFile mediaFile : mediaFiles) {
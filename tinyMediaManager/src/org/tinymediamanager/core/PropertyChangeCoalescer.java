@@ -0,0 +1,272 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.beans.PropertyChangeEvent;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class PropertyChangeCoalescer. Background tasks can suspend the delivery of property change events to the UI listeners of all model objects
+ * changed in the current thread:
+ *
+ * <pre>
+ * PropertyChangeCoalescer.suspend();
+ * try {
+ *   movie.setMetadata(md, config);
+ *   movie.setArtwork(artwork, config);
+ * }
+ * finally {
+ *   PropertyChangeCoalescer.resume();
+ * }
+ * </pre>
+ *
+ * The listeners of the core ({@link CorePropertyChangeListener}) are not affected: they are always informed synchronously, so the aggregated
+ * lists and filter indices are up to date while the UI is being updated in batches.<br>
+ * While suspended, all events of an entity for the UI are being coalesced per property (first old value, last new value). On resume the events are being
+ * handed over to the EDT where they are delivered at most every {@link #DELIVERY_INTERVAL} ms. Events carrying other model objects (e.g.
+ * addedEpisode) are never merged. Suspending on the EDT has no effect to keep the UI code synchronous.
+ *
+ * @author Manuel Laggner
+ */
+public class PropertyChangeCoalescer {
+  private static final Logger                                 LOGGER            = LoggerFactory.getLogger(PropertyChangeCoalescer.class);
+  public static final int                                     DELIVERY_INTERVAL = 100;
+
+  private static final ThreadLocal<Batch>                     BATCH             = new ThreadLocal<Batch>();
+  private static final Map<AbstractModelObject, EntityEvents> PENDING           = new IdentityHashMap<AbstractModelObject, EntityEvents>();
+  private static final List<EntityEvents>                     PENDING_ORDER     = new ArrayList<EntityEvents>();
+  private static boolean                                      deliveryScheduled = false;
+  private static long                                         lastDelivery      = 0;
+
+  private static final AtomicLong                             firedEvents       = new AtomicLong();
+  private static final AtomicLong                             queuedEvents      = new AtomicLong();
+  private static final AtomicLong                             deliveredEvents   = new AtomicLong();
+  private static final AtomicLong                             deliveries        = new AtomicLong();
+
+  private PropertyChangeCoalescer() {
+  }
+
+  /**
+   * suspend the delivery of property change events fired in the current thread (nestable)
+   */
+  public static void suspend() {
+    if (SwingUtilities.isEventDispatchThread()) {
+      return;
+    }
+    Batch batch = BATCH.get();
+    if (batch == null) {
+      batch = new Batch();
+      BATCH.set(batch);
+    }
+    batch.depth++;
+  }
+
+  /**
+   * resume the delivery of property change events fired in the current thread; the coalesced events are being delivered on the EDT after the
+   * outermost resume
+   */
+  public static void resume() {
+    Batch batch = BATCH.get();
+    if (batch == null) {
+      return;
+    }
+    batch.depth--;
+    if (batch.depth > 0) {
+      return;
+    }
+    BATCH.remove();
+
+    if (batch.entities.isEmpty()) {
+      return;
+    }
+
+    synchronized (PENDING) {
+      for (EntityEvents events : batch.entities.values()) {
+        EntityEvents pending = PENDING.get(events.source);
+        if (pending == null) {
+          PENDING.put(events.source, events);
+          PENDING_ORDER.add(events);
+        }
+        else {
+          for (PropertyChangeEvent evt : events.events.values()) {
+            pending.add(evt);
+          }
+        }
+      }
+      scheduleDelivery();
+    }
+  }
+
+  /**
+   * check if the delivery of events is suspended in the current thread
+   *
+   * @return true if the events are being coalesced
+   */
+  public static boolean isSuspended() {
+    return BATCH.get() != null;
+  }
+
+  /**
+   * called by the model objects for every fired event with UI listeners
+   *
+   * @return true if the event has been queued; false if it has to be delivered immediately
+   */
+  static boolean offer(AbstractModelObject source, PropertyChangeEvent evt) {
+    firedEvents.incrementAndGet();
+    Batch batch = BATCH.get();
+    if (batch == null) {
+      return false;
+    }
+
+    queuedEvents.incrementAndGet();
+    EntityEvents events = batch.entities.get(source);
+    if (events == null) {
+      events = new EntityEvents(source);
+      batch.entities.put(source, events);
+    }
+    events.add(evt);
+    return true;
+  }
+
+  private static void scheduleDelivery() {
+    if (deliveryScheduled) {
+      return;
+    }
+    deliveryScheduled = true;
+
+    long delay = Math.max(0, lastDelivery + DELIVERY_INTERVAL - System.currentTimeMillis());
+    Timer timer = new Timer((int) delay, new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        deliver();
+      }
+    });
+    timer.setRepeats(false);
+    timer.start();
+  }
+
+  /**
+   * deliver all pending events (on the EDT)
+   */
+  private static void deliver() {
+    List<EntityEvents> entities;
+    synchronized (PENDING) {
+      entities = new ArrayList<EntityEvents>(PENDING_ORDER);
+      PENDING.clear();
+      PENDING_ORDER.clear();
+      deliveryScheduled = false;
+      lastDelivery = System.currentTimeMillis();
+    }
+
+    int count = 0;
+    for (EntityEvents events : entities) {
+      for (PropertyChangeEvent evt : events.events.values()) {
+        events.source.deliverPropertyChange(evt);
+        count++;
+      }
+    }
+    deliveredEvents.addAndGet(count);
+    deliveries.incrementAndGet();
+    LOGGER.trace("delivered {} coalesced events of {} entities", count, entities.size());
+  }
+
+  /**
+   * the amount of all fired property change events with UI listeners
+   */
+  public static long getFiredEvents() {
+    return firedEvents.get();
+  }
+
+  /**
+   * the amount of events which have been queued while suspended
+   */
+  public static long getQueuedEvents() {
+    return queuedEvents.get();
+  }
+
+  /**
+   * the amount of queued events which have been delivered after coalescing
+   */
+  public static long getDeliveredEvents() {
+    return deliveredEvents.get();
+  }
+
+  /**
+   * the amount of deliveries on the EDT
+   */
+  public static long getDeliveries() {
+    return deliveries.get();
+  }
+
+  /**
+   * a human readable summary of the metrics
+   */
+  public static String getStatistics() {
+    return "property change events fired: " + getFiredEvents() + ", queued: " + getQueuedEvents() + ", delivered after coalescing: "
+        + getDeliveredEvents() + " in " + getDeliveries() + " deliveries";
+  }
+
+  /**
+   * all coalesced events of one thread
+   */
+  private static class Batch {
+    private int                                          depth    = 0;
+    private final Map<AbstractModelObject, EntityEvents> entities = new IdentityHashMap<AbstractModelObject, EntityEvents>();
+  }
+
+  /**
+   * the coalesced events of one entity; in the order of their first occurrence
+   */
+  private static class EntityEvents {
+    private final AbstractModelObject              source;
+    private final Map<Object, PropertyChangeEvent> events = new LinkedHashMap<Object, PropertyChangeEvent>();
+
+    private EntityEvents(AbstractModelObject source) {
+      this.source = source;
+    }
+
+    private void add(PropertyChangeEvent evt) {
+      // forwarded events, events of all properties (null) or carrying other model objects (e.g. addedEpisode) must not be merged
+      if (evt.getSource() != source || evt.getPropertyName() == null || evt.getOldValue() instanceof AbstractModelObject
+          || evt.getNewValue() instanceof AbstractModelObject) {
+        events.put(new Object(), evt);
+        return;
+      }
+
+      PropertyChangeEvent first = events.get(evt.getPropertyName());
+      Object oldValue = first == null ? evt.getOldValue() : first.getOldValue();
+      // no change (or a reverted one) - nothing to deliver
+      if (oldValue != null && oldValue.equals(evt.getNewValue())) {
+        events.remove(evt.getPropertyName());
+        return;
+      }
+      events.put(evt.getPropertyName(), first == null ? evt : new PropertyChangeEvent(source, evt.getPropertyName(), oldValue, evt.getNewValue()));
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The class ReferenceCountedAggregate. Collects the distinct values used by a set of owners (e.g. all tags of all movies) and keeps a count of how
+ * many owners are using each value. The distinct values are mirrored into the given (observable) list: a value is added when the first owner
+ * starts using it and removed when the last owner stops using it.
+ *
+ * @author Manuel Laggner
+ */
+public class ReferenceCountedAggregate<E> {
+  private final Map<Object, Set<E>> contributions = new IdentityHashMap<Object, Set<E>>();
+  private final Map<E, Integer>     counts        = new ConcurrentHashMap<E, Integer>();
+  private final List<E>             values;
+
+  /**
+   * create a new aggregate which mirrors the distinct values into the given list
+   *
+   * @param values
+   *          the list to hold the distinct values (usually an observable list)
+   */
+  public ReferenceCountedAggregate(List<E> values) {
+    this.values = values;
+  }
+
+  /**
+   * set the values the given owner is currently using; values which are not used by this owner any more are retracted
+   *
+   * @param owner
+   *          the owner of the values (compared by identity)
+   * @param newValues
+   *          the values used by the owner; null values are ignored
+   * @return true if the set of distinct values has changed
+   */
+  public synchronized boolean update(Object owner, Collection<E> newValues) {
+    Set<E> newSet = new HashSet<E>();
+    if (newValues != null) {
+      for (E value : newValues) {
+        if (value != null) {
+          newSet.add(value);
+        }
+      }
+    }
+
+    Set<E> oldSet = contributions.get(owner);
+    if (oldSet == null) {
+      oldSet = Collections.emptySet();
+    }
+
+    boolean changed = false;
+    for (E value : oldSet) {
+      if (!newSet.contains(value)) {
+        changed |= decrement(value);
+      }
+    }
+    for (E value : newSet) {
+      if (!oldSet.contains(value)) {
+        changed |= increment(value);
+      }
+    }
+
+    if (newSet.isEmpty()) {
+      contributions.remove(owner);
+    }
+    else {
+      contributions.put(owner, newSet);
+    }
+
+    return changed;
+  }
+
+  /**
+   * retract all values of the given owner
+   *
+   * @param owner
+   *          the owner of the values
+   * @return true if the set of distinct values has changed
+   */
+  public synchronized boolean remove(Object owner) {
+    Set<E> oldSet = contributions.remove(owner);
+    if (oldSet == null) {
+      return false;
+    }
+
+    boolean changed = false;
+    for (E value : oldSet) {
+      changed |= decrement(value);
+    }
+    return changed;
+  }
+
+  /**
+   * check if the given value is used by at least one owner
+   *
+   * @param value
+   *          the value to check
+   * @return true if the value is in use
+   */
+  public boolean contains(E value) {
+    if (value == null) {
+      return false;
+    }
+    return counts.containsKey(value);
+  }
+
+  /**
+   * get the amount of owners using the given value
+   *
+   * @param value
+   *          the value to check
+   * @return the amount of owners using this value
+   */
+  public int getCount(E value) {
+    if (value == null) {
+      return 0;
+    }
+    Integer count = counts.get(value);
+    return count == null ? 0 : count;
+  }
+
+  private boolean increment(E value) {
+    Integer count = counts.get(value);
+    if (count == null) {
+      counts.put(value, 1);
+      values.add(value);
+      return true;
+    }
+    counts.put(value, count + 1);
+    return false;
+  }
+
+  private boolean decrement(E value) {
+    Integer count = counts.get(value);
+    if (count == null) {
+      return false;
+    }
+    if (count <= 1) {
+      counts.remove(value);
+      values.remove(value);
+      return true;
+    }
+    counts.put(value, count - 1);
+    return false;
+  }
+}
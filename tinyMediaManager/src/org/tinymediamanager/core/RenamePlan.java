@@ -0,0 +1,278 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The class RenamePlan. Holds the precomputed destinations of all entities of a rename run:
+ * <ol>
+ * <li>the entries (entity + claimed destinations) are being created in parallel and added to the plan</li>
+ * <li>{@link #checkConflicts()} detects collisions across the whole batch (two entities renamed to the same destination, destinations inside a
+ * folder claimed by another entity, destinations already existing on disk)</li>
+ * <li>the workers fetch the remaining entries via {@link #next()}; there is only one entry per file system in work at the same time, so moves on
+ * different file systems run concurrently while one file system is not hammered by several moves</li>
+ * </ol>
+ * The file system of an entry is identified by the volume of its data source (see {@link #getFileSystem(String)}).
+ *
+ * @author Manuel Laggner
+ */
+public class RenamePlan<T> {
+  private final List<Entry<T>>                    entries    = new ArrayList<Entry<T>>();
+  private final Map<String, LinkedList<Entry<T>>> queues     = new LinkedHashMap<String, LinkedList<Entry<T>>>();
+  private final Set<String>                       busy       = new HashSet<String>();
+  private final RenameStatistics                  statistics = new RenameStatistics();
+
+  /**
+   * add a planned entry
+   *
+   * @param entry
+   *          the entry
+   */
+  public synchronized void add(Entry<T> entry) {
+    entries.add(entry);
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public RenameStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * check all planned destinations for collisions and prepare the execution of all entries without conflicts
+   *
+   * @return all entries with a conflict (they won't be renamed)
+   */
+  public synchronized List<Entry<T>> checkConflicts() {
+    Map<String, Claim<T>> claimed = new HashMap<String, Claim<T>>();
+    Map<String, Claim<T>> folders = new HashMap<String, Claim<T>>();
+
+    // 1. two entities with the same destination
+    for (Entry<T> entry : entries) {
+      for (Claim<T> claim : entry.claims) {
+        Claim<T> other = claimed.get(claim.destinationKey);
+        if (other == null) {
+          claimed.put(claim.destinationKey, claim);
+        }
+        else if (other.entry != entry && !other.sourceKey.equals(claim.sourceKey)) {
+          conflict(entry, other.entry, claim.destination);
+        }
+        if (claim.folder && !folders.containsKey(claim.destinationKey)) {
+          folders.put(claim.destinationKey, claim);
+        }
+      }
+    }
+
+    for (Entry<T> entry : entries) {
+      for (Claim<T> claim : entry.claims) {
+        // 2. destinations inside a folder which is being moved by another entity
+        File parent = claim.destination;
+        while (parent != null) {
+          Claim<T> folder = folders.get(key(parent));
+          if (folder != null && folder.entry != entry && !folder.sourceKey.equals(claim.sourceKey)) {
+            conflict(entry, folder.entry, claim.destination);
+            break;
+          }
+          parent = parent.getParentFile();
+        }
+
+        // 3. destinations which already exist (and are not the entity's own files)
+        if (!claim.sourceKey.equals(claim.destinationKey) && claim.destination.exists() && !entry.isSource(claim.destinationKey)) {
+          conflict(entry, null, claim.destination);
+        }
+      }
+    }
+
+    List<Entry<T>> conflicts = new ArrayList<Entry<T>>();
+    queues.clear();
+    for (Entry<T> entry : entries) {
+      if (entry.hasConflict()) {
+        conflicts.add(entry);
+        continue;
+      }
+      LinkedList<Entry<T>> queue = queues.get(entry.fileSystem);
+      if (queue == null) {
+        queue = new LinkedList<Entry<T>>();
+        queues.put(entry.fileSystem, queue);
+      }
+      queue.add(entry);
+    }
+    return conflicts;
+  }
+
+  private void conflict(Entry<T> entry, Entry<T> other, File destination) {
+    if (entry.conflict == null) {
+      entry.conflict = destination;
+    }
+    if (other != null && other.conflict == null) {
+      other.conflict = destination;
+    }
+  }
+
+  /**
+   * the amount of file systems with entries to rename
+   */
+  public synchronized int getFileSystemCount() {
+    return queues.size();
+  }
+
+  /**
+   * get the next entry to rename; blocks while all file systems with remaining entries are in work
+   *
+   * @return the next entry or null if there is nothing left to do
+   * @throws InterruptedException
+   */
+  public synchronized Entry<T> next() throws InterruptedException {
+    while (true) {
+      boolean remaining = false;
+      for (Map.Entry<String, LinkedList<Entry<T>>> queue : queues.entrySet()) {
+        if (queue.getValue().isEmpty()) {
+          continue;
+        }
+        remaining = true;
+        if (!busy.contains(queue.getKey())) {
+          busy.add(queue.getKey());
+          return queue.getValue().removeFirst();
+        }
+      }
+      if (!remaining) {
+        return null;
+      }
+      wait();
+    }
+  }
+
+  /**
+   * mark the entry as done; the file system is free for the next entry
+   *
+   * @param entry
+   *          the entry from {@link #next()}
+   */
+  public synchronized void done(Entry<T> entry) {
+    busy.remove(entry.fileSystem);
+    notifyAll();
+  }
+
+  /**
+   * get the file system of the data source for the entries: the volume it is stored on (see {@link Utils#getVolume(File)}), so several data
+   * sources on the same disk share one file system; if the volume cannot be determined, the data source itself is used
+   *
+   * @param dataSource
+   *          the data source
+   * @return the key of the file system
+   */
+  public static String getFileSystem(String dataSource) {
+    String volume = Utils.getVolume(new File(dataSource));
+    return volume != null ? volume : dataSource;
+  }
+
+  /**
+   * normalized key of a file; case insensitive to detect collisions on windows/mac file systems too
+   */
+  private static String key(File file) {
+    return file.getAbsolutePath().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * the planned rename of one entity
+   */
+  public static class Entry<T> {
+    private final T              entity;
+    private final String         fileSystem;
+    private final List<Claim<T>> claims   = new ArrayList<Claim<T>>();
+    private final Set<String>    sources  = new HashSet<String>();
+    private File                 conflict = null;
+
+    public Entry(T entity, String fileSystem) {
+      this.entity = entity;
+      this.fileSystem = fileSystem;
+    }
+
+    /**
+     * the entity will move the file to the given destination
+     */
+    public void claimFile(File source, File destination) {
+      claims.add(new Claim<T>(this, source, destination, false));
+      sources.add(key(source));
+    }
+
+    /**
+     * the entity will move the folder to the given destination; nothing else may be renamed into this folder
+     */
+    public void claimFolder(File source, File destination) {
+      claims.add(new Claim<T>(this, source, destination, true));
+      sources.add(key(source));
+    }
+
+    /**
+     * the entity owns the file (and it may be overwritten by the rename)
+     */
+    public void addSource(File source) {
+      sources.add(key(source));
+    }
+
+    private boolean isSource(String key) {
+      return sources.contains(key);
+    }
+
+    public T getEntity() {
+      return entity;
+    }
+
+    public String getFileSystem() {
+      return fileSystem;
+    }
+
+    public boolean hasConflict() {
+      return conflict != null;
+    }
+
+    /**
+     * the destination which caused the conflict
+     */
+    public File getConflict() {
+      return conflict;
+    }
+  }
+
+  private static class Claim<T> {
+    private final Entry<T> entry;
+    private final File     destination;
+    private final String   sourceKey;
+    private final String   destinationKey;
+    private final boolean  folder;
+
+    private Claim(Entry<T> entry, File source, File destination, boolean folder) {
+      this.entry = entry;
+      this.destination = destination;
+      this.sourceKey = key(source);
+      this.destinationKey = key(destination);
+      this.folder = folder;
+    }
+  }
+}
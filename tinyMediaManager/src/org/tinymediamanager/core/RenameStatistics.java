@@ -0,0 +1,80 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * The class RenameStatistics. Collects the work done by the renamers (thread safe): metadata-only renames (the file system just changes the name)
+ * vs. files whose bytes had to be copied
+ *
+ * @author Manuel Laggner
+ */
+public class RenameStatistics {
+  private final AtomicLong metadataRenames = new AtomicLong();
+  private final AtomicLong copiedFiles     = new AtomicLong();
+  private final AtomicLong copiedBytes     = new AtomicLong();
+  private final AtomicLong failures        = new AtomicLong();
+
+  /**
+   * a file or folder has been renamed/moved without copying its content
+   */
+  public void addMetadataRename() {
+    metadataRenames.incrementAndGet();
+  }
+
+  /**
+   * a file has been copied
+   *
+   * @param bytes
+   *          the size of the copied file
+   */
+  public void addCopy(long bytes) {
+    copiedFiles.incrementAndGet();
+    copiedBytes.addAndGet(bytes);
+  }
+
+  /**
+   * an entity could not be renamed
+   */
+  public void addFailure() {
+    failures.incrementAndGet();
+  }
+
+  public long getMetadataRenames() {
+    return metadataRenames.get();
+  }
+
+  public long getCopiedFiles() {
+    return copiedFiles.get();
+  }
+
+  public long getCopiedBytes() {
+    return copiedBytes.get();
+  }
+
+  public long getFailures() {
+    return failures.get();
+  }
+
+  @Override
+  public String toString() {
+    return getMetadataRenames() + " metadata-only renames, " + getCopiedFiles() + " files copied ("
+        + FileUtils.byteCountToDisplaySize(getCopiedBytes()) + "), " + getFailures() + " failed";
+  }
+}
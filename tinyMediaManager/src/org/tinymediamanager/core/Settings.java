@@ -146,6 +146,13 @@ public class Settings extends AbstractModelObject {
   private String                      fontFamily                  = "Dialog";
 
   private boolean                     deleteTrashOnExit           = false;
+  private boolean                     verifyCopiedFiles           = false;
+
+  // downloads: parallel segments per download, buffer size in kB, concurrent downloads and max. kB/s (0 = unlimited) of all downloads
+  private int                         downloadSegments            = 4;
+  private int                         downloadBufferSize          = 64;
+  private int                         downloadSlots               = 2;
+  private int                         downloadBandwidthLimit      = 0;
 
   private PropertyChangeListener      propertyChangeListener;
 
@@ -153,7 +160,7 @@ public class Settings extends AbstractModelObject {
    * Instantiates a new settings.
    */
   private Settings() {
-    propertyChangeListener = new PropertyChangeListener() {
+    propertyChangeListener = new CorePropertyChangeListener() {
       @Override
       public void propertyChange(PropertyChangeEvent evt) {
         setDirty();
@@ -1077,4 +1084,57 @@ public class Settings extends AbstractModelObject {
   public boolean isDeleteTrashOnExit() {
     return deleteTrashOnExit;
   }
+
+  public void setVerifyCopiedFiles(boolean newValue) {
+    boolean oldValue = verifyCopiedFiles;
+    verifyCopiedFiles = newValue;
+    firePropertyChange("verifyCopiedFiles", oldValue, newValue);
+  }
+
+  /**
+   * compare the checksums of files which had to be copied (moves across volumes)
+   */
+  public boolean isVerifyCopiedFiles() {
+    return verifyCopiedFiles;
+  }
+
+  public void setDownloadSegments(int newValue) {
+    int oldValue = downloadSegments;
+    downloadSegments = newValue;
+    firePropertyChange("downloadSegments", oldValue, newValue);
+  }
+
+  public int getDownloadSegments() {
+    return downloadSegments;
+  }
+
+  public void setDownloadBufferSize(int newValue) {
+    int oldValue = downloadBufferSize;
+    downloadBufferSize = newValue;
+    firePropertyChange("downloadBufferSize", oldValue, newValue);
+  }
+
+  public int getDownloadBufferSize() {
+    return downloadBufferSize;
+  }
+
+  public void setDownloadSlots(int newValue) {
+    int oldValue = downloadSlots;
+    downloadSlots = newValue;
+    firePropertyChange("downloadSlots", oldValue, newValue);
+  }
+
+  public int getDownloadSlots() {
+    return downloadSlots;
+  }
+
+  public void setDownloadBandwidthLimit(int newValue) {
+    int oldValue = downloadBandwidthLimit;
+    downloadBandwidthLimit = newValue;
+    firePropertyChange("downloadBandwidthLimit", oldValue, newValue);
+  }
+
+  public int getDownloadBandwidthLimit() {
+    return downloadBandwidthLimit;
+  }
 }
@@ -64,6 +64,8 @@ import org.tinymediamanager.scraper.util.StrgUtils;
 import org.tinymediamanager.scraper.util.Url;
 import org.tinymediamanager.ui.TmmWindowSaver;
 
+import com.sun.jna.Platform;
+
 /**
  * The Class Utils.
  * 
@@ -481,6 +483,135 @@ public class Utils {
     return StrgUtils.removeDuplicateWhitespace(result);
   }
 
+  /**
+   * renameTo() with up to 5 attempts; the delay between the attempts is doubled each time (250ms - 2s). The delay only blocks the calling thread, so
+   * renames running in other threads (e.g. on other data sources) are not affected
+   * 
+   * @param src
+   *          the file/directory to rename
+   * @param dest
+   *          the destination
+   * @return true, if successful
+   */
+  public static boolean renameWithRetry(File src, File dest) {
+    long delay = 250;
+    for (int i = 0; i < 5; i++) {
+      if (src.renameTo(dest)) {
+        return true; // ok it worked, step out
+      }
+      if (i == 4) {
+        break;
+      }
+      try {
+        LOGGER.debug("rename did not work - sleep " + delay + "ms and try again...");
+        Thread.sleep(delay);
+        delay *= 2;
+      }
+      catch (InterruptedException e) {
+        LOGGER.warn("I'm so excited - could not sleep");
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * get the volume (mount point) the file is stored on; the file itself does not need to exist (its nearest existing parent is used). On Windows
+   * this is the drive/share, on Linux the mount point from /proc/mounts and on other systems the mount point reported by df
+   * 
+   * @param file
+   *          the file
+   * @return the mount point or null, if it cannot be determined
+   */
+  public static String getVolume(File file) {
+    File existing = file.getAbsoluteFile();
+    while (existing != null && !existing.exists()) {
+      existing = existing.getParentFile();
+    }
+    if (existing == null) {
+      return null;
+    }
+
+    try {
+      String path = existing.getCanonicalPath();
+      if (Platform.isWindows()) {
+        File root = new File(path);
+        while (root.getParentFile() != null) {
+          root = root.getParentFile();
+        }
+        return root.getPath().toLowerCase();
+      }
+
+      File mounts = new File("/proc/mounts");
+      if (mounts.exists()) {
+        // the longest mount point containing the path
+        String volume = null;
+        for (String line : FileUtils.readLines(mounts, "UTF-8")) {
+          String[] fields = line.split(" ");
+          if (fields.length < 2) {
+            continue;
+          }
+          // spaces and other special characters are escaped as octal numbers (e.g. \040)
+          String mountPoint = unescapeMountPoint(fields[1]);
+          if (isParentPath(mountPoint, path) && (volume == null || mountPoint.length() > volume.length())) {
+            volume = mountPoint;
+          }
+        }
+        return volume;
+      }
+
+      // other systems (e.g. OSX): the last column of the df output is the mount point
+      Process process = new ProcessBuilder("df", "-P", path).redirectErrorStream(true).start();
+      List<String> lines;
+      try {
+        lines = IOUtils.readLines(process.getInputStream(), "UTF-8");
+      }
+      finally {
+        IOUtils.closeQuietly(process.getInputStream());
+        process.waitFor();
+      }
+      if (lines.size() < 2) {
+        return null;
+      }
+      Matcher matcher = Pattern.compile("\\s\\d+%\\s+(/.*)$").matcher(lines.get(lines.size() - 1));
+      return matcher.find() ? matcher.group(1) : null;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    catch (Exception e) {
+      LOGGER.debug("could not determine the volume of " + file.getPath() + ": " + e.getMessage());
+    }
+    return null;
+  }
+
+  private static String unescapeMountPoint(String mountPoint) {
+    Matcher matcher = Pattern.compile("\\\\([0-7]{3})").matcher(mountPoint);
+    StringBuffer sb = new StringBuffer();
+    while (matcher.find()) {
+      matcher.appendReplacement(sb, Matcher.quoteReplacement(String.valueOf((char) Integer.parseInt(matcher.group(1), 8))));
+    }
+    matcher.appendTail(sb);
+    return sb.toString();
+  }
+
+  private static boolean isParentPath(String parent, String path) {
+    if (parent.equals("/") || parent.equals(path)) {
+      return true;
+    }
+    return path.startsWith(parent + "/");
+  }
+
+  /**
+   * are the files stored on different volumes? If the volumes cannot be determined, they are assumed to be the same
+   */
+  static boolean isCrossVolume(File file1, File file2) {
+    String volume1 = getVolume(file1);
+    String volume2 = getVolume(file2);
+    return volume1 != null && volume2 != null && !volume1.equals(volume2);
+  }
+
   /**
    * modified version of commons-io FileUtils.moveDirectory();<br>
    * since renameTo() might not work in first place, retry it up to 5 times.<br>
@@ -522,21 +653,8 @@ public class Utils {
       }
     }
 
-    // rename folder; try 5 times and wait a sec
-    boolean rename = false;
-    for (int i = 0; i < 5; i++) {
-      rename = srcDir.renameTo(destDir);
-      if (rename) {
-        break; // ok it worked, step out
-      }
-      try {
-        LOGGER.debug("rename did not work - sleep a while and try again...");
-        Thread.sleep(1000);
-      }
-      catch (InterruptedException e) {
-        LOGGER.warn("I'm so excited - could not sleep");
-      }
-    }
+    // rename folder; try 5 times with an increasing delay
+    boolean rename = renameWithRetry(srcDir, destDir);
 
     // ok, we tried it 5 times - it still seems to be locked somehow. Continue
     // with copying as fallback
@@ -557,8 +675,8 @@ public class Utils {
   /**
    * modified version of commons-io FileUtils.moveFile();<br>
    * since renameTo() might not work in first place, retry it up to 5 times.<br>
-   * (better wait 5 sec for success, than always copying a 50gig directory ;)<br>
-   * <b>And NO, we're NOT doing a copy+delete as fallback!</b>
+   * <b>No copy+delete as fallback</b> - except the destination is on another volume, where a rename cannot work: then the file is being copied and
+   * the source deleted afterwards (see {@link FileTransfer})
    * 
    * @param srcFile
    *          the file to be moved
@@ -575,6 +693,23 @@ public class Utils {
    * @since 1.4
    */
   public static boolean moveFileSafe(final File srcFile, final File destFile) throws IOException {
+    return moveFileSafe(srcFile, destFile, null);
+  }
+
+  /**
+   * move the file (see {@link #moveFileSafe(File, File)}) and record the work done
+   * 
+   * @param srcFile
+   *          the file to be moved
+   * @param destFile
+   *          the destination file
+   * @param statistics
+   *          collects the renames/copies (nullable)
+   * @return true, if successful
+   * @throws IOException
+   *           if an IO error occurs moving the file
+   */
+  public static boolean moveFileSafe(final File srcFile, final File destFile, RenameStatistics statistics) throws IOException {
     if (srcFile == null) {
       throw new NullPointerException("Source must not be null");
     }
@@ -597,25 +732,28 @@ public class Utils {
         throw new IOException("Destination '" + destFile + "' is a directory");
       }
 
-      // rename folder; try 5 times and wait a sec
-      boolean rename = false;
-      for (int i = 0; i < 5; i++) {
+      // rename file; try 5 times with an increasing delay (but not across different volumes)
+      boolean crossVolume = isCrossVolume(srcFile, destFile);
+      boolean rename;
+      if (!crossVolume) {
+        rename = renameWithRetry(srcFile, destFile);
+      }
+      else {
         rename = srcFile.renameTo(destFile);
-        if (rename) {
-          break; // ok it worked, step out
-        }
-        try {
-          LOGGER.debug("rename did not work - sleep a while and try again...");
-          Thread.sleep(1000);
-        }
-        catch (InterruptedException e) {
-          LOGGER.warn("I'm so excited - could not sleep");
-        }
+      }
+      if (rename && statistics != null) {
+        statistics.addMetadataRename();
       }
 
-      // ok, we tried it 5 times - it still seems to be locked somehow. Continue
-      // with copying as fallback
-      // NOOO - we don't like to have some files copied and some not.
+      // ok, we tried it 5 times - it still seems to be locked somehow. Continue with copying as fallback?
+      // NOOO - we don't like to copy (and maybe throw away) a locked 40GB file. Copy only if a rename cannot work at all (another volume)
+      if (!rename && crossVolume && srcFile.exists()) {
+        long length = srcFile.length();
+        rename = FileTransfer.move(srcFile, destFile, Globals.settings.isVerifyCopiedFiles());
+        if (rename && statistics != null) {
+          statistics.addCopy(length);
+        }
+      }
 
       if (!rename) {
         LOGGER.error("Failed to rename file '" + srcFile + " to " + destFile.getPath());
@@ -53,7 +53,10 @@ import org.tinymediamanager.Globals;
 import org.tinymediamanager.core.AbstractModelObject;
 import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Utils;
+import org.tinymediamanager.core.metrics.MetricsRegistry;
+import org.tinymediamanager.core.metrics.Timer;
 import org.tinymediamanager.scraper.util.StrgUtils;
+import org.tinymediamanager.scraper.util.SubtitleUtils;
 import org.tinymediamanager.thirdparty.MediaInfo;
 import org.tinymediamanager.thirdparty.MediaInfo.StreamKind;
 
@@ -115,6 +118,9 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
   private int                                        overallBitRate     = 0;
   private int                                        durationInSecs     = 0;
   private int                                        stacking           = 0;
+  private String                                     openSubtitlesHash  = "";
+  private String                                     subDbHash          = "";
+  private String                                     hashedFileStamp    = "";
 
   @Enumerated(EnumType.STRING)
   private MediaFileType                              type               = MediaFileType.UNKNOWN;
@@ -148,6 +154,9 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
     this.overallBitRate = clone.overallBitRate;
     this.durationInSecs = clone.durationInSecs;
     this.stacking = clone.stacking;
+    this.openSubtitlesHash = clone.openSubtitlesHash;
+    this.subDbHash = clone.subDbHash;
+    this.hashedFileStamp = clone.hashedFileStamp;
     this.type = clone.type;
     this.audioStreams.addAll(clone.audioStreams);
     this.subtitles.addAll(clone.subtitles);
@@ -545,6 +554,41 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
     return df.format(filesize / (1024.0 * 1024.0)) + " M";
   }
 
+  /**
+   * Gets the OpenSubtitles hash of the file. The subtitle hashes are stored along with the media file and only get re-computed if the size or date
+   * of the file changed.
+   * 
+   * @return the OpenSubtitles hash or an empty string if the file could not be hashed
+   */
+  public String getOpenSubtitlesHash() {
+    updateSubtitleHashes();
+    return openSubtitlesHash;
+  }
+
+  /**
+   * Gets the SubDB hash of the file (see {@link #getOpenSubtitlesHash()}).
+   * 
+   * @return the SubDB hash or an empty string if the file could not be hashed
+   */
+  public String getSubDbHash() {
+    updateSubtitleHashes();
+    return subDbHash;
+  }
+
+  private synchronized void updateSubtitleHashes() {
+    File f = getFile();
+    String stamp = f.length() + ":" + f.lastModified();
+    if (stamp.equals(hashedFileStamp) && StringUtils.isNotBlank(openSubtitlesHash)) {
+      return;
+    }
+
+    // both hashes with one read
+    SubtitleUtils.Hashes hashes = SubtitleUtils.computeHashes(f);
+    openSubtitlesHash = hashes.getOpenSubtitlesHash();
+    subDbHash = hashes.getSubDbHash();
+    hashedFileStamp = StringUtils.isBlank(openSubtitlesHash) ? "" : stamp;
+  }
+
   public MediaFileType getType() {
     return type;
   }
@@ -1125,6 +1169,7 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
     }
 
     LOGGER.debug("start MediaInfo for " + this.getFile().getAbsolutePath());
+    Timer.Context timer = MetricsRegistry.timer("mediainfo.gather").start();
 
     mediaInfo = getMediaInfo();
     try {
@@ -1132,6 +1177,7 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
     }
     catch (Exception e) {
       LOGGER.error("error getting MediaInfo for " + this.filename);
+      MetricsRegistry.counter("mediainfo.errors").inc();
       closeMediaInfo();
       return;
     }
@@ -1451,6 +1497,7 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
     // close mediainfo lib
     closeMediaInfo();
     LOGGER.trace("closed MI");
+    timer.stop();
   }
 
   /**
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The class Counter. Counts events (e.g. cache hits or errors); the events are counted in the {@link TaskProfile} of the current thread too.
+ *
+ * @author Manuel Laggner
+ */
+public class Counter extends Metric implements CounterMBean {
+  private final AtomicLong count = new AtomicLong();
+
+  public Counter(String name) {
+    super(name);
+  }
+
+  public void inc() {
+    inc(1);
+  }
+
+  public void inc(long n) {
+    count.addAndGet(n);
+    TaskProfile profile = TaskProfile.getCurrent();
+    if (profile != null) {
+      profile.addCount(getName(), n);
+    }
+  }
+
+  @Override
+  public long getCount() {
+    return count.get();
+  }
+
+  @Override
+  public String getType() {
+    return "counter";
+  }
+
+  @Override
+  public String getSummary() {
+    return "count=" + getCount();
+  }
+
+  @Override
+  public void reset() {
+    count.set(0);
+  }
+}
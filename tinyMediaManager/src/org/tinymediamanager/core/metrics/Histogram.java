@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.metrics;
+
+import java.util.Arrays;
+
+/**
+ * The class Histogram. Records the distribution of values (e.g. sizes or durations): count, min, max and mean over all values, the percentiles
+ * over the last {@value #SAMPLE_SIZE} values (so they follow the current behavior and the memory stays constant).
+ *
+ * @author Manuel Laggner
+ */
+public class Histogram extends Metric implements HistogramMBean {
+  static final int     SAMPLE_SIZE = 1024;
+
+  private final long[] samples     = new long[SAMPLE_SIZE];
+  private long         count       = 0;
+  private long         sum         = 0;
+  private long         min         = 0;
+  private long         max         = 0;
+
+  public Histogram(String name) {
+    super(name);
+  }
+
+  /**
+   * record a value
+   *
+   * @param value
+   *          the value
+   */
+  public synchronized void update(long value) {
+    if (count == 0 || value < min) {
+      min = value;
+    }
+    if (count == 0 || value > max) {
+      max = value;
+    }
+    samples[(int) (count % SAMPLE_SIZE)] = value;
+    count++;
+    sum += value;
+  }
+
+  @Override
+  public synchronized long getCount() {
+    return count;
+  }
+
+  @Override
+  public synchronized long getMin() {
+    return min;
+  }
+
+  @Override
+  public synchronized long getMax() {
+    return max;
+  }
+
+  @Override
+  public synchronized double getMean() {
+    return count == 0 ? 0 : (double) sum / count;
+  }
+
+  protected synchronized long getSum() {
+    return sum;
+  }
+
+  /**
+   * get the percentile of the last recorded values
+   *
+   * @param quantile
+   *          the quantile (0.0 - 1.0)
+   * @return the value of the percentile (0 if there are no values)
+   */
+  public long getPercentile(double quantile) {
+    long[] values;
+    synchronized (this) {
+      values = Arrays.copyOf(samples, (int) Math.min(count, SAMPLE_SIZE));
+    }
+    if (values.length == 0) {
+      return 0;
+    }
+    Arrays.sort(values);
+    int index = (int) Math.ceil(quantile * values.length) - 1;
+    return values[Math.max(0, Math.min(index, values.length - 1))];
+  }
+
+  @Override
+  public long get50thPercentile() {
+    return getPercentile(0.5);
+  }
+
+  @Override
+  public long get95thPercentile() {
+    return getPercentile(0.95);
+  }
+
+  @Override
+  public long get99thPercentile() {
+    return getPercentile(0.99);
+  }
+
+  @Override
+  public String getType() {
+    return "histogram";
+  }
+
+  @Override
+  public String getSummary() {
+    return String.format("count=%d min=%d max=%d mean=%.1f p50=%d p95=%d p99=%d", getCount(), getMin(), getMax(), getMean(), get50thPercentile(),
+        get95thPercentile(), get99thPercentile());
+  }
+
+  @Override
+  public synchronized void reset() {
+    count = 0;
+    sum = 0;
+    min = 0;
+    max = 0;
+  }
+}
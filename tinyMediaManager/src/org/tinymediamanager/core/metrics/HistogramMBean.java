@@ -0,0 +1,41 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.metrics;
+
+/**
+ * The JMX interface of a {@link Histogram}.
+ *
+ * @author Manuel Laggner
+ */
+public interface HistogramMBean {
+  public String getName();
+
+  public long getCount();
+
+  public long getMin();
+
+  public long getMax();
+
+  public double getMean();
+
+  public long get50thPercentile();
+
+  public long get95thPercentile();
+
+  public long get99thPercentile();
+
+  public void reset();
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.metrics;
+
+/**
+ * The class Metric. The base class of all metrics of the {@link MetricsRegistry}.
+ *
+ * @author Manuel Laggner
+ */
+public abstract class Metric {
+  private final String name;
+
+  protected Metric(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * the type of the metric (for the dump)
+   */
+  public abstract String getType();
+
+  /**
+   * the current values of the metric in one line (for the dump)
+   */
+  public abstract String getSummary();
+
+  /**
+   * reset all values of the metric
+   */
+  public abstract void reset();
+}
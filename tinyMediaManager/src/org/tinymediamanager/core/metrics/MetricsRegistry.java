@@ -0,0 +1,197 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class MetricsRegistry. Holds the metrics of all subsystems by their name (&lt;subsystem&gt;.&lt;name&gt;, e.g. "http.request"). Metrics are
+ * created on their first use and live as long as the application; with {@link #enableJmx()} all metrics are exposed as MBeans
+ * (org.tinymediamanager:type=Metrics,subsystem=..,name=..) and with {@link #dump(File)} they can be written to a file.
+ *
+ * @author Manuel Laggner
+ */
+public class MetricsRegistry {
+  private static final Logger              LOGGER     = LoggerFactory.getLogger(MetricsRegistry.class);
+  private static final String              JMX_DOMAIN = "org.tinymediamanager";
+
+  private static final Map<String, Metric> METRICS    = new TreeMap<String, Metric>();
+  private static boolean                   jmxEnabled = false;
+
+  private MetricsRegistry() {
+  }
+
+  /**
+   * get (or create) the counter with the given name
+   */
+  public static Counter counter(String name) {
+    synchronized (METRICS) {
+      Metric metric = METRICS.get(name);
+      if (!(metric instanceof Counter)) {
+        metric = register(new Counter(name));
+      }
+      return (Counter) metric;
+    }
+  }
+
+  /**
+   * get (or create) the histogram with the given name
+   */
+  public static Histogram histogram(String name) {
+    synchronized (METRICS) {
+      Metric metric = METRICS.get(name);
+      if (metric == null || metric.getClass() != Histogram.class) {
+        metric = register(new Histogram(name));
+      }
+      return (Histogram) metric;
+    }
+  }
+
+  /**
+   * get (or create) the timer with the given name
+   */
+  public static Timer timer(String name) {
+    synchronized (METRICS) {
+      Metric metric = METRICS.get(name);
+      if (!(metric instanceof Timer)) {
+        metric = register(new Timer(name));
+      }
+      return (Timer) metric;
+    }
+  }
+
+  /**
+   * get all metrics (sorted by their name)
+   */
+  public static List<Metric> getMetrics() {
+    synchronized (METRICS) {
+      return new ArrayList<Metric>(METRICS.values());
+    }
+  }
+
+  /**
+   * reset the values of all metrics
+   */
+  public static void reset() {
+    for (Metric metric : getMetrics()) {
+      metric.reset();
+    }
+  }
+
+  private static Metric register(Metric metric) {
+    Metric old = METRICS.put(metric.getName(), metric);
+    if (old != null) {
+      LOGGER.warn("metric " + metric.getName() + " has been re-registered as " + metric.getType());
+    }
+    if (jmxEnabled) {
+      registerMBean(metric);
+    }
+    return metric;
+  }
+
+  /**
+   * expose all existing and future metrics over JMX
+   */
+  public static void enableJmx() {
+    synchronized (METRICS) {
+      if (jmxEnabled) {
+        return;
+      }
+      jmxEnabled = true;
+      for (Metric metric : METRICS.values()) {
+        registerMBean(metric);
+      }
+    }
+  }
+
+  private static void registerMBean(Metric metric) {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = getObjectName(metric.getName());
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+      server.registerMBean(metric, name);
+    }
+    catch (Exception e) {
+      LOGGER.warn("could not register metric " + metric.getName() + " at JMX: " + e.getMessage());
+    }
+  }
+
+  static ObjectName getObjectName(String metricName) throws Exception {
+    // characters with a special meaning in object names are not allowed
+    String name = metricName.replaceAll("[,=:\"*?]", "_");
+    String subsystem = StringUtils.substringBefore(name, ".");
+    String rest = StringUtils.substringAfter(name, ".");
+    if (StringUtils.isBlank(rest)) {
+      return new ObjectName(JMX_DOMAIN + ":type=Metrics,name=" + name);
+    }
+    return new ObjectName(JMX_DOMAIN + ":type=Metrics,subsystem=" + subsystem + ",name=" + rest);
+  }
+
+  /**
+   * write all metrics (one per line) to the writer
+   *
+   * @param writer
+   *          the writer
+   */
+  public static void dump(Writer writer) {
+    PrintWriter out = new PrintWriter(writer);
+    out.println("# tinyMediaManager metrics - " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
+    for (Metric metric : getMetrics()) {
+      out.println(String.format("%-50s %-10s %s", metric.getName(), metric.getType(), metric.getSummary()));
+    }
+    out.flush();
+  }
+
+  /**
+   * write all metrics to the file
+   *
+   * @param file
+   *          the file (will be overwritten)
+   * @throws IOException
+   */
+  public static void dump(File file) throws IOException {
+    Writer writer = null;
+    try {
+      writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+      dump(writer);
+    }
+    finally {
+      IOUtils.closeQuietly(writer);
+    }
+  }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.metrics;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The class TaskProfile. Collects the execution profile of one run of a task: the metrics ({@link Timer}s and {@link Counter}s) which are recorded
+ * by the threads working for the task (see {@link #setCurrent(TaskProfile)}), grouped into phases (filesystem, HTTP per host, DB, NFO, image
+ * processing, ...), the slowest entities (movies, folders) and the error counts. When the task has finished, the profile is written as JSON to
+ * {@value #PROFILE_DIR} (the newest {@value #MAX_REPORTS} reports are kept).<br>
+ * The phase times are summed over all threads of the task (so they can exceed the wall time) and can overlap: a scraper call contains its HTTP
+ * requests.
+ *
+ * @author Manuel Laggner
+ */
+public class TaskProfile {
+  private static final Logger                   LOGGER           = LoggerFactory.getLogger(TaskProfile.class);
+  private static final ThreadLocal<TaskProfile> CURRENT          = new ThreadLocal<TaskProfile>();
+  public static final String                    PROFILE_DIR      = "logs/profiles";
+  static final int                              MAX_REPORTS      = 50;
+  static final int                              SLOWEST_ENTITIES = 10;
+
+  // the phases of the report and the prefixes of the metrics belonging to them
+  private static final String[][]               PHASES           = { { "filesystem", "filesystem." }, { "http", "http.host." },
+      { "scraper", "scraper." }, { "db", "db." }, { "nfo", "nfo." }, { "image", "imagecache." }, { "mediainfo", "mediainfo." } };
+
+  private final String                          taskName;
+  private final String                          taskClass;
+  private final long                            startTime        = System.currentTimeMillis();
+  private long                                  wallTime         = -1;
+
+  // metric name -> count, total time, max time
+  private final Map<String, long[]>             timers           = new TreeMap<String, long[]>();
+  private final Map<String, Long>               counts           = new TreeMap<String, Long>();
+  private final Map<String, Integer>            pools            = new LinkedHashMap<String, Integer>();
+  private final List<Object[]>                  slowest          = new ArrayList<Object[]>();
+  private int                                   workUnits        = 0;
+
+  public TaskProfile(String taskName, String taskClass) {
+    this.taskName = taskName;
+    this.taskClass = taskClass;
+  }
+
+  /**
+   * get the profile the current thread is working for
+   *
+   * @return the profile or null
+   */
+  public static TaskProfile getCurrent() {
+    return CURRENT.get();
+  }
+
+  /**
+   * bind the profile to the current thread; all timers and counters of this thread are recorded in the profile too
+   *
+   * @param profile
+   *          the profile or null to remove the binding
+   */
+  public static void setCurrent(TaskProfile profile) {
+    if (profile == null) {
+      CURRENT.remove();
+    }
+    else {
+      CURRENT.set(profile);
+    }
+  }
+
+  /**
+   * record the duration of an entity (e.g. a movie or a folder) in the profile of the current thread
+   *
+   * @param name
+   *          the name of the entity
+   * @param start
+   *          the start of the work on the entity (System.currentTimeMillis())
+   */
+  public static void recordEntity(String name, long start) {
+    TaskProfile profile = CURRENT.get();
+    if (profile != null) {
+      profile.addEntity(name, System.currentTimeMillis() - start);
+    }
+  }
+
+  public synchronized void addTime(String name, long duration) {
+    if (wallTime >= 0) {
+      return;
+    }
+    long[] values = timers.get(name);
+    if (values == null) {
+      values = new long[3];
+      timers.put(name, values);
+    }
+    values[0]++;
+    values[1] += duration;
+    values[2] = Math.max(values[2], duration);
+  }
+
+  public synchronized void addCount(String name, long n) {
+    if (wallTime >= 0) {
+      return;
+    }
+    Long count = counts.get(name);
+    counts.put(name, count == null ? n : count + n);
+  }
+
+  /**
+   * record a thread pool of the task
+   *
+   * @param name
+   *          the name of the pool
+   * @param threads
+   *          the amount of threads
+   */
+  public synchronized void addPool(String name, int threads) {
+    pools.put(name, threads);
+  }
+
+  /**
+   * count a submitted work unit
+   */
+  public synchronized void addWorkUnit() {
+    workUnits++;
+  }
+
+  /**
+   * record the duration of an entity; only the slowest ones are kept
+   */
+  public synchronized void addEntity(String name, long duration) {
+    if (wallTime >= 0) {
+      return;
+    }
+    if (slowest.size() == SLOWEST_ENTITIES && (Long) slowest.get(SLOWEST_ENTITIES - 1)[1] >= duration) {
+      return;
+    }
+    slowest.add(new Object[] { name, duration });
+    Collections.sort(slowest, new Comparator<Object[]>() {
+      @Override
+      public int compare(Object[] o1, Object[] o2) {
+        return ((Long) o2[1]).compareTo((Long) o1[1]);
+      }
+    });
+    if (slowest.size() > SLOWEST_ENTITIES) {
+      slowest.remove(SLOWEST_ENTITIES);
+    }
+  }
+
+  /**
+   * finish the profile; later records are ignored
+   */
+  public synchronized void finish() {
+    if (wallTime < 0) {
+      wallTime = System.currentTimeMillis() - startTime;
+    }
+  }
+
+  /**
+   * the wall time (in ms) of the task; the time until now if the profile has not been finished yet
+   */
+  public synchronized long getWallTime() {
+    return wallTime >= 0 ? wallTime : System.currentTimeMillis() - startTime;
+  }
+
+  /**
+   * the report of the profile (as it is written to the JSON file)
+   *
+   * @param cancelled
+   *          has the task been cancelled?
+   * @return the report
+   */
+  public synchronized Map<String, Object> getReport(boolean cancelled) {
+    Map<String, Object> report = new LinkedHashMap<String, Object>();
+    report.put("task", taskName);
+    report.put("class", taskClass);
+    report.put("start", new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(startTime)));
+    report.put("wallTime", getWallTime());
+    report.put("cancelled", cancelled);
+    report.put("workUnits", workUnits);
+    report.put("threads", new LinkedHashMap<String, Integer>(pools));
+
+    Map<String, Object> phases = new LinkedHashMap<String, Object>();
+    for (String[] phase : PHASES) {
+      long count = 0;
+      long time = 0;
+      for (Map.Entry<String, long[]> entry : timers.entrySet()) {
+        if (entry.getKey().startsWith(phase[1])) {
+          count += entry.getValue()[0];
+          time += entry.getValue()[1];
+        }
+      }
+      if (count > 0) {
+        phases.put(phase[0], createTimerEntry(count, time, -1));
+      }
+    }
+    report.put("phases", phases);
+
+    Map<String, Object> timerEntries = new LinkedHashMap<String, Object>();
+    for (Map.Entry<String, long[]> entry : timers.entrySet()) {
+      long[] values = entry.getValue();
+      timerEntries.put(entry.getKey(), createTimerEntry(values[0], values[1], values[2]));
+    }
+    report.put("timers", timerEntries);
+
+    long errors = 0;
+    for (Map.Entry<String, Long> entry : counts.entrySet()) {
+      if (entry.getKey().endsWith(".errors")) {
+        errors += entry.getValue();
+      }
+    }
+    report.put("errors", errors);
+    report.put("counts", new LinkedHashMap<String, Long>(counts));
+
+    List<Map<String, Object>> entities = new ArrayList<Map<String, Object>>();
+    for (Object[] entity : slowest) {
+      Map<String, Object> entry = new LinkedHashMap<String, Object>();
+      entry.put("name", entity[0]);
+      entry.put("time", entity[1]);
+      entities.add(entry);
+    }
+    report.put("slowest", entities);
+    return report;
+  }
+
+  private Map<String, Object> createTimerEntry(long count, long time, long max) {
+    Map<String, Object> entry = new LinkedHashMap<String, Object>();
+    entry.put("count", count);
+    entry.put("time", time);
+    if (max >= 0) {
+      entry.put("max", max);
+    }
+    return entry;
+  }
+
+  /**
+   * write the report to the profile directory
+   *
+   * @param cancelled
+   *          has the task been cancelled?
+   * @return the written file or null
+   */
+  public File write(boolean cancelled) {
+    return write(new File(PROFILE_DIR), cancelled);
+  }
+
+  File write(File dir, boolean cancelled) {
+    File file = new File(dir, new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(startTime)) + "-" + taskClass + ".json");
+    try {
+      FileUtils.forceMkdir(dir);
+      new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, getReport(cancelled));
+      LOGGER.info("profile of " + taskName + " written to " + file.getPath());
+    }
+    catch (IOException e) {
+      LOGGER.warn("could not write the profile of " + taskName + ": " + e.getMessage());
+      return null;
+    }
+
+    // keep only the newest reports
+    List<File> reports = getReports(dir);
+    for (int i = MAX_REPORTS; i < reports.size(); i++) {
+      FileUtils.deleteQuietly(reports.get(i));
+    }
+    return file;
+  }
+
+  /**
+   * get all written reports (the newest first)
+   *
+   * @return the report files
+   */
+  public static List<File> getReports() {
+    return getReports(new File(PROFILE_DIR));
+  }
+
+  static List<File> getReports(File dir) {
+    File[] files = dir.listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+        return name.endsWith(".json");
+      }
+    });
+    if (files == null) {
+      return new ArrayList<File>();
+    }
+    // the file names start with the time stamp
+    Arrays.sort(files, Collections.reverseOrder());
+    return new ArrayList<File>(Arrays.asList(files));
+  }
+
+  /**
+   * read a written report
+   *
+   * @param file
+   *          the report file
+   * @return the report
+   * @throws IOException
+   */
+  @SuppressWarnings("unchecked")
+  public static Map<String, Object> readReport(File file) throws IOException {
+    return new ObjectMapper().readValue(file, LinkedHashMap.class);
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.metrics;
+
+/**
+ * The class Timer. Records the durations (in ms) of an operation and its throughput. Usage:
+ *
+ * <pre>
+ * Timer.Context context = timer.start();
+ * try {
+ *   ...
+ * }
+ * finally {
+ *   context.stop();
+ * }
+ * </pre>
+ *
+ * The durations are recorded in the {@link TaskProfile} of the current thread too.
+ *
+ * @author Manuel Laggner
+ */
+public class Timer extends Histogram implements TimerMBean {
+  private volatile long startTime = System.currentTimeMillis();
+
+  public Timer(String name) {
+    super(name);
+  }
+
+  /**
+   * start timing an operation
+   *
+   * @return the context to stop the timing
+   */
+  public Context start() {
+    return new Context();
+  }
+
+  /**
+   * the sum of all recorded durations (in ms)
+   */
+  @Override
+  public long getTotalTime() {
+    return getSum();
+  }
+
+  /**
+   * the amount of recorded operations per second since the start (or reset) of the timer
+   */
+  @Override
+  public double getRatePerSecond() {
+    long elapsed = System.currentTimeMillis() - startTime;
+    return elapsed <= 0 ? 0 : getCount() * 1000d / elapsed;
+  }
+
+  @Override
+  public void update(long value) {
+    super.update(value);
+    TaskProfile profile = TaskProfile.getCurrent();
+    if (profile != null) {
+      profile.addTime(getName(), value);
+    }
+  }
+
+  @Override
+  public String getType() {
+    return "timer";
+  }
+
+  @Override
+  public String getSummary() {
+    return String.format("count=%d total=%dms mean=%.1fms p50=%dms p95=%dms p99=%dms max=%dms rate=%.2f/s", getCount(), getTotalTime(), getMean(),
+        get50thPercentile(), get95thPercentile(), get99thPercentile(), getMax(), getRatePerSecond());
+  }
+
+  @Override
+  public synchronized void reset() {
+    super.reset();
+    startTime = System.currentTimeMillis();
+  }
+
+  /**
+   * The timing of one operation
+   */
+  public class Context {
+    private final long start = System.nanoTime();
+
+    private Context() {
+    }
+
+    /**
+     * stop the timing and record the duration
+     *
+     * @return the duration (in ms)
+     */
+    public long stop() {
+      long duration = (System.nanoTime() - start) / 1000000;
+      update(duration);
+      return duration;
+    }
+  }
+}
@@ -0,0 +1,477 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.FullTextIndex;
+import org.tinymediamanager.core.MediaFileType;
+import org.tinymediamanager.core.Settings;
+import org.tinymediamanager.core.Utils;
+import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.movie.entities.Movie;
+
+/**
+ * The class MovieDuplicateDetector. Finds duplicate movies - not only by their ids, but also unscraped ones and different encodes of the same film:
+ * <ul>
+ * <li>movies with the same imdb/tmdb id or with the same file content (same size and OpenSubtitles hash) are duplicates for sure</li>
+ * <li>candidates with a similar title are found via locality sensitive hashing (MinHash over the trigrams of the normalized title); so only a
+ * few movies get compared with each other and the search runs in near-linear time</li>
+ * <li>these candidates are scored by title similarity, year and runtime (from mediainfo)</li>
+ * </ul>
+ *
+ * @author Manuel Laggner
+ */
+public class MovieDuplicateDetector {
+  private static final Logger LOGGER            = LoggerFactory.getLogger(MovieDuplicateDetector.class);
+
+  // 10 bands with 2 rows: movies with a title similarity of ~0.3 and more become candidates
+  private static final int    BANDS             = 10;
+  private static final int    ROWS              = 2;
+  // huge buckets (e.g. very short titles) would make the search quadratic again
+  private static final int    MAX_BUCKET_SIZE   = 100;
+  // the runtime may differ a bit between two encodes
+  private static final int    RUNTIME_TOLERANCE = 120;
+
+  private final float         threshold;
+
+  /**
+   * create a detector which reports duplicates with a confidence of 0.8 and more
+   */
+  public MovieDuplicateDetector() {
+    this(0.8f);
+  }
+
+  /**
+   * @param threshold
+   *          the min. confidence (0..1) of reported duplicates
+   */
+  public MovieDuplicateDetector(float threshold) {
+    this.threshold = threshold;
+  }
+
+  /**
+   * search the given movies for duplicates
+   *
+   * @param movies
+   *          the movies to search in
+   * @return the clusters of duplicate movies
+   */
+  public List<DuplicateCluster> findDuplicates(List<Movie> movies) {
+    long start = System.currentTimeMillis();
+    int n = movies.size();
+    List<String> titlePrefixes = new ArrayList<String>();
+    for (String prefix : Settings.getInstance().getTitlePrefix()) {
+      titlePrefixes.add(prefix.toLowerCase(Locale.ROOT));
+    }
+
+    Candidate[] candidates = new Candidate[n];
+    for (int i = 0; i < n; i++) {
+      candidates[i] = new Candidate(movies.get(i), titlePrefixes);
+    }
+
+    Clusters clusters = new Clusters(n);
+    Set<Long> compared = new HashSet<Long>();
+
+    // 1) same ids
+    Map<String, Integer> imdbIds = new HashMap<String, Integer>();
+    Map<Integer, Integer> tmdbIds = new HashMap<Integer, Integer>();
+    for (int i = 0; i < n; i++) {
+      Candidate candidate = candidates[i];
+      if (StringUtils.isNotEmpty(candidate.imdbId)) {
+        Integer other = imdbIds.get(candidate.imdbId);
+        if (other == null) {
+          imdbIds.put(candidate.imdbId, i);
+        }
+        else {
+          clusters.union(other, i, 1f, "imdb id");
+        }
+      }
+      if (candidate.tmdbId > 0) {
+        Integer other = tmdbIds.get(candidate.tmdbId);
+        if (other == null) {
+          tmdbIds.put(candidate.tmdbId, i);
+        }
+        else {
+          clusters.union(other, i, 1f, "tmdb id");
+        }
+      }
+    }
+
+    // 2) same file content; the hash is only calculated for files with the same size
+    Map<Long, List<Integer>> sizes = new HashMap<Long, List<Integer>>();
+    for (int i = 0; i < n; i++) {
+      if (candidates[i].size > 0) {
+        add(sizes, candidates[i].size, i);
+      }
+    }
+    int hashed = 0;
+    for (List<Integer> sameSize : sizes.values()) {
+      if (sameSize.size() < 2) {
+        continue;
+      }
+      Map<String, Integer> hashes = new HashMap<String, Integer>();
+      for (Integer i : sameSize) {
+        MediaFile mf = candidates[i].videoFile;
+        if (mf == null || !mf.exists()) {
+          continue;
+        }
+        // cached in the media file as long as the file does not change
+        String hash = mf.getOpenSubtitlesHash();
+        hashed++;
+        if (StringUtils.isBlank(hash)) {
+          continue;
+        }
+        Integer other = hashes.get(hash);
+        if (other == null) {
+          hashes.put(hash, i);
+        }
+        else {
+          clusters.union(other, i, 1f, "same file content");
+        }
+      }
+    }
+
+    // 3) similar titles: put every movie in one bucket per band of its MinHash signature; only movies sharing a bucket get compared
+    Map<Long, List<Integer>> buckets = new HashMap<Long, List<Integer>>();
+    for (int i = 0; i < n; i++) {
+      int[] signature = candidates[i].signature;
+      if (signature == null) {
+        continue;
+      }
+      for (int band = 0; band < BANDS; band++) {
+        long key = band;
+        for (int row = 0; row < ROWS; row++) {
+          key = key * 31 + signature[band * ROWS + row];
+        }
+        add(buckets, key, i);
+      }
+    }
+
+    int comparisons = 0;
+    for (List<Integer> bucket : buckets.values()) {
+      if (bucket.size() < 2) {
+        continue;
+      }
+      if (bucket.size() > MAX_BUCKET_SIZE) {
+        LOGGER.debug("skipping a bucket of " + bucket.size() + " similar titles");
+        continue;
+      }
+      for (int x = 0; x < bucket.size(); x++) {
+        for (int y = x + 1; y < bucket.size(); y++) {
+          int i = bucket.get(x);
+          int j = bucket.get(y);
+          if (!compared.add(((long) Math.min(i, j) << 32) | Math.max(i, j))) {
+            continue;
+          }
+          comparisons++;
+          float score = score(candidates[i], candidates[j]);
+          if (score >= threshold) {
+            clusters.union(i, j, score, "similar title");
+          }
+        }
+      }
+    }
+
+    List<DuplicateCluster> result = clusters.getClusters(movies);
+    LOGGER.info("found " + result.size() + " duplicate clusters in " + n + " movies (" + comparisons + " comparisons, " + hashed + " hashed files, "
+        + (System.currentTimeMillis() - start) + "ms)");
+    return result;
+  }
+
+  /**
+   * the confidence that both movies are the same film
+   */
+  static float score(Candidate a, Candidate b) {
+    // different ids -> different movies
+    if (StringUtils.isNotEmpty(a.imdbId) && StringUtils.isNotEmpty(b.imdbId) && !a.imdbId.equals(b.imdbId)) {
+      return 0;
+    }
+    if (a.tmdbId > 0 && b.tmdbId > 0 && a.tmdbId != b.tmdbId) {
+      return 0;
+    }
+
+    float title = jaccard(a.shingles, b.shingles);
+    if (title < 0.5f) {
+      return 0;
+    }
+
+    float year = 0.5f; // unknown
+    if (a.year > 0 && b.year > 0) {
+      int diff = Math.abs(a.year - b.year);
+      if (diff > 1) {
+        // a remake
+        return 0;
+      }
+      year = diff == 0 ? 1f : 0.5f;
+    }
+
+    float runtime = 0.5f; // unknown
+    if (a.runtime > 0 && b.runtime > 0) {
+      int diff = Math.abs(a.runtime - b.runtime);
+      if (diff <= Math.max(RUNTIME_TOLERANCE, Math.max(a.runtime, b.runtime) * 3 / 100)) {
+        runtime = 1f;
+      }
+      else if (diff <= 600) {
+        // another cut?
+        runtime = 0.5f;
+      }
+      else {
+        runtime = 0f;
+      }
+    }
+
+    return 0.6f * title + 0.2f * year + 0.2f * runtime;
+  }
+
+  private static float jaccard(Set<String> a, Set<String> b) {
+    if (a.isEmpty() || b.isEmpty()) {
+      return 0;
+    }
+    int intersection = 0;
+    for (String shingle : a) {
+      if (b.contains(shingle)) {
+        intersection++;
+      }
+    }
+    return intersection / (float) (a.size() + b.size() - intersection);
+  }
+
+  private static <K> void add(Map<K, List<Integer>> map, K key, int value) {
+    List<Integer> values = map.get(key);
+    if (values == null) {
+      values = new ArrayList<Integer>(2);
+      map.put(key, values);
+    }
+    values.add(value);
+  }
+
+  /**
+   * the values of a movie needed for the duplicate search
+   */
+  static class Candidate {
+    private final String      imdbId;
+    private final int         tmdbId;
+    private final int         year;
+    private final int         runtime;
+    private final long        size;
+    private final MediaFile   videoFile;
+    private final Set<String> shingles;
+    private final int[]       signature;
+
+    Candidate(Movie movie, List<String> titlePrefixes) {
+      imdbId = movie.getImdbId();
+      tmdbId = movie.getTmdbId();
+      int y = 0;
+      try {
+        y = Integer.parseInt(movie.getYear());
+      }
+      catch (NumberFormatException e) {
+      }
+      year = y;
+
+      int duration = 0;
+      long filesize = 0;
+      MediaFile firstVideoFile = null;
+      for (MediaFile mf : movie.getMediaFiles(MediaFileType.VIDEO)) {
+        duration += mf.getDuration();
+        filesize += mf.getFilesize();
+        if (firstVideoFile == null) {
+          firstVideoFile = mf;
+        }
+      }
+      runtime = duration;
+      size = filesize;
+      videoFile = firstVideoFile;
+
+      shingles = shingles(normalize(movie.getTitle(), titlePrefixes));
+      signature = shingles.isEmpty() ? null : minHash(shingles);
+    }
+
+    /**
+     * lower cased, accent folded title without punctuation and leading article
+     */
+    static String normalize(String title, List<String> titlePrefixes) {
+      List<String> tokens = FullTextIndex.tokenize(Utils.removeSortableName(title));
+      if (tokens.size() > 1 && titlePrefixes.contains(tokens.get(0))) {
+        tokens.remove(0);
+      }
+      return StringUtils.join(tokens, " ");
+    }
+
+    static Set<String> shingles(String title) {
+      Set<String> shingles = new LinkedHashSet<String>();
+      if (title.length() < 3) {
+        if (!title.isEmpty()) {
+          shingles.add(title);
+        }
+        return shingles;
+      }
+      for (int i = 0; i + 3 <= title.length(); i++) {
+        shingles.add(title.substring(i, i + 3));
+      }
+      return shingles;
+    }
+
+    static int[] minHash(Set<String> shingles) {
+      int[] signature = new int[BANDS * ROWS];
+      for (int k = 0; k < signature.length; k++) {
+        int min = Integer.MAX_VALUE;
+        for (String shingle : shingles) {
+          int hash = mix(shingle.hashCode() ^ (0x9E3779B9 * (k + 1)));
+          if (hash < min) {
+            min = hash;
+          }
+        }
+        signature[k] = min;
+      }
+      return signature;
+    }
+
+    // finalizer of MurmurHash3
+    private static int mix(int h) {
+      h ^= h >>> 16;
+      h *= 0x85ebca6b;
+      h ^= h >>> 13;
+      h *= 0xc2b2ae35;
+      h ^= h >>> 16;
+      return h;
+    }
+  }
+
+  /**
+   * union find over the movie indices; remembers the weakest link and the reasons of every cluster
+   */
+  private static class Clusters {
+    private final int[]                     parent;
+    private final Map<Integer, Float>       confidence = new HashMap<Integer, Float>();
+    private final Map<Integer, Set<String>> reasons    = new HashMap<Integer, Set<String>>();
+
+    private Clusters(int size) {
+      parent = new int[size];
+      for (int i = 0; i < size; i++) {
+        parent[i] = i;
+      }
+    }
+
+    private int find(int i) {
+      while (parent[i] != i) {
+        parent[i] = parent[parent[i]];
+        i = parent[i];
+      }
+      return i;
+    }
+
+    private void union(int i, int j, float score, String reason) {
+      int rootI = find(i);
+      int rootJ = find(j);
+      if (rootI == rootJ) {
+        // already in the same cluster
+        reasons.get(rootJ).add(reason);
+        return;
+      }
+
+      float min = score;
+      Set<String> allReasons = new LinkedHashSet<String>();
+      allReasons.add(reason);
+      for (int root : new int[] { rootI, rootJ }) {
+        Float c = confidence.remove(root);
+        if (c != null) {
+          min = Math.min(min, c);
+        }
+        Set<String> r = reasons.remove(root);
+        if (r != null) {
+          allReasons.addAll(r);
+        }
+      }
+
+      parent[rootI] = rootJ;
+      confidence.put(rootJ, min);
+      reasons.put(rootJ, allReasons);
+    }
+
+    private List<DuplicateCluster> getClusters(List<Movie> movies) {
+      Map<Integer, DuplicateCluster> clusters = new HashMap<Integer, DuplicateCluster>();
+      List<DuplicateCluster> result = new ArrayList<DuplicateCluster>();
+      for (int i = 0; i < parent.length; i++) {
+        int root = find(i);
+        if (!confidence.containsKey(root)) {
+          continue; // no duplicate
+        }
+        DuplicateCluster cluster = clusters.get(root);
+        if (cluster == null) {
+          cluster = new DuplicateCluster(confidence.get(root), reasons.get(root));
+          clusters.put(root, cluster);
+          result.add(cluster);
+        }
+        cluster.movies.add(movies.get(i));
+      }
+      return result;
+    }
+  }
+
+  /**
+   * a group of movies which are (most likely) the same film
+   */
+  public static class DuplicateCluster {
+    private final List<Movie> movies = new ArrayList<Movie>();
+    private final float       confidence;
+    private final Set<String> reasons;
+
+    private DuplicateCluster(float confidence, Set<String> reasons) {
+      this.confidence = confidence;
+      this.reasons = reasons;
+    }
+
+    public List<Movie> getMovies() {
+      return movies;
+    }
+
+    /**
+     * the confidence (0..1) that all movies in this cluster are the same film
+     */
+    public float getConfidence() {
+      return confidence;
+    }
+
+    public Set<String> getReasons() {
+      return reasons;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder();
+      sb.append(String.format(Locale.ROOT, "%.2f", confidence)).append(" ").append(reasons).append(":");
+      for (Movie movie : movies) {
+        sb.append(" '").append(movie.getTitle()).append("'");
+        if (StringUtils.isNotBlank(movie.getYear())) {
+          sb.append(" (").append(movie.getYear()).append(")");
+        }
+      }
+      return sb.toString();
+    }
+  }
+}
@@ -30,6 +30,7 @@ import org.tinymediamanager.core.MediaEntityExporter;
 import org.tinymediamanager.core.entities.MediaEntity;
 import org.tinymediamanager.core.movie.entities.Movie;
 
+import com.floreysoft.jmte.Engine;
 import com.floreysoft.jmte.NamedRenderer;
 import com.floreysoft.jmte.RenderFormatInfo;
 
@@ -45,6 +46,11 @@ public class MovieExporter extends MediaEntityExporter {
     super(pathToTemplate, TemplateType.MOVIE);
   }
 
+  @Override
+  protected void registerRenderers(Engine engine) {
+    engine.registerNamedRenderer(new MovieFilenameRenderer());
+  }
+
   /**
    * exports movie list according to template file.
    * 
@@ -59,10 +65,6 @@ public class MovieExporter extends MediaEntityExporter {
   public <T extends MediaEntity> void export(List<T> moviesToExport, String pathToExport) throws Exception {
     LOGGER.info("preparing movie export; using " + properties.getProperty("name"));
 
-    // register own renderers
-    engine.registerNamedRenderer(new NamedDateRenderer());
-    engine.registerNamedRenderer(new MovieFilenameRenderer());
-
     // prepare export destination
     File exportDir = new File(pathToExport);
     if (!exportDir.exists()) {
@@ -86,25 +88,25 @@ public class MovieExporter extends MediaEntityExporter {
       throw new Exception("error creating movie list file");
     }
 
+    // scale the artwork
+    exportImages(exportDir, moviesToExport);
+
     // create list
     LOGGER.info("generating movie list");
     FileUtils.deleteQuietly(listExportFile);
 
     Map<String, Object> root = new HashMap<String, Object>();
     root.put("movies", new ArrayList<T>(moviesToExport));
-
-    String output = engine.transform(listTemplate, root);
-
-    FileUtils.writeStringToFile(listExportFile, output, "UTF-8");
+    exportList(listExportFile, root);
     LOGGER.info("movie list generated: " + listExportFile.getAbsolutePath());
 
     // create details for
     if (StringUtils.isNotBlank(detailTemplate)) {
+      // without a manifest of the last export we do not know which pages are ours
       File detailsDir = new File(exportDir, "movies");
-      if (detailsDir.exists()) {
+      if (detailsDir.exists() && !getManifestFile(exportDir).exists()) {
         FileUtils.deleteQuietly(detailsDir);
       }
-      detailsDir.mkdirs();
 
       String renamerTemplate = "";
       if (StringUtils.isNotBlank(MovieModuleManager.MOVIE_SETTINGS.getMovieRenamerFilename())) {
@@ -115,19 +117,14 @@ public class MovieExporter extends MediaEntityExporter {
         renamerTemplate = "$T ($Y) $V $A";
       }
 
+      List<DetailPage> pages = new ArrayList<DetailPage>();
       for (MediaEntity me : moviesToExport) {
         Movie movie = (Movie) me;
-        LOGGER.debug("processing movie " + movie.getTitle());
         // get preferred movie name like set up in movie renamer
-        File detailsExportFile = new File(detailsDir, MovieRenamer.createDestinationForFilename(renamerTemplate, movie) + "." + fileExtension);
-
-        root = new HashMap<String, Object>();
-        root.put("movie", movie);
-
-        output = engine.transform(detailTemplate, root);
-        FileUtils.writeStringToFile(detailsExportFile, output, "UTF-8");
-
+        String detailsExportFile = "movies/" + MovieRenamer.createDestinationForFilename(renamerTemplate, movie) + "." + fileExtension;
+        pages.add(new DetailPage(detailsExportFile, detailTemplate, "movie", movie));
       }
+      exportDetails(exportDir, pages);
 
       LOGGER.info("movie detail pages generated: " + exportDir.getAbsolutePath());
     }
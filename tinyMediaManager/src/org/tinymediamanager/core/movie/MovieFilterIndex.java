@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.tinymediamanager.core.FilterIndex;
+import org.tinymediamanager.core.MediaFileType;
+import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.entities.MediaFileAudioStream;
+import org.tinymediamanager.core.movie.entities.Movie;
+import org.tinymediamanager.scraper.MediaGenres;
+
+/**
+ * The class MovieFilterIndex. Holds bitsets of all movies for the values used in the extended movie filter
+ *
+ * @author Manuel Laggner
+ */
+public class MovieFilterIndex extends FilterIndex<Movie, MovieFilterIndex.Field> {
+  public enum Field {
+    WATCHED, GENRE, CERTIFICATION, TAG, IN_MOVIESET, VIDEO_FORMAT, VIDEO_CODEC, AUDIO_CODEC, DATASOURCE, SCRAPED, HAS_IMAGES, HAS_SUBTITLES,
+    MEDIA_SOURCE, YEAR
+  }
+
+  public MovieFilterIndex() {
+    super(Movie.class);
+  }
+
+  @Override
+  protected void collectKeys(Movie movie, Set<Object> keys) {
+    put(keys, Field.WATCHED, movie.isWatched());
+    put(keys, Field.SCRAPED, movie.isScraped());
+    put(keys, Field.HAS_IMAGES, movie.getHasImages());
+    put(keys, Field.HAS_SUBTITLES, movie.hasSubtitles());
+    put(keys, Field.IN_MOVIESET, movie.getMovieSet() != null);
+    put(keys, Field.CERTIFICATION, movie.getCertification());
+    put(keys, Field.MEDIA_SOURCE, movie.getMediaSource());
+    put(keys, Field.YEAR, movie.getYear());
+    put(keys, Field.VIDEO_FORMAT, movie.getMediaInfoVideoFormat());
+    put(keys, Field.VIDEO_CODEC, movie.getMediaInfoVideoCodec());
+
+    if (StringUtils.isNotBlank(movie.getDataSource())) {
+      put(keys, Field.DATASOURCE, new File(movie.getDataSource()));
+    }
+
+    for (MediaGenres genre : movie.getGenres()) {
+      put(keys, Field.GENRE, genre);
+    }
+
+    for (String tag : movie.getTags()) {
+      put(keys, Field.TAG, tag);
+    }
+
+    // the audio codecs of the first video file
+    List<MediaFile> videoFiles = movie.getMediaFiles(MediaFileType.VIDEO);
+    if (!videoFiles.isEmpty()) {
+      for (MediaFileAudioStream stream : videoFiles.get(0).getAudioStreams()) {
+        put(keys, Field.AUDIO_CODEC, stream.getCodec());
+      }
+    }
+  }
+}
@@ -44,13 +44,17 @@ import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
 import org.tinymediamanager.core.AbstractModelObject;
 import org.tinymediamanager.core.Constants;
+import org.tinymediamanager.core.CorePropertyChangeListener;
 import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.ReferenceCountedAggregate;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.entities.MediaFileAudioStream;
+import org.tinymediamanager.core.metrics.Timer;
+import org.tinymediamanager.core.movie.MovieDuplicateDetector.DuplicateCluster;
 import org.tinymediamanager.core.movie.entities.Movie;
 import org.tinymediamanager.core.movie.entities.MovieSet;
 import org.tinymediamanager.scraper.Certification;
@@ -69,6 +73,7 @@ import org.tinymediamanager.scraper.moviemeternl.MoviemeterMetadataProvider;
 import org.tinymediamanager.scraper.ofdb.OfdbMetadataProvider;
 import org.tinymediamanager.scraper.rottentomatoes.RottenTomatoesMetadataProvider;
 import org.tinymediamanager.scraper.tmdb.TmdbMetadataProvider;
+import org.tinymediamanager.scraper.util.ScraperMetrics;
 import org.tinymediamanager.scraper.zelluloid.ZelluloidMetadataProvider;
 import org.tinymediamanager.ui.UTF8Control;
 
@@ -82,29 +87,36 @@ import ca.odell.glazedlists.ObservableElementList;
  * @author Manuel Laggner
  */
 public class MovieList extends AbstractModelObject {
-  private static final Logger          LOGGER                   = LoggerFactory.getLogger(MovieList.class);
-  private static final ResourceBundle  BUNDLE                   = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
-  private static MovieList             instance;
-
-  private ObservableElementList<Movie> movieList;
-  private List<MovieSet>               movieSetList;
-  private PropertyChangeListener       tagListener;
-  private List<String>                 tagsObservable           = ObservableCollections.observableList(Collections
-                                                                    .synchronizedList(new ArrayList<String>()));
-  private List<String>                 videoCodecsObservable    = ObservableCollections.observableList(Collections
-                                                                    .synchronizedList(new ArrayList<String>()));
-  private List<String>                 audioCodecsObservable    = ObservableCollections.observableList(Collections
-                                                                    .synchronizedList(new ArrayList<String>()));
-  private List<Certification>          certificationsObservable = ObservableCollections.observableList(Collections
-                                                                    .synchronizedList(new ArrayList<Certification>()));
-  private final Comparator<MovieSet>   movieSetComparator       = new MovieSetComparator();
+  private static final Logger                            LOGGER                   = LoggerFactory.getLogger(MovieList.class);
+  private static final ResourceBundle                    BUNDLE                   = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+  private static MovieList                               instance;
+
+  private ObservableElementList<Movie>                   movieList;
+  private List<MovieSet>                                 movieSetList;
+  private PropertyChangeListener                         tagListener;
+  private List<String>                                   tagsObservable           = ObservableCollections.observableList(Collections
+                                                                                      .synchronizedList(new ArrayList<String>()));
+  private List<String>                                   videoCodecsObservable    = ObservableCollections.observableList(Collections
+                                                                                      .synchronizedList(new ArrayList<String>()));
+  private List<String>                                   audioCodecsObservable    = ObservableCollections.observableList(Collections
+                                                                                      .synchronizedList(new ArrayList<String>()));
+  private List<Certification>                            certificationsObservable = ObservableCollections.observableList(Collections
+                                                                                      .synchronizedList(new ArrayList<Certification>()));
+  private final ReferenceCountedAggregate<String>        tagsAggregate            = new ReferenceCountedAggregate<String>(tagsObservable);
+  private final ReferenceCountedAggregate<String>        videoCodecsAggregate     = new ReferenceCountedAggregate<String>(videoCodecsObservable);
+  private final ReferenceCountedAggregate<String>        audioCodecsAggregate     = new ReferenceCountedAggregate<String>(audioCodecsObservable);
+  private final ReferenceCountedAggregate<Certification> certificationsAggregate  = new ReferenceCountedAggregate<Certification>(
+                                                                                      certificationsObservable);
+  private final MovieFilterIndex                         filterIndex              = new MovieFilterIndex();
+  private final MovieSearchIndex                         searchIndex              = new MovieSearchIndex();
+  private final Comparator<MovieSet>                     movieSetComparator       = new MovieSetComparator();
 
   /**
    * Instantiates a new movie list.
    */
   private MovieList() {
     // the tag listener: its used to always have a full list of all tags used in tmm
-    tagListener = new PropertyChangeListener() {
+    tagListener = new CorePropertyChangeListener() {
       @Override
       public void propertyChange(PropertyChangeEvent evt) {
         // listen to changes of tags
@@ -145,9 +157,14 @@ public class MovieList extends AbstractModelObject {
   public void addMovie(Movie movie) {
     if (!movieList.contains(movie)) {
       int oldValue = movieList.size();
+      // index first, so the filter index is informed before the observing lists
+      filterIndex.add(movie);
       movieList.add(movie);
+      searchIndex.update(movie);
 
       updateTags(movie);
+      updateMediaInformationLists(movie);
+      updateCertifications(movie);
       movie.addPropertyChangeListener(tagListener);
       firePropertyChange("movies", null, movieList);
       firePropertyChange("movieCount", oldValue, movieList.size());
@@ -229,6 +246,7 @@ public class MovieList extends AbstractModelObject {
     for (int i = movies.size() - 1; i >= 0; i--) {
       Movie movie = movies.get(i);
       movieList.remove(movie);
+      removeFromAggregates(movie);
       if (movie.getMovieSet() != null) {
         MovieSet movieSet = movie.getMovieSet();
 
@@ -283,6 +301,7 @@ public class MovieList extends AbstractModelObject {
       Movie movie = movies.get(i);
       movie.deleteFilesSafely();
       movieList.remove(movie);
+      removeFromAggregates(movie);
       if (movie.getMovieSet() != null) {
         MovieSet movieSet = movie.getMovieSet();
         movieSet.removeMovie(movie);
@@ -341,7 +360,9 @@ public class MovieList extends AbstractModelObject {
 
               // for performance reasons we add movies directly
               // addMovie(movie);
+              filterIndex.add(movie);
               movieList.add(movie);
+              searchIndex.update(movie);
               updateTags(movie);
               updateMediaInformationLists(movie);
               updateCertifications(movie);
@@ -508,7 +529,13 @@ public class MovieList extends AbstractModelObject {
         }
       }
 
-      sr = provider.search(options);
+      Timer.Context timer = ScraperMetrics.start(provider, "search");
+      try {
+        sr = provider.search(options);
+      }
+      finally {
+        timer.stop();
+      }
       // if result is empty, try all scrapers
       if (sr.isEmpty() && MovieModuleManager.MOVIE_SETTINGS.isScraperFallback()) {
         LOGGER.debug("no result yet - trying alternate scrapers");
@@ -518,7 +545,13 @@ public class MovieList extends AbstractModelObject {
           if (provider.getProviderInfo().equals(provider2.getProviderInfo())) {
             continue;
           }
-          sr = provider2.search(options);
+          timer = ScraperMetrics.start(provider2, "search");
+          try {
+            sr = provider2.search(options);
+          }
+          finally {
+            timer.stop();
+          }
           if (!sr.isEmpty()) {
             break;
           }
@@ -901,17 +934,8 @@ public class MovieList extends AbstractModelObject {
    *          the movie
    */
   private void updateTags(Movie movie) {
-    for (String tagInMovie : movie.getTags()) {
-      boolean tagFound = false;
-      for (String tag : tagsObservable) {
-        if (tagInMovie.equals(tag)) {
-          tagFound = true;
-          break;
-        }
-      }
-      if (!tagFound) {
-        addTag(tagInMovie);
-      }
+    if (tagsAggregate.update(movie, nonBlank(movie.getTags()))) {
+      firePropertyChange("tag", null, tagsObservable);
     }
   }
 
@@ -922,162 +946,129 @@ public class MovieList extends AbstractModelObject {
    *          the movie
    */
   private void updateMediaInformationLists(Movie movie) {
-    // video codec
+    List<String> videoCodecs = new ArrayList<String>();
+    List<String> audioCodecs = new ArrayList<String>();
     for (MediaFile mf : movie.getMediaFiles(MediaFileType.VIDEO)) {
-      String codec = mf.getVideoCodec();
-      boolean codecFound = false;
-
-      for (String mfCodec : videoCodecsObservable) {
-        if (mfCodec.equals(codec)) {
-          codecFound = true;
-          break;
-        }
+      videoCodecs.add(mf.getVideoCodec());
+      for (MediaFileAudioStream audio : mf.getAudioStreams()) {
+        audioCodecs.add(audio.getCodec());
       }
+    }
 
-      if (!codecFound) {
-        addVideoCodec(codec);
-      }
+    // video codec
+    if (videoCodecsAggregate.update(movie, nonBlank(videoCodecs))) {
+      firePropertyChange("videoCodec", null, videoCodecsObservable);
     }
 
     // audio codec
-    for (MediaFile mf : movie.getMediaFiles(MediaFileType.VIDEO)) {
-      for (MediaFileAudioStream audio : mf.getAudioStreams()) {
-        String codec = audio.getCodec();
-        boolean codecFound = false;
-        for (String mfCodec : audioCodecsObservable) {
-          if (mfCodec.equals(codec)) {
-            codecFound = true;
-            break;
-          }
-        }
-
-        if (!codecFound) {
-          addAudioCodec(codec);
-        }
-      }
+    if (audioCodecsAggregate.update(movie, nonBlank(audioCodecs))) {
+      firePropertyChange("audioCodec", null, audioCodecsObservable);
     }
   }
 
   private void updateCertifications(Movie movie) {
-    if (!certificationsObservable.contains(movie.getCertification())) {
-      addCertification(movie.getCertification());
+    if (certificationsAggregate.update(movie, Collections.singletonList(movie.getCertification()))) {
+      firePropertyChange("certification", null, certificationsObservable);
     }
   }
 
-  public List<String> getVideoCodecsInMovies() {
-    return videoCodecsObservable;
-  }
-
-  public List<String> getAudioCodecsInMovies() {
-    return audioCodecsObservable;
-  }
-
-  public List<Certification> getCertificationsInMovies() {
-    return certificationsObservable;
-  }
-
   /**
-   * Adds the tag.
+   * retract all tags/codecs/certifications of the given movie from the aggregated lists
    * 
-   * @param newTag
-   *          the new tag
+   * @param movie
+   *          the movie
    */
-  private void addTag(String newTag) {
-    if (StringUtils.isBlank(newTag)) {
-      return;
+  private void removeFromAggregates(Movie movie) {
+    movie.removePropertyChangeListener(tagListener);
+    filterIndex.remove(movie);
+    searchIndex.remove(movie);
+    if (tagsAggregate.remove(movie)) {
+      firePropertyChange("tag", null, tagsObservable);
     }
-
-    for (String tag : tagsObservable) {
-      if (tag.equals(newTag)) {
-        return;
-      }
+    if (videoCodecsAggregate.remove(movie)) {
+      firePropertyChange("videoCodec", null, videoCodecsObservable);
     }
-
-    tagsObservable.add(newTag);
-    firePropertyChange("tag", null, tagsObservable);
-  }
-
-  private void addVideoCodec(String newCodec) {
-    if (StringUtils.isBlank(newCodec)) {
-      return;
+    if (audioCodecsAggregate.remove(movie)) {
+      firePropertyChange("audioCodec", null, audioCodecsObservable);
+    }
+    if (certificationsAggregate.remove(movie)) {
+      firePropertyChange("certification", null, certificationsObservable);
     }
+  }
 
-    for (String codec : videoCodecsObservable) {
-      if (codec.equals(newCodec)) {
-        return;
+  private static List<String> nonBlank(List<String> values) {
+    List<String> result = new ArrayList<String>(values.size());
+    for (String value : values) {
+      if (StringUtils.isNotBlank(value)) {
+        result.add(value);
       }
     }
+    return result;
+  }
 
-    videoCodecsObservable.add(newCodec);
-    firePropertyChange("videoCodec", null, videoCodecsObservable);
+  /**
+   * Gets the filter index of all movies
+   * 
+   * @return the filter index
+   */
+  public MovieFilterIndex getFilterIndex() {
+    return filterIndex;
   }
 
-  private void addAudioCodec(String newCodec) {
-    if (StringUtils.isBlank(newCodec)) {
-      return;
-    }
+  /**
+   * Gets the full text search index of all movies
+   * 
+   * @return the search index
+   */
+  public MovieSearchIndex getSearchIndex() {
+    return searchIndex;
+  }
 
-    for (String codec : audioCodecsObservable) {
-      if (codec.equals(newCodec)) {
-        return;
-      }
-    }
+  /**
+   * search all movies with the full text index
+   * 
+   * @param query
+   *          the query
+   * @param maxResults
+   *          the max amount of results
+   * @return the found movies (ranked)
+   */
+  public List<Movie> searchMovies(String query, int maxResults) {
+    return searchIndex.search(query, maxResults);
+  }
 
-    audioCodecsObservable.add(newCodec);
-    firePropertyChange("audioCodec", null, audioCodecsObservable);
+  public List<String> getVideoCodecsInMovies() {
+    return videoCodecsObservable;
   }
 
-  private void addCertification(Certification newCert) {
-    if (newCert == null) {
-      return;
-    }
+  public List<String> getAudioCodecsInMovies() {
+    return audioCodecsObservable;
+  }
 
-    if (!certificationsObservable.contains(newCert)) {
-      certificationsObservable.add(newCert);
-      firePropertyChange("certification", null, certificationsObservable);
-    }
+  public List<Certification> getCertificationsInMovies() {
+    return certificationsObservable;
   }
 
   /**
-   * Search duplicates.
+   * Search duplicates and flag them (see {@link MovieDuplicateDetector}). This may hash the files, so do not call it from the EDT
+   * 
+   * @return the groups of duplicates with their confidence
    */
-  public void searchDuplicates() {
-    Map<String, Movie> imdbDuplicates = new HashMap<String, Movie>();
-    Map<Integer, Movie> tmdbDuplicates = new HashMap<Integer, Movie>();
-
-    for (Movie movie : movieList) {
+  public List<DuplicateCluster> searchDuplicates() {
+    List<Movie> movies = new ArrayList<Movie>(movieList);
+    for (Movie movie : movies) {
       movie.clearDuplicate();
+    }
 
-      // imdb duplicate search only works with given imdbid
-      if (StringUtils.isNotEmpty(movie.getImdbId())) {
-        // is there a movie with this imdbid sotred?
-        if (imdbDuplicates.containsKey(movie.getImdbId())) {
-          // yes - set duplicate flag on both movies
-          movie.setDuplicate();
-          Movie movie2 = imdbDuplicates.get(movie.getImdbId());
-          movie2.setDuplicate();
-        }
-        else {
-          // no, store movie
-          imdbDuplicates.put(movie.getImdbId(), movie);
-        }
-      }
-
-      // tmdb duplicate search only works with with given tmdb id
-      if (movie.getTmdbId() > 0) {
-        // is there a movie with this tmdbid sotred?
-        if (tmdbDuplicates.containsKey(movie.getTmdbId())) {
-          // yes - set duplicate flag on both movies
-          movie.setDuplicate();
-          Movie movie2 = tmdbDuplicates.get(movie.getTmdbId());
-          movie2.setDuplicate();
-        }
-        else {
-          // no, store movie
-          tmdbDuplicates.put(movie.getTmdbId(), movie);
-        }
+    // not only the same ids, but also similar titles (with year/runtime) and identical files
+    List<DuplicateCluster> clusters = new MovieDuplicateDetector().findDuplicates(movies);
+    for (DuplicateCluster cluster : clusters) {
+      LOGGER.debug("duplicates: " + cluster);
+      for (Movie movie : cluster.getMovies()) {
+        movie.setDuplicate();
       }
     }
+    return clusters;
   }
 
   /**
@@ -35,6 +35,8 @@ import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.RenamePlan;
+import org.tinymediamanager.core.RenameStatistics;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.entities.MediaFileSubtitle;
@@ -52,7 +54,7 @@ import org.tinymediamanager.scraper.util.StrgUtils;
 public class MovieRenamer {
   private final static Logger LOGGER = LoggerFactory.getLogger(MovieRenamer.class);
 
-  private static void renameSubtitles(Movie m) {
+  private static void renameSubtitles(Movie m, RenameStatistics statistics) {
     // build language lists
     Set<String> langArray = Utils.KEY_TO_LOCALE_MAP.keySet();
 
@@ -123,7 +125,7 @@ public class MovieRenamer {
 
       File newFile = new File(m.getPath(), newSubName);
       try {
-        boolean ok = Utils.moveFileSafe(sub.getFile(), newFile);
+        boolean ok = Utils.moveFileSafe(sub.getFile(), newFile, statistics);
         if (ok) {
           if (sub.getFilename().endsWith(".sub")) {
             // when having a .sub, also rename .idx (don't care if error)
@@ -163,6 +165,41 @@ public class MovieRenamer {
     m.saveToDb();
   }
 
+  /**
+   * computes the destinations of the movie for the rename plan (without touching any file)
+   * 
+   * @param movie
+   *          the movie
+   * @return the planned entry or null, if the movie cannot be renamed
+   */
+  public static RenamePlan.Entry<Movie> planRename(Movie movie) {
+    if (StringUtils.isEmpty(movie.getDataSource()) || movie.getMediaFiles(MediaFileType.VIDEO).isEmpty()) {
+      return null;
+    }
+
+    RenamePlan.Entry<Movie> entry = new RenamePlan.Entry<Movie>(movie, RenamePlan.getFileSystem(movie.getDataSource()));
+    for (MediaFile mf : movie.getMediaFiles()) {
+      entry.addSource(mf.getFile());
+    }
+
+    // the folder: it's only moved as a whole (and must not be shared with others) if the movie will be in its own folder
+    String pattern = MovieModuleManager.MOVIE_SETTINGS.getMovieRenamerPathname();
+    if (!pattern.isEmpty() && isFolderPatternUnique(pattern)) {
+      File srcDir = new File(movie.getPath());
+      File destDir = new File(movie.getDataSource() + File.separator + createDestinationForFoldername(pattern, movie));
+      entry.claimFolder(srcDir, destDir);
+    }
+
+    // the video files (same logic as in renameMovie)
+    MediaFile ftr = generateFilename(movie, movie.getMediaFiles(MediaFileType.VIDEO).get(0), "").get(0);
+    String newVideoBasename = Utils.cleanStackingMarkers(ftr.getBasename());
+    for (MediaFile vid : movie.getMediaFiles(MediaFileType.VIDEO)) {
+      MediaFile newMF = generateFilename(movie, vid, newVideoBasename).get(0);
+      entry.claimFile(vid.getFile(), newMF.getFile());
+    }
+    return entry;
+  }
+
   /**
    * Rename movie.
    * 
@@ -170,6 +207,18 @@ public class MovieRenamer {
    *          the movie
    */
   public static void renameMovie(Movie movie) {
+    renameMovie(movie, new RenameStatistics());
+  }
+
+  /**
+   * Rename movie.
+   * 
+   * @param movie
+   *          the movie
+   * @param statistics
+   *          collects the done renames/copies
+   */
+  public static void renameMovie(Movie movie, RenameStatistics statistics) {
     // FIXME: what? when?
     boolean posterRenamed = false;
     boolean fanartRenamed = false;
@@ -177,6 +226,7 @@ public class MovieRenamer {
     // check if a datasource is set
     if (StringUtils.isEmpty(movie.getDataSource())) {
       LOGGER.error("no Datasource set");
+      statistics.addFailure();
       return;
     }
 
@@ -223,6 +273,7 @@ public class MovieRenamer {
           try {
             ok = Utils.moveDirectorySafe(srcDir, destDir);
             if (ok) {
+              statistics.addMetadataRename();
               movie.setMultiMovieDir(false);
               movie.updateMediaFilePath(srcDir, destDir);
               movie.setPath(newPathname);
@@ -238,6 +289,7 @@ public class MovieRenamer {
             // FIXME: when we were not able to rename folder, display error msg
             // and abort!!!
             LOGGER.error("Could not move to destination '" + destDir + "' - NOT renaming folder");
+            statistics.addFailure();
             return;
           }
         }
@@ -250,6 +302,7 @@ public class MovieRenamer {
           if (!ok) {
             LOGGER.error("Could not create destination '" + destDir + "' - NOT renaming folder ('upgrade' movie)");
             // well, better not to rename
+            statistics.addFailure();
             return;
           }
           movie.setMultiMovieDir(false);
@@ -267,6 +320,7 @@ public class MovieRenamer {
             if (!ok) {
               LOGGER.error("Could not create destination '" + destDir + "' - NOT renaming folder ('MMD' movie)");
               // well, better not to rename
+              statistics.addFailure();
               return;
             }
           }
@@ -327,29 +381,19 @@ public class MovieRenamer {
       LOGGER.debug("testing file " + vid.getFile().getAbsolutePath());
       File f = vid.getFile();
       boolean testRenameOk = false;
-      for (int i = 0; i < 5; i++) {
-        testRenameOk = f.renameTo(f); // haahaa, try to rename to itself :P
-        if (testRenameOk) {
-          break; // ok it worked, step out
-        }
-        if (!f.exists()) {
-          LOGGER.debug("Hmmm... file " + f + " does not even exists; delete from DB");
-          // delete from MF or ignore for later cleanup (but better now!)
-          movie.removeFromMediaFiles(vid);
-          testRenameOk = true; // we "tested" this ok
-          break;
-        }
-        try {
-          LOGGER.debug("rename did not work - sleep a while and try again...");
-          Thread.sleep(1000);
-        }
-        catch (InterruptedException e) {
-          LOGGER.warn("I'm so excited - could not sleep");
-        }
+      if (!f.exists()) {
+        LOGGER.debug("Hmmm... file " + f + " does not even exists; delete from DB");
+        // delete from MF or ignore for later cleanup (but better now!)
+        movie.removeFromMediaFiles(vid);
+        testRenameOk = true; // we "tested" this ok
+      }
+      else {
+        testRenameOk = Utils.renameWithRetry(f, f); // haahaa, try to rename to itself :P
       }
       if (!testRenameOk) {
         LOGGER.warn("File " + vid.getFile().getAbsolutePath() + " is not accessible!");
         MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, vid.getFilename(), "message.renamer.failedrename"));
+        statistics.addFailure();
         return;
       }
     }
@@ -360,7 +404,7 @@ public class MovieRenamer {
     for (MediaFile vid : movie.getMediaFiles(MediaFileType.VIDEO)) {
       LOGGER.trace("Rename 1:1 " + vid.getType() + " " + vid.getFile().getAbsolutePath());
       MediaFile newMF = generateFilename(movie, vid, newVideoBasename).get(0); // there can be only one
-      boolean ok = movieFile(vid.getFile(), newMF.getFile());
+      boolean ok = movieFile(vid.getFile(), newMF.getFile(), statistics);
       if (ok) {
         vid.setFile(newMF.getFile()); // update
       }
@@ -384,7 +428,7 @@ public class MovieRenamer {
           posterRenamed = true;
           fanartRenamed = true;
         }
-        boolean ok = copyFile(mf.getFile(), newMF.getFile());
+        boolean ok = copyFile(mf.getFile(), newMF.getFile(), statistics);
         if (ok) {
           needed.add(newMF);
         }
@@ -403,7 +447,7 @@ public class MovieRenamer {
       ArrayList<MediaFile> newMFs = generateFilename(movie, other, newVideoBasename); // 1:N
       newMFs.removeAll(Collections.singleton(null)); // remove all NULL ones!
       for (MediaFile newMF : newMFs) {
-        boolean ok = copyFile(other.getFile(), newMF.getFile());
+        boolean ok = copyFile(other.getFile(), newMF.getFile(), statistics);
         if (ok) {
           needed.add(newMF);
         }
@@ -435,7 +479,7 @@ public class MovieRenamer {
     movie.saveToDb();
 
     // cleanup & rename subtitle files
-    renameSubtitles(movie);
+    renameSubtitles(movie, statistics);
 
     movie.gatherMediaFileInformation(false);
     movie.saveToDb();
@@ -1069,11 +1113,13 @@ public class MovieRenamer {
    *          the old filename
    * @param newFilename
    *          the new filename
+   * @param statistics
+   *          collects the done renames
    * @return true, when we moved file
    */
-  private static boolean movieFile(File oldFilename, File newFilename) {
+  private static boolean movieFile(File oldFilename, File newFilename, RenameStatistics statistics) {
     try {
-      boolean ok = Utils.moveFileSafe(oldFilename, newFilename);
+      boolean ok = Utils.moveFileSafe(oldFilename, newFilename, statistics);
       if (ok) {
         return true;
       }
@@ -1097,13 +1143,16 @@ public class MovieRenamer {
    *          the old filename
    * @param newFilename
    *          the new filename
+   * @param statistics
+   *          collects the copied bytes
    * @return true, when we copied file OR DEST IS EXISTING
    */
-  private static boolean copyFile(File oldFilename, File newFilename) {
+  private static boolean copyFile(File oldFilename, File newFilename, RenameStatistics statistics) {
     if (!oldFilename.equals(newFilename)) {
       LOGGER.info("copy file " + oldFilename + " to " + newFilename);
       try {
         FileUtils.copyFile(oldFilename, newFilename, true);
+        statistics.addCopy(newFilename.length());
         return true;
       }
       catch (Exception e) {
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+import org.tinymediamanager.core.FullTextIndex;
+import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.movie.entities.Movie;
+import org.tinymediamanager.core.movie.entities.MovieActor;
+import org.tinymediamanager.core.movie.entities.MovieProducer;
+
+/**
+ * The class MovieSearchIndex. The full text index over title, original title, plot, cast/crew, tags and filenames of all movies
+ *
+ * @author Manuel Laggner
+ */
+public class MovieSearchIndex extends FullTextIndex<Movie> {
+
+  @Override
+  protected void collectTexts(Movie movie, Map<String, Float> terms) {
+    addText(terms, movie.getTitle(), 10f);
+    addText(terms, movie.getOriginalTitle(), 8f);
+    addText(terms, movie.getPlot(), 1f);
+    addText(terms, movie.getDirector(), 3f);
+    addText(terms, movie.getWriter(), 3f);
+
+    for (MovieActor actor : new ArrayList<MovieActor>(movie.getActors())) {
+      addText(terms, actor.getName(), 3f);
+    }
+    for (MovieProducer producer : new ArrayList<MovieProducer>(movie.getProducers())) {
+      addText(terms, producer.getName(), 2f);
+    }
+    for (String tag : new ArrayList<String>(movie.getTags())) {
+      addText(terms, tag, 5f);
+    }
+    for (MediaFile mf : movie.getMediaFiles()) {
+      addText(terms, mf.getFilename(), 2f);
+    }
+  }
+}
@@ -55,6 +55,8 @@ import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaEntity;
 import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.metrics.MetricsRegistry;
+import org.tinymediamanager.core.metrics.Timer;
 import org.tinymediamanager.core.movie.MovieArtworkHelper;
 import org.tinymediamanager.core.movie.MovieList;
 import org.tinymediamanager.core.movie.MovieMediaFileComparator;
@@ -1304,12 +1306,14 @@ public class Movie extends MediaEntity {
    * Write nfo.
    */
   public void writeNFO() {
+    Timer.Context timer = MetricsRegistry.timer("nfo.write.movie").start();
     if (MovieModuleManager.MOVIE_SETTINGS.getMovieConnector() == MovieConnectors.MP) {
       MovieToMpNfoConnector.setData(this);
     }
     else {
       MovieToXbmcNfoConnector.setData(this);
     }
+    timer.stop();
     firePropertyChange(HAS_NFO_FILE, false, true);
   }
 
@@ -1800,6 +1804,7 @@ public class Movie extends MediaEntity {
 
   @Override
   public void saveToDb() {
+    Timer.Context timer = MetricsRegistry.timer("db.save.movie").start();
     // update/insert this movie to the database
     final EntityManager entityManager = getEntityManager();
     readWriteLock.readLock().lock();
@@ -1819,6 +1824,10 @@ public class Movie extends MediaEntity {
       }
     }
     readWriteLock.readLock().unlock();
+    timer.stop();
+
+    // keep the full text index up to date
+    MovieList.getInstance().getSearchIndex().refresh(this);
 
     writeNFO();
   }
@@ -44,6 +44,8 @@ import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaEntity;
 import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.metrics.MetricsRegistry;
+import org.tinymediamanager.core.metrics.Timer;
 import org.tinymediamanager.core.movie.MovieList;
 import org.tinymediamanager.core.movie.MovieMediaFileComparator;
 import org.tinymediamanager.core.movie.MovieModuleManager;
@@ -550,6 +552,7 @@ public class MovieSet extends MediaEntity {
 
   @Override
   public void saveToDb() {
+    Timer.Context timer = MetricsRegistry.timer("db.save.movieset").start();
     // update/insert this movie set to the database
     final EntityManager entityManager = getEntityManager();
     readWriteLock.readLock().lock();
@@ -564,6 +567,7 @@ public class MovieSet extends MediaEntity {
       }
     }
     readWriteLock.readLock().unlock();
+    timer.stop();
   }
 
   @Override
@@ -238,7 +238,7 @@ public class MovieTrailer extends AbstractModelObject implements Comparable<Movi
     return (new ReflectionToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE) {
       @Override
       protected boolean accept(Field f) {
-        return super.accept(f) && !f.getName().equals("propertyChangeSupport");
+        return super.accept(f) && !f.getName().equals("propertyChangeSupport") && !f.getName().equals("corePropertyChangeSupport");
       }
     }).toString();
   }
@@ -27,6 +27,7 @@ import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.movie.entities.Movie;
+import org.tinymediamanager.core.threading.TaskCheckpoint;
 import org.tinymediamanager.core.threading.TmmThreadPool;
 import org.tinymediamanager.ui.UTF8Control;
 
@@ -58,7 +59,7 @@ public class MovieReloadMediaInformationTask extends TmmThreadPool {
         if (cancel) {
           break;
         }
-        submitTask(new MediaFileInformationFetcherTask(m.getMediaFiles(), m, true));
+        submitTask(String.valueOf(m.getId()), new MediaFileInformationFetcherTask(m.getMediaFiles(), m, true));
       }
 
       waitForCompletionOrCancel();
@@ -71,6 +72,15 @@ public class MovieReloadMediaInformationTask extends TmmThreadPool {
     }
   }
 
+  @Override
+  protected String getCheckpointId() {
+    List<Integer> input = new ArrayList<Integer>();
+    for (Movie movie : moviesToReload) {
+      input.add(movie.getId());
+    }
+    return TaskCheckpoint.createId("movie-mediainfo", input);
+  }
+
   @Override
   public void callback(Object obj) {
     publishState((String) obj, progressDone);
@@ -15,6 +15,7 @@
  */
 package org.tinymediamanager.core.movie.tasks;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
 import java.util.concurrent.Callable;
@@ -24,13 +25,19 @@ import org.slf4j.LoggerFactory;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.RenamePlan;
+import org.tinymediamanager.core.metrics.MetricsRegistry;
+import org.tinymediamanager.core.metrics.TaskProfile;
+import org.tinymediamanager.core.metrics.Timer;
 import org.tinymediamanager.core.movie.MovieRenamer;
 import org.tinymediamanager.core.movie.entities.Movie;
+import org.tinymediamanager.core.threading.TaskCheckpoint;
 import org.tinymediamanager.core.threading.TmmThreadPool;
 import org.tinymediamanager.ui.UTF8Control;
 
 /**
- * The Class MovieRenameTask.
+ * The Class MovieRenameTask. The destinations of all movies are being computed and checked for collisions first; afterwards the movies are
+ * being renamed concurrently (one worker per data source)
  * 
  * @author Manuel Laggner
  */
@@ -39,6 +46,7 @@ public class MovieRenameTask extends TmmThreadPool {
   private static final ResourceBundle BUNDLE = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
 
   private List<Movie>                 moviesToRename;
+  private RenamePlan<Movie>           plan   = new RenamePlan<Movie>();
 
   /**
    * Instantiates a new movie rename task.
@@ -54,19 +62,42 @@ public class MovieRenameTask extends TmmThreadPool {
   @Override
   protected void doInBackground() {
     try {
-      initThreadPool(1, "rename");
       start();
-      // rename movies
+
+      // 1. compute the destinations of all movies
+      initThreadPool(Runtime.getRuntime().availableProcessors(), "rename-plan");
       for (int i = 0; i < moviesToRename.size(); i++) {
         if (cancel) {
           break;
         }
+        // already renamed by an interrupted run
+        if (isCheckpointed(String.valueOf(moviesToRename.get(i).getId()))) {
+          continue;
+        }
+        submitTask(new PlanMovieTask(moviesToRename.get(i)));
+      }
+      waitForCompletionOrCancel();
+      if (cancel) {
+        return;
+      }
+
+      // 2. check the whole batch for collisions
+      List<RenamePlan.Entry<Movie>> conflicts = plan.checkConflicts();
+      for (RenamePlan.Entry<Movie> entry : conflicts) {
+        LOGGER.warn("not renaming movie " + entry.getEntity().getTitle() + " - destination is already taken: " + entry.getConflict());
+        MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, entry.getEntity().getTitle(), "message.renamer.conflict", new String[] {
+            ":", entry.getConflict().getPath() }));
+      }
 
-        Movie movie = moviesToRename.get(i);
-        submitTask(new RenameMovieTask(movie));
+      // 3. rename; movies on different data sources are being renamed concurrently
+      setProgressDone(0);
+      setWorkUnits(0);
+      initThreadPool(Math.max(1, plan.getFileSystemCount()), "rename");
+      for (int i = 0; i < plan.size() - conflicts.size(); i++) {
+        submitTask(new RenameMovieTask());
       }
       waitForCompletionOrCancel();
-      LOGGER.info("Done renaming movies)");
+      LOGGER.info("Done renaming movies: " + plan.getStatistics());
     }
     catch (Exception e) {
       LOGGER.error("Thread crashed", e);
@@ -74,27 +105,63 @@ public class MovieRenameTask extends TmmThreadPool {
     }
   }
 
+  @Override
+  protected String getCheckpointId() {
+    List<Integer> input = new ArrayList<Integer>();
+    for (Movie movie : moviesToRename) {
+      input.add(movie.getId());
+    }
+    return TaskCheckpoint.createId("movie-rename", input);
+  }
+
   /**
-   * ThreadpoolWorker to work off ONE possible movie from root datasource directory
-   * 
-   * @author Myron Boyle
-   * @version 1.0
+   * ThreadpoolWorker to compute the rename plan of ONE movie
    */
-  private class RenameMovieTask implements Callable<Object> {
-
+  private class PlanMovieTask implements Callable<Object> {
     private Movie movie = null;
 
-    public RenameMovieTask(Movie movie) {
+    public PlanMovieTask(Movie movie) {
       this.movie = movie;
     }
 
     @Override
     public String call() throws Exception {
-      MovieRenamer.renameMovie(movie);
+      RenamePlan.Entry<Movie> entry = MovieRenamer.planRename(movie);
+      if (entry != null) {
+        plan.add(entry);
+      }
       return movie.getTitle();
     }
   }
 
+  /**
+   * ThreadpoolWorker to rename the next movie of the plan
+   * 
+   * @author Myron Boyle
+   * @version 1.0
+   */
+  private class RenameMovieTask implements Callable<Object> {
+    @Override
+    public String call() throws Exception {
+      RenamePlan.Entry<Movie> entry = plan.next();
+      if (entry == null) {
+        return "";
+      }
+      Timer.Context timer = MetricsRegistry.timer("filesystem.rename").start();
+      long start = System.currentTimeMillis();
+      try {
+        MovieRenamer.renameMovie(entry.getEntity(), plan.getStatistics());
+        checkpoint(String.valueOf(entry.getEntity().getId()));
+        return entry.getEntity().getTitle();
+      }
+      finally {
+        timer.stop();
+        TaskProfile.recordEntity(entry.getEntity().getTitle(), start);
+        plan.done(entry);
+      }
+    }
+  }
+
   @Override
   public void callback(Object obj) {
     publishState((String) obj, progressDone);
@@ -23,19 +23,25 @@ import java.util.ResourceBundle;
 
 import javax.swing.SwingUtilities;
 
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.PropertyChangeCoalescer;
 import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.metrics.TaskProfile;
+import org.tinymediamanager.core.metrics.Timer;
 import org.tinymediamanager.core.movie.MovieList;
 import org.tinymediamanager.core.movie.MovieModuleManager;
 import org.tinymediamanager.core.movie.MovieScraperMetadataConfig;
 import org.tinymediamanager.core.movie.MovieSearchAndScrapeOptions;
 import org.tinymediamanager.core.movie.entities.Movie;
 import org.tinymediamanager.core.movie.entities.MovieTrailer;
+import org.tinymediamanager.core.threading.TaskCheckpoint;
 import org.tinymediamanager.core.threading.TmmTask;
 import org.tinymediamanager.core.threading.TmmTaskManager;
 import org.tinymediamanager.core.threading.TmmThreadPool;
@@ -50,6 +56,7 @@ import org.tinymediamanager.scraper.MediaSearchResult;
 import org.tinymediamanager.scraper.MediaTrailer;
 import org.tinymediamanager.scraper.MediaType;
 import org.tinymediamanager.scraper.trakttv.SyncTraktTvTask;
+import org.tinymediamanager.scraper.util.ScraperMetrics;
 import org.tinymediamanager.ui.UTF8Control;
 import org.tinymediamanager.ui.movies.dialogs.MovieChooserDialog;
 
@@ -83,7 +90,7 @@ public class MovieScrapeTask extends TmmThreadPool {
 
     for (int i = 0; i < moviesToScrape.size(); i++) {
       Movie movie = moviesToScrape.get(i);
-      submitTask(new Worker(movie));
+      submitTask(String.valueOf(movie.getId()), new Worker(movie));
     }
     waitForCompletionOrCancel();
 
@@ -115,6 +122,27 @@ public class MovieScrapeTask extends TmmThreadPool {
     LOGGER.info("Done scraping movies)");
   }
 
+  @Override
+  protected String getCheckpointId() {
+    List<Object> input = new ArrayList<Object>();
+    for (Movie movie : moviesToScrape) {
+      input.add(movie.getId());
+    }
+    input.add("search=" + doSearch);
+    input.add("scraper=" + options.getMetadataScraper());
+    input.add("artworkScrapers=" + options.getArtworkScrapers());
+    input.add("trailerScrapers=" + options.getTrailerScrapers());
+    // an interrupted run with other settings is not resumed
+    input.add(ReflectionToStringBuilder.toString(options.getScraperMetadataConfig(), ToStringStyle.SHORT_PREFIX_STYLE, false, false,
+        MovieScraperMetadataConfig.class));
+    input.add("language=" + MovieModuleManager.MOVIE_SETTINGS.getScraperLanguage());
+    input.add("country=" + MovieModuleManager.MOVIE_SETTINGS.getCertificationCountry());
+    input.add("imdbForeignLanguage=" + MovieModuleManager.MOVIE_SETTINGS.isImdbScrapeForeignLanguage());
+    input.add("posterSize=" + MovieModuleManager.MOVIE_SETTINGS.getImagePosterSize());
+    input.add("fanartSize=" + MovieModuleManager.MOVIE_SETTINGS.getImageFanartSize());
+    return TaskCheckpoint.createId("movie-scrape", input);
+  }
+
   @Override
   public void callback(Object obj) {
     // do not publish task description here, because with different workers the text is never right
@@ -134,6 +162,16 @@ public class MovieScrapeTask extends TmmThreadPool {
 
     @Override
     public void run() {
+      long start = System.currentTimeMillis();
+      try {
+        scrape();
+      }
+      finally {
+        TaskProfile.recordEntity(movie.getTitle(), start);
+      }
+    }
+
+    private void scrape() {
       try {
         movieList = MovieList.getInstance();
         // set up scrapers
@@ -179,20 +217,33 @@ public class MovieScrapeTask extends TmmThreadPool {
             // scrape metadata if wanted
             MediaMetadata md = null;
 
-            md = mediaMetadataProvider.getMetadata(options);
-
-            if (scraperMetadataConfig.isMetadata()) {
-              movie.setMetadata(md, scraperMetadataConfig);
+            Timer.Context timer = ScraperMetrics.start(mediaMetadataProvider, "metadata");
+            try {
+              md = mediaMetadataProvider.getMetadata(options);
             }
-
-            // scrape artwork if wanted
-            if (scraperMetadataConfig.isArtwork()) {
-              movie.setArtwork(getArtwork(movie, md, artworkProviders), scraperMetadataConfig);
+            finally {
+              timer.stop();
             }
 
-            // scrape trailer if wanted
-            if (scraperMetadataConfig.isTrailer()) {
-              movie.setTrailers(getTrailers(movie, md, trailerProviders));
+            // deliver all changes of the movie as one coalesced update to the UI
+            PropertyChangeCoalescer.suspend();
+            try {
+              if (scraperMetadataConfig.isMetadata()) {
+                movie.setMetadata(md, scraperMetadataConfig);
+              }
+
+              // scrape artwork if wanted
+              if (scraperMetadataConfig.isArtwork()) {
+                movie.setArtwork(getArtwork(movie, md, artworkProviders), scraperMetadataConfig);
+              }
+
+              // scrape trailer if wanted
+              if (scraperMetadataConfig.isTrailer()) {
+                movie.setTrailers(getTrailers(movie, md, trailerProviders));
+              }
+            }
+            finally {
+              PropertyChangeCoalescer.resume();
             }
           }
           catch (Exception e) {
@@ -258,13 +309,18 @@ public class MovieScrapeTask extends TmmThreadPool {
 
       // scrape providers till one artwork has been found
       for (IMediaArtworkProvider artworkProvider : artworkProviders) {
+        Timer.Context timer = ScraperMetrics.start(artworkProvider, "artwork");
         try {
           artwork.addAll(artworkProvider.getArtwork(options));
         }
         catch (Exception e) {
           LOGGER.error("getArtwork", e);
+          ScraperMetrics.error(artworkProvider);
           MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, movie, "message.scrape.movieartworkfailed"));
         }
+        finally {
+          timer.stop();
+        }
       }
 
       return artwork;
@@ -295,6 +351,7 @@ public class MovieScrapeTask extends TmmThreadPool {
 
       // scrape trailers
       for (IMediaTrailerProvider trailerProvider : trailerProviders) {
+        Timer.Context timer = ScraperMetrics.start(trailerProvider, "trailer");
         try {
           List<MediaTrailer> foundTrailers = trailerProvider.getTrailers(options);
           for (MediaTrailer mediaTrailer : foundTrailers) {
@@ -304,8 +361,12 @@ public class MovieScrapeTask extends TmmThreadPool {
         }
         catch (Exception e) {
           LOGGER.error("getTrailers", e);
+          ScraperMetrics.error(trailerProvider);
           MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, movie, "message.scrape.movietrailerfailed"));
         }
+        finally {
+          timer.stop();
+        }
       }
 
       return trailers;
@@ -23,8 +23,10 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -43,6 +45,9 @@ import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.metrics.MetricsRegistry;
+import org.tinymediamanager.core.metrics.TaskProfile;
+import org.tinymediamanager.core.metrics.Timer;
 import org.tinymediamanager.core.movie.MovieList;
 import org.tinymediamanager.core.movie.MovieMediaSource;
 import org.tinymediamanager.core.movie.MovieModuleManager;
@@ -50,6 +55,7 @@ import org.tinymediamanager.core.movie.connector.MovieToMpNfoConnector;
 import org.tinymediamanager.core.movie.connector.MovieToXbmcNfoConnector;
 import org.tinymediamanager.core.movie.entities.Movie;
 import org.tinymediamanager.core.movie.entities.MovieTrailer;
+import org.tinymediamanager.core.threading.TaskCheckpoint;
 import org.tinymediamanager.core.threading.TmmTask;
 import org.tinymediamanager.core.threading.TmmTaskManager;
 import org.tinymediamanager.core.threading.TmmThreadPool;
@@ -59,7 +65,8 @@ import org.tinymediamanager.scraper.util.StrgUtils;
 import org.tinymediamanager.ui.UTF8Control;
 
 /**
- * The Class UpdateDataSourcesTask.
+ * The Class UpdateDataSourcesTask. The update is a pipeline: every movie is handed over to the mediainfo and image cache stages as soon as it has
+ * been parsed, so these stages work concurrently to the parsing of the other movies. Only the cleanup of a datasource needs the complete scan.
  * 
  * @author Myron Boyle
  */
@@ -79,6 +86,12 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
   private List<String>                dataSources;
   private MovieList                   movieList;
   private HashSet<File>               filesFound       = new HashSet<File>();
+  // the folders which have been parsed by an interrupted run (their files are not in filesFound)
+  private HashSet<File>               resumedDirs      = new HashSet<File>();
+
+  // the stages of the update pipeline and the movies which have been handed over to them
+  private PipelineStage               mediainfoStage;
+  private PipelineStage               imageCacheStage;
 
   public MovieUpdateDatasourceTask() {
     super(BUNDLE.getString("update.datasource"));
@@ -105,7 +118,11 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
 
     try {
       long start = System.currentTimeMillis();
-      List<File> imageFiles = new ArrayList<File>();
+
+      mediainfoStage = new PipelineStage("mediainfo", 1, getPriority(), getProfile());
+      if (MovieModuleManager.MOVIE_SETTINGS.isBuildImageCacheOnImport()) {
+        imageCacheStage = new PipelineStage("image-cache", 2, getPriority(), getProfile());
+      }
 
       // cleanup just added for a new UDS run
       for (Movie movie : movieList.getMovies()) {
@@ -141,8 +158,13 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
                 continue;
               }
 
-              // dig deeper in this dir
-              submitTask(new FindMovieTask(file, ds));
+              // dig deeper in this dir (unless it has already been parsed by an interrupted run and did not change since)
+              String workUnit = file.getAbsolutePath() + "@" + getFolderStamp(file);
+              if (isCheckpointed(workUnit)) {
+                resumedDirs.add(file);
+                continue;
+              }
+              submitTask(workUnit, new FindMovieTask(file, ds));
             }
             else {
               if (Globals.settings.getVideoFileType().contains("." + FilenameUtils.getExtension(file.getName()))) {
@@ -170,34 +192,25 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
           break;
         }
 
-        // cleanup
+        // cleanup - the pipeline keeps on working meanwhile
         cleanup(ds);
 
-        // mediainfo
-        gatherMediainfo(ds);
-
-        waitForCompletionOrCancel();
-        if (cancel) {
-          break;
-        }
-
-        // build image cache on import
-        if (MovieModuleManager.MOVIE_SETTINGS.isBuildImageCacheOnImport()) {
-          for (Movie movie : movieList.getMovies()) {
-            if (!new File(ds).equals(new File(movie.getDataSource()))) {
-              // check only movies matching datasource
-              continue;
-            }
-            imageFiles.addAll(movie.getImagesToCache());
+        // hand over the movies which have not been parsed in this run (e.g. in resumed folders)
+        for (int i = movieList.getMovies().size() - 1; i >= 0; i--) {
+          Movie movie = movieList.getMovies().get(i);
+          // check only movies matching datasource
+          if (new File(ds).equals(new File(movie.getDataSource()))) {
+            submitToPipeline(movie);
           }
         }
-
       } // END datasource loop
 
-      if (imageFiles.size() > 0) {
-        ImageCacheTask task = new ImageCacheTask(imageFiles);
-        TmmTaskManager.getInstance().addUnnamedTask(task);
-      }
+      // wait until all movies have been processed by the mediainfo stage
+      waitForPipeline(mediainfoStage, "update.mediainfo");
+
+      // the image cache is still built in the background: the remaining movies are handed over to an unnamed task, so that this task does not
+      // hold its slot of the main tasks until all images have been cached
+      handOverImageCache();
 
       if (MovieModuleManager.MOVIE_SETTINGS.getSyncTrakt()) {
         TmmTask task = new SyncTraktTvTask(true, true, false, false);
@@ -211,6 +224,9 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
       LOGGER.error("Thread crashed", e);
       MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, "update.datasource", "message.update.threadcrashed"));
     }
+    finally {
+      shutdownPipeline();
+    }
   }
 
   /**
@@ -228,6 +244,8 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
         return file2.getName().length() - file1.getName().length();
       }
     });
+    // a movie can get more than one video file (stacking), so the movies are handed over to the pipeline at the end
+    Set<Movie> parsedMovies = new LinkedHashSet<Movie>();
     for (File file : files) {
 
       Movie movie = null;
@@ -340,13 +358,19 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
         movie.getMovieSet().saveToDb();
         movie.saveToDb();
       }
+      parsedMovies.add(movie);
     } // end for every file
+
+    for (Movie movie : parsedMovies) {
+      submitToPipeline(movie);
+    }
   }
 
   /**
    * parses the complete movie directory, and adds a movie with all found MediaFiles
    */
   private void parseMovieDirectory(File movieDir, String dataSource) {
+    long start = System.currentTimeMillis();
     try {
       // store dir for faster cleanup
       synchronized (filesFound) {
@@ -354,6 +378,7 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
       }
 
       // list all type VIDEO files
+      Timer.Context timer = MetricsRegistry.timer("filesystem.scan").start();
       File[] files = movieDir.listFiles(new FileFilter() {
         @Override
         public boolean accept(File file) {
@@ -363,6 +388,7 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
           return new MediaFile(file).getType().equals(MediaFileType.VIDEO); // no trailer or extra vids!
         }
       });
+      timer.stop();
 
       // check if we have more than one movie in dir
       HashSet<String> h = new HashSet<String>();
@@ -393,7 +419,9 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
         LOGGER.debug("PAH - normal movie directory: " + movieDir);
 
         Movie movie = movieList.getMovieByPath(movieDir);
+        timer = MetricsRegistry.timer("filesystem.scan").start();
         ArrayList<MediaFile> mfs = getAllMediaFilesRecursive(movieDir);
+        timer.stop();
 
         if (movie == null) {
           LOGGER.info("Movie not found; parsing directory" + movieDir);
@@ -518,6 +546,7 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
         }
 
         movie.saveToDb();
+        submitToPipeline(movie);
       }
     }
     catch (NullPointerException e) {
@@ -529,6 +558,9 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
       MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, movieDir.getPath(), "message.update.errormoviedir", new String[] { ":",
           e.getLocalizedMessage() }));
     }
+    finally {
+      TaskProfile.recordEntity(movieDir.getPath(), start);
+    }
   }
 
   /**
@@ -787,7 +819,7 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
           LOGGER.debug("movie directory '" + movieDir + "' not found, removing...");
           moviesToRemove.add(movie);
         }
-        else {
+        else if (!isInResumedDir(movieDir)) {
           LOGGER.warn("dir " + movie.getPath() + " not in hashset, but on hdd!");
         }
       }
@@ -804,7 +836,7 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
                 movie.removeFromMediaFiles(mf);
                 dirty = true;
               }
-              else {
+              else if (!isInResumedDir(movieDir)) {
                 LOGGER.warn("file " + mf.getFile().getAbsolutePath() + " not in hashset, but on hdd!");
               }
             }
@@ -818,39 +850,133 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
     movieList.removeMovies(moviesToRemove);
   }
 
+  private boolean isInResumedDir(File file) {
+    for (File dir = file; dir != null; dir = dir.getParentFile()) {
+      if (resumedDirs.contains(dir)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /*
+   * hand over a parsed movie to the stages of the pipeline (every movie only once per run)
+   */
+  private void submitToPipeline(final Movie movie) {
+    if (cancel) {
+      return;
+    }
+
+    // gather mediainfo for the ungathered files
+    mediainfoStage.submit(movie, new Runnable() {
+      @Override
+      public void run() {
+        ArrayList<MediaFile> ungatheredMediaFiles = new ArrayList<MediaFile>();
+        for (MediaFile mf : new ArrayList<MediaFile>(movie.getMediaFiles())) {
+          if (StringUtils.isBlank(mf.getContainerFormat())) {
+            ungatheredMediaFiles.add(mf);
+          }
+        }
+        if (ungatheredMediaFiles.size() > 0) {
+          new MediaFileInformationFetcherTask(ungatheredMediaFiles, movie, false).call();
+        }
+      }
+    });
+
+    // build image cache on import
+    if (imageCacheStage != null) {
+      imageCacheStage.submit(movie, new Runnable() {
+        @Override
+        public void run() {
+          new ImageCacheTask(movie.getImagesToCache()).run();
+        }
+      });
+    }
+  }
+
+  /*
+   * hand over the movies which have not been processed by the image cache stage yet to an unnamed background task
+   */
+  private void handOverImageCache() {
+    if (imageCacheStage == null || cancel) {
+      return;
+    }
+    List<File> imageFiles = new ArrayList<File>();
+    for (Object movie : imageCacheStage.handOver()) {
+      imageFiles.addAll(((Movie) movie).getImagesToCache());
+    }
+    if (imageFiles.size() > 0) {
+      ImageCacheTask task = new ImageCacheTask(imageFiles);
+      TmmTaskManager.getInstance().addUnnamedTask(task);
+    }
+  }
+
   /*
-   * gather mediainfo for ungathered movies
+   * wait until the stage has processed all handed over movies (and show its progress)
    */
-  private void gatherMediainfo(String datasource) {
-    // start MI
-    setTaskName(BUNDLE.getString("update.mediainfo"));
+  private void waitForPipeline(PipelineStage stage, String messageKey) {
+    if (stage == null) {
+      return;
+    }
+    setTaskName(BUNDLE.getString(messageKey));
+    setTaskDescription(null);
     publishState();
 
-    initThreadPool(1, "mediainfo");
+    while (!cancel && !stage.waitForCompletion(500)) {
+      setWorkUnits(stage.getSubmittedCount());
+      setProgressDone(stage.getDoneCount());
+      publishState();
+    }
+  }
 
-    LOGGER.info("getting Mediainfo...");
-    for (int i = movieList.getMovies().size() - 1; i >= 0; i--) {
-      if (cancel) {
-        break;
+  /*
+   * stop the workers of the pipeline; the open work is discarded if the task has been cancelled
+   */
+  private void shutdownPipeline() {
+    for (PipelineStage stage : new PipelineStage[] { mediainfoStage, imageCacheStage }) {
+      if (stage != null) {
+        stage.shutdown(cancel);
+        LOGGER.info("pipeline stage " + stage.name + ": " + stage.getDoneCount() + " movies, busy for " + Utils.MSECtoHHMMSS(stage.getBusyTime()));
       }
-      Movie movie = movieList.getMovies().get(i);
+    }
+    mediainfoStage = null;
+    imageCacheStage = null;
+  }
 
-      // check only movies matching datasource
-      if (!new File(datasource).equals(new File(movie.getDataSource()))) {
-        continue;
+  @Override
+  public void cancel() {
+    super.cancel();
+    // skip the work of the pipeline which has not been started yet
+    for (PipelineStage stage : new PipelineStage[] { mediainfoStage, imageCacheStage }) {
+      if (stage != null) {
+        stage.cancel();
       }
+    }
+  }
 
-      ArrayList<MediaFile> ungatheredMediaFiles = new ArrayList<MediaFile>();
-      for (MediaFile mf : new ArrayList<MediaFile>(movie.getMediaFiles())) {
-        if (StringUtils.isBlank(mf.getContainerFormat())) {
-          ungatheredMediaFiles.add(mf);
-        }
-      }
+  @Override
+  protected String getCheckpointId() {
+    return TaskCheckpoint.createId("movie-update", dataSources);
+  }
 
-      if (ungatheredMediaFiles.size() > 0) {
-        submitTask(new MediaFileInformationFetcherTask(ungatheredMediaFiles, movie, false));
-      }
+  /**
+   * builds a stamp of the folder and its direct children (latest modification and number of entries); a checkpointed folder is only skipped
+   * as long as its stamp did not change
+   * 
+   * @param dir
+   *          the folder
+   * @return the stamp
+   */
+  static String getFolderStamp(File dir) {
+    long lastModified = dir.lastModified();
+    File[] children = dir.listFiles();
+    if (children == null) {
+      return lastModified + "/0";
+    }
+    for (File child : children) {
+      lastModified = Math.max(lastModified, child.lastModified());
     }
+    return lastModified + "/" + children.length;
   }
 
   @Override
@@ -885,7 +1011,9 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
       }
       else {
         // find all possible movie folders recursive
+        Timer.Context timer = MetricsRegistry.timer("filesystem.scan").start();
         ArrayList<File> mov = getRootMovieDirs(subdir, 1);
+        timer.stop();
 
         // remove dupe movie dirs
         HashSet<File> h = new HashSet<File>(mov);
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie.tasks;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.metrics.TaskProfile;
+import org.tinymediamanager.core.threading.TmmTaskHandle.TaskPriority;
+import org.tinymediamanager.core.threading.TmmTaskScheduler;
+import org.tinymediamanager.core.threading.TmmThreadPool.TmmThreadFactory;
+
+/**
+ * A stage of the update pipeline: the parsed movies are handed over immediately and processed by the own workers of the stage while the parsing
+ * of the other movies goes on. Every movie (key) is accepted only once per run.
+ * 
+ * @author Manuel Laggner
+ */
+class PipelineStage {
+  private static final Logger      LOGGER    = LoggerFactory.getLogger(PipelineStage.class);
+
+  final String                     name;
+  private final ThreadPoolExecutor executor;
+  private final TaskPriority       priority;
+  private final TaskProfile        profile;
+  private final Set<Object>        keys      = new HashSet<Object>();
+
+  private volatile boolean         cancelled = false;
+  private int                      submitted = 0;
+  private int                      done      = 0;
+  private long                     busyTime  = 0;
+
+  PipelineStage(String name, int threads, TaskPriority priority, TaskProfile profile) {
+    this.name = name;
+    this.priority = priority;
+    this.profile = profile;
+    if (profile != null) {
+      profile.addPool(name, threads);
+    }
+    this.executor = new ThreadPoolExecutor(threads, threads, 2, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new TmmThreadFactory(name));
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * hand over the work for the given key
+   * 
+   * @param key
+   *          the key of the work (e.g. the movie)
+   * @param work
+   *          the work
+   * @return false if the key has already been handed over or the stage has been cancelled
+   */
+  boolean submit(Object key, Runnable work) {
+    synchronized (this) {
+      if (cancelled || !keys.add(key)) {
+        return false;
+      }
+      submitted++;
+    }
+    executor.execute(new StageWork(key, work));
+    return true;
+  }
+
+  /**
+   * cancel the stage: no more work is accepted and the work which has not been started yet is skipped
+   */
+  void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * remove the work which has not been started yet from the stage (to process it elsewhere)
+   * 
+   * @return the keys of the removed work
+   */
+  List<Object> handOver() {
+    List<Runnable> queued = new ArrayList<Runnable>();
+    executor.getQueue().drainTo(queued);
+    List<Object> handedOver = new ArrayList<Object>(queued.size());
+    for (Runnable runnable : queued) {
+      handedOver.add(((StageWork) runnable).key);
+    }
+    synchronized (this) {
+      submitted -= queued.size();
+      notifyAll();
+    }
+    return handedOver;
+  }
+
+  private synchronized void finished(long duration) {
+    done++;
+    busyTime += duration;
+    notifyAll();
+  }
+
+  /**
+   * wait until all handed over work has been done
+   * 
+   * @param timeout
+   *          the max time to wait (in ms)
+   * @return true if all work has been done
+   */
+  synchronized boolean waitForCompletion(long timeout) {
+    if (done < submitted) {
+      try {
+        wait(timeout);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return true;
+      }
+    }
+    return done >= submitted;
+  }
+
+  /**
+   * stop the workers of the stage; the running work is finished
+   * 
+   * @param discard
+   *          discard the work which has not been started yet
+   */
+  void shutdown(boolean discard) {
+    if (discard) {
+      cancel();
+      handOver();
+    }
+    executor.shutdown();
+  }
+
+  synchronized int getSubmittedCount() {
+    return submitted;
+  }
+
+  synchronized int getDoneCount() {
+    return done;
+  }
+
+  synchronized long getBusyTime() {
+    return busyTime;
+  }
+
+  /**
+   * the work of one key
+   */
+  private class StageWork implements Runnable {
+    private final Object   key;
+    private final Runnable work;
+
+    private StageWork(Object key, Runnable work) {
+      this.key = key;
+      this.work = work;
+    }
+
+    @Override
+    public void run() {
+      long start = System.currentTimeMillis();
+      TmmTaskScheduler.setCurrentPriority(priority);
+      TaskProfile.setCurrent(profile);
+      try {
+        if (!cancelled) {
+          work.run();
+        }
+      }
+      catch (Exception e) {
+        LOGGER.error("pipeline stage " + name + " crashed", e);
+      }
+      finally {
+        TmmTaskScheduler.setCurrentPriority(null);
+        TaskProfile.setCurrent(null);
+        finished(System.currentTimeMillis() - start);
+      }
+    }
+  }
+}
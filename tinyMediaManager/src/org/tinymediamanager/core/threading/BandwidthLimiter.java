@@ -0,0 +1,76 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.threading;
+
+import org.tinymediamanager.Globals;
+
+/**
+ * The class BandwidthLimiter. A token bucket shared by all downloads to respect the global bandwidth limit (see
+ * Settings.getDownloadBandwidthLimit()).
+ *
+ * @author Manuel Laggner
+ */
+public class BandwidthLimiter {
+  private static final BandwidthLimiter instance   = new BandwidthLimiter();
+
+  private long                          available  = 0;
+  private long                          lastRefill = System.nanoTime();
+
+  BandwidthLimiter() {
+  }
+
+  public static BandwidthLimiter getInstance() {
+    return instance;
+  }
+
+  /**
+   * blocks until the given amount of bytes may be transferred (with the limit from the settings)
+   *
+   * @param bytes
+   *          the amount of bytes
+   * @throws InterruptedException
+   */
+  public void acquire(int bytes) throws InterruptedException {
+    acquire(bytes, Globals.settings.getDownloadBandwidthLimit() * 1024L);
+  }
+
+  /**
+   * blocks until the given amount of bytes may be transferred
+   *
+   * @param bytes
+   *          the amount of bytes
+   * @param bytesPerSecond
+   *          the limit; 0 = unlimited
+   * @throws InterruptedException
+   */
+  synchronized void acquire(int bytes, long bytesPerSecond) throws InterruptedException {
+    if (bytesPerSecond <= 0) {
+      return;
+    }
+
+    // refill the bucket; we allow bursts of max. 1 second
+    long now = System.nanoTime();
+    available = Math.min(bytesPerSecond, available + (now - lastRefill) * bytesPerSecond / 1000000000L);
+    lastRefill = now;
+
+    available -= bytes;
+    if (available < 0) {
+      // the other downloads have to wait too (they block on the monitor), so the sum of all downloads is limited
+      long waitNanos = -available * 1000000000L / bytesPerSecond;
+      Thread.sleep(waitNanos / 1000000, (int) (waitNanos % 1000000));
+    }
+  }
+}
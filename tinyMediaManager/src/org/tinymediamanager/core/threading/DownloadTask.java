@@ -15,14 +15,28 @@
  */
 package org.tinymediamanager.core.threading;
 
-import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
 import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Header;
 import org.slf4j.Logger;
@@ -35,24 +49,39 @@ import org.tinymediamanager.core.MessageManager;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaEntity;
 import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.threading.TmmThreadPool.TmmThreadFactory;
 import org.tinymediamanager.scraper.util.StreamingUrl;
 import org.tinymediamanager.scraper.util.UrlUtil;
 import org.tinymediamanager.ui.UTF8Control;
 
 /**
- * DownloadTask for bigger downloads with status updates
+ * DownloadTask for bigger downloads with status updates. If the server supports range requests, big files are being downloaded in parallel
+ * segments; interrupted downloads are being resumed from their .part files. The parts are named by their byte range and the .part.meta file
+ * holds the validator (ETag/Last-Modified) of the downloaded resource, so parts of a changed resource or another segment layout are never
+ * being merged
  * 
  * @author Myron Boyle, Manuel Laggner
  */
 public class DownloadTask extends TmmTask {
-  private static final Logger         LOGGER    = LoggerFactory.getLogger(DownloadTask.class);
-  private static final ResourceBundle BUNDLE    = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+  private static final Logger         LOGGER            = LoggerFactory.getLogger(DownloadTask.class);
+  private static final ResourceBundle BUNDLE            = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+  // segments smaller than this are not worth an extra connection
+  private static final long           MIN_SEGMENT_SIZE  = 2 * 1024 * 1024;
 
   private String                      url;
   private File                        file;
   private MediaEntity                 media;
   private MediaFileType               fileType;
-  private String                      userAgent = "";
+  private String                      userAgent         = "";
+
+  private long                        length            = 0;
+  private final AtomicLong            bytesDone         = new AtomicLong();
+  private long                        bytesDonePrevious = 0;
+  private long                        timestamp         = 0;
+  private double                      speed             = 0;
+  // strong ETag or Last-Modified of the resource; sent as If-Range when resuming
+  private String                      validator         = "";
+  private volatile boolean            resourceChanged   = false;
 
   /**
    * Downloads an url to a file, and does correct http encoding on querystring.<br>
@@ -128,10 +157,7 @@ public class DownloadTask extends TmmTask {
       }
 
       LOGGER.info("Downloading " + url);
-      StreamingUrl u = new StreamingUrl(UrlUtil.getURIEncoded(url).toASCIIString());
-      if (StringUtils.isNotBlank(userAgent)) {
-        u.setUserAgent(userAgent);
-      }
+      StreamingUrl u = createUrl();
       InputStream is = u.getInputStream();
 
       // trace server headers
@@ -148,7 +174,7 @@ public class DownloadTask extends TmmTask {
         return;
       }
 
-      long length = u.getContentLength();
+      length = u.getContentLength();
       String type = u.getContentType();
       if (ext.isEmpty()) {
         // still empty? try to parse from mime header
@@ -162,55 +188,40 @@ public class DownloadTask extends TmmTask {
       LOGGER.info("Downloading to " + file);
 
       File tempFile = new File(file.getAbsolutePath() + ".part");
-      BufferedInputStream bufferedInputStream = new BufferedInputStream(is);
-      FileOutputStream outputStream = new FileOutputStream(tempFile);
-      int count = 0;
-      byte buffer[] = new byte[2048];
-      Long timestamp1 = System.nanoTime();
-      Long timestamp2;
-      long bytesDone = 0;
-      long bytesDonePrevious = 0;
-      double speed = 0;
-
-      while ((count = bufferedInputStream.read(buffer, 0, buffer.length)) != -1) {
-        if (cancel) {
-          break;
-        }
-
-        outputStream.write(buffer, 0, count);
-        bytesDone += count;
-
-        // we push the progress only once per 250ms (to use less performance and get a better download speed)
-        timestamp2 = System.nanoTime();
-        if (timestamp2 - timestamp1 > 250000000) {
-          // avg. speed between the actual and the previous
-          speed = (speed + (bytesDone - bytesDonePrevious) / ((double) (timestamp2 - timestamp1) / 1000000000)) / 2;
-
-          timestamp1 = timestamp2;
-          bytesDonePrevious = bytesDone;
-
-          if (length > 0) {
-            publishState(formatBytesForOutput(bytesDone) + "/" + formatBytesForOutput(length) + " @" + formatSpeedForOutput(speed),
-                (int) (bytesDone * 100 / length));
-          }
-          else {
-            setWorkUnits(0);
-            publishState(formatBytesForOutput(bytesDone) + " @" + formatSpeedForOutput(speed), 0);
-          }
+      File metaFile = new File(tempFile.getPath() + ".meta");
+      boolean acceptRanges = "bytes".equalsIgnoreCase(u.getHeader("Accept-Ranges"));
+      int segments = getSegmentCount(length);
+      timestamp = System.nanoTime();
 
-        }
+      // parts of another resource (or without a validator) cannot be resumed safely
+      validator = getValidator(u);
+      if (!isResumable(metaFile)) {
+        deleteParts(tempFile);
+      }
+      if (acceptRanges && StringUtils.isNotBlank(validator)) {
+        writeMeta(metaFile);
       }
 
-      outputStream.close();
-
-      // we must not close the input stream on cancel(the rest will be downloaded if we close it on cancel)
-      if (!cancel) {
-        is.close();
+      boolean complete;
+      if (acceptRanges && segments > 1) {
+        // big file and the server supports ranges: download it in parallel segments; the probe connection is not needed any more
+        u.closeConnection();
+        complete = downloadSegmented(tempFile, segments);
+      }
+      else {
+        complete = download(u, is, tempFile, acceptRanges);
       }
 
-      if (cancel) {
+      if (cancel || resourceChanged) {
         // delete half downloaded file
-        FileUtils.deleteQuietly(tempFile);
+        deleteParts(tempFile);
+        if (resourceChanged) {
+          LOGGER.warn("Download of " + url + " aborted: the resource changed on the server");
+        }
+      }
+      else if (!complete) {
+        // keep the .part file(s) to resume the download next time
+        LOGGER.warn("Download of " + url + " incomplete (" + bytesDone.get() + "/" + length + " bytes)");
       }
       else {
         if (ext.isEmpty()) {
@@ -227,6 +238,7 @@ public class DownloadTask extends TmmTask {
           }
         }
 
+        FileUtils.deleteQuietly(metaFile);
         FileUtils.deleteQuietly(file); // delete existing file
         boolean ok = Utils.moveFileSafe(tempFile, file);
         if (ok) {
@@ -243,17 +255,326 @@ public class DownloadTask extends TmmTask {
           LOGGER.warn("Download to '" + tempFile + "' was ok, but couldn't move to '" + file + "'");
         }
       } // end isCancelled
-
-      // close the url connections
-      if (u != null) {
-        u.closeConnection();
-      }
     }
     catch (Exception e) {
       LOGGER.error("problem downloading: ", e);
     }
   }
 
+  private StreamingUrl createUrl() throws Exception {
+    StreamingUrl u = new StreamingUrl(UrlUtil.getURIEncoded(url).toASCIIString());
+    if (StringUtils.isNotBlank(userAgent)) {
+      u.setUserAgent(userAgent);
+    }
+    return u;
+  }
+
+  /**
+   * get the amount of parallel segments for a download of the given length
+   */
+  static int getSegmentCount(long length) {
+    return (int) Math.min(Math.max(1, Globals.settings.getDownloadSegments()), length / MIN_SEGMENT_SIZE);
+  }
+
+  /**
+   * get the part file of the segment with the given byte range
+   */
+  static File getPartFile(File tempFile, long start, long end) {
+    return new File(tempFile.getPath() + "." + start + "-" + end);
+  }
+
+  /**
+   * the validator of the resource for If-Range: a strong ETag or the Last-Modified date (weak ETags must not be used for ranges)
+   */
+  private String getValidator(StreamingUrl u) {
+    String etag = u.getHeader("ETag");
+    if (StringUtils.isNotBlank(etag) && !etag.startsWith("W/")) {
+      return etag;
+    }
+    return StringUtils.defaultString(u.getHeader("Last-Modified"));
+  }
+
+  /**
+   * are the existing parts of the same resource (url, length and validator)?
+   */
+  private boolean isResumable(File metaFile) {
+    if (StringUtils.isBlank(validator) || !metaFile.exists()) {
+      return false;
+    }
+    Properties meta = new Properties();
+    InputStream is = null;
+    try {
+      is = new FileInputStream(metaFile);
+      meta.load(is);
+    }
+    catch (IOException e) {
+      return false;
+    }
+    finally {
+      IOUtils.closeQuietly(is);
+    }
+    return url.equals(meta.getProperty("url")) && String.valueOf(length).equals(meta.getProperty("length"))
+        && validator.equals(meta.getProperty("validator"));
+  }
+
+  private void writeMeta(File metaFile) {
+    Properties meta = new Properties();
+    meta.setProperty("url", url);
+    meta.setProperty("length", String.valueOf(length));
+    meta.setProperty("validator", validator);
+    OutputStream os = null;
+    try {
+      os = new FileOutputStream(metaFile);
+      meta.store(os, null);
+    }
+    catch (IOException e) {
+      LOGGER.warn("could not write " + metaFile + ": " + e.getMessage());
+    }
+    finally {
+      IOUtils.closeQuietly(os);
+    }
+  }
+
+  /**
+   * delete the .part file, all segment parts and the .part.meta file
+   */
+  private void deleteParts(File tempFile) {
+    deleteStaleParts(tempFile, new ArrayList<File>());
+    FileUtils.deleteQuietly(tempFile);
+    FileUtils.deleteQuietly(new File(tempFile.getPath() + ".meta"));
+  }
+
+  /**
+   * delete all segment parts which do not belong to the given layout (e.g. after the amount of segments has been changed)
+   */
+  private void deleteStaleParts(File tempFile, final List<File> keep) {
+    final String prefix = tempFile.getName() + ".";
+    File[] parts = tempFile.getAbsoluteFile().getParentFile().listFiles(new FileFilter() {
+      @Override
+      public boolean accept(File pathname) {
+        return pathname.getName().startsWith(prefix) && pathname.getName().substring(prefix.length()).matches("\\d+(-\\d+)?")
+            && !keep.contains(pathname);
+      }
+    });
+    if (parts != null) {
+      for (File part : parts) {
+        FileUtils.deleteQuietly(part);
+      }
+    }
+  }
+
+  /**
+   * download with one connection; an existing .part file is being resumed if the server supports it
+   */
+  private boolean download(StreamingUrl u, InputStream is, File tempFile, boolean acceptRanges) throws Exception {
+    deleteStaleParts(tempFile, new ArrayList<File>());
+    long offset = 0;
+    if (acceptRanges && tempFile.exists() && tempFile.length() > 0 && tempFile.length() < length) {
+      // resume: re-request the missing rest - as long as the resource did not change
+      u.closeConnection();
+      offset = tempFile.length();
+      u = createUrl();
+      u.addHeader("Range", "bytes=" + offset + "-");
+      u.addHeader("If-Range", validator);
+      is = u.getInputStream();
+      if (u.getStatusCode() != 206) {
+        // the server sends the whole (changed) file
+        offset = 0;
+      }
+      else {
+        LOGGER.info("resuming download of " + url + " at " + offset + " bytes");
+      }
+    }
+    bytesDone.set(offset);
+
+    OutputStream outputStream = new FileOutputStream(tempFile, offset > 0);
+    try {
+      transfer(is, outputStream);
+    }
+    finally {
+      outputStream.close();
+      // we must not close the input stream on cancel(the rest will be downloaded if we close it on cancel)
+      if (!cancel) {
+        is.close();
+      }
+      u.closeConnection();
+    }
+    return !cancel && (length <= 0 || tempFile.length() == length);
+  }
+
+  /**
+   * download with parallel HTTP range requests; every segment is being written into its own .part file (to resume it) and they are merged
+   * afterwards
+   */
+  private boolean downloadSegmented(File tempFile, int count) throws Exception {
+    LOGGER.info("Downloading in " + count + " segments");
+    FileUtils.deleteQuietly(tempFile);
+
+    List<Segment> segments = new ArrayList<Segment>();
+    List<File> parts = new ArrayList<File>();
+    long segmentSize = length / count;
+    for (int i = 0; i < count; i++) {
+      long start = i * segmentSize;
+      long end = i == count - 1 ? length - 1 : start + segmentSize - 1;
+      Segment segment = new Segment(getPartFile(tempFile, start, end), start, end);
+      parts.add(segment.part);
+      segments.add(segment);
+    }
+    // parts of another layout cannot be merged
+    deleteStaleParts(tempFile, parts);
+    for (Segment segment : segments) {
+      bytesDone.addAndGet(segment.getBytesDone());
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(count, new TmmThreadFactory("download-segment"));
+    List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+    for (Segment segment : segments) {
+      futures.add(executor.submit(segment));
+    }
+    executor.shutdown();
+
+    boolean complete = true;
+    for (Future<Boolean> future : futures) {
+      try {
+        complete = future.get() && complete;
+      }
+      catch (ExecutionException e) {
+        LOGGER.warn("segment download failed: " + e.getCause().getMessage());
+        complete = false;
+      }
+    }
+
+    if (cancel || resourceChanged || !complete) {
+      return false;
+    }
+
+    // merge the segments
+    FileOutputStream os = new FileOutputStream(tempFile);
+    try {
+      FileChannel output = os.getChannel();
+      for (Segment segment : segments) {
+        FileInputStream in = new FileInputStream(segment.part);
+        try {
+          FileChannel input = in.getChannel();
+          long position = 0;
+          while (position < input.size()) {
+            position += input.transferTo(position, input.size() - position, output);
+          }
+        }
+        finally {
+          in.close();
+        }
+      }
+    }
+    finally {
+      os.close();
+    }
+    for (Segment segment : segments) {
+      FileUtils.deleteQuietly(segment.part);
+    }
+    return tempFile.length() == length;
+  }
+
+  /**
+   * copy the stream to the file; respects the configured buffer size and the global bandwidth limit
+   */
+  private void transfer(InputStream is, OutputStream os) throws IOException, InterruptedException {
+    byte buffer[] = new byte[Math.max(2, Globals.settings.getDownloadBufferSize()) * 1024];
+    int count;
+    while ((count = is.read(buffer, 0, buffer.length)) != -1) {
+      if (cancel) {
+        break;
+      }
+      BandwidthLimiter.getInstance().acquire(count);
+      os.write(buffer, 0, count);
+      bytesDone.addAndGet(count);
+      publishProgress();
+    }
+  }
+
+  /**
+   * we push the progress only once per 250ms (to use less performance and get a better download speed)
+   */
+  private synchronized void publishProgress() {
+    long now = System.nanoTime();
+    if (now - timestamp <= 250000000) {
+      return;
+    }
+    long done = bytesDone.get();
+
+    // avg. speed between the actual and the previous
+    speed = (speed + (done - bytesDonePrevious) / ((double) (now - timestamp) / 1000000000)) / 2;
+    timestamp = now;
+    bytesDonePrevious = done;
+
+    if (length > 0) {
+      publishState(formatBytesForOutput(done) + "/" + formatBytesForOutput(length) + " @" + formatSpeedForOutput(speed), (int) (done * 100 / length));
+    }
+    else {
+      setWorkUnits(0);
+      publishState(formatBytesForOutput(done) + " @" + formatSpeedForOutput(speed), 0);
+    }
+  }
+
+  /**
+   * one segment (byte range) of a segmented download
+   */
+  private class Segment implements Callable<Boolean> {
+    private final File part;
+    private final long start;
+    private final long end;
+
+    private Segment(File part, long start, long end) {
+      this.part = part;
+      this.start = start;
+      this.end = end;
+      if (part.length() > end - start + 1) {
+        FileUtils.deleteQuietly(part);
+      }
+    }
+
+    private long getBytesDone() {
+      return part.exists() ? part.length() : 0;
+    }
+
+    @Override
+    public Boolean call() throws Exception {
+      long offset = start + getBytesDone();
+      if (offset > end) {
+        return true; // already downloaded
+      }
+
+      StreamingUrl u = createUrl();
+      u.addHeader("Range", "bytes=" + offset + "-" + end);
+      if (StringUtils.isNotBlank(validator)) {
+        u.addHeader("If-Range", validator);
+      }
+      InputStream is = u.getInputStream();
+      try {
+        if (u.getStatusCode() == 200 && StringUtils.isNotBlank(validator)) {
+          // If-Range did not match: the resource changed since the download has been started
+          resourceChanged = true;
+          return false;
+        }
+        if (u.getStatusCode() != 206) {
+          LOGGER.warn("server did not accept the range request: " + u.getStatusLine());
+          return false;
+        }
+        OutputStream os = new FileOutputStream(part, true);
+        try {
+          transfer(is, os);
+        }
+        finally {
+          os.close();
+        }
+      }
+      finally {
+        u.closeConnection();
+      }
+      return part.length() == end - start + 1;
+    }
+  }
+
   private String formatBytesForOutput(long bytes) {
     return String.format("%.2fM", (double) bytes / (1024d * 1024d));
   }
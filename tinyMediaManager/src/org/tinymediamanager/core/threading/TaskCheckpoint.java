@@ -0,0 +1,164 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.threading;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class TaskCheckpoint. Holds the finished work units of a task in a file, so a run which has been interrupted by a crash or a shutdown can be
+ * resumed by the next run of the same task. Every finished work unit is appended immediately; checkpoints older than a day are discarded (the
+ * work units could be outdated).
+ *
+ * @author Manuel Laggner
+ */
+public class TaskCheckpoint {
+  private static final Logger LOGGER    = LoggerFactory.getLogger(TaskCheckpoint.class);
+  public static final String  CACHE_DIR = "cache/checkpoint";
+  static final long           MAX_AGE   = 24 * 60 * 60 * 1000L;
+
+  private final File          file;
+  private final Set<String>   workUnits = new HashSet<String>();
+  private Writer              writer;
+
+  TaskCheckpoint(File file) {
+    this.file = file;
+  }
+
+  /**
+   * load the checkpoint of the given task
+   *
+   * @param id
+   *          the id of the task (see {@link #createId(String, Collection)})
+   * @return the checkpoint (empty if there is no recent one)
+   */
+  public static TaskCheckpoint load(String id) {
+    TaskCheckpoint checkpoint = new TaskCheckpoint(new File(CACHE_DIR, id + ".txt"));
+    checkpoint.load();
+    return checkpoint;
+  }
+
+  /**
+   * create the id of a task from its name and its input (e.g. the ids of the movies to scrape); the same input results in the same id
+   *
+   * @param name
+   *          the name of the task
+   * @param input
+   *          the input of the task
+   * @return the id
+   */
+  public static String createId(String name, Collection<?> input) {
+    List<String> keys = new ArrayList<String>();
+    for (Object key : input) {
+      keys.add(String.valueOf(key));
+    }
+    Collections.sort(keys);
+    return name + "-" + DigestUtils.md5Hex(StringUtils.join(keys, '\n'));
+  }
+
+  synchronized void load() {
+    workUnits.clear();
+    if (!file.exists()) {
+      return;
+    }
+    if (System.currentTimeMillis() - file.lastModified() > MAX_AGE) {
+      LOGGER.debug("discarding outdated checkpoint " + file.getName());
+      FileUtils.deleteQuietly(file);
+      return;
+    }
+    try {
+      for (String line : FileUtils.readLines(file, "UTF-8")) {
+        if (StringUtils.isNotBlank(line)) {
+          workUnits.add(line);
+        }
+      }
+    }
+    catch (IOException e) {
+      LOGGER.warn("could not load checkpoint " + file.getName() + ": " + e.getMessage());
+      workUnits.clear();
+    }
+  }
+
+  /**
+   * has the work unit been finished?
+   */
+  public synchronized boolean contains(String workUnit) {
+    return workUnits.contains(workUnit);
+  }
+
+  /**
+   * the amount of finished work units
+   */
+  public synchronized int size() {
+    return workUnits.size();
+  }
+
+  /**
+   * add a finished work unit (it is written to the file immediately)
+   *
+   * @param workUnit
+   *          the work unit
+   */
+  public synchronized void add(String workUnit) {
+    if (!workUnits.add(workUnit)) {
+      return;
+    }
+    try {
+      if (writer == null) {
+        FileUtils.forceMkdir(file.getParentFile());
+        writer = new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8");
+      }
+      writer.write(workUnit + "\n");
+      writer.flush();
+    }
+    catch (IOException e) {
+      LOGGER.warn("could not write checkpoint " + file.getName() + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * close the file but keep the checkpoint (the task has been interrupted)
+   */
+  public synchronized void close() {
+    IOUtils.closeQuietly(writer);
+    writer = null;
+  }
+
+  /**
+   * remove the checkpoint (the task has been finished or cancelled by the user)
+   */
+  public synchronized void delete() {
+    close();
+    workUnits.clear();
+    FileUtils.deleteQuietly(file);
+  }
+}
@@ -26,6 +26,7 @@ import java.util.concurrent.CopyOnWriteArraySet;
 public abstract class TmmTask implements Runnable, TmmTaskHandle {
   private final Set<TmmTaskListener> listeners = new CopyOnWriteArraySet<TmmTaskListener>();
   private TaskType                   type;
+  private TaskPriority               priority;
   protected TaskState                state     = TaskState.CREATED;
 
   protected String                   taskName;
@@ -40,6 +41,7 @@ public abstract class TmmTask implements Runnable, TmmTaskHandle {
     this.taskDescription = "";
     this.progressDone = 0;
     this.type = type;
+    this.priority = type == TaskType.MAIN_TASK ? TaskPriority.FOREGROUND : TaskPriority.BACKGROUND;
   }
 
   @Override
@@ -155,5 +157,19 @@ public abstract class TmmTask implements Runnable, TmmTaskHandle {
     return type;
   }
 
+  /**
+   * the priority class of this task in the {@link TmmTaskScheduler} (default: FOREGROUND for main tasks, BACKGROUND for all others)
+   */
+  public TaskPriority getPriority() {
+    return priority;
+  }
+
+  /**
+   * set the priority class of this task; must be set before the task is being queued
+   */
+  public void setPriority(TaskPriority priority) {
+    this.priority = priority;
+  }
+
   protected abstract void doInBackground();
 }
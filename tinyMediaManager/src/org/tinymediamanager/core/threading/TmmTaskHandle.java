@@ -9,6 +9,11 @@ public interface TmmTaskHandle {
     CREATED, QUEUED, STARTED, CANCELLED, FINISHED
   }
 
+  // the priority classes of the task scheduler (highest first)
+  public enum TaskPriority {
+    INTERACTIVE, FOREGROUND, BACKGROUND
+  }
+
   public String getTaskName();
 
   public int getWorkUnits();
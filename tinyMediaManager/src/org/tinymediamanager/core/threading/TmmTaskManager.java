@@ -15,8 +15,10 @@
  */
 package org.tinymediamanager.core.threading;
 
+import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -25,9 +27,13 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import org.tinymediamanager.Globals;
 import org.tinymediamanager.core.Utils;
+import org.tinymediamanager.core.metrics.MetricsRegistry;
+import org.tinymediamanager.core.threading.TmmTaskHandle.TaskPriority;
 import org.tinymediamanager.core.threading.TmmTaskHandle.TaskState;
 import org.tinymediamanager.core.threading.TmmThreadPool.TmmThreadFactory;
+import org.tinymediamanager.scraper.util.ScraperExecutor;
 import org.tinymediamanager.ui.UTF8Control;
 
 /**
@@ -40,20 +46,28 @@ public class TmmTaskManager implements TmmTaskListener {
   private final static TmmTaskManager    instance         = new TmmTaskManager();
   private final Set<TmmTaskListener>     taskListener     = new CopyOnWriteArraySet<TmmTaskListener>();
   private final Set<TmmTaskHandle>       runningTasks     = new CopyOnWriteArraySet<TmmTaskHandle>();
+  // the start times of the running tasks (for the metrics)
+  private final Map<TmmTaskHandle, Long> startTimes       = new ConcurrentHashMap<TmmTaskHandle, Long>();
+  private volatile boolean               shuttingDown     = false;
 
-  // we have some "named" queues, holding different types of tasks
-  // image download/subtitle download are rather small/fast tasks - we only queue them in a queue and provide to abort the complete queue
-  private ThreadPoolExecutor             imageDownloadExecutor;
+  // the groups of the tasks in the schedulers
+  private static final String            MAIN_TASKS       = "main";
+  private static final String            UNNAMED_TASKS    = "unnamed";
+  private static final String            IMAGE_DOWNLOADS  = "image";
 
-  // this is a queue which holds "other" tasks
-  private ThreadPoolExecutor             unnamedTaskExecutor;
+  // we have some "named" queues, holding different types of tasks; all of them are scheduled by their priority class:
+  // - main tasks (update datasource, scraping, renaming) are queueable tasks, but only one at a time can run (they work on the same entities); an
+  // interactive task of the user overtakes the queued main tasks, but waits for the running one; they can be cancelled individually
+  // - "other" tasks (caching, TV show episode scraping, ...) run in the background
+  private final TmmTaskScheduler         taskScheduler    = createTaskScheduler();
+
+  // image download/subtitle download are rather small/fast tasks - we only queue them in a queue and provide to abort the complete queue; the
+  // images of the tasks the user is waiting for are downloaded first
+  private final TmmTaskScheduler         imageScheduler   = createImageScheduler();
 
   // trailer download are rather big/long running tasks; only x at a time can be run and they are able to be cancelled individually
   private ThreadPoolExecutor             downloadExecutor;
 
-  // main tasks (update datasource, scraping, renaming) are queueable tasks, but only one at a time can run; they can be cancelled individually
-  private final ThreadPoolExecutor       mainTaskExecutor = createMainTaskQueue();
-
   // fake task handles to manage queues
   private TmmTaskHandle                  imageQueueHandle;
   private TmmTaskHandle                  unnamedQueueHandle;
@@ -86,63 +100,61 @@ public class TmmTaskManager implements TmmTaskListener {
     taskListener.remove(listener);
   }
 
-  private ThreadPoolExecutor createImageDownloadExecutor() {
-    ThreadPoolExecutor executor = new ThreadPoolExecutor(3, 3, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new TmmThreadFactory(
-        "image-download-task")) {
+  private TmmTaskScheduler createTaskScheduler() {
+    // 1 main task (of any class) and up to 4 "other" tasks (3 in the background)
+    TmmTaskScheduler scheduler = new TmmTaskScheduler("task", 5) {
       @Override
-      protected void beforeExecute(Thread d, Runnable r) {
-        super.beforeExecute(d, r);
-        if (imageQueueHandle != null) {
-          processTaskEvent(imageQueueHandle);
+      protected void beforeExecute(Object group) {
+        if (UNNAMED_TASKS.equals(group) && unnamedQueueHandle != null) {
+          processTaskEvent(unnamedQueueHandle);
         }
       }
 
       @Override
-      protected void afterExecute(Runnable r, Throwable t) {
-        super.afterExecute(r, t);
-        if (imageQueueHandle != null) {
-          processTaskEvent(imageQueueHandle);
+      protected void afterExecute(Object group) {
+        if (UNNAMED_TASKS.equals(group) && unnamedQueueHandle != null) {
+          processTaskEvent(unnamedQueueHandle);
         }
       }
     };
-    executor.allowCoreThreadTimeOut(true);
-    return executor;
+    scheduler.setLimit(TaskPriority.INTERACTIVE, 1);
+    scheduler.setLimit(TaskPriority.FOREGROUND, 1);
+    scheduler.setLimit(TaskPriority.BACKGROUND, 3);
+    scheduler.setGroupLimit(MAIN_TASKS, 1);
+    return scheduler;
   }
 
-  private ThreadPoolExecutor createUnnamedTaskExecutor() {
-    ThreadPoolExecutor executor = new ThreadPoolExecutor(3, 3, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new TmmThreadFactory(
-        "unnamed-task")) {
+  private TmmTaskScheduler createImageScheduler() {
+    TmmTaskScheduler scheduler = new TmmTaskScheduler("image-download-task", 3) {
       @Override
-      protected void beforeExecute(Thread d, Runnable r) {
-        super.beforeExecute(d, r);
-        if (unnamedQueueHandle != null) {
-          processTaskEvent(unnamedQueueHandle);
+      protected void beforeExecute(Object group) {
+        if (imageQueueHandle != null) {
+          processTaskEvent(imageQueueHandle);
         }
       }
 
       @Override
-      protected void afterExecute(Runnable r, Throwable t) {
-        super.afterExecute(r, t);
-        if (unnamedQueueHandle != null) {
-          processTaskEvent(unnamedQueueHandle);
+      protected void afterExecute(Object group) {
+        if (imageQueueHandle != null) {
+          processTaskEvent(imageQueueHandle);
         }
       }
     };
-    executor.allowCoreThreadTimeOut(true);
-    return executor;
+    // keep a thread free for the images the user is waiting for
+    scheduler.setLimit(TaskPriority.BACKGROUND, 2);
+    return scheduler;
   }
 
   /**
-   * add a image download task to the queue
+   * add a image download task to the queue; the task gets the priority class of the task which adds it (or INTERACTIVE if it is added directly
+   * from the UI)
    * 
    * @param task
    *          the task to be added
    */
   public void addImageDownloadTask(Runnable task) {
-    if (imageDownloadExecutor == null || imageDownloadExecutor.isShutdown()) {
-      imageDownloadExecutor = createImageDownloadExecutor();
-    }
-    imageDownloadExecutor.execute(task);
+    TaskPriority priority = TmmTaskScheduler.getCurrentPriority();
+    imageScheduler.execute(task, priority != null ? priority : TaskPriority.INTERACTIVE, IMAGE_DOWNLOADS);
   }
 
   /**
@@ -152,15 +164,14 @@ public class TmmTaskManager implements TmmTaskListener {
    *          the task to be added
    */
   public void addUnnamedTask(Runnable task) {
-    if (unnamedTaskExecutor == null || unnamedTaskExecutor.isShutdown()) {
-      unnamedTaskExecutor = createUnnamedTaskExecutor();
-    }
+    TaskPriority priority = TaskPriority.BACKGROUND;
     if (task instanceof TmmTask) {
       TmmTask t = (TmmTask) task;
       t.addListener(this);
       t.setState(TaskState.QUEUED);
+      priority = t.getPriority();
     }
-    unnamedTaskExecutor.execute(task);
+    taskScheduler.execute(task, priority, UNNAMED_TASKS);
   }
 
   /**
@@ -170,10 +181,24 @@ public class TmmTaskManager implements TmmTaskListener {
    *          the task to be added
    */
   public void addDownloadTask(TmmTask task) {
+    // the amount of concurrent downloads (slots) is configurable; the bandwidth of all downloads is limited by the BandwidthLimiter
+    int slots = Math.max(1, Globals.settings.getDownloadSlots());
     if (downloadExecutor == null) {
-      downloadExecutor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new TmmThreadFactory("download-task"));
+      downloadExecutor = new ThreadPoolExecutor(slots, slots, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new TmmThreadFactory(
+          "download-task"));
       downloadExecutor.allowCoreThreadTimeOut(true);
     }
+    else if (downloadExecutor.getMaximumPoolSize() != slots) {
+      // changed in the settings
+      if (slots > downloadExecutor.getMaximumPoolSize()) {
+        downloadExecutor.setMaximumPoolSize(slots);
+        downloadExecutor.setCorePoolSize(slots);
+      }
+      else {
+        downloadExecutor.setCorePoolSize(slots);
+        downloadExecutor.setMaximumPoolSize(slots);
+      }
+    }
     task.addListener(this);
     task.setState(TaskState.QUEUED);
     downloadExecutor.execute(task);
@@ -185,28 +210,21 @@ public class TmmTaskManager implements TmmTaskListener {
    * @return the count of all running and open unnamed tasks
    */
   public int getUnnamedOpenTaskCount() {
-    if (unnamedTaskExecutor == null) {
-      return 0;
-    }
-    return unnamedTaskExecutor.getQueue().size() + unnamedTaskExecutor.getActiveCount();
+    return taskScheduler.getOpenCount(UNNAMED_TASKS);
   }
 
   /**
    * cancel all open and running image downloads
    */
   public void cancelImageDownloads() {
-    if (imageDownloadExecutor != null) {
-      imageDownloadExecutor.shutdownNow();
-    }
+    imageScheduler.cancel(IMAGE_DOWNLOADS);
   }
 
   /**
    * cancel all open and running unnamed tasks
    */
   public void cancelUnnamedTasks() {
-    if (unnamedTaskExecutor != null) {
-      unnamedTaskExecutor.shutdownNow();
-    }
+    taskScheduler.cancel(UNNAMED_TASKS);
   }
 
   /**
@@ -220,43 +238,67 @@ public class TmmTaskManager implements TmmTaskListener {
     boolean result = false;
     newTask.addListener(this);
     newTask.setState(TaskState.QUEUED);
-    mainTaskExecutor.execute(newTask);
+    taskScheduler.execute(newTask, newTask.getPriority(), MAIN_TASKS);
     return result;
   }
 
-  private ThreadPoolExecutor createMainTaskQueue() {
-    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, // max threads
-        1, TimeUnit.SECONDS, // time to wait before closing idle workers
-        new LinkedBlockingQueue<Runnable>(), // our queue
-        new TmmThreadFactory("main-task"));
-    executor.allowCoreThreadTimeOut(true);
-    return executor;
+  /**
+   * get the scheduler which runs the given task (or null if the task is not run by a scheduler)
+   * 
+   * @param handle
+   *          the task
+   * @return the scheduler or null
+   */
+  public TmmTaskScheduler getScheduler(TmmTaskHandle handle) {
+    if (handle == imageQueueHandle) {
+      return imageScheduler;
+    }
+    if (handle == unnamedQueueHandle || (handle instanceof TmmTask && !(handle instanceof DownloadTask))) {
+      return taskScheduler;
+    }
+    return null;
+  }
+
+  /**
+   * get the priority class of the given task
+   * 
+   * @param handle
+   *          the task
+   * @return the priority class
+   */
+  public TaskPriority getPriority(TmmTaskHandle handle) {
+    if (handle instanceof TmmTask) {
+      return ((TmmTask) handle).getPriority();
+    }
+    return TaskPriority.BACKGROUND;
   }
 
   /**
    * shut down all threads
    */
   public void shutdown() {
-    if (imageDownloadExecutor != null) {
-      imageDownloadExecutor.shutdown();
-    }
-    if (unnamedTaskExecutor != null) {
-      unnamedTaskExecutor.shutdown();
-    }
+    shuttingDown = true;
+    imageScheduler.shutdown();
+    taskScheduler.shutdown();
     if (downloadExecutor != null) {
       downloadExecutor.shutdown();
     }
-    if (mainTaskExecutor != null) {
-      mainTaskExecutor.shutdown();
-    }
     if (scheduler != null) {
       scheduler.shutdown();
     }
+    ScraperExecutor.shutdown();
     for (TmmTaskHandle task : runningTasks) {
       task.cancel();
     }
   }
 
+  /**
+   * is tmm shutting down? (tasks which are cancelled now have not been cancelled by the user)
+   */
+  public boolean isShuttingDown() {
+    return shuttingDown;
+  }
+
   /**
    * hard shutdown of all tasks after a max of 4 secs waiting
    */
@@ -271,21 +313,19 @@ public class TmmTaskManager implements TmmTaskListener {
     }
 
     // check if all finished
-    if (imageDownloadExecutor != null && !imageDownloadExecutor.isTerminated()) {
-      imageDownloadExecutor.shutdownNow();
+    if (!imageScheduler.isTerminated()) {
+      imageScheduler.shutdownNow();
     }
-    if (unnamedTaskExecutor != null && !unnamedTaskExecutor.isTerminated()) {
-      unnamedTaskExecutor.shutdownNow();
+    if (!taskScheduler.isTerminated()) {
+      taskScheduler.shutdownNow();
     }
     if (downloadExecutor != null && !downloadExecutor.isTerminated()) {
       downloadExecutor.shutdownNow();
     }
-    if (mainTaskExecutor != null && !mainTaskExecutor.isTerminated()) {
-      mainTaskExecutor.shutdownNow();
-    }
     if (scheduler != null && !scheduler.isTerminated()) {
       scheduler.shutdownNow();
     }
+    ScraperExecutor.shutdownNow();
   }
 
   /**
@@ -353,9 +393,15 @@ public class TmmTaskManager implements TmmTaskListener {
   public void processTaskEvent(TmmTaskHandle task) {
     if (task.getState() == TaskState.STARTED) {
       runningTasks.add(task);
+      startTimes.put(task, System.currentTimeMillis());
     }
     if (task.getState() == TaskState.FINISHED) {
       runningTasks.remove(task);
+      // record the run time per task class
+      Long start = startTimes.remove(task);
+      if (start != null) {
+        MetricsRegistry.timer("task." + task.getClass().getSimpleName()).update(System.currentTimeMillis() - start);
+      }
     }
     for (TmmTaskListener listener : taskListener) {
       listener.processTaskEvent(task);
@@ -387,11 +433,7 @@ public class TmmTaskManager implements TmmTaskListener {
     }
 
     private int getOpenTasks() {
-      int openTasks = 0;
-      if (imageDownloadExecutor != null) {
-        openTasks = imageDownloadExecutor.getQueue().size() + imageDownloadExecutor.getActiveCount();
-      }
-      return openTasks;
+      return imageScheduler.getOpenCount(IMAGE_DOWNLOADS);
     }
 
     @Override
@@ -435,16 +477,12 @@ public class TmmTaskManager implements TmmTaskListener {
     }
 
     private int getOpenTasks() {
-      int openTasks = 0;
-      if (unnamedTaskExecutor != null) {
-        openTasks = unnamedTaskExecutor.getQueue().size() + unnamedTaskExecutor.getActiveCount();
-      }
-      return openTasks;
+      return taskScheduler.getOpenCount(UNNAMED_TASKS);
     }
 
     @Override
     public TaskState getState() {
-      if (unnamedTaskExecutor != null && getOpenTasks() > 0) {
+      if (getOpenTasks() > 0) {
         return TaskState.STARTED;
       }
       return TaskState.FINISHED;
@@ -0,0 +1,430 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.threading;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.metrics.MetricsRegistry;
+import org.tinymediamanager.core.metrics.Timer;
+import org.tinymediamanager.core.threading.TmmTaskHandle.TaskPriority;
+import org.tinymediamanager.core.threading.TmmThreadPool.TmmThreadFactory;
+
+/**
+ * The class TmmTaskScheduler. A task queue which runs the tasks by their priority class: queued tasks of a higher class are always started before the
+ * queued tasks of a lower class (so a big background job cannot block the work the user is waiting for). Every class has its own concurrency limit,
+ * all classes together are limited by the amount of threads of the scheduler.<br>
+ * Tasks are added with a group (e.g. the name of the queue in the {@link TmmTaskManager}), which can be used to count or cancel the tasks of a group.
+ * A group can have its own concurrency limit over all classes (e.g. only one main task at a time); a task of a higher class then only overtakes
+ * the queued tasks of the group, but does not run beside the running one.<br>
+ * The queue wait and the execution time are recorded per priority class in the {@link MetricsRegistry} (scheduler.&lt;name&gt;.&lt;class&gt;.*).
+ *
+ * @author Manuel Laggner
+ */
+public class TmmTaskScheduler {
+  private static final Logger                    LOGGER           = LoggerFactory.getLogger(TmmTaskScheduler.class);
+  private static final ThreadLocal<TaskPriority> CURRENT_PRIORITY = new ThreadLocal<TaskPriority>();
+
+  private final String                           name;
+  private final int                              maxThreads;
+  private final ThreadPoolExecutor               executor;
+
+  private final int[]                            limits;
+  private final List<ArrayDeque<ScheduledTask>>  queues;
+  private final Set<ScheduledTask>               runningTasks     = new HashSet<ScheduledTask>();
+  private final Map<Object, Integer>             groupLimits      = new HashMap<Object, Integer>();
+  private final Map<Object, Integer>             runningPerGroup  = new HashMap<Object, Integer>();
+  private int                                    running          = 0;
+  private boolean                                shutdown         = false;
+
+  // statistics per priority class
+  private final int[]                            runningPerClass;
+  private final long[]                           submitted;
+  private final long[]                           started;
+  private final long[]                           waitTime;
+
+  /**
+   * create a new scheduler; the limit of every priority class is the amount of threads until it is set with {@link #setLimit(TaskPriority, int)}
+   *
+   * @param name
+   *          the name of the scheduler (used for the thread names)
+   * @param maxThreads
+   *          the max amount of concurrently running tasks
+   */
+  public TmmTaskScheduler(String name, int maxThreads) {
+    this.name = name;
+    this.maxThreads = maxThreads;
+    this.executor = new ThreadPoolExecutor(maxThreads, maxThreads, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new TmmThreadFactory(
+        name));
+    this.executor.allowCoreThreadTimeOut(true);
+
+    int classes = TaskPriority.values().length;
+    limits = new int[classes];
+    queues = new ArrayList<ArrayDeque<ScheduledTask>>(classes);
+    runningPerClass = new int[classes];
+    submitted = new long[classes];
+    started = new long[classes];
+    waitTime = new long[classes];
+    for (int i = 0; i < classes; i++) {
+      limits[i] = maxThreads;
+      queues.add(new ArrayDeque<ScheduledTask>());
+    }
+  }
+
+  /**
+   * get the priority class of the task which is running in the current thread (or null if the current thread does not run a scheduled task)
+   *
+   * @return the priority class or null
+   */
+  public static TaskPriority getCurrentPriority() {
+    return CURRENT_PRIORITY.get();
+  }
+
+  /**
+   * set the priority class for the current thread; used by threads working for a scheduled task (e.g. the workers of a {@link TmmThreadPool}), so
+   * that follow-up tasks inherit the priority class
+   *
+   * @param priority
+   *          the priority class or null to remove it
+   */
+  public static void setCurrentPriority(TaskPriority priority) {
+    if (priority == null) {
+      CURRENT_PRIORITY.remove();
+    }
+    else {
+      CURRENT_PRIORITY.set(priority);
+    }
+  }
+
+  /**
+   * set the max amount of concurrently running tasks of the priority class
+   *
+   * @param priority
+   *          the priority class
+   * @param limit
+   *          the max amount of running tasks
+   */
+  public void setLimit(TaskPriority priority, int limit) {
+    synchronized (this) {
+      limits[priority.ordinal()] = Math.max(1, limit);
+    }
+    dispatch();
+  }
+
+  /**
+   * set the max amount of concurrently running tasks of the group (over all priority classes)
+   *
+   * @param group
+   *          the group
+   * @param limit
+   *          the max amount of running tasks
+   */
+  public void setGroupLimit(Object group, int limit) {
+    synchronized (this) {
+      groupLimits.put(group, Math.max(1, limit));
+    }
+    dispatch();
+  }
+
+  /**
+   * add a task to the queue of its priority class
+   *
+   * @param task
+   *          the task
+   * @param priority
+   *          the priority class
+   * @param group
+   *          the group of the task
+   */
+  public void execute(Runnable task, TaskPriority priority, Object group) {
+    synchronized (this) {
+      if (shutdown) {
+        LOGGER.debug(name + ": scheduler is shut down - discarding task");
+        return;
+      }
+      queues.get(priority.ordinal()).add(new ScheduledTask(task, priority, group));
+      submitted[priority.ordinal()]++;
+    }
+    dispatch();
+  }
+
+  /**
+   * start as many queued tasks as possible - the highest priority class first
+   */
+  private void dispatch() {
+    synchronized (this) {
+      if (shutdown) {
+        return;
+      }
+      for (TaskPriority priority : TaskPriority.values()) {
+        int i = priority.ordinal();
+        while (running < maxThreads && runningPerClass[i] < limits[i]) {
+          ScheduledTask task = pollNext(queues.get(i));
+          if (task == null) {
+            break;
+          }
+          running++;
+          runningPerClass[i]++;
+          runningPerGroup.put(task.group, getRunningCount(task.group) + 1);
+          started[i]++;
+          waitTime[i] += System.nanoTime() - task.queued;
+          runningTasks.add(task);
+          executor.execute(new Worker(task));
+        }
+      }
+    }
+  }
+
+  /**
+   * remove the first task of the queue whose group has not reached its limit
+   */
+  private ScheduledTask pollNext(ArrayDeque<ScheduledTask> queue) {
+    Iterator<ScheduledTask> it = queue.iterator();
+    while (it.hasNext()) {
+      ScheduledTask task = it.next();
+      Integer groupLimit = groupLimits.get(task.group);
+      if (groupLimit == null || getRunningCount(task.group) < groupLimit) {
+        it.remove();
+        return task;
+      }
+    }
+    return null;
+  }
+
+  private int getRunningCount(Object group) {
+    Integer count = runningPerGroup.get(group);
+    return count == null ? 0 : count;
+  }
+
+  /**
+   * remove all queued tasks of the group and interrupt the running ones
+   *
+   * @param group
+   *          the group
+   */
+  public synchronized void cancel(Object group) {
+    for (ArrayDeque<ScheduledTask> queue : queues) {
+      Iterator<ScheduledTask> it = queue.iterator();
+      while (it.hasNext()) {
+        if (it.next().group.equals(group)) {
+          it.remove();
+        }
+      }
+    }
+    for (ScheduledTask task : runningTasks) {
+      if (task.group.equals(group)) {
+        // tasks which have not reached their thread yet are skipped
+        task.cancelled = true;
+        if (task.thread != null) {
+          task.thread.interrupt();
+        }
+      }
+    }
+  }
+
+  /**
+   * get the amount of queued and running tasks of the group
+   *
+   * @param group
+   *          the group
+   * @return the amount of open tasks
+   */
+  public synchronized int getOpenCount(Object group) {
+    int count = 0;
+    for (ArrayDeque<ScheduledTask> queue : queues) {
+      for (ScheduledTask task : queue) {
+        if (task.group.equals(group)) {
+          count++;
+        }
+      }
+    }
+    for (ScheduledTask task : runningTasks) {
+      if (task.group.equals(group)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * get the position of the task in the scheduler (1 = the next task to start)
+   *
+   * @param task
+   *          the task
+   * @return the position or 0 if the task is not queued
+   */
+  public synchronized int getQueuePosition(Runnable task) {
+    int position = 0;
+    for (ArrayDeque<ScheduledTask> queue : queues) {
+      for (ScheduledTask scheduledTask : queue) {
+        position++;
+        if (scheduledTask.task == task) {
+          return position;
+        }
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * the amount of queued tasks of all priority classes
+   */
+  public synchronized int getQueuedCount() {
+    int count = 0;
+    for (ArrayDeque<ScheduledTask> queue : queues) {
+      count += queue.size();
+    }
+    return count;
+  }
+
+  /**
+   * the amount of queued tasks of the priority class
+   */
+  public synchronized int getQueuedCount(TaskPriority priority) {
+    return queues.get(priority.ordinal()).size();
+  }
+
+  /**
+   * the amount of running tasks of the priority class
+   */
+  public synchronized int getRunningCount(TaskPriority priority) {
+    return runningPerClass[priority.ordinal()];
+  }
+
+  /**
+   * the amount of tasks which have been added with the priority class
+   */
+  public synchronized long getSubmittedCount(TaskPriority priority) {
+    return submitted[priority.ordinal()];
+  }
+
+  /**
+   * the average time (in ms) the started tasks of the priority class waited in the queue
+   */
+  public synchronized long getAverageWaitTime(TaskPriority priority) {
+    int i = priority.ordinal();
+    return started[i] == 0 ? 0 : waitTime[i] / started[i] / 1000000;
+  }
+
+  /**
+   * discard all queued tasks; the running tasks are being finished
+   */
+  public synchronized void shutdown() {
+    shutdown = true;
+    for (ArrayDeque<ScheduledTask> queue : queues) {
+      queue.clear();
+    }
+    executor.shutdown();
+  }
+
+  /**
+   * discard all queued tasks and interrupt the running ones
+   */
+  public synchronized void shutdownNow() {
+    shutdown();
+    executor.shutdownNow();
+  }
+
+  public boolean isTerminated() {
+    return executor.isTerminated();
+  }
+
+  /**
+   * called before a task of the group is being executed
+   */
+  protected void beforeExecute(Object group) {
+  }
+
+  /**
+   * called after a task of the group has been executed
+   */
+  protected void afterExecute(Object group) {
+  }
+
+  /*************************************************************************
+   * helper classes
+   *************************************************************************/
+  private static class ScheduledTask {
+    private final Runnable     task;
+    private final TaskPriority priority;
+    private final Object       group;
+    private final long         queued = System.nanoTime();
+    private Thread             thread;
+    private boolean            cancelled;
+
+    private ScheduledTask(Runnable task, TaskPriority priority, Object group) {
+      this.task = task;
+      this.priority = priority;
+      this.group = group;
+    }
+  }
+
+  private class Worker implements Runnable {
+    private final ScheduledTask task;
+
+    private Worker(ScheduledTask task) {
+      this.task = task;
+    }
+
+    @Override
+    public void run() {
+      boolean cancelled;
+      synchronized (TmmTaskScheduler.this) {
+        task.thread = Thread.currentThread();
+        cancelled = task.cancelled;
+      }
+      String metricName = "scheduler." + name + "." + task.priority.name().toLowerCase();
+      MetricsRegistry.histogram(metricName + ".wait").update((System.nanoTime() - task.queued) / 1000000);
+      Timer.Context timer = MetricsRegistry.timer(metricName + ".execution").start();
+
+      setCurrentPriority(task.priority);
+      beforeExecute(task.group);
+      try {
+        if (!cancelled) {
+          task.task.run();
+        }
+      }
+      catch (Exception e) {
+        LOGGER.error(name + ": task crashed", e);
+      }
+      finally {
+        timer.stop();
+        setCurrentPriority(null);
+        synchronized (TmmTaskScheduler.this) {
+          runningTasks.remove(task);
+          running--;
+          runningPerClass[task.priority.ordinal()]--;
+          runningPerGroup.put(task.group, getRunningCount(task.group) - 1);
+          // a cancel could have interrupted this thread - do not pass it to the next task
+          Thread.interrupted();
+        }
+        afterExecute(task.group);
+        dispatch();
+      }
+    }
+  }
+}
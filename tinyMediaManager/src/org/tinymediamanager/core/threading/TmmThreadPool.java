@@ -19,6 +19,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
@@ -28,17 +29,31 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.metrics.MetricsRegistry;
+import org.tinymediamanager.core.metrics.TaskProfile;
+import org.tinymediamanager.core.metrics.Timer;
+import org.tinymediamanager.scraper.util.CancellationToken;
+import org.tinymediamanager.scraper.util.ScraperExecutor;
 
 /**
- * The Class TmmThreadPool.
+ * The Class TmmThreadPool.<br>
+ * The workers are bound to a {@link CancellationToken} of this task, so cancelling the task aborts the running HTTP requests of the scrapers too.
+ * Tasks which provide a checkpoint id (see {@link #getCheckpointId()}) can submit their workers with a work unit; the finished work units are
+ * stored in a {@link TaskCheckpoint}, and a run which has been interrupted by a crash or a shutdown is resumed by the next run of the same task.<br>
+ * The queue wait and the execution time of the workers are recorded per pool name in the {@link MetricsRegistry} (threadpool.&lt;name&gt;.*).<br>
+ * Every run records a {@link TaskProfile} (the metrics of the task thread and the workers), which is written to {@value TaskProfile#PROFILE_DIR}
+ * when the task has finished.
  * 
  * @author Myron Boyle, Manuel Laggner
  */
 public abstract class TmmThreadPool extends TmmTask {
-  private static final Logger       LOGGER  = LoggerFactory.getLogger(TmmThreadPool.class);
+  private static final Logger       LOGGER            = LoggerFactory.getLogger(TmmThreadPool.class);
 
-  private ThreadPoolExecutor        pool    = null;
-  private CompletionService<Object> service = null;
+  private ThreadPoolExecutor        pool              = null;
+  private CompletionService<Object> service           = null;
+  private CancellationToken         cancellationToken = new CancellationToken();
+  private TaskCheckpoint            checkpoint        = null;
+  private TaskProfile               profile           = null;
 
   protected String                  poolname;
 
@@ -56,6 +71,9 @@ public abstract class TmmThreadPool extends TmmTask {
    */
   protected void initThreadPool(int threads, String name) {
     this.cancel = false;
+    if (cancellationToken.isCancelled()) {
+      cancellationToken = new CancellationToken();
+    }
     this.poolname = name;
     pool = new ThreadPoolExecutor(threads, threads, // max threads
         2, TimeUnit.SECONDS, // time to wait before closing idle workers
@@ -64,6 +82,9 @@ public abstract class TmmThreadPool extends TmmTask {
     );
     pool.allowCoreThreadTimeOut(true);
     this.service = new ExecutorCompletionService<Object>(pool);
+    if (profile != null) {
+      profile.addPool(name, threads);
+    }
   }
 
   /**
@@ -72,10 +93,37 @@ public abstract class TmmThreadPool extends TmmTask {
    * @param task
    *          the callable
    */
-  protected void submitTask(Callable<Object> task) {
+  protected void submitTask(final Callable<Object> task) {
     if (!cancel) {
       workUnits++;
-      service.submit(task);
+      final TaskProfile profile = this.profile;
+      if (profile != null) {
+        profile.addWorkUnit();
+      }
+      final String metricName = "threadpool." + poolname;
+      final long queued = System.currentTimeMillis();
+      service.submit(new Callable<Object>() {
+        @Override
+        public Object call() throws Exception {
+          TaskProfile.setCurrent(profile);
+          MetricsRegistry.histogram(metricName + ".wait").update(System.currentTimeMillis() - queued);
+          Timer.Context timer = MetricsRegistry.timer(metricName + ".execution").start();
+          // the sub requests of the scrapers and the follow-up tasks belong to this task
+          ScraperExecutor.setOwner(TmmThreadPool.this);
+          TmmTaskScheduler.setCurrentPriority(getPriority());
+          CancellationToken.setCurrent(cancellationToken);
+          try {
+            return task.call();
+          }
+          finally {
+            timer.stop();
+            ScraperExecutor.setOwner(null);
+            TmmTaskScheduler.setCurrentPriority(null);
+            CancellationToken.setCurrent(null);
+            TaskProfile.setCurrent(null);
+          }
+        }
+      });
     }
   }
 
@@ -85,11 +133,144 @@ public abstract class TmmThreadPool extends TmmTask {
    * @param task
    *          the runnable
    */
-  protected void submitTask(Runnable task) {
-    if (!cancel) {
-      workUnits++;
-      service.submit(task, null);
+  protected void submitTask(final Runnable task) {
+    submitTask(Executors.callable(task));
+  }
+
+  /**
+   * submits a new callable for the given work unit to thread pool; if the work unit has already been finished by an interrupted run of this task,
+   * the callable is not submitted
+   * 
+   * @param workUnit
+   *          the id of the work unit (e.g. the id of the movie)
+   * @param task
+   *          the callable
+   */
+  protected void submitTask(final String workUnit, final Callable<Object> task) {
+    if (isCheckpointed(workUnit)) {
+      return;
+    }
+    submitTask(new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        Object result = task.call();
+        if (!cancel) {
+          checkpoint(workUnit);
+        }
+        return result;
+      }
+    });
+  }
+
+  /**
+   * submits a new runnable for the given work unit to thread pool; if the work unit has already been finished by an interrupted run of this task,
+   * the runnable is not submitted
+   * 
+   * @param workUnit
+   *          the id of the work unit (e.g. the id of the movie)
+   * @param task
+   *          the runnable
+   */
+  protected void submitTask(final String workUnit, final Runnable task) {
+    submitTask(workUnit, Executors.callable(task));
+  }
+
+  /**
+   * the id of the checkpoint of this task; it must be the same for the same input (see {@link TaskCheckpoint#createId(String, java.util.Collection)})
+   * 
+   * @return the id or null if this task does not support checkpoints (default)
+   */
+  protected String getCheckpointId() {
+    return null;
+  }
+
+  private synchronized TaskCheckpoint getCheckpoint() {
+    if (checkpoint == null) {
+      String id = getCheckpointId();
+      if (id == null) {
+        return null;
+      }
+      checkpoint = TaskCheckpoint.load(id);
+      if (checkpoint.size() > 0) {
+        LOGGER.info("resuming " + getTaskName() + ": " + checkpoint.size() + " work units have already been finished");
+      }
+    }
+    return checkpoint;
+  }
+
+  /**
+   * has the work unit already been finished by an interrupted run of this task?
+   * 
+   * @param workUnit
+   *          the id of the work unit
+   * @return true if the work unit can be skipped
+   */
+  protected boolean isCheckpointed(String workUnit) {
+    TaskCheckpoint checkpoint = getCheckpoint();
+    return checkpoint != null && checkpoint.contains(workUnit);
+  }
+
+  /**
+   * store the work unit as finished
+   * 
+   * @param workUnit
+   *          the id of the work unit
+   */
+  protected void checkpoint(String workUnit) {
+    TaskCheckpoint checkpoint = getCheckpoint();
+    if (checkpoint != null) {
+      checkpoint.add(workUnit);
+    }
+  }
+
+  /**
+   * the profile of the running task
+   * 
+   * @return the profile or null if the task is not running
+   */
+  protected TaskProfile getProfile() {
+    return profile;
+  }
+
+  @Override
+  protected void start() {
+    String taskClass = getClass().getSimpleName();
+    profile = new TaskProfile(getTaskName(), taskClass.isEmpty() ? getClass().getName() : taskClass);
+    TaskProfile.setCurrent(profile);
+    super.start();
+  }
+
+  @Override
+  protected void finish() {
+    if (profile != null) {
+      TaskProfile.setCurrent(null);
+      profile.finish();
+      profile.write(cancel);
+      LOGGER.info(getTaskName() + " finished in " + profile.getWallTime() + "ms - " + workUnits + " work units");
+      profile = null;
     }
+
+    // the checkpoint is only needed if this run has been interrupted by a shutdown
+    synchronized (this) {
+      if (checkpoint != null) {
+        if (cancel && TmmTaskManager.getInstance().isShuttingDown()) {
+          checkpoint.close();
+        }
+        else {
+          checkpoint.delete();
+        }
+        checkpoint = null;
+      }
+    }
+    super.finish();
+  }
+
+  @Override
+  public void cancel() {
+    super.cancel();
+    // abort the running HTTP requests and the open sub requests of the scrapers too
+    cancellationToken.cancel();
+    ScraperExecutor.cancel(this);
   }
 
   /**
@@ -108,13 +289,17 @@ public abstract class TmmThreadPool extends TmmTask {
       }
       catch (ExecutionException e) {
         LOGGER.error("ThreadPool " + this.poolname + ": Error getting result!", e);
+        MetricsRegistry.counter("threadpool." + poolname + ".errors").inc();
       }
     }
     if (cancel) {
       try {
         LOGGER.info("Abort queue (discarding " + (workUnits - progressDone) + " tasks)");
         pool.getQueue().clear();
-        pool.awaitTermination(3, TimeUnit.SECONDS);
+        // the running workers stop at their next check of the cancel flag; their HTTP requests have already been aborted
+        if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+          LOGGER.warn("ThreadPool " + this.poolname + ": workers are still running after cancel");
+        }
 
         // shutdown now can cause a inconsistency because it will call Thread.interrupt which can cause a (sub)thread to crash
         // pool.shutdownNow();
@@ -137,12 +322,12 @@ public abstract class TmmThreadPool extends TmmTask {
   /**
    * a copy of the default thread factory, just to set the pool name.
    */
-  static class TmmThreadFactory implements ThreadFactory {
+  public static class TmmThreadFactory implements ThreadFactory {
     final ThreadGroup   group;
     final AtomicInteger threadNumber = new AtomicInteger(1);
     final String        namePrefix;
 
-    TmmThreadFactory(String poolname) {
+    public TmmThreadFactory(String poolname) {
       SecurityManager s = System.getSecurityManager();
       group = (s != null) ? s.getThreadGroup() : Thread.currentThread().getThreadGroup();
       namePrefix = "tmmpool-" + poolname + "-thread-";
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.tvshow;
+
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.tinymediamanager.core.FilterIndex;
+import org.tinymediamanager.core.MediaFileType;
+import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.tvshow.entities.TvShowEpisode;
+
+/**
+ * The class TvShowEpisodeFilterIndex. Holds bitsets of all episodes for the values used in the extended TV show filter. Codecs are stored in
+ * lower case
+ *
+ * @author Manuel Laggner
+ */
+public class TvShowEpisodeFilterIndex extends FilterIndex<TvShowEpisode, TvShowEpisodeFilterIndex.Field> {
+  public enum Field {
+    WATCHED, TAG, VIDEO_FORMAT, VIDEO_CODEC, AUDIO_CODEC, SCRAPED, HAS_IMAGES, HAS_SUBTITLES
+  }
+
+  public TvShowEpisodeFilterIndex() {
+    super(TvShowEpisode.class);
+  }
+
+  @Override
+  protected void collectKeys(TvShowEpisode episode, Set<Object> keys) {
+    put(keys, Field.WATCHED, episode.isWatched());
+    put(keys, Field.SCRAPED, episode.isScraped());
+    put(keys, Field.HAS_IMAGES, episode.getHasImages());
+    put(keys, Field.HAS_SUBTITLES, episode.hasSubtitles());
+    put(keys, Field.VIDEO_FORMAT, episode.getMediaInfoVideoFormat());
+
+    for (String tag : episode.getTags()) {
+      put(keys, Field.TAG, tag);
+    }
+
+    for (MediaFile mf : episode.getMediaFiles(MediaFileType.VIDEO)) {
+      if (StringUtils.isNotBlank(mf.getVideoCodec())) {
+        put(keys, Field.VIDEO_CODEC, mf.getVideoCodec().toLowerCase());
+      }
+      if (StringUtils.isNotBlank(mf.getAudioCodec())) {
+        put(keys, Field.AUDIO_CODEC, mf.getAudioCodec().toLowerCase());
+      }
+    }
+  }
+}
@@ -34,6 +34,7 @@ import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.tvshow.entities.TvShow;
 import org.tinymediamanager.core.tvshow.entities.TvShowEpisode;
 
+import com.floreysoft.jmte.Engine;
 import com.floreysoft.jmte.NamedRenderer;
 import com.floreysoft.jmte.RenderFormatInfo;
 
@@ -49,6 +50,11 @@ public class TvShowExporter extends MediaEntityExporter {
     super(pathToTemplate, TemplateType.TV_SHOW);
   }
 
+  @Override
+  protected void registerRenderers(Engine engine) {
+    engine.registerNamedRenderer(new TvShowFilenameRenderer());
+  }
+
   /**
    * exports movie list according to template file.
    * 
@@ -63,10 +69,6 @@ public class TvShowExporter extends MediaEntityExporter {
   public <T extends MediaEntity> void export(List<T> tvShowsToExport, String pathToExport) throws Exception {
     LOGGER.info("preparing tv show export; using " + properties.getProperty("name"));
 
-    // register own renderers
-    engine.registerNamedRenderer(new NamedDateRenderer());
-    engine.registerNamedRenderer(new TvShowFilenameRenderer());
-
     // prepare export destination
     File exportDir = new File(pathToExport);
     if (!exportDir.exists()) {
@@ -97,52 +99,51 @@ public class TvShowExporter extends MediaEntityExporter {
       episodeTemplate = FileUtils.readFileToString(new File(templateDir, episodeTemplateFile), "UTF-8");
     }
 
+    // scale the artwork of the TV shows and episodes
+    List<MediaEntity> entities = new ArrayList<MediaEntity>(tvShowsToExport);
+    for (MediaEntity me : tvShowsToExport) {
+      entities.addAll(((TvShow) me).getEpisodes());
+    }
+    exportImages(exportDir, entities);
+
     // create the list
     LOGGER.info("generating tv show list");
     FileUtils.deleteQuietly(listExportFile);
 
     Map<String, Object> root = new HashMap<String, Object>();
     root.put("tvShows", new ArrayList<T>(tvShowsToExport));
-    String output = engine.transform(listTemplate, root);
-    FileUtils.writeStringToFile(listExportFile, output, "UTF-8");
+    exportList(listExportFile, root);
     LOGGER.info("movie list generated: " + listExportFile.getAbsolutePath());
 
     if (StringUtils.isNotBlank(detailTemplate)) {
+      boolean firstExport = !getManifestFile(exportDir).exists();
+      List<DetailPage> pages = new ArrayList<DetailPage>();
       for (MediaEntity me : tvShowsToExport) {
         TvShow show = (TvShow) me;
-        // create a TV show dir
-        File showDir = new File(pathToExport + File.separator + TvShowRenamer.createDestination("$T ($Y)", show, new ArrayList<TvShowEpisode>()));
-        if (showDir.exists()) {
-          FileUtils.deleteQuietly(showDir);
+        // a TV show dir
+        String showDir = TvShowRenamer.createDestination("$T ($Y)", show, new ArrayList<TvShowEpisode>());
+        if (firstExport) {
+          // without a manifest of the last export we do not know which pages are ours
+          FileUtils.deleteQuietly(new File(exportDir, showDir));
         }
-        showDir.mkdirs();
 
-        File detailsExportFile = new File(showDir, "tvshow." + fileExtension);
-        root = new HashMap<String, Object>();
-        root.put("tvShow", show);
-
-        output = engine.transform(detailTemplate, root);
-        FileUtils.writeStringToFile(detailsExportFile, output, "UTF-8");
+        // the page of the TV show lists its episodes
+        pages.add(new DetailPage(new File(showDir, "tvshow." + fileExtension).getPath(), detailTemplate, "tvShow", show, show.getEpisodes()
+            .toArray()));
 
         if (StringUtils.isNotBlank(episodeTemplate)) {
           for (TvShowEpisode episode : show.getEpisodes()) {
             List<MediaFile> mfs = episode.getMediaFiles(MediaFileType.VIDEO);
             if (!mfs.isEmpty()) {
-              File seasonDir = new File(showDir, TvShowRenamer.generateSeasonDir("", episode));
-              if (!showDir.exists()) {
-                seasonDir.mkdirs();
-              }
-
+              String seasonDir = TvShowRenamer.generateSeasonDir("", episode);
               String episodeFileName = FilenameUtils.getBaseName(TvShowRenamer.generateFilename(show, mfs.get(0))) + "." + fileExtension;
-              File episodeExportFile = new File(seasonDir, episodeFileName);
-              root = new HashMap<String, Object>();
-              root.put("episode", episode);
-              output = engine.transform(episodeTemplate, root);
-              FileUtils.writeStringToFile(episodeExportFile, output, "UTF-8");
+              File episodeExportFile = new File(new File(showDir, seasonDir), episodeFileName);
+              pages.add(new DetailPage(episodeExportFile.getPath(), episodeTemplate, "episode", episode, show));
             }
           }
         }
       }
+      exportDetails(exportDir, pages);
     }
 
     // copy all non .jtme/template.conf files to destination dir
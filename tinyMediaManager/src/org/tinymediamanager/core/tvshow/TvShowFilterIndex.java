@@ -0,0 +1,57 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.tvshow;
+
+import java.io.File;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.tinymediamanager.core.FilterIndex;
+import org.tinymediamanager.core.tvshow.entities.TvShow;
+import org.tinymediamanager.scraper.MediaGenres;
+
+/**
+ * The class TvShowFilterIndex. Holds bitsets of all TV shows for the values used in the extended TV show filter
+ *
+ * @author Manuel Laggner
+ */
+public class TvShowFilterIndex extends FilterIndex<TvShow, TvShowFilterIndex.Field> {
+  public enum Field {
+    DATASOURCE, GENRE, TAG, SCRAPED, HAS_IMAGES
+  }
+
+  public TvShowFilterIndex() {
+    super(TvShow.class);
+  }
+
+  @Override
+  protected void collectKeys(TvShow tvShow, Set<Object> keys) {
+    put(keys, Field.SCRAPED, tvShow.isScraped());
+    put(keys, Field.HAS_IMAGES, tvShow.getHasImages());
+
+    if (StringUtils.isNotBlank(tvShow.getDataSource())) {
+      put(keys, Field.DATASOURCE, new File(tvShow.getDataSource()));
+    }
+
+    for (MediaGenres genre : tvShow.getGenres()) {
+      put(keys, Field.GENRE, genre);
+    }
+
+    for (String tag : tvShow.getTags()) {
+      put(keys, Field.TAG, tag);
+    }
+  }
+}
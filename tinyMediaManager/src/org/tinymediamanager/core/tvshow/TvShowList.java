@@ -37,12 +37,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
 import org.tinymediamanager.core.AbstractModelObject;
+import org.tinymediamanager.core.CorePropertyChangeListener;
 import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.ReferenceCountedAggregate;
+import org.tinymediamanager.core.entities.MediaEntity;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.entities.MediaFileAudioStream;
+import org.tinymediamanager.core.metrics.Timer;
 import org.tinymediamanager.core.tvshow.entities.TvShow;
 import org.tinymediamanager.core.tvshow.entities.TvShowEpisode;
 import org.tinymediamanager.scraper.IMediaArtworkProvider;
@@ -55,6 +59,7 @@ import org.tinymediamanager.scraper.MediaType;
 import org.tinymediamanager.scraper.anidb.AniDBMetadataProvider;
 import org.tinymediamanager.scraper.fanarttv.FanartTvMetadataProvider;
 import org.tinymediamanager.scraper.thetvdb.TheTvDbMetadataProvider;
+import org.tinymediamanager.scraper.util.ScraperMetrics;
 import org.tinymediamanager.ui.UTF8Control;
 
 /**
@@ -63,29 +68,36 @@ import org.tinymediamanager.ui.UTF8Control;
  * @author Manuel Laggner
  */
 public class TvShowList extends AbstractModelObject {
-  private static final Logger         LOGGER                = LoggerFactory.getLogger(TvShowList.class);
-  private static final ResourceBundle BUNDLE                = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
-  private static TvShowList           instance              = null;
-
-  private List<TvShow>                tvShowList            = ObservableCollections.observableList(Collections
-                                                                .synchronizedList(new ArrayList<TvShow>()));
-  private List<String>                tvShowTagsObservable  = ObservableCollections.observableList(Collections
-                                                                .synchronizedList(new ArrayList<String>()));
-  private List<String>                episodeTagsObservable = ObservableCollections.observableList(Collections
-                                                                .synchronizedList(new ArrayList<String>()));
-  private List<String>                videoCodecsObservable = ObservableCollections.observableList(Collections
-                                                                .synchronizedList(new ArrayList<String>()));
-  private List<String>                audioCodecsObservable = ObservableCollections.observableList(Collections
-                                                                .synchronizedList(new ArrayList<String>()));
-
-  private PropertyChangeListener      propertyChangeListener;
+  private static final Logger                     LOGGER                = LoggerFactory.getLogger(TvShowList.class);
+  private static final ResourceBundle             BUNDLE                = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+  private static TvShowList                       instance              = null;
+
+  private List<TvShow>                            tvShowList            = ObservableCollections.observableList(Collections
+                                                                            .synchronizedList(new ArrayList<TvShow>()));
+  private List<String>                            tvShowTagsObservable  = ObservableCollections.observableList(Collections
+                                                                            .synchronizedList(new ArrayList<String>()));
+  private List<String>                            episodeTagsObservable = ObservableCollections.observableList(Collections
+                                                                            .synchronizedList(new ArrayList<String>()));
+  private List<String>                            videoCodecsObservable = ObservableCollections.observableList(Collections
+                                                                            .synchronizedList(new ArrayList<String>()));
+  private List<String>                            audioCodecsObservable = ObservableCollections.observableList(Collections
+                                                                            .synchronizedList(new ArrayList<String>()));
+  private final ReferenceCountedAggregate<String> tvShowTagsAggregate   = new ReferenceCountedAggregate<String>(tvShowTagsObservable);
+  private final ReferenceCountedAggregate<String> episodeTagsAggregate  = new ReferenceCountedAggregate<String>(episodeTagsObservable);
+  private final ReferenceCountedAggregate<String> videoCodecsAggregate  = new ReferenceCountedAggregate<String>(videoCodecsObservable);
+  private final ReferenceCountedAggregate<String> audioCodecsAggregate  = new ReferenceCountedAggregate<String>(audioCodecsObservable);
+  private final TvShowFilterIndex                 tvShowFilterIndex     = new TvShowFilterIndex();
+  private final TvShowEpisodeFilterIndex          episodeFilterIndex    = new TvShowEpisodeFilterIndex();
+  private final TvShowSearchIndex                 searchIndex           = new TvShowSearchIndex();
+
+  private PropertyChangeListener                  propertyChangeListener;
 
   /**
    * Instantiates a new TvShowList.
    */
   private TvShowList() {
     // the tag listener: its used to always have a full list of all tags used in tmm
-    propertyChangeListener = new PropertyChangeListener() {
+    propertyChangeListener = new CorePropertyChangeListener() {
       @Override
       public void propertyChange(PropertyChangeEvent evt) {
         // listen to changes of tags
@@ -102,6 +114,12 @@ public class TvShowList extends AbstractModelObject {
           TvShowEpisode episode = (TvShowEpisode) evt.getSource();
           updateMediaInformationLists(episode);
         }
+        if (ADDED_EPISODE.equals(evt.getPropertyName()) && evt.getNewValue() instanceof TvShowEpisode) {
+          addEpisodeToAggregates((TvShowEpisode) evt.getNewValue());
+        }
+        if (REMOVED_EPISODE.equals(evt.getPropertyName()) && evt.getNewValue() instanceof TvShowEpisode) {
+          removeEpisodeFromAggregates((TvShowEpisode) evt.getNewValue());
+        }
         if (EPISODE_COUNT.equals(evt.getPropertyName())) {
           firePropertyChange(EPISODE_COUNT, 0, 1);
         }
@@ -140,7 +158,13 @@ public class TvShowList extends AbstractModelObject {
   public void addTvShow(TvShow newValue) {
     int oldValue = tvShowList.size();
 
+    tvShowFilterIndex.add(newValue);
     tvShowList.add(newValue);
+    searchIndex.update(newValue);
+    updateTvShowTags(newValue);
+    for (TvShowEpisode episode : new ArrayList<TvShowEpisode>(newValue.getEpisodes())) {
+      addEpisodeToAggregates(episode);
+    }
     newValue.addPropertyChangeListener(propertyChangeListener);
     firePropertyChange(TV_SHOWS, null, tvShowList);
     firePropertyChange(ADDED_TV_SHOW, null, newValue);
@@ -174,7 +198,9 @@ public class TvShowList extends AbstractModelObject {
    */
   public void removeTvShow(TvShow tvShow) {
     int oldValue = tvShowList.size();
+    removeTvShowFromAggregates(tvShow);
     tvShow.removeAllEpisodes();
+    tvShow.removePropertyChangeListener(propertyChangeListener);
     tvShowList.remove(tvShow);
 
     boolean newTransaction = false;
@@ -204,7 +230,9 @@ public class TvShowList extends AbstractModelObject {
     int oldValue = tvShowList.size();
 
     tvShow.deleteFilesSafely();
+    removeTvShowFromAggregates(tvShow);
     tvShow.removeAllEpisodes();
+    tvShow.removePropertyChangeListener(propertyChangeListener);
     tvShowList.remove(tvShow);
 
     boolean newTransaction = false;
@@ -265,12 +293,13 @@ public class TvShowList extends AbstractModelObject {
             tvShow.initializeAfterLoading();
             for (TvShowEpisode episode : tvShow.getEpisodes()) {
               episode.initializeAfterLoading();
-              updateEpisodeTags(episode);
-              updateMediaInformationLists(episode);
+              addEpisodeToAggregates(episode);
             }
 
             // for performance reasons we add tv shows directly
+            tvShowFilterIndex.add(tvShow);
             tvShowList.add(tvShow);
+            searchIndex.update(tvShow);
             updateTvShowTags(tvShow);
             tvShow.addPropertyChangeListener(propertyChangeListener);
           }
@@ -456,7 +485,13 @@ public class TvShowList extends AbstractModelObject {
       MediaSearchOptions options = new MediaSearchOptions(MediaType.TV_SHOW, MediaSearchOptions.SearchParam.QUERY, searchTerm);
       options.set(SearchParam.LANGUAGE, language.name());
       options.set(SearchParam.COUNTRY, Globals.settings.getTvShowSettings().getCertificationCountry().getAlpha2());
-      searchResult = provider.search(options);
+      Timer.Context timer = ScraperMetrics.start(provider, "search");
+      try {
+        searchResult = provider.search(options);
+      }
+      finally {
+        timer.stop();
+      }
 
       // if result is empty, try all scrapers
       // FIXME only needed if we have more "true" scrapers
@@ -482,130 +517,147 @@ public class TvShowList extends AbstractModelObject {
   }
 
   private void updateTvShowTags(TvShow tvShow) {
-    for (String tagInTvShow : tvShow.getTags()) {
-      boolean tagFound = false;
-      for (String tag : tvShowTagsObservable) {
-        if (tagInTvShow.equals(tag)) {
-          tagFound = true;
-          break;
-        }
-      }
-      if (!tagFound) {
-        addTvShowTag(tagInTvShow);
-      }
+    if (tvShowTagsAggregate.update(tvShow, nonBlank(tvShow.getTags()))) {
+      firePropertyChange("tag", null, tvShowTagsObservable);
     }
   }
 
-  private void addTvShowTag(String newTag) {
-    for (String tag : tvShowTagsObservable) {
-      if (tag.equals(newTag)) {
-        return;
-      }
-    }
-
-    tvShowTagsObservable.add(newTag);
-    firePropertyChange("tag", null, tvShowTagsObservable);
-  }
-
   public List<String> getTagsInTvShows() {
     return tvShowTagsObservable;
   }
 
   private void updateEpisodeTags(TvShowEpisode episode) {
-    for (String tagEpisode : episode.getTags()) {
-      boolean tagFound = false;
-      for (String tag : episodeTagsObservable) {
-        if (tagEpisode.equals(tag)) {
-          tagFound = true;
-          break;
-        }
-      }
-      if (!tagFound) {
-        addEpisodeTag(tagEpisode);
-      }
+    if (episodeTagsAggregate.update(episode, nonBlank(episode.getTags()))) {
+      firePropertyChange("tag", null, episodeTagsObservable);
     }
   }
 
-  private void addEpisodeTag(String newTag) {
-    for (String tag : episodeTagsObservable) {
-      if (tag.equals(newTag)) {
-        return;
-      }
-    }
-
-    episodeTagsObservable.add(newTag);
-    firePropertyChange("tag", null, episodeTagsObservable);
-  }
-
   public List<String> getTagsInEpisodes() {
     return episodeTagsObservable;
   }
 
   private void updateMediaInformationLists(TvShowEpisode episode) {
-    // video codec
+    List<String> videoCodecs = new ArrayList<String>();
+    List<String> audioCodecs = new ArrayList<String>();
     for (MediaFile mf : episode.getMediaFiles(MediaFileType.VIDEO)) {
-      String codec = mf.getVideoCodec();
-      boolean codecFound = false;
-
-      for (String mfCodec : videoCodecsObservable) {
-        if (mfCodec.equals(codec)) {
-          codecFound = true;
-          break;
-        }
+      videoCodecs.add(mf.getVideoCodec());
+      for (MediaFileAudioStream audio : mf.getAudioStreams()) {
+        audioCodecs.add(audio.getCodec());
       }
+    }
 
-      if (!codecFound) {
-        addVideoCodec(codec);
-      }
+    // video codec
+    if (videoCodecsAggregate.update(episode, nonBlank(videoCodecs))) {
+      firePropertyChange("videoCodec", null, videoCodecsObservable);
     }
 
     // audio codec
-    for (MediaFile mf : episode.getMediaFiles(MediaFileType.VIDEO)) {
-      for (MediaFileAudioStream audio : mf.getAudioStreams()) {
-        String codec = audio.getCodec();
-        boolean codecFound = false;
-        for (String mfCodec : audioCodecsObservable) {
-          if (mfCodec.equals(codec)) {
-            codecFound = true;
-            break;
-          }
-        }
+    if (audioCodecsAggregate.update(episode, nonBlank(audioCodecs))) {
+      firePropertyChange("audioCodec", null, audioCodecsObservable);
+    }
+  }
 
-        if (!codecFound) {
-          addAudioCodec(codec);
-        }
-      }
+  /**
+   * register the given episode for the aggregated tag/codec lists
+   * 
+   * @param episode
+   *          the episode
+   */
+  private void addEpisodeToAggregates(TvShowEpisode episode) {
+    episodeFilterIndex.add(episode);
+    searchIndex.update(episode);
+    updateEpisodeTags(episode);
+    updateMediaInformationLists(episode);
+    episode.removePropertyChangeListener(propertyChangeListener);
+    episode.addPropertyChangeListener(propertyChangeListener);
+  }
+
+  /**
+   * retract all tags/codecs of the given episode from the aggregated lists
+   * 
+   * @param episode
+   *          the episode
+   */
+  private void removeEpisodeFromAggregates(TvShowEpisode episode) {
+    episode.removePropertyChangeListener(propertyChangeListener);
+    episodeFilterIndex.remove(episode);
+    searchIndex.remove(episode);
+    if (episodeTagsAggregate.remove(episode)) {
+      firePropertyChange("tag", null, episodeTagsObservable);
+    }
+    if (videoCodecsAggregate.remove(episode)) {
+      firePropertyChange("videoCodec", null, videoCodecsObservable);
+    }
+    if (audioCodecsAggregate.remove(episode)) {
+      firePropertyChange("audioCodec", null, audioCodecsObservable);
     }
   }
 
-  private void addVideoCodec(String newCodec) {
-    if (StringUtils.isBlank(newCodec)) {
-      return;
+  /**
+   * retract all tags/codecs of the given TV show (and its episodes) from the aggregated lists
+   * 
+   * @param tvShow
+   *          the TV show
+   */
+  private void removeTvShowFromAggregates(TvShow tvShow) {
+    for (TvShowEpisode episode : new ArrayList<TvShowEpisode>(tvShow.getEpisodes())) {
+      removeEpisodeFromAggregates(episode);
+    }
+    if (tvShowTagsAggregate.remove(tvShow)) {
+      firePropertyChange("tag", null, tvShowTagsObservable);
     }
+    tvShowFilterIndex.remove(tvShow);
+    searchIndex.remove(tvShow);
+  }
 
-    for (String codec : videoCodecsObservable) {
-      if (codec.equals(newCodec)) {
-        return;
+  private static List<String> nonBlank(List<String> values) {
+    List<String> result = new ArrayList<String>(values.size());
+    for (String value : values) {
+      if (StringUtils.isNotBlank(value)) {
+        result.add(value);
       }
     }
+    return result;
+  }
 
-    videoCodecsObservable.add(newCodec);
-    firePropertyChange("videoCodec", null, videoCodecsObservable);
+  /**
+   * Gets the filter index of all TV shows
+   * 
+   * @return the filter index
+   */
+  public TvShowFilterIndex getTvShowFilterIndex() {
+    return tvShowFilterIndex;
   }
 
-  private void addAudioCodec(String newCodec) {
-    if (StringUtils.isBlank(newCodec)) {
-      return;
-    }
+  /**
+   * Gets the filter index of all episodes
+   * 
+   * @return the filter index
+   */
+  public TvShowEpisodeFilterIndex getEpisodeFilterIndex() {
+    return episodeFilterIndex;
+  }
 
-    for (String codec : audioCodecsObservable) {
-      if (codec.equals(newCodec)) {
-        return;
-      }
-    }
+  /**
+   * Gets the full text search index of all TV shows and episodes
+   * 
+   * @return the search index
+   */
+  public TvShowSearchIndex getSearchIndex() {
+    return searchIndex;
+  }
 
-    audioCodecsObservable.add(newCodec);
-    firePropertyChange("audioCodec", null, audioCodecsObservable);
+  /**
+   * search all TV shows and episodes with the full text index
+   * 
+   * @param query
+   *          the query
+   * @param maxResults
+   *          the max amount of results
+   * @return the found TV shows/episodes (ranked)
+   */
+  public List<MediaEntity> searchTvShowsAndEpisodes(String query, int maxResults) {
+    return searchIndex.search(query, maxResults);
   }
 
   public List<String> getVideoCodecsInEpisodes() {
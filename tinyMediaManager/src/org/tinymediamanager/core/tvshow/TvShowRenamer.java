@@ -31,6 +31,8 @@ import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.RenamePlan;
+import org.tinymediamanager.core.RenameStatistics;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.entities.MediaFileSubtitle;
@@ -62,6 +64,62 @@ public class TvShowRenamer {
     return String.format("%02d", num);
   }
 
+  /**
+   * computes the destination of the TV show root folder for the rename plan (without touching any file)
+   * 
+   * @param show
+   *          the show
+   * @return the planned entry
+   */
+  public static RenamePlan.Entry<TvShow> planRootRename(TvShow show) {
+    RenamePlan.Entry<TvShow> entry = new RenamePlan.Entry<TvShow>(show, RenamePlan.getFileSystem(show.getDataSource()));
+    String newPathname = generateTvShowDir(SETTINGS.getRenamerTvShowFoldername(), show);
+    if (!newPathname.isEmpty()) {
+      entry.claimFolder(new File(show.getPath()), new File(newPathname));
+    }
+    return entry;
+  }
+
+  /**
+   * computes the destinations of all media files of the episode for the rename plan (without touching any file)
+   * 
+   * @param episode
+   *          the episode
+   * @return the planned entry or null, if the episode cannot be renamed
+   */
+  public static RenamePlan.Entry<TvShowEpisode> planRename(TvShowEpisode episode) {
+    TvShow show = episode.getTvShow();
+    if (show == null || episode.getSeason() < 0 || episode.getEpisode() < 0) {
+      return null;
+    }
+
+    RenamePlan.Entry<TvShowEpisode> entry = new RenamePlan.Entry<TvShowEpisode>(episode, RenamePlan.getFileSystem(show.getDataSource()));
+    for (MediaFile mf : episode.getMediaFiles()) {
+      entry.addSource(mf.getFile());
+    }
+
+    // same logic as in renameMediaFile
+    String seasonName = generateSeasonDir(SETTINGS.getRenamerSeasonFoldername(), episode);
+    File seasonDir = StringUtils.isNotBlank(seasonName) ? new File(show.getPath(), seasonName) : new File(show.getPath());
+    for (MediaFile mf : episode.getMediaFiles()) {
+      if (episode.isDisc() || mf.isDiscFile()) {
+        File epFolder = mf.getFile().getParentFile().getParentFile();
+        String newFoldername = FilenameUtils.getBaseName(generateFolderename(show, mf));
+        if (StringUtils.isNotEmpty(newFoldername)) {
+          entry.claimFolder(epFolder, new File(seasonDir, newFoldername));
+        }
+      }
+      else {
+        File dir = mf.getType().equals(MediaFileType.TRAILER) ? new File(seasonDir, "sample") : seasonDir;
+        String filename = generateFilename(show, mf);
+        if (StringUtils.isNotEmpty(filename)) {
+          entry.claimFile(mf.getFile(), new File(dir, filename));
+        }
+      }
+    }
+    return entry;
+  }
+
   /**
    * renames the TvSHow root folder and updates all mediaFiles
    * 
@@ -69,6 +127,18 @@ public class TvShowRenamer {
    *          the show
    */
   public static void renameTvShowRoot(TvShow show) {
+    renameTvShowRoot(show, new RenameStatistics());
+  }
+
+  /**
+   * renames the TvSHow root folder and updates all mediaFiles
+   * 
+   * @param show
+   *          the show
+   * @param statistics
+   *          collects the done renames
+   */
+  public static void renameTvShowRoot(TvShow show, RenameStatistics statistics) {
     LOGGER.debug("TV show year: " + show.getYear());
     LOGGER.debug("TV show path: " + show.getPath());
     String newPathname = generateTvShowDir(SETTINGS.getRenamerTvShowFoldername(), show);
@@ -85,6 +155,7 @@ public class TvShowRenamer {
           // FileUtils.moveDirectory(srcDir, destDir);
           boolean ok = Utils.moveDirectorySafe(srcDir, destDir);
           if (ok) {
+            statistics.addMetadataRename();
             show.updateMediaFilePath(srcDir, destDir); // TvShow MFs
             show.setPath(newPathname);
             for (TvShowEpisode episode : new ArrayList<TvShowEpisode>(show.getEpisodes())) {
@@ -96,6 +167,7 @@ public class TvShowRenamer {
         }
         catch (Exception e) {
           LOGGER.error("error moving folder: ", e.getMessage());
+          statistics.addFailure();
           MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, srcDir.getPath(), "message.renamer.failedrename", new String[] { ":",
               e.getLocalizedMessage() }));
         }
@@ -110,18 +182,31 @@ public class TvShowRenamer {
    *          the Episode
    */
   public static void renameEpisode(TvShowEpisode episode) {
+    renameEpisode(episode, new RenameStatistics());
+  }
+
+  /**
+   * Rename Episode (PLUS all Episodes having the same MediaFile!!!).
+   * 
+   * @param episode
+   *          the Episode
+   * @param statistics
+   *          collects the done renames
+   */
+  public static void renameEpisode(TvShowEpisode episode, RenameStatistics statistics) {
     // test for valid season/episode number
     if (episode.getSeason() < 0 || episode.getEpisode() < 0) {
       LOGGER.warn("failed to rename episode " + episode.getTitle() + " (TV show " + episode.getTvShow().getTitle()
           + ") - invalid season/episode number");
       MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, episode.getTvShow().getTitle(), "tvshow.renamer.failedrename",
           new String[] { episode.getTitle() }));
+      statistics.addFailure();
       return;
     }
 
     LOGGER.info("Renaming TvShow '" + episode.getTvShow().getTitle() + "' Episode " + episode.getEpisode());
     for (MediaFile mf : new ArrayList<MediaFile>(episode.getMediaFiles())) {
-      renameMediaFile(mf, episode.getTvShow());
+      renameMediaFile(mf, episode.getTvShow(), statistics);
     }
   }
 
@@ -135,6 +220,21 @@ public class TvShowRenamer {
    *          the tvshow (only needed for path)
    */
   public static void renameMediaFile(MediaFile mf, TvShow show) {
+    renameMediaFile(mf, show, new RenameStatistics());
+  }
+
+  /**
+   * Renames a MediaFiles<br>
+   * gets all episodes of it, creates season folder, updates MFs & DB
+   * 
+   * @param mf
+   *          the MediaFile
+   * @param show
+   *          the tvshow (only needed for path)
+   * @param statistics
+   *          collects the done renames
+   */
+  public static void renameMediaFile(MediaFile mf, TvShow show, RenameStatistics statistics) {
     // #######################################################
     // Assumption: all multi-episodes share the same season!!!
     // #######################################################
@@ -160,32 +260,20 @@ public class TvShowRenamer {
     // test access rights or return
     LOGGER.debug("testing file S:" + ep.getSeason() + " E:" + ep.getEpisode() + " MF:" + mf.getFile().getAbsolutePath());
     File f = mf.getFile();
-    boolean testRenameOk = false;
-    for (int i = 0; i < 5; i++) {
-      testRenameOk = f.renameTo(f); // haahaa, try to rename to itself :P
-      if (testRenameOk) {
-        break; // ok it worked, step out
-      }
-      try {
-        if (!f.exists()) {
-          LOGGER.debug("Hmmm... file " + f + " does not even exists; delete from DB");
-          // delete from MF
-          for (TvShowEpisode e : eps) {
-            e.removeFromMediaFiles(mf);
-            e.saveToDb();
-          }
-          return;
-        }
-        LOGGER.debug("rename did not work - sleep a while and try again...");
-        Thread.sleep(1000);
-      }
-      catch (InterruptedException e) {
-        LOGGER.warn("I'm so excited - could not sleep");
+    if (!f.exists()) {
+      LOGGER.debug("Hmmm... file " + f + " does not even exists; delete from DB");
+      // delete from MF
+      for (TvShowEpisode e : eps) {
+        e.removeFromMediaFiles(mf);
+        e.saveToDb();
       }
+      return;
     }
+    boolean testRenameOk = Utils.renameWithRetry(f, f); // haahaa, try to rename to itself :P
     if (!testRenameOk) {
       LOGGER.warn("File " + mf.getFile().getAbsolutePath() + " is not accessible!");
       MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, mf.getFilename(), "message.renamer.failedrename"));
+      statistics.addFailure();
       return;
     }
 
@@ -234,6 +322,7 @@ public class TvShowRenamer {
                   ":", e.getLocalizedMessage() }));
             }
             if (ok) {
+              statistics.addMetadataRename();
               // iterate over all EPs & MFs and fix new path
               LOGGER.debug("updating *all* MFs for new path -> " + newEpFolder);
               for (TvShowEpisode e : eps) {
@@ -277,7 +366,7 @@ public class TvShowRenamer {
             File oldMfFile = mf.getFile();
             boolean ok = false;
             try {
-              ok = Utils.moveFileSafe(oldMfFile, newFile);
+              ok = Utils.moveFileSafe(oldMfFile, newFile, statistics);
             }
             catch (Exception e) {
               LOGGER.error(e.getMessage());
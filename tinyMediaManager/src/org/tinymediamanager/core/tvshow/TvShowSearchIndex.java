@@ -0,0 +1,67 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.tvshow;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+import org.tinymediamanager.core.FullTextIndex;
+import org.tinymediamanager.core.entities.MediaEntity;
+import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.tvshow.entities.TvShow;
+import org.tinymediamanager.core.tvshow.entities.TvShowActor;
+import org.tinymediamanager.core.tvshow.entities.TvShowEpisode;
+
+/**
+ * The class TvShowSearchIndex. The full text index over TV shows and episodes (title, original title, plot, cast/crew, tags and filenames)
+ *
+ * @author Manuel Laggner
+ */
+public class TvShowSearchIndex extends FullTextIndex<MediaEntity> {
+
+  @Override
+  protected void collectTexts(MediaEntity entity, Map<String, Float> terms) {
+    addText(terms, entity.getTitle(), 10f);
+    addText(terms, entity.getOriginalTitle(), 8f);
+    addText(terms, entity.getPlot(), 1f);
+
+    if (entity instanceof TvShow) {
+      TvShow tvShow = (TvShow) entity;
+      for (TvShowActor actor : new ArrayList<TvShowActor>(tvShow.getActors())) {
+        addText(terms, actor.getName(), 3f);
+      }
+      for (String tag : new ArrayList<String>(tvShow.getTags())) {
+        addText(terms, tag, 5f);
+      }
+    }
+
+    if (entity instanceof TvShowEpisode) {
+      TvShowEpisode episode = (TvShowEpisode) entity;
+      addText(terms, episode.getDirector(), 3f);
+      addText(terms, episode.getWriter(), 3f);
+      for (TvShowActor actor : new ArrayList<TvShowActor>(episode.getGuests())) {
+        addText(terms, actor.getName(), 3f);
+      }
+      for (String tag : new ArrayList<String>(episode.getTags())) {
+        addText(terms, tag, 5f);
+      }
+    }
+
+    for (MediaFile mf : entity.getMediaFiles()) {
+      addText(terms, mf.getFilename(), 2f);
+    }
+  }
+}
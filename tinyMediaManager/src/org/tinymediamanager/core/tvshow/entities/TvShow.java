@@ -54,12 +54,16 @@ import org.apache.commons.lang3.builder.ToStringStyle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.core.Constants;
+import org.tinymediamanager.core.CorePropertyChangeListener;
 import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaEntity;
 import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.metrics.MetricsRegistry;
+import org.tinymediamanager.core.metrics.Timer;
 import org.tinymediamanager.core.threading.TmmTaskManager;
 import org.tinymediamanager.core.tvshow.TvShowArtworkHelper;
+import org.tinymediamanager.core.tvshow.TvShowList;
 import org.tinymediamanager.core.tvshow.TvShowMediaFileComparator;
 import org.tinymediamanager.core.tvshow.TvShowModuleManager;
 import org.tinymediamanager.core.tvshow.TvShowScraperMetadataConfig;
@@ -136,7 +140,7 @@ public class TvShow extends MediaEntity {
    */
   public TvShow() {
     // give tag events from episodes up to the TvShowList
-    propertyChangeListener = new PropertyChangeListener() {
+    propertyChangeListener = new CorePropertyChangeListener() {
       @Override
       public void propertyChange(PropertyChangeEvent evt) {
         if ("tag".equals(evt.getPropertyName()) && evt.getSource() instanceof TvShowEpisode) {
@@ -786,7 +790,9 @@ public class TvShow extends MediaEntity {
    * Write nfo.
    */
   public void writeNFO() {
+    Timer.Context timer = MetricsRegistry.timer("nfo.write.tvshow").start();
     TvShowToXbmcNfoConnector.setData(this);
+    timer.stop();
     firePropertyChange(HAS_NFO_FILE, false, true);
   }
 
@@ -1527,6 +1533,7 @@ public class TvShow extends MediaEntity {
 
   @Override
   public void saveToDb() {
+    Timer.Context timer = MetricsRegistry.timer("db.save.tvshow").start();
     // update/insert this movie to the database
     final EntityManager entityManager = getEntityManager();
     readWriteLock.readLock().lock();
@@ -1541,6 +1548,10 @@ public class TvShow extends MediaEntity {
       }
     }
     readWriteLock.readLock().unlock();
+    timer.stop();
+
+    // keep the full text index up to date
+    TvShowList.getInstance().getSearchIndex().refresh(this);
 
     // rewrite NFO
     writeNFO();
@@ -50,6 +50,8 @@ import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaEntity;
 import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.metrics.MetricsRegistry;
+import org.tinymediamanager.core.metrics.Timer;
 import org.tinymediamanager.core.threading.TmmTaskManager;
 import org.tinymediamanager.core.tvshow.TvShowList;
 import org.tinymediamanager.core.tvshow.TvShowMediaFileComparator;
@@ -367,25 +369,37 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
    * Write thumb image.
    */
   public void writeThumbImage() {
-    if (StringUtils.isNotEmpty(getThumbUrl())) {
-      boolean firstImage = true;
-      // create correct filename
-
-      MediaFile mf = getMediaFiles(MediaFileType.VIDEO).get(0);
-      String filename;
-      if (Globals.settings.getTvShowSettings().isUseRenamerThumbPostfix()) {
-        filename = FilenameUtils.getBaseName(mf.getFilename()) + "-thumb." + FilenameUtils.getExtension(getThumbUrl());
-      }
-      else {
-        filename = FilenameUtils.getBaseName(mf.getFilename()) + "." + FilenameUtils.getExtension(getThumbUrl());
-      }
-
+    MediaEntityImageFetcherTask task = createThumbImageTask();
+    if (task != null) {
       // get image in thread
-      MediaEntityImageFetcherTask task = new MediaEntityImageFetcherTask(this, getThumbUrl(), MediaArtworkType.THUMB, filename, firstImage);
       TmmTaskManager.getInstance().addImageDownloadTask(task);
     }
   }
 
+  /**
+   * Create the task for writing the thumb image (to run it in an own queue).
+   * 
+   * @return the task or null if there is no thumb url
+   */
+  public MediaEntityImageFetcherTask createThumbImageTask() {
+    if (StringUtils.isEmpty(getThumbUrl())) {
+      return null;
+    }
+
+    boolean firstImage = true;
+    // create correct filename
+    MediaFile mf = getMediaFiles(MediaFileType.VIDEO).get(0);
+    String filename;
+    if (Globals.settings.getTvShowSettings().isUseRenamerThumbPostfix()) {
+      filename = FilenameUtils.getBaseName(mf.getFilename()) + "-thumb." + FilenameUtils.getExtension(getThumbUrl());
+    }
+    else {
+      filename = FilenameUtils.getBaseName(mf.getFilename()) + "." + FilenameUtils.getExtension(getThumbUrl());
+    }
+
+    return new MediaEntityImageFetcherTask(this, getThumbUrl(), MediaArtworkType.THUMB, filename, firstImage);
+  }
+
   /**
    * Sets the metadata.
    * 
@@ -393,6 +407,18 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
    *          the new metadata
    */
   public void setMetadata(MediaMetadata metadata) {
+    setMetadata(metadata, true);
+  }
+
+  /**
+   * Sets the metadata.
+   * 
+   * @param metadata
+   *          the new metadata
+   * @param writeThumb
+   *          write the new thumb (via the image download queue)
+   */
+  public void setMetadata(MediaMetadata metadata, boolean writeThumb) {
     // check against null metadata (e.g. aborted request)
     if (metadata == null) {
       LOGGER.error("metadata was null");
@@ -466,7 +492,7 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
     saveToDb();
 
     // should we write a new thumb?
-    if (writeNewThumb) {
+    if (writeThumb && writeNewThumb) {
       writeThumbImage();
     }
   }
@@ -483,7 +509,9 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
       episodesInNfo.addAll(TvShowList.getInstance().getTvEpisodesByFile(tvShow, mf.getFile()));
     }
 
+    Timer.Context timer = MetricsRegistry.timer("nfo.write.episode").start();
     TvShowEpisodeToXbmcNfoConnector.setData(episodesInNfo);
+    timer.stop();
     // for (TvShowEpisode episode : episodesInNfo) {
     // episode.saveToDb();
     // }
@@ -866,6 +894,7 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
 
   @Override
   public void saveToDb() {
+    Timer.Context timer = MetricsRegistry.timer("db.save.episode").start();
     // update/insert this movie to the database
     final EntityManager entityManager = getEntityManager();
     readWriteLock.readLock().lock();
@@ -880,6 +909,10 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
       }
     }
     readWriteLock.readLock().unlock();
+    timer.stop();
+
+    // keep the full text index up to date
+    TvShowList.getInstance().getSearchIndex().refresh(this);
 
     writeNFO();
   }
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Set;
 
 import org.tinymediamanager.core.AbstractModelObject;
+import org.tinymediamanager.core.CorePropertyChangeListener;
 import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.entities.MediaFile;
 
@@ -46,7 +47,7 @@ public class TvShowSeason extends AbstractModelObject {
   public TvShowSeason(int season, TvShow tvShow) {
     this.season = season;
     this.tvShow = tvShow;
-    listener = new PropertyChangeListener() {
+    listener = new CorePropertyChangeListener() {
       @Override
       public void propertyChange(PropertyChangeEvent evt) {
         if (evt.getSource() instanceof TvShowEpisode && MEDIA_FILES.equals(evt.getPropertyName())) {
@@ -17,115 +17,285 @@ package org.tinymediamanager.core.tvshow.tasks;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
+import org.tinymediamanager.core.PropertyChangeCoalescer;
+import org.tinymediamanager.core.metrics.Timer;
 import org.tinymediamanager.core.threading.TmmTask;
 import org.tinymediamanager.core.threading.TmmTaskManager;
+import org.tinymediamanager.core.threading.TmmTaskScheduler;
 import org.tinymediamanager.core.tvshow.TvShowList;
 import org.tinymediamanager.core.tvshow.entities.TvShow;
 import org.tinymediamanager.core.tvshow.entities.TvShowEpisode;
 import org.tinymediamanager.scraper.ITvShowMetadataProvider;
+import org.tinymediamanager.scraper.MediaArtwork;
 import org.tinymediamanager.scraper.MediaArtwork.MediaArtworkType;
+import org.tinymediamanager.scraper.MediaEpisodeNumber;
 import org.tinymediamanager.scraper.MediaMetadata;
 import org.tinymediamanager.scraper.MediaScrapeOptions;
 import org.tinymediamanager.scraper.MediaType;
 import org.tinymediamanager.scraper.trakttv.SyncTraktTvTask;
+import org.tinymediamanager.scraper.util.ScraperExecutor;
+import org.tinymediamanager.scraper.util.ScraperMetrics;
+import org.tinymediamanager.ui.UTF8Control;
 
 /**
- * The Class TvShowEpisodeScrapeTask.
- * 
+ * The Class TvShowEpisodeScrapeTask. Scrapes the episodes show by show; the shows are scraped as sub requests in the queue of the provider (see
+ * {@link ScraperExecutor}, so the scraper sites are not flooded) and the thumbs are downloaded in the image download queue.
+ *
  * @author Manuel Laggner
  */
-public class TvShowEpisodeScrapeTask implements Runnable {
-  private static final Logger           LOGGER           = LoggerFactory.getLogger(TvShowEpisodeScrapeTask.class);
+public class TvShowEpisodeScrapeTask extends TmmTask {
+  private static final Logger             LOGGER           = LoggerFactory.getLogger(TvShowEpisodeScrapeTask.class);
+  private static final ResourceBundle     BUNDLE           = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
 
-  private final List<TvShowEpisode>     episodes;
-  private final ITvShowMetadataProvider metadataProvider = TvShowList.getInstance().getMetadataProvider();
+  private final List<TvShowEpisode>       episodes;
+  private final ITvShowMetadataProvider   metadataProvider = TvShowList.getInstance().getMetadataProvider();
 
-  private boolean                       scrapeThumb;
+  private boolean                         scrapeThumb;
 
   /**
    * Instantiates a new tv show episode scrape task.
-   * 
+   *
    * @param episodes
    *          the episodes
    */
   public TvShowEpisodeScrapeTask(List<TvShowEpisode> episodes) {
-    this.episodes = episodes;
-    this.scrapeThumb = true;
+    this(episodes, true);
   }
 
   /**
    * Instantiates a new tv show episode scrape task.
-   * 
+   *
    * @param episodes
    *          the episodes
    * @param scrapeThumb
    *          should we also scrape thumbs?
    */
   public TvShowEpisodeScrapeTask(List<TvShowEpisode> episodes, boolean scrapeThumb) {
+    super(BUNDLE.getString("tvshow.scrapingepisodes"), episodes.size(), TaskType.BACKGROUND_TASK);
     this.episodes = episodes;
     this.scrapeThumb = scrapeThumb;
   }
 
   @Override
-  public void run() {
+  protected void doInBackground() {
+    // group the episodes by TV show - all episodes of a show are scraped at once
+    Map<TvShow, List<TvShowEpisode>> episodesPerShow = new LinkedHashMap<TvShow, List<TvShowEpisode>>();
     for (TvShowEpisode episode : episodes) {
-      // only scrape if at least one ID is available
-      if (episode.getTvShow().getIds().size() == 0) {
-        LOGGER.info("we cannot scrape (no ID): " + episode.getTvShow().getTitle() + " - " + episode.getTitle());
-        continue;
+      List<TvShowEpisode> episodesOfShow = episodesPerShow.get(episode.getTvShow());
+      if (episodesOfShow == null) {
+        episodesOfShow = new ArrayList<TvShowEpisode>();
+        episodesPerShow.put(episode.getTvShow(), episodesOfShow);
+      }
+      episodesOfShow.add(episode);
+    }
+
+    // the sub requests are bound to this task - cancelling it cancels them
+    List<Future<Void>> subRequests = new ArrayList<Future<Void>>();
+    ScraperExecutor.setOwner(this);
+    try {
+      for (final Entry<TvShow, List<TvShowEpisode>> entry : episodesPerShow.entrySet()) {
+        subRequests.add(ScraperExecutor.submit(metadataProvider.getProviderInfo().getId(), new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            // the thumb downloads get the priority class of this task
+            TmmTaskScheduler.setCurrentPriority(getPriority());
+            try {
+              if (!cancel) {
+                scrapeEpisodes(entry.getKey(), entry.getValue());
+              }
+            }
+            finally {
+              TmmTaskScheduler.setCurrentPriority(null);
+            }
+            return null;
+          }
+        }));
       }
+    }
+    finally {
+      ScraperExecutor.setOwner(null);
+    }
+
+    for (Future<Void> subRequest : subRequests) {
+      ScraperExecutor.getResult(subRequest);
+    }
+
+    if (cancel) {
+      return;
+    }
 
-      MediaScrapeOptions options = new MediaScrapeOptions();
-      options.setLanguage(Globals.settings.getTvShowSettings().getScraperLanguage());
-      options.setCountry(Globals.settings.getTvShowSettings().getCertificationCountry());
+    if (Globals.settings.getTvShowSettings().getSyncTrakt()) {
+      Set<TvShow> tvShows = new HashSet<TvShow>();
+      for (TvShowEpisode episode : episodes) {
+        tvShows.add(episode.getTvShow());
+      }
+      TmmTask task = new SyncTraktTvTask(null, new ArrayList<TvShow>(tvShows));
+      TmmTaskManager.getInstance().addUnnamedTask(task);
+    }
+  }
 
-      for (Entry<String, Object> entry : episode.getTvShow().getIds().entrySet()) {
-        options.setId(entry.getKey(), entry.getValue().toString());
+  private void scrapeEpisodes(TvShow tvShow, List<TvShowEpisode> episodesOfShow) {
+    // only scrape if at least one ID is available
+    if (tvShow.getIds().size() == 0) {
+      for (TvShowEpisode episode : episodesOfShow) {
+        LOGGER.info("we cannot scrape (no ID): " + tvShow.getTitle() + " - " + episode.getTitle());
       }
+      publishProgress(tvShow.getTitle(), episodesOfShow.size());
+      return;
+    }
+
+    publishProgress(tvShow.getTitle(), 0);
 
-      options.setType(MediaType.TV_EPISODE);
+    Map<TvShowEpisode, MediaEpisodeNumber> episodeNumbers = new LinkedHashMap<TvShowEpisode, MediaEpisodeNumber>();
+    for (TvShowEpisode episode : episodesOfShow) {
       if (episode.isDvdOrder()) {
-        options.setId(MediaMetadata.SEASON_NR_DVD, String.valueOf(episode.getDvdSeason()));
-        options.setId(MediaMetadata.EPISODE_NR_DVD, String.valueOf(episode.getDvdEpisode()));
+        episodeNumbers.put(episode, new MediaEpisodeNumber(episode.getDvdSeason(), episode.getDvdEpisode(), true));
       }
       else {
-        options.setId(MediaMetadata.SEASON_NR, String.valueOf(episode.getAiredSeason()));
-        options.setId(MediaMetadata.EPISODE_NR, String.valueOf(episode.getAiredEpisode()));
+        episodeNumbers.put(episode, new MediaEpisodeNumber(episode.getAiredSeason(), episode.getAiredEpisode(), false));
       }
-      if (scrapeThumb) {
-        options.setArtworkType(MediaArtworkType.THUMB);
-      }
-      else {
-        options.setArtworkType(null);
+    }
+
+    Map<MediaEpisodeNumber, MediaMetadata> metadata = null;
+    Timer.Context timer = ScraperMetrics.start(metadataProvider, "episodes");
+    try {
+      metadata = metadataProvider.getEpisodeMetadata(createScrapeOptions(tvShow), episodeNumbers.values());
+    }
+    catch (Exception e) {
+      // do not give up the whole show - try to get the episodes one by one
+      LOGGER.warn("Error getting metadata of " + tvShow.getTitle() + " - scraping the episodes one by one: " + e.getMessage());
+      ScraperMetrics.error(metadataProvider);
+    }
+    finally {
+      timer.stop();
+    }
+
+    for (Entry<TvShowEpisode, MediaEpisodeNumber> entry : episodeNumbers.entrySet()) {
+      if (cancel) {
+        return;
       }
 
+      TvShowEpisode episode = entry.getKey();
       try {
-        MediaMetadata metadata = metadataProvider.getEpisodeMetadata(options);
-        if (StringUtils.isNotBlank(metadata.getStringValue(MediaMetadata.TITLE))) {
-          episode.setMetadata(metadata);
+        MediaMetadata md = null;
+        if (metadata != null) {
+          md = metadata.get(entry.getValue());
+        }
+        else {
+          md = getEpisodeMetadata(tvShow, entry.getValue());
+        }
+
+        if (md != null && StringUtils.isNotBlank(md.getStringValue(MediaMetadata.TITLE))) {
+          // deliver all changes of the episode as one coalesced update to the UI
+          PropertyChangeCoalescer.suspend();
+          try {
+            episode.setMetadata(md, false);
+          }
+          finally {
+            PropertyChangeCoalescer.resume();
+          }
+
+          // the thumbs are downloaded in the image download queue
+          if (hasThumb(md)) {
+            Runnable thumbTask = episode.createThumbImageTask();
+            if (thumbTask != null) {
+              TmmTaskManager.getInstance().addImageDownloadTask(thumbTask);
+            }
+          }
         }
       }
       catch (Exception e) {
-        LOGGER.warn("Error getting metadata " + e.getMessage());
+        // one broken episode must not stop the others
+        LOGGER.warn("Error scraping episode " + tvShow.getTitle() + " - " + entry.getValue() + ": " + e.getMessage());
       }
+      publishProgress(tvShow.getTitle() + " - " + episode.getTitle(), 1);
     }
+  }
 
-    if (Globals.settings.getTvShowSettings().getSyncTrakt()) {
-      Set<TvShow> tvShows = new HashSet<TvShow>();
-      for (TvShowEpisode episode : episodes) {
-        tvShows.add(episode.getTvShow());
+  /**
+   * get the metadata of a single episode (the fallback if the metadata of all episodes of the show could not be fetched at once)
+   */
+  private MediaMetadata getEpisodeMetadata(TvShow tvShow, MediaEpisodeNumber episodeNumber) throws Exception {
+    MediaScrapeOptions options = createScrapeOptions(tvShow);
+    if (episodeNumber.dvdOrder) {
+      options.setId(MediaMetadata.SEASON_NR_DVD, String.valueOf(episodeNumber.season));
+      options.setId(MediaMetadata.EPISODE_NR_DVD, String.valueOf(episodeNumber.episode));
+    }
+    else {
+      options.setId(MediaMetadata.SEASON_NR, String.valueOf(episodeNumber.season));
+      options.setId(MediaMetadata.EPISODE_NR, String.valueOf(episodeNumber.episode));
+    }
+
+    Timer.Context timer = ScraperMetrics.start(metadataProvider, "episode");
+    try {
+      return metadataProvider.getEpisodeMetadata(options);
+    }
+    catch (Exception e) {
+      ScraperMetrics.error(metadataProvider);
+      throw e;
+    }
+    finally {
+      timer.stop();
+    }
+  }
+
+  private MediaScrapeOptions createScrapeOptions(TvShow tvShow) {
+    MediaScrapeOptions options = new MediaScrapeOptions();
+    options.setLanguage(Globals.settings.getTvShowSettings().getScraperLanguage());
+    options.setCountry(Globals.settings.getTvShowSettings().getCertificationCountry());
+
+    for (Entry<String, Object> entry : tvShow.getIds().entrySet()) {
+      options.setId(entry.getKey(), entry.getValue().toString());
+    }
+
+    options.setType(MediaType.TV_EPISODE);
+    if (scrapeThumb) {
+      options.setArtworkType(MediaArtworkType.THUMB);
+    }
+    else {
+      options.setArtworkType(null);
+    }
+    return options;
+  }
+
+  private boolean hasThumb(MediaMetadata md) {
+    for (MediaArtwork ma : md.getFanart()) {
+      if (ma.getType() == MediaArtworkType.THUMB) {
+        return true;
       }
-      TmmTask task = new SyncTraktTvTask(null, new ArrayList<TvShow>(tvShows));
-      TmmTaskManager.getInstance().addUnnamedTask(task);
     }
+    return false;
+  }
+
+  /**
+   * update the progress of this task
+   *
+   * @param description
+   *          the new description
+   * @param done
+   *          the amount of finished work units
+   */
+  private synchronized void publishProgress(String description, int done) {
+    taskDescription = description;
+    publishState(progressDone + done);
   }
 
+  @Override
+  public void cancel() {
+    super.cancel();
+    ScraperExecutor.cancel(this);
+  }
 }
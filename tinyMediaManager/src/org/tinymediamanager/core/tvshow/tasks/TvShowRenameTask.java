@@ -16,8 +16,10 @@
 package org.tinymediamanager.core.tvshow.tasks;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.Set;
 import java.util.concurrent.Callable;
 
 import org.slf4j.Logger;
@@ -25,6 +27,10 @@ import org.slf4j.LoggerFactory;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.RenamePlan;
+import org.tinymediamanager.core.metrics.MetricsRegistry;
+import org.tinymediamanager.core.metrics.TaskProfile;
+import org.tinymediamanager.core.metrics.Timer;
 import org.tinymediamanager.core.threading.TmmThreadPool;
 import org.tinymediamanager.core.tvshow.TvShowRenamer;
 import org.tinymediamanager.core.tvshow.entities.TvShow;
@@ -32,7 +38,8 @@ import org.tinymediamanager.core.tvshow.entities.TvShowEpisode;
 import org.tinymediamanager.ui.UTF8Control;
 
 /**
- * The class MovieRenameTask. rename all chosen movies
+ * The class TvShowRenameTask. rename all chosen TV shows/episodes; the destinations are being computed and checked for collisions first,
+ * afterwards the episodes are being renamed concurrently (one worker per data source)
  * 
  * @author Manuel Laggner
  */
@@ -43,6 +50,8 @@ public class TvShowRenameTask extends TmmThreadPool {
   private List<TvShow>                tvShowsToRename  = new ArrayList<TvShow>();
   private List<TvShowEpisode>         episodesToRename = new ArrayList<TvShowEpisode>();
   private boolean                     renameRoot       = true;
+  private RenamePlan<TvShowEpisode>   episodePlan      = new RenamePlan<TvShowEpisode>();
+  private RenamePlan<TvShow>          rootPlan         = new RenamePlan<TvShow>();
 
   /**
    * Instantiates a new tv show rename task.
@@ -65,32 +74,33 @@ public class TvShowRenameTask extends TmmThreadPool {
   protected void doInBackground() {
     try {
       start();
-      initThreadPool(1, "rename");
 
-      // rename complete tv shows
-      for (int i = 0; i < tvShowsToRename.size(); i++) {
-        if (cancel) {
-          break;
-        }
-        TvShow show = tvShowsToRename.get(i);
-        for (TvShowEpisode episode : new ArrayList<TvShowEpisode>(show.getEpisodes())) {
-          submitTask(new RenameEpisodeTask(episode));
-        }
+      // collect all episodes: complete tv shows and single episodes
+      Set<TvShowEpisode> episodes = new LinkedHashSet<TvShowEpisode>();
+      for (TvShow show : tvShowsToRename) {
+        episodes.addAll(new ArrayList<TvShowEpisode>(show.getEpisodes()));
       }
-      // rename single episodes
-      for (int i = 0; i < episodesToRename.size(); i++) {
+      episodes.addAll(episodesToRename);
+
+      // 1. compute the destinations of all episodes
+      initThreadPool(Runtime.getRuntime().availableProcessors(), "rename-plan");
+      for (TvShowEpisode episode : episodes) {
         if (cancel) {
           break;
         }
-        TvShowEpisode episode = episodesToRename.get(i);
-        submitTask(new RenameEpisodeTask(episode));
+        submitTask(new PlanEpisodeTask(episode));
       }
-
       waitForCompletionOrCancel();
       if (cancel) {
         return;
       }
 
+      // 2. check the whole batch for collisions and rename
+      renameAll(episodePlan);
+      if (cancel) {
+        return;
+      }
+
       // rename TvShowRoot and update all MFs in DB to new path
       if (renameRoot) {
         for (int i = 0; i < episodesToRename.size(); i++) {
@@ -99,19 +109,17 @@ public class TvShowRenameTask extends TmmThreadPool {
           }
           // fill TvShowsToRename if we just rename an episodes list
           TvShow show = episodesToRename.get(i).getTvShow();
-          if (!tvShowsToRename.contains(show)) {
+          if (show != null && !tvShowsToRename.contains(show)) {
             tvShowsToRename.add(show);
           }
         }
         for (int i = 0; i < tvShowsToRename.size(); i++) {
-          if (cancel) {
-            break;
-          }
-          TvShowRenamer.renameTvShowRoot(tvShowsToRename.get(i)); // rename root and update ShowMFs
+          rootPlan.add(TvShowRenamer.planRootRename(tvShowsToRename.get(i)));
         }
+        renameAll(rootPlan); // rename root and update ShowMFs
       }
 
-      LOGGER.info("Done renaming TV shows)");
+      LOGGER.info("Done renaming TV shows: " + episodePlan.getStatistics() + "; root folders: " + rootPlan.getStatistics());
     }
     catch (Exception e) {
       LOGGER.error("Thread crashed", e);
@@ -121,23 +129,99 @@ public class TvShowRenameTask extends TmmThreadPool {
   }
 
   /**
-   * ThreadpoolWorker to work off ONE episode
+   * check the plan for collisions and rename all entries without conflicts (one worker per data source)
    */
-  private class RenameEpisodeTask implements Callable<Object> {
+  private <T> void renameAll(RenamePlan<T> plan) {
+    List<RenamePlan.Entry<T>> conflicts = plan.checkConflicts();
+    for (RenamePlan.Entry<T> entry : conflicts) {
+      LOGGER.warn("not renaming " + getTitle(entry.getEntity()) + " - destination is already taken: " + entry.getConflict());
+      MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, getTitle(entry.getEntity()), "message.renamer.conflict", new String[] {
+          ":", entry.getConflict().getPath() }));
+    }
+
+    setProgressDone(0);
+    setWorkUnits(0);
+    initThreadPool(Math.max(1, plan.getFileSystemCount()), "rename");
+    for (int i = 0; i < plan.size() - conflicts.size(); i++) {
+      submitTask(new RenameTask<T>(plan));
+    }
+    waitForCompletionOrCancel();
+  }
+
+  private static String getTitle(Object entity) {
+    if (entity instanceof TvShowEpisode) {
+      TvShowEpisode episode = (TvShowEpisode) entity;
+      // orphaned episodes have no TV show
+      if (episode.getTvShow() == null) {
+        return episode.getTitle();
+      }
+      return episode.getTvShow().getTitle() + " - " + episode.getTitle();
+    }
+    return ((TvShow) entity).getTitle();
+  }
 
+  /**
+   * ThreadpoolWorker to compute the rename plan of ONE episode
+   */
+  private class PlanEpisodeTask implements Callable<Object> {
     private TvShowEpisode episode = null;
 
-    public RenameEpisodeTask(TvShowEpisode episode) {
+    public PlanEpisodeTask(TvShowEpisode episode) {
       this.episode = episode;
     }
 
     @Override
     public String call() throws Exception {
-      TvShowRenamer.renameEpisode(episode);
+      RenamePlan.Entry<TvShowEpisode> entry = TvShowRenamer.planRename(episode);
+      if (entry != null) {
+        episodePlan.add(entry);
+      }
+      else {
+        // invalid season/episode number: let the renamer report it
+        TvShowRenamer.renameEpisode(episode, episodePlan.getStatistics());
+      }
       return episode.getTitle();
     }
   }
 
+  /**
+   * ThreadpoolWorker to rename the next episode/TV show root of the plan
+   */
+  private class RenameTask<T> implements Callable<Object> {
+    private RenamePlan<T> plan;
+
+    public RenameTask(RenamePlan<T> plan) {
+      this.plan = plan;
+    }
+
+    @Override
+    public String call() throws Exception {
+      RenamePlan.Entry<T> entry = plan.next();
+      if (entry == null) {
+        return "";
+      }
+      Timer.Context timer = MetricsRegistry.timer("filesystem.rename").start();
+      long start = System.currentTimeMillis();
+      String title;
+      try {
+        if (entry.getEntity() instanceof TvShowEpisode) {
+          title = ((TvShowEpisode) entry.getEntity()).getTitle();
+          TvShowRenamer.renameEpisode((TvShowEpisode) entry.getEntity(), plan.getStatistics());
+        }
+        else {
+          title = ((TvShow) entry.getEntity()).getTitle();
+          TvShowRenamer.renameTvShowRoot((TvShow) entry.getEntity(), plan.getStatistics());
+        }
+        TaskProfile.recordEntity(title, start);
+        return title;
+      }
+      finally {
+        timer.stop();
+        plan.done(entry);
+      }
+    }
+  }
+
   @Override
   public void callback(Object obj) {
     publishState((String) obj, progressDone);
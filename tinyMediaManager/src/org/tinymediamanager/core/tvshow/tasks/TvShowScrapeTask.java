@@ -26,6 +26,9 @@ import org.tinymediamanager.Globals;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.PropertyChangeCoalescer;
+import org.tinymediamanager.core.metrics.TaskProfile;
+import org.tinymediamanager.core.metrics.Timer;
 import org.tinymediamanager.core.threading.TmmTask;
 import org.tinymediamanager.core.threading.TmmTaskManager;
 import org.tinymediamanager.core.threading.TmmThreadPool;
@@ -41,7 +44,9 @@ import org.tinymediamanager.scraper.MediaMetadata;
 import org.tinymediamanager.scraper.MediaScrapeOptions;
 import org.tinymediamanager.scraper.MediaSearchResult;
 import org.tinymediamanager.scraper.MediaType;
+import org.tinymediamanager.scraper.thetvdb.TheTvDbMetadataProvider;
 import org.tinymediamanager.scraper.trakttv.SyncTraktTvTask;
+import org.tinymediamanager.scraper.util.ScraperMetrics;
 import org.tinymediamanager.ui.UTF8Control;
 
 /**
@@ -104,6 +109,16 @@ public class TvShowScrapeTask extends TmmThreadPool {
 
     @Override
     public void run() {
+      long start = System.currentTimeMillis();
+      try {
+        scrape();
+      }
+      finally {
+        TaskProfile.recordEntity(tvShow.getTitle(), start);
+      }
+    }
+
+    private void scrape() {
       try {
         // set up scrapers
         TvShowScraperMetadataConfig scraperMetadataConfig = options.getScraperMetadataConfig();
@@ -113,6 +128,9 @@ public class TvShowScrapeTask extends TmmThreadPool {
 
         // scrape tv show
 
+        // a (re)scrape should get the current episode list; all episode scrapes of this show share the loaded one afterwards
+        TheTvDbMetadataProvider.invalidateEpisodeCache(tvShow.getTvdbId());
+
         // search for tv show
         MediaSearchResult result1 = null;
         if (doSearch) {
@@ -168,8 +186,21 @@ public class TvShowScrapeTask extends TmmThreadPool {
                 || scraperMetadataConfig.isAired() || scraperMetadataConfig.isPlot() || scraperMetadataConfig.isRating()
                 || scraperMetadataConfig.isRuntime() || scraperMetadataConfig.isStatus() || scraperMetadataConfig.isTitle()
                 || scraperMetadataConfig.isYear()) {
-              md = mediaMetadataProvider.getTvShowMetadata(options);
-              tvShow.setMetadata(md, scraperMetadataConfig);
+              Timer.Context timer = ScraperMetrics.start(mediaMetadataProvider, "metadata");
+              try {
+                md = mediaMetadataProvider.getTvShowMetadata(options);
+              }
+              finally {
+                timer.stop();
+              }
+              // deliver all changes of the TV show as one coalesced update to the UI
+              PropertyChangeCoalescer.suspend();
+              try {
+                tvShow.setMetadata(md, scraperMetadataConfig);
+              }
+              finally {
+                PropertyChangeCoalescer.resume();
+              }
             }
 
             // scrape episodes
@@ -219,13 +250,18 @@ public class TvShowScrapeTask extends TmmThreadPool {
 
       // scrape providers till one artwork has been found
       for (IMediaArtworkProvider artworkProvider : artworkProviders) {
+        Timer.Context timer = ScraperMetrics.start(artworkProvider, "artwork");
         try {
           artwork.addAll(artworkProvider.getArtwork(options));
         }
         catch (Exception e) {
           LOGGER.error("getArtwork", e);
+          ScraperMetrics.error(artworkProvider);
           MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, tvShow, "message.scrape.tvshowartworkfailed"));
         }
+        finally {
+          timer.stop();
+        }
       }
       return artwork;
     }
@@ -1,6 +1,8 @@
 package org.tinymediamanager.scraper;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface ITvShowMetadataProvider extends IMediaProvider {
 
@@ -26,6 +28,20 @@ public interface ITvShowMetadataProvider extends IMediaProvider {
    */
   public MediaMetadata getEpisodeMetadata(MediaScrapeOptions options) throws Exception;
 
+  /**
+   * Gets the metadata for several episodes of the given TV show at once (with a constant amount of requests)
+   * 
+   * @param options
+   *          the scrape options (containing the ID of the TV show)
+   * @param episodes
+   *          the season/episode numbers of the wanted episodes
+   * @return the metadata of the found episodes (episodes which could not be found are not contained)
+   * @throws Exception
+   * 
+   */
+  public Map<MediaEpisodeNumber, MediaMetadata> getEpisodeMetadata(MediaScrapeOptions options, Collection<MediaEpisodeNumber> episodes)
+      throws Exception;
+
   /**
    * Search for a TV show
    * 
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper;
+
+/**
+ * The class MediaEpisodeNumber. The season/episode number of an episode (in aired or DVD order) - used to request several episodes of a TV show at
+ * once.
+ *
+ * @author Manuel Laggner
+ */
+public class MediaEpisodeNumber {
+  public final int     season;
+  public final int     episode;
+  public final boolean dvdOrder;
+
+  public MediaEpisodeNumber(int season, int episode, boolean dvdOrder) {
+    this.season = season;
+    this.episode = episode;
+    this.dvdOrder = dvdOrder;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof MediaEpisodeNumber)) {
+      return false;
+    }
+    MediaEpisodeNumber other = (MediaEpisodeNumber) obj;
+    return season == other.season && episode == other.episode && dvdOrder == other.dvdOrder;
+  }
+
+  @Override
+  public int hashCode() {
+    return (season * 1000 + episode) * 2 + (dvdOrder ? 1 : 0);
+  }
+
+  @Override
+  public String toString() {
+    return "S" + season + "E" + episode + (dvdOrder ? " (DVD)" : "");
+  }
+}
@@ -18,10 +18,12 @@ package org.tinymediamanager.scraper.anidb;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Scanner;
 import java.util.regex.Matcher;
@@ -42,6 +44,7 @@ import org.tinymediamanager.scraper.MediaArtwork.MediaArtworkType;
 import org.tinymediamanager.scraper.MediaCastMember;
 import org.tinymediamanager.scraper.MediaCastMember.CastType;
 import org.tinymediamanager.scraper.MediaEpisode;
+import org.tinymediamanager.scraper.MediaEpisodeNumber;
 import org.tinymediamanager.scraper.MediaGenres;
 import org.tinymediamanager.scraper.MediaMetadata;
 import org.tinymediamanager.scraper.MediaProviderInfo;
@@ -227,7 +230,34 @@ public class AniDBMetadataProvider implements ITvShowMetadataProvider, IMediaArt
 
   @Override
   public MediaMetadata getEpisodeMetadata(MediaScrapeOptions options) throws Exception {
-    MediaMetadata md = new MediaMetadata(providerInfo.getId());
+    // get episode number and season number
+    int seasonNr = -1;
+    int episodeNr = -1;
+
+    try {
+      seasonNr = Integer.parseInt(options.getId(MediaMetadata.SEASON_NR));
+      episodeNr = Integer.parseInt(options.getId(MediaMetadata.EPISODE_NR));
+    }
+    catch (Exception e) {
+      LOGGER.warn("error parsing season/episode number");
+    }
+
+    if (seasonNr == -1 || episodeNr == -1) {
+      return new MediaMetadata(providerInfo.getId());
+    }
+
+    MediaEpisodeNumber episodeNumber = new MediaEpisodeNumber(seasonNr, episodeNr, false);
+    MediaMetadata md = getEpisodeMetadata(options, Collections.singleton(episodeNumber)).get(episodeNumber);
+    if (md == null) {
+      return new MediaMetadata(providerInfo.getId());
+    }
+    return md;
+  }
+
+  @Override
+  public Map<MediaEpisodeNumber, MediaMetadata> getEpisodeMetadata(MediaScrapeOptions options, Collection<MediaEpisodeNumber> episodeNumbers)
+      throws Exception {
+    Map<MediaEpisodeNumber, MediaMetadata> metadata = new HashMap<MediaEpisodeNumber, MediaMetadata>();
 
     String id = "";
     String langu = options.getLanguage().name();
@@ -243,25 +273,10 @@ public class AniDBMetadataProvider implements ITvShowMetadataProvider, IMediaArt
     }
 
     if (StringUtils.isEmpty(id)) {
-      return md;
-    }
-
-    // get episode number and season number
-    int seasonNr = -1;
-    int episodeNr = -1;
-
-    try {
-      seasonNr = Integer.parseInt(options.getId(MediaMetadata.SEASON_NR));
-      episodeNr = Integer.parseInt(options.getId(MediaMetadata.EPISODE_NR));
-    }
-    catch (Exception e) {
-      LOGGER.warn("error parsing season/episode number");
-    }
-
-    if (seasonNr == -1 || episodeNr == -1) {
-      return md;
+      return metadata;
     }
 
+    // all episodes are in the anime XML - so only one request is needed for all episodes
     trackConnections();
 
     String url = "http://api.anidb.net:9001/httpapi?request=anime&client=tinymediamanager&clientver=2&protover=1&aid=" + id;
@@ -278,42 +293,42 @@ public class AniDBMetadataProvider implements ITvShowMetadataProvider, IMediaArt
     }
 
     if (doc == null || doc.children().size() == 0) {
-      return md;
+      return metadata;
     }
 
-    md.setId(providerInfo.getId(), id);
-
-    List<Episode> episodes = parseEpisodes(doc);
-
-    Episode episode = null;
-
-    // filter out the episode
-    for (Episode ep : episodes) {
-      if (ep.season == seasonNr && ep.episode == episodeNr) {
-        episode = ep;
-        break;
+    // index the episodes; AniDB has no DVD order, so the aired order is used for both
+    Map<String, Episode> episodes = new HashMap<String, Episode>();
+    for (Episode ep : parseEpisodes(doc)) {
+      String key = ep.season + "x" + ep.episode;
+      if (!episodes.containsKey(key)) {
+        episodes.put(key, ep);
       }
     }
 
-    if (episode == null) {
-      return md;
-    }
+    for (MediaEpisodeNumber episodeNumber : episodeNumbers) {
+      Episode episode = episodes.get(episodeNumber.season + "x" + episodeNumber.episode);
+      if (episode == null) {
+        continue;
+      }
 
-    String title = episode.titles.get(langu);
-    if (StringUtils.isBlank(title)) {
-      title = episode.titles.get("en");
-    }
-    if (StringUtils.isBlank(title)) {
-      title = episode.titles.get("x-jat");
+      MediaMetadata md = new MediaMetadata(providerInfo.getId());
+      String title = episode.titles.get(langu);
+      if (StringUtils.isBlank(title)) {
+        title = episode.titles.get("en");
+      }
+      if (StringUtils.isBlank(title)) {
+        title = episode.titles.get("x-jat");
+      }
+      md.storeMetadata(MediaMetadata.TITLE, title);
+      md.storeMetadata(MediaMetadata.PLOT, episode.summary);
+      md.storeMetadata(MediaMetadata.RATING, episode.rating);
+      md.storeMetadata(MediaMetadata.RELEASE_DATE, episode.airdate);
+      md.storeMetadata(MediaMetadata.RUNTIME, episode.runtime);
+      md.setId(providerInfo.getId(), id);
+      metadata.put(episodeNumber, md);
     }
-    md.storeMetadata(MediaMetadata.TITLE, title);
-    md.storeMetadata(MediaMetadata.PLOT, episode.summary);
-    md.storeMetadata(MediaMetadata.RATING, episode.rating);
-    md.storeMetadata(MediaMetadata.RELEASE_DATE, episode.airdate);
-    md.storeMetadata(MediaMetadata.RUNTIME, episode.runtime);
-    md.setId(providerInfo.getId(), episode.id);
 
-    return md;
+    return metadata;
   }
 
   private List<Episode> parseEpisodes(Document doc) {
@@ -345,14 +360,14 @@ public class AniDBMetadataProvider implements ITvShowMetadataProvider, IMediaArt
         for (Element episodeInfo : e.children()) {
           if ("epno".equalsIgnoreCase(episodeInfo.tagName())) {
             try {
-              episode.episode = Integer.parseInt(episodeInfo.text());
-
               // looks like anidb is storing anything in a single season, so put 1 to season, if type = 1
               if ("1".equals(episodeInfo.attr("type"))) {
+                episode.episode = Integer.parseInt(episodeInfo.text());
                 episode.season = 1;
               }
-              else {
-                // else - we see them as "specials"
+              else if ("2".equals(episodeInfo.attr("type"))) {
+                // specials are numbered S1, S2, ... - we see them as season 0
+                episode.episode = Integer.parseInt(episodeInfo.text().replaceFirst("^S", ""));
                 episode.season = 0;
               }
 
@@ -585,9 +600,9 @@ public class AniDBMetadataProvider implements ITvShowMetadataProvider, IMediaArt
   }
 
   /*
-   * Track connections and throttle if needed.
+   * Track connections and throttle if needed; synchronized because the episodes of several shows can be scraped in parallel
    */
-  private void trackConnections() {
+  private static synchronized void trackConnections() {
     Long currentTime = System.currentTimeMillis();
     if (connectionCounter.count() == connectionCounter.maxSize()) {
       Long oldestConnection = connectionCounter.getTailItem();
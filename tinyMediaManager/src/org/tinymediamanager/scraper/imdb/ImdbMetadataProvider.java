@@ -24,9 +24,6 @@ import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorCompletionService;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -58,6 +55,8 @@ import org.tinymediamanager.scraper.MediaSearchResult;
 import org.tinymediamanager.scraper.MetadataUtil;
 import org.tinymediamanager.scraper.tmdb.TmdbMetadataProvider;
 import org.tinymediamanager.scraper.util.CachedUrl;
+import org.tinymediamanager.scraper.util.PartialHtmlParser;
+import org.tinymediamanager.scraper.util.ScraperExecutor;
 
 /**
  * The Class ImdbMetadataProvider. A meta data provider for the site imdb.com
@@ -67,19 +66,29 @@ import org.tinymediamanager.scraper.util.CachedUrl;
 @SuppressWarnings("PMD")
 public class ImdbMetadataProvider implements IMediaMetadataProvider {
 
-  private static MediaProviderInfo     providerInfo  = new MediaProviderInfo(Constants.IMDBID, "imdb.com",
-                                                         "Scraper for imdb which is able to scrape movie metadata");
-  private static final Logger          LOGGER        = LoggerFactory.getLogger(ImdbMetadataProvider.class);
-  private static final ExecutorService executor      = Executors.newFixedThreadPool(4);
-
-  public static final String           CAT_ALL       = "&s=all";
-  public static final String           CAT_TITLE     = "&s=tt";
-  public static final String           CAT_MOVIES    = "&s=tt&ttype=ft&ref_=fn_ft";
-  public static final String           CAT_TV        = "&s=tt&ttype=tv&ref_=fn_tv";
-  public static final String           CAT_EPISODE   = "&s=tt&ttype=ep&ref_=fn_ep";
-  public static final String           CAT_VIDEOGAME = "&s=tt&ttype=vg&ref_=fn_vg";
-
-  private ImdbSiteDefinition           imdbSite;
+  private static MediaProviderInfo      providerInfo           = new MediaProviderInfo(Constants.IMDBID, "imdb.com",
+                                                                     "Scraper for imdb which is able to scrape movie metadata");
+  private static final Logger           LOGGER                 = LoggerFactory.getLogger(ImdbMetadataProvider.class);
+
+  public static final String            CAT_ALL                = "&s=all";
+  public static final String            CAT_TITLE              = "&s=tt";
+  public static final String            CAT_MOVIES             = "&s=tt&ttype=ft&ref_=fn_ft";
+  public static final String            CAT_TV                 = "&s=tt&ttype=tv&ref_=fn_tv";
+  public static final String            CAT_EPISODE            = "&s=tt&ttype=ep&ref_=fn_ep";
+  public static final String            CAT_VIDEOGAME          = "&s=tt&ttype=vg&ref_=fn_vg";
+
+  // only the needed parts of the pages are parsed: /combined up to the last of the sections read by getMetadata (in whatever order they are on the
+  // page), /plotsummary up to the first plot
+  public static final PartialHtmlParser COMBINED_PAGE          = new PartialHtmlParser("</div>", "class=\"cast\"", "<h5>"
+                                                                     + ImdbSiteDefinition.IMDB_COM.getRuntime(), "<h5>Country", "<h5>Language", "<h5>"
+                                                                     + ImdbSiteDefinition.IMDB_COM.getCertification(),
+                                                                     ImdbSiteDefinition.IMDB_COM.getWriter(),
+                                                                     ImdbSiteDefinition.IMDB_COM.getProducers(), "class=\"blackcatheader\">"
+                                                                     + ImdbSiteDefinition.IMDB_COM.getProductionCompanies());
+  public static final PartialHtmlParser PLOTSUMMARY_PAGE       = new PartialHtmlParser("</p>", "zebraList");
+  public static final PartialHtmlParser PLOTSUMMARY_PAGE_OTHER = new PartialHtmlParser("</div>", "swiki.2.1");
+
+  private ImdbSiteDefinition            imdbSite;
 
   public ImdbMetadataProvider() {
     imdbSite = ImdbSiteDefinition.IMDB_COM;
@@ -119,17 +128,15 @@ public class ImdbMetadataProvider implements IMediaMetadataProvider {
     LOGGER.debug("IMDB: getMetadata(imdbId): " + imdbId);
     md.setId(MediaMetadata.IMDBID, imdbId);
 
-    ExecutorCompletionService<Document> compSvcImdb = new ExecutorCompletionService<Document>(executor);
-    ExecutorCompletionService<MediaMetadata> compSvcTmdb = new ExecutorCompletionService<MediaMetadata>(executor);
-
+    // the sub requests run in the (bounded) queues of the ScraperExecutor
     // worker for imdb request (/combined) (everytime from akas.imdb.com)
     // StringBuilder sb = new StringBuilder(imdbSite.getSite());
     StringBuilder sb = new StringBuilder(ImdbSiteDefinition.IMDB_COM.getSite());
     sb.append("title/");
     sb.append(imdbId);
     sb.append("/combined");
-    Callable<Document> worker = new ImdbWorker(sb.toString(), options.getLanguage().name(), options.getCountry().getAlpha2());
-    Future<Document> futureCombined = compSvcImdb.submit(worker);
+    Callable<Document> worker = new ImdbWorker(sb.toString(), options.getLanguage().name(), options.getCountry().getAlpha2(), COMBINED_PAGE);
+    Future<Document> futureCombined = ScraperExecutor.submit(providerInfo.getId(), worker);
 
     // worker for imdb request (/plotsummary) (from chosen site)
     Future<Document> futurePlotsummary = null;
@@ -138,14 +145,15 @@ public class ImdbMetadataProvider implements IMediaMetadataProvider {
     sb.append(imdbId);
     sb.append("/plotsummary");
 
-    worker = new ImdbWorker(sb.toString(), options.getLanguage().name(), options.getCountry().getAlpha2());
-    futurePlotsummary = compSvcImdb.submit(worker);
+    worker = new ImdbWorker(sb.toString(), options.getLanguage().name(), options.getCountry().getAlpha2(),
+        imdbSite == ImdbSiteDefinition.IMDB_COM ? PLOTSUMMARY_PAGE : PLOTSUMMARY_PAGE_OTHER);
+    futurePlotsummary = ScraperExecutor.submit(providerInfo.getId(), worker);
 
     // worker for tmdb request
     Future<MediaMetadata> futureTmdb = null;
     if (options.isScrapeImdbForeignLanguage() || options.isScrapeCollectionInfo()) {
       Callable<MediaMetadata> worker2 = new TmdbWorker(imdbId, options.getLanguage(), options.getCountry());
-      futureTmdb = compSvcTmdb.submit(worker2);
+      futureTmdb = ScraperExecutor.submit(Constants.TMDBID, worker2);
     }
 
     Document doc;
@@ -1013,15 +1021,17 @@ public class ImdbMetadataProvider implements IMediaMetadataProvider {
    * local helper classes
    ****************************************************************************/
   private class ImdbWorker implements Callable<Document> {
-    private String   url;
-    private String   language;
-    private String   country;
-    private Document doc = null;
+    private String            url;
+    private String            language;
+    private String            country;
+    private PartialHtmlParser parser;
+    private Document          doc = null;
 
-    public ImdbWorker(String url, String language, String country) {
+    public ImdbWorker(String url, String language, String country, PartialHtmlParser parser) {
       this.url = url;
       this.language = language;
       this.country = country;
+      this.parser = parser;
     }
 
     @Override
@@ -1030,7 +1040,7 @@ public class ImdbMetadataProvider implements IMediaMetadataProvider {
       try {
         CachedUrl cachedUrl = new CachedUrl(url);
         cachedUrl.addHeader("Accept-Language", getAcceptLanguage(language, country));
-        doc = Jsoup.parse(cachedUrl.getInputStream(), imdbSite.getCharset().displayName(), "");
+        doc = parser.parse(cachedUrl.getInputStream(), imdbSite.getCharset().displayName(), "");
       }
       catch (Exception e) {
         LOGGER.debug("tried to fetch imdb movie page " + url, e);
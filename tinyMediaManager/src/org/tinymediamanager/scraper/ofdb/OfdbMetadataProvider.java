@@ -22,6 +22,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -50,6 +52,8 @@ import org.tinymediamanager.scraper.MediaType;
 import org.tinymediamanager.scraper.MetadataUtil;
 import org.tinymediamanager.scraper.util.CachedUrl;
 import org.tinymediamanager.scraper.util.ParserUtils;
+import org.tinymediamanager.scraper.util.PartialHtmlParser;
+import org.tinymediamanager.scraper.util.ScraperExecutor;
 import org.tinymediamanager.scraper.util.StrgUtils;
 import org.tinymediamanager.scraper.util.Url;
 
@@ -59,12 +63,17 @@ import org.tinymediamanager.scraper.util.Url;
  * @author Myron Boyle (myron0815@gmx.net)
  */
 public class OfdbMetadataProvider implements IMediaMetadataProvider, IMediaTrailerProvider {
-  private static final Logger         LOGGER       = LoggerFactory.getLogger(OfdbMetadataProvider.class);
-  private static final String         BASE_URL     = "http://www.ofdb.de";
+  private static final Logger           LOGGER       = LoggerFactory.getLogger(OfdbMetadataProvider.class);
+  private static final String           BASE_URL     = "http://www.ofdb.de";
 
-  private static OfdbMetadataProvider instance;
-  private static MediaProviderInfo    providerInfo = new MediaProviderInfo(Constants.OFDBID, "ofdb.de",
-                                                       "Scraper for german ofdb.de which is able to scrape movie metadata");
+  // the movie page is only needed up to the end of the table with the last of the needed fields (the rest are reviews and versions); the IMDB
+  // marker is the link itself - "imdb.com" alone can also be found earlier on the page
+  public static final PartialHtmlParser MOVIE_PAGE   = new PartialHtmlParser("</table>", "imdb.com/Title?", "page=genre", "Note: ",
+                                                         "href=\"plot/");
+
+  private static OfdbMetadataProvider   instance;
+  private static MediaProviderInfo      providerInfo = new MediaProviderInfo(Constants.OFDBID, "ofdb.de",
+                                                         "Scraper for german ofdb.de which is able to scrape movie metadata");
 
   public static synchronized OfdbMetadataProvider getInstance() {
     if (instance == null) {
@@ -122,12 +131,35 @@ public class OfdbMetadataProvider implements IMediaMetadataProvider, IMediaTrail
 
     String ofdbId = StrgUtils.substr(options.getResult().getUrl(), "film\\/(\\d+),");
 
+    // http://www.ofdb.de/view.php?page=film_detail&fid=226745
+    // the actor detail page only needs the id - fetch it in parallel to the details page
+    final String movieDetail = BASE_URL + "/view.php?page=film_detail&fid=" + ofdbId;
+    Future<Document> futureDetail = ScraperExecutor.submit(providerInfo.getId(), new Callable<Document>() {
+      @Override
+      public Document call() throws Exception {
+        try {
+          Url url = new CachedUrl(movieDetail);
+          InputStream in = url.getInputStream();
+          Document doc = Jsoup.parse(in, "UTF-8", "");
+          in.close();
+          return doc;
+        }
+        catch (Exception e) {
+          LOGGER.error("failed to get detail page: " + e.getMessage());
+
+          // clear cache
+          CachedUrl.removeCachedFileForUrl(movieDetail);
+        }
+        return null;
+      }
+    });
+
     Url url;
     try {
       LOGGER.debug("get details page");
       url = new CachedUrl(options.getResult().getUrl());
       InputStream in = url.getInputStream();
-      Document doc = Jsoup.parse(in, "UTF-8", "");
+      Document doc = MOVIE_PAGE.parse(in, "UTF-8", "");
       in.close();
 
       // parse details
@@ -204,22 +236,8 @@ public class OfdbMetadataProvider implements IMediaMetadataProvider, IMediaTrail
         }
       }
 
-      // http://www.ofdb.de/view.php?page=film_detail&fid=226745
       LOGGER.debug("parse actor detail");
-      String movieDetail = BASE_URL + "/view.php?page=film_detail&fid=" + ofdbId;
-      doc = null;
-      try {
-        url = new CachedUrl(movieDetail);
-        in = url.getInputStream();
-        doc = Jsoup.parse(in, "UTF-8", "");
-        in.close();
-      }
-      catch (Exception e) {
-        LOGGER.error("failed to get detail page: " + e.getMessage());
-
-        // clear cache
-        CachedUrl.removeCachedFileForUrl(movieDetail);
-      }
+      doc = ScraperExecutor.getResult(futureDetail);
 
       if (doc != null) {
         el = doc.getElementsByAttributeValue("valign", "middle");
@@ -18,10 +18,14 @@ package org.tinymediamanager.scraper.opensubtitles;
 
 import java.net.MalformedURLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
@@ -34,8 +38,8 @@ import org.tinymediamanager.scraper.MediaType;
 import org.tinymediamanager.scraper.opensubtitles.model.ApiStartSession;
 import org.tinymediamanager.scraper.opensubtitles.model.Info;
 import org.tinymediamanager.scraper.opensubtitles.model.Info.MovieInfo;
-import org.tinymediamanager.scraper.util.SubtitleUtils;
 
+import redstone.xmlrpc.XmlRpcArray;
 import redstone.xmlrpc.XmlRpcClient;
 import redstone.xmlrpc.XmlRpcException;
 import redstone.xmlrpc.XmlRpcFault;
@@ -46,13 +50,16 @@ import redstone.xmlrpc.XmlRpcStruct;
  */
 public class OpensubtitlesMetadataProvider implements IMediaSubtitleProvider {
 
-  private static final Logger      LOGGER       = LoggerFactory.getLogger(OpensubtitlesMetadataProvider.class);
-  private static final String      SERVICE      = "http://api.opensubtitles.org/xml-rpc";
-  private static final String      USER_AGENT   = "OS Test User Agent";                                                // TODO: register!!!
-  private static MediaProviderInfo providerInfo = new MediaProviderInfo("opensubtitles", "opensubtitles.org",
-                                                    "Scraper for opensubtitles.org which is able to scrape subtitles");
-  private static ApiStartSession   session      = null;
-  private static XmlRpcClient      client       = null;
+  private static final Logger      LOGGER            = LoggerFactory.getLogger(OpensubtitlesMetadataProvider.class);
+  private static final String      SERVICE           = "http://api.opensubtitles.org/xml-rpc";
+  private static final String      USER_AGENT        = "OS Test User Agent";                                                // TODO: register!!!
+  // the API answers CheckMovieHash2 for up to 200 hashes and SearchSubtitles with up to 500 results per call
+  private static final int         HASH_BATCH_SIZE   = 200;
+  private static final int         SEARCH_BATCH_SIZE = 100;
+  private static MediaProviderInfo providerInfo      = new MediaProviderInfo("opensubtitles", "opensubtitles.org",
+                                                         "Scraper for opensubtitles.org which is able to scrape subtitles");
+  private static ApiStartSession   session           = null;
+  private static XmlRpcClient      client            = null;
 
   public OpensubtitlesMetadataProvider() {
     initAPI();
@@ -160,41 +167,66 @@ public class OpensubtitlesMetadataProvider implements IMediaSubtitleProvider {
    */
   public List<MediaSearchResult> identify(MediaFile mf) {
     LOGGER.info("trying to identify " + mf.getFile());
-    List<MediaSearchResult> results = new ArrayList<MediaSearchResult>();
+    return identify(Collections.singletonList(mf)).get(mf);
+  }
 
-    try {
-      String hash = SubtitleUtils.computeOpenSubtitlesHash(mf.getFile());
-      LOGGER.info("identify - computed hash: " + hash);
-      ArrayList<MovieInfo> mi = checkMovieHash2(hash);
-      for (MovieInfo i : mi) {
-        MediaSearchResult msr = new MediaSearchResult(this.getProviderInfo().getId());
-        msr.setIMDBId(i.MovieImdbID);
-        msr.setTitle(i.MovieName);
-        msr.setYear(i.MovieYear);
-        if (i.MovieKind.equals("movie")) {
-          msr.setMediaType(MediaType.MOVIE);
-        }
-        else {
-          msr.setMediaType(MediaType.TV_EPISODE); // what... else...?
+  /**
+   * Identifies many MediaFiles via hash; the hashes are sent in batches (one request for up to 200 files)
+   * 
+   * @param mediaFiles
+   *          the mediafiles
+   * @return the MediaSearchResults for every mediafile (an empty list if not identified)
+   */
+  public Map<MediaFile, List<MediaSearchResult>> identify(List<MediaFile> mediaFiles) {
+    Map<MediaFile, List<MediaSearchResult>> results = new LinkedHashMap<MediaFile, List<MediaSearchResult>>();
+    for (MediaFile mf : mediaFiles) {
+      results.put(mf, new ArrayList<MediaSearchResult>());
+    }
+
+    for (Map<String, List<MediaFile>> filesByHash : groupByHash(mediaFiles, HASH_BATCH_SIZE)) {
+      try {
+        LOGGER.debug("identify - checking " + filesByHash.size() + " hashes");
+        ArrayList<MovieInfo> mi = checkMovieHash2(filesByHash.keySet().toArray(new String[filesByHash.size()]));
+        for (MovieInfo i : mi) {
+          List<MediaFile> files = filesByHash.get(i.MovieHash);
+          if (files == null) {
+            continue;
+          }
+          MediaSearchResult msr = createSearchResult(i);
+          for (MediaFile mf : files) {
+            results.get(mf).add(msr);
+          }
         }
+      }
+      catch (Exception e) {
+        LOGGER.error("Could not identify files", e);
+      }
+    }
 
-        MediaMetadata md = new MediaMetadata(this.getProviderInfo().getId());
-        md.storeMetadata(MediaMetadata.EPISODE_NR, i.SeriesEpisode);
-        md.storeMetadata(MediaMetadata.SEASON_NR, i.SeriesSeason);
-        md.storeMetadata(MediaMetadata.IMDBID, i.MovieImdbID);
-        md.storeMetadata(MediaMetadata.TITLE, i.MovieName);
-        md.storeMetadata(MediaMetadata.YEAR, i.MovieYear);
-        md.storeMetadata(MediaMetadata.VOTE_COUNT, i.SeenCount); // well...
-        msr.setMetadata(md);
+    return results;
+  }
 
-        results.add(msr);
-      }
+  private MediaSearchResult createSearchResult(MovieInfo i) {
+    MediaSearchResult msr = new MediaSearchResult(this.getProviderInfo().getId());
+    msr.setIMDBId(i.MovieImdbID);
+    msr.setTitle(i.MovieName);
+    msr.setYear(i.MovieYear);
+    if (i.MovieKind.equals("movie")) {
+      msr.setMediaType(MediaType.MOVIE);
     }
-    catch (Exception e) {
-      LOGGER.error("Could not identify " + mf, e);
+    else {
+      msr.setMediaType(MediaType.TV_EPISODE); // what... else...?
     }
 
-    return results;
+    MediaMetadata md = new MediaMetadata(this.getProviderInfo().getId());
+    md.storeMetadata(MediaMetadata.EPISODE_NR, i.SeriesEpisode);
+    md.storeMetadata(MediaMetadata.SEASON_NR, i.SeriesSeason);
+    md.storeMetadata(MediaMetadata.IMDBID, i.MovieImdbID);
+    md.storeMetadata(MediaMetadata.TITLE, i.MovieName);
+    md.storeMetadata(MediaMetadata.YEAR, i.MovieYear);
+    md.storeMetadata(MediaMetadata.VOTE_COUNT, i.SeenCount); // well...
+    msr.setMetadata(md);
+    return msr;
   }
 
   /**
@@ -207,25 +239,97 @@ public class OpensubtitlesMetadataProvider implements IMediaSubtitleProvider {
   @Override
   public List<MediaSearchResult> search(MediaFile mf) {
     LOGGER.debug("searching subtitle for " + mf);
-    List<MediaSearchResult> results = new ArrayList<MediaSearchResult>();
-
-    Map<String, Object> mapQuery = new HashMap<String, Object>();
-    mapQuery.put("sublanguageid", Globals.settings.getLanguage());
-    mapQuery.put("moviehash", SubtitleUtils.computeOpenSubtitlesHash(mf.getFile()));
-    // when MI is not run yet, MF always 0 (b/c of locking) - so get this direct
-    mapQuery.put("moviebytesize", mf.getFilesize() == 0 ? mf.getFile().length() : mf.getFilesize());
+    return search(Collections.singletonList(mf)).get(mf);
+  }
 
-    try {
-      XmlRpcStruct token = (XmlRpcStruct) methodCall("SearchSubtitles", mapQuery);
-      System.out.println(token);
+  /**
+   * search for subtitle files matching many mediafiles using their video file hashes; up to 100 files are searched with one request
+   * 
+   * @param mediaFiles
+   *          the mediafiles
+   * @return the MediaSearchResults (one per subtitle file) for every mediafile
+   */
+  public Map<MediaFile, List<MediaSearchResult>> search(List<MediaFile> mediaFiles) {
+    Map<MediaFile, List<MediaSearchResult>> results = new LinkedHashMap<MediaFile, List<MediaSearchResult>>();
+    for (MediaFile mf : mediaFiles) {
+      results.put(mf, new ArrayList<MediaSearchResult>());
     }
-    catch (Exception e) {
-      LOGGER.error("Could not search subtitle.", e);
+
+    for (Map<String, List<MediaFile>> filesByHash : groupByHash(mediaFiles, SEARCH_BATCH_SIZE)) {
+      List<Map<String, Object>> queries = new ArrayList<Map<String, Object>>(filesByHash.size());
+      for (Entry<String, List<MediaFile>> entry : filesByHash.entrySet()) {
+        MediaFile mf = entry.getValue().get(0);
+        Map<String, Object> mapQuery = new HashMap<String, Object>();
+        mapQuery.put("sublanguageid", Globals.settings.getLanguage());
+        mapQuery.put("moviehash", entry.getKey());
+        // when MI is not run yet, MF always 0 (b/c of locking) - so get this direct
+        mapQuery.put("moviebytesize", String.valueOf(mf.getFilesize() == 0 ? mf.getFile().length() : mf.getFilesize()));
+        queries.add(mapQuery);
+      }
+
+      try {
+        LOGGER.debug("searching subtitles for " + queries.size() + " hashes");
+        XmlRpcStruct token = (XmlRpcStruct) methodCall("SearchSubtitles", queries.toArray());
+        if (token == null || !(token.get("data") instanceof XmlRpcArray)) {
+          // no subtitles found
+          continue;
+        }
+        XmlRpcArray data = token.getArray("data");
+        for (int i = 0; i < data.size(); i++) {
+          XmlRpcStruct subtitle = data.getStruct(i);
+          List<MediaFile> files = filesByHash.get(subtitle.getString("MovieHash"));
+          if (files == null) {
+            continue;
+          }
+          MediaSearchResult msr = new MediaSearchResult(providerInfo.getId());
+          msr.setId(subtitle.getString("IDSubtitleFile"));
+          msr.setTitle(subtitle.getString("SubFileName"));
+          msr.setUrl(subtitle.getString("SubDownloadLink"));
+          msr.setIMDBId(subtitle.getString("IDMovieImdb"));
+          msr.addExtraArg("language", subtitle.getString("SubLanguageID"));
+          for (MediaFile mf : files) {
+            results.get(mf).add(msr);
+          }
+        }
+      }
+      catch (Exception e) {
+        LOGGER.error("Could not search subtitle.", e);
+      }
     }
 
     return results;
   }
 
+  /**
+   * group the mediafiles by their OpenSubtitles hash (files with the same hash are only sent once) into batches of the given size; the hashes are
+   * taken from the mediafile (only calculated for new/changed files)
+   */
+  private List<Map<String, List<MediaFile>>> groupByHash(List<MediaFile> mediaFiles, int batchSize) {
+    List<Map<String, List<MediaFile>>> batches = new ArrayList<Map<String, List<MediaFile>>>();
+    Map<String, List<MediaFile>> batch = null;
+    Map<String, List<MediaFile>> seen = new HashMap<String, List<MediaFile>>();
+
+    for (MediaFile mf : mediaFiles) {
+      String hash = mf.getOpenSubtitlesHash();
+      if (StringUtils.isBlank(hash)) {
+        continue;
+      }
+      List<MediaFile> files = seen.get(hash);
+      if (files == null) {
+        if (batch == null || batch.size() >= batchSize) {
+          batch = new LinkedHashMap<String, List<MediaFile>>();
+          batches.add(batch);
+        }
+        files = new ArrayList<MediaFile>(1);
+        batch.put(hash, files);
+        seen.put(hash, files);
+      }
+      files.add(mf);
+    }
+
+    return batches;
+  }
+
   /**
    * This function should be always called when starting communication with OSDb server to identify user, specify application and start a new session
    * (either registered user or anonymous). If user has no account, blank username and password should be used.
@@ -32,7 +32,6 @@ import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.scraper.IMediaSubtitleProvider;
 import org.tinymediamanager.scraper.MediaProviderInfo;
 import org.tinymediamanager.scraper.MediaSearchResult;
-import org.tinymediamanager.scraper.util.SubtitleUtils;
 import org.tinymediamanager.scraper.util.Url;
 
 /**
@@ -70,7 +69,7 @@ public class TheSubDbMetadataProvider implements IMediaSubtitleProvider {
     LOGGER.debug("searching subtitle for " + mf);
     List<MediaSearchResult> results = new ArrayList<MediaSearchResult>();
 
-    String hash = SubtitleUtils.computeSubDBHash(mf.getFile());
+    String hash = mf.getSubDbHash();
     // return an empty search result on hashing error
     if (hash.isEmpty()) {
       return results;
@@ -18,11 +18,13 @@ package org.tinymediamanager.scraper.thetvdb;
 import java.text.Normalizer;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -39,6 +41,7 @@ import org.tinymediamanager.scraper.MediaArtwork.MediaArtworkType;
 import org.tinymediamanager.scraper.MediaCastMember;
 import org.tinymediamanager.scraper.MediaCastMember.CastType;
 import org.tinymediamanager.scraper.MediaEpisode;
+import org.tinymediamanager.scraper.MediaEpisodeNumber;
 import org.tinymediamanager.scraper.MediaGenres;
 import org.tinymediamanager.scraper.MediaLanguages;
 import org.tinymediamanager.scraper.MediaMetadata;
@@ -65,10 +68,12 @@ import com.omertron.thetvdbapi.model.Series;
  * @author Manuel Laggner
  */
 public class TheTvDbMetadataProvider implements ITvShowMetadataProvider, IMediaArtworkProvider {
-  private static final Logger      LOGGER       = LoggerFactory.getLogger(TheTvDbMetadataProvider.class);
-  private static TheTVDBApi        tvdb;
-  private static MediaProviderInfo providerInfo = new MediaProviderInfo(Constants.TVDBID, "thetvdb.com",
-                                                    "Scraper for thetvdb.com which is able to scrape tv series metadata and artwork");
+  private static final Logger           LOGGER        = LoggerFactory.getLogger(TheTvDbMetadataProvider.class);
+  // the parsed episodes of the last 20 series; reloaded after 30 minutes
+  private static final TvdbEpisodeCache EPISODE_CACHE = new TvdbEpisodeCache(20, 30 * 60 * 1000L);
+  private static TheTVDBApi             tvdb;
+  private static MediaProviderInfo      providerInfo  = new MediaProviderInfo(Constants.TVDBID, "thetvdb.com",
+                                                          "Scraper for thetvdb.com which is able to scrape tv series metadata and artwork");
 
   public TheTvDbMetadataProvider() throws Exception {
     initAPI();
@@ -320,29 +325,7 @@ public class TheTvDbMetadataProvider implements ITvShowMetadataProvider, IMediaA
 
   @Override
   public MediaMetadata getEpisodeMetadata(MediaScrapeOptions options) throws Exception {
-    MediaMetadata md = new MediaMetadata(providerInfo.getId());
-
     boolean useDvdOrder = false;
-    String id = "";
-
-    // id from result
-    if (options.getResult() != null) {
-      id = options.getResult().getId();
-    }
-
-    // do we have an id from the options?
-    if (StringUtils.isEmpty(id)) {
-      id = options.getId(providerInfo.getId());
-    }
-
-    // still no ID? try the old one
-    if (StringUtils.isEmpty(id)) {
-      id = options.getId("tvdb");
-    }
-
-    if (StringUtils.isEmpty(id)) {
-      return md;
-    }
 
     // get episode number and season number
     int seasonNr = -1;
@@ -365,50 +348,51 @@ public class TheTvDbMetadataProvider implements ITvShowMetadataProvider, IMediaA
     }
 
     if (seasonNr == -1 || episodeNr == -1) {
-      return md;
+      return new MediaMetadata(providerInfo.getId());
     }
 
-    List<Episode> episodes = new ArrayList<Episode>();
-    synchronized (tvdb) {
-      // switched to getAllEpisodes for performance - only 1 request needed for scraping multiple episodes of one tv show
-      episodes.addAll(tvdb.getAllEpisodes(id, options.getLanguage().name()));
+    MediaEpisodeNumber episodeNumber = new MediaEpisodeNumber(seasonNr, episodeNr, useDvdOrder);
+    MediaMetadata md = getEpisodeMetadata(options, Collections.singleton(episodeNumber)).get(episodeNumber);
+    if (md == null) {
+      return new MediaMetadata(providerInfo.getId());
     }
+    return md;
+  }
 
-    if (episodes.isEmpty()) {
-      // maybe broken request - delete cache to be sure
-      clearTvdbCache();
-    }
+  @Override
+  public Map<MediaEpisodeNumber, MediaMetadata> getEpisodeMetadata(MediaScrapeOptions options, Collection<MediaEpisodeNumber> episodeNumbers)
+      throws Exception {
+    Map<MediaEpisodeNumber, MediaMetadata> metadata = new HashMap<MediaEpisodeNumber, MediaMetadata>();
 
-    Episode episode = null;
+    String id = getTvShowId(options);
+    if (StringUtils.isEmpty(id)) {
+      return metadata;
+    }
 
-    // filter out the episode
-    for (Episode ep : episodes) {
-      if (useDvdOrder) {
-        try {
-          int s = Integer.parseInt(ep.getDvdSeason());
+    // all episodes of the show are loaded only once
+    TvdbEpisodeCache.EpisodeTable episodes = getEpisodeTable(id, options.getLanguage());
 
-          // TVDB provides the EP number as e.g. 2.0
-          int e = (int) Math.floor(Double.parseDouble(ep.getDvdEpisodeNumber()));
-          if (s == seasonNr && e == episodeNr) {
-            episode = ep;
-            break;
-          }
-        }
-        catch (Exception e) {
-        }
+    for (MediaEpisodeNumber episodeNumber : episodeNumbers) {
+      // filter out the episode
+      Episode episode = null;
+      if (episodeNumber.dvdOrder) {
+        episode = episodes.getDvdEpisode(episodeNumber.season, episodeNumber.episode);
       }
       else {
-        if (ep.getSeasonNumber() == seasonNr && ep.getEpisodeNumber() == episodeNr) {
-          episode = ep;
-          break;
-        }
+        episode = episodes.getEpisode(episodeNumber.season, episodeNumber.episode);
       }
-    }
 
-    if (episode == null) {
-      return md;
+      if (episode != null) {
+        metadata.put(episodeNumber, createEpisodeMetadata(episode, options.getArtworkType()));
+      }
     }
 
+    return metadata;
+  }
+
+  private MediaMetadata createEpisodeMetadata(Episode episode, MediaArtworkType artworkType) {
+    MediaMetadata md = new MediaMetadata(providerInfo.getId());
+
     md.storeMetadata(MediaMetadata.EPISODE_NR, episode.getEpisodeNumber());
     md.storeMetadata(MediaMetadata.SEASON_NR, episode.getSeasonNumber());
 
@@ -458,7 +442,7 @@ public class TheTvDbMetadataProvider implements ITvShowMetadataProvider, IMediaA
     }
 
     // Thumb
-    if (options.getArtworkType() == MediaArtworkType.ALL || options.getArtworkType() == MediaArtworkType.THUMB) {
+    if (artworkType == MediaArtworkType.ALL || artworkType == MediaArtworkType.THUMB) {
       MediaArtwork ma = new MediaArtwork();
       ma.setType(MediaArtworkType.THUMB);
       ma.setDefaultUrl(episode.getFilename());
@@ -604,39 +588,13 @@ public class TheTvDbMetadataProvider implements ITvShowMetadataProvider, IMediaA
   @Override
   public List<MediaEpisode> getEpisodeList(MediaScrapeOptions options) throws Exception {
     List<MediaEpisode> episodes = new ArrayList<MediaEpisode>();
-    String id = "";
-
-    // id from result
-    if (options.getResult() != null) {
-      id = options.getResult().getId();
-    }
-
-    // do we have an id from the options?
-    if (StringUtils.isEmpty(id)) {
-      id = options.getId(providerInfo.getId());
-    }
-
-    // do we have the id in the alternate form?
-    if (StringUtils.isEmpty(id)) {
-      id = options.getId("tvdb");
-    }
 
+    String id = getTvShowId(options);
     if (StringUtils.isEmpty(id)) {
       return episodes;
     }
 
-    List<Episode> eps = new ArrayList<Episode>();
-    synchronized (tvdb) {
-      // switched to getAllEpisodes for performance - only 1 request needed for scraping multiple episodes of one tv show
-      eps.addAll(tvdb.getAllEpisodes(id, options.getLanguage().name()));
-    }
-
-    if (eps.isEmpty()) {
-      // maybe broken request - delete cache to be sure
-      clearTvdbCache();
-    }
-
-    for (Episode ep : eps) {
+    for (Episode ep : getEpisodeTable(id, options.getLanguage()).getEpisodes()) {
       MediaEpisode episode = new MediaEpisode(providerInfo.getId());
       episode.season = ep.getSeasonNumber();
       episode.episode = ep.getEpisodeNumber();
@@ -737,6 +695,101 @@ public class TheTvDbMetadataProvider implements ITvShowMetadataProvider, IMediaA
     return g;
   }
 
+  /**
+   * get the TVDB id of the TV show out of the scrape options
+   */
+  private String getTvShowId(MediaScrapeOptions options) {
+    String id = "";
+
+    // id from result
+    if (options.getResult() != null) {
+      id = options.getResult().getId();
+    }
+
+    // do we have an id from the options?
+    if (StringUtils.isEmpty(id)) {
+      id = options.getId(providerInfo.getId());
+    }
+
+    // still no ID? try the old one
+    if (StringUtils.isEmpty(id)) {
+      id = options.getId("tvdb");
+    }
+
+    return id;
+  }
+
+  /**
+   * get the parsed episodes of the series; they are loaded only once for scraping all episodes of a series (see {@link TvdbEpisodeCache})
+   */
+  private TvdbEpisodeCache.EpisodeTable getEpisodeTable(String id, MediaLanguages language) {
+    TvdbEpisodeCache.EpisodeTable table = EPISODE_CACHE.get(id, language.name());
+    if (table != null) {
+      return table;
+    }
+
+    synchronized (tvdb) {
+      // maybe another thread loaded the same series meanwhile
+      table = EPISODE_CACHE.peek(id, language.name());
+      if (table != null) {
+        return table;
+      }
+
+      // switched to getAllEpisodes for performance - only 1 request needed for scraping multiple episodes of one tv show
+      List<Episode> episodes = tvdb.getAllEpisodes(id, language.name());
+      if (episodes.isEmpty()) {
+        // maybe broken request - delete cache to be sure (and do not cache the empty result)
+        clearTvdbCache();
+        return new TvdbEpisodeCache.EpisodeTable(episodes);
+      }
+
+      table = EPISODE_CACHE.put(id, language.name(), episodes);
+      LOGGER.debug("loaded " + episodes.size() + " episodes of series " + id + " - episode cache: " + EPISODE_CACHE.getHits() + " hits, "
+          + EPISODE_CACHE.getMisses() + " misses");
+      return table;
+    }
+  }
+
+  /**
+   * remove the episodes of the series from the episode cache; the next episode scrape loads them again
+   *
+   * @param id
+   *          the TVDB id of the series
+   */
+  public static void invalidateEpisodeCache(String id) {
+    if (StringUtils.isNotBlank(id)) {
+      EPISODE_CACHE.invalidate(id);
+    }
+  }
+
+  /**
+   * put the episodes of the series into the episode cache; the episode scrapes of this series are served from there without any request
+   */
+  static void cacheEpisodes(String id, MediaLanguages language, List<Episode> episodes) {
+    EPISODE_CACHE.put(id, language.name(), episodes);
+  }
+
+  /**
+   * remove all series from the episode cache
+   */
+  public static void clearEpisodeCache() {
+    EPISODE_CACHE.clear();
+  }
+
+  /**
+   * the amount of episode lookups which could be served from the episode cache
+   */
+  public static long getEpisodeCacheHits() {
+    return EPISODE_CACHE.getHits();
+  }
+
+  /**
+   * the amount of episode lookups which needed to load the episodes of the series
+   */
+  public static long getEpisodeCacheMisses() {
+    return EPISODE_CACHE.getMisses();
+  }
+
   private static void clearTvdbCache() {
     CachedUrl.cleanupCacheForSpecificHost("thetvdb.com");
   }
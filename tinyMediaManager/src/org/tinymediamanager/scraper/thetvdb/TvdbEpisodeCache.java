@@ -0,0 +1,181 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper.thetvdb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.omertron.thetvdbapi.model.Episode;
+
+/**
+ * The class TvdbEpisodeCache. Holds the parsed episode lists of the last scraped series (per language), indexed by aired and DVD season/episode.
+ * Scraping all episodes of a series needs the series XML only once this way. The cache is bounded (least recently used series are evicted) and
+ * entries expire after a while.
+ *
+ * @author Manuel Laggner
+ */
+class TvdbEpisodeCache {
+  private final Map<String, EpisodeTable> tables;
+  private final long                      maxAge;
+  private final AtomicLong                hits   = new AtomicLong();
+  private final AtomicLong                misses = new AtomicLong();
+
+  /**
+   * create a new episode cache
+   *
+   * @param maxSeries
+   *          the max amount of cached series
+   * @param maxAge
+   *          the time (in ms) after a cached series is loaded again
+   */
+  TvdbEpisodeCache(final int maxSeries, long maxAge) {
+    this.maxAge = maxAge;
+    this.tables = new LinkedHashMap<String, EpisodeTable>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, EpisodeTable> eldest) {
+        return size() > maxSeries;
+      }
+    };
+  }
+
+  /**
+   * get the cached episode table of the series; counts as hit/miss for the statistics
+   *
+   * @return the episode table or null if it is not cached (or expired)
+   */
+  EpisodeTable get(String seriesId, String language) {
+    EpisodeTable table = peek(seriesId, language);
+    if (table != null) {
+      hits.incrementAndGet();
+    }
+    else {
+      misses.incrementAndGet();
+    }
+    return table;
+  }
+
+  /**
+   * get the cached episode table of the series without counting it for the statistics
+   *
+   * @return the episode table or null if it is not cached (or expired)
+   */
+  synchronized EpisodeTable peek(String seriesId, String language) {
+    String key = getKey(seriesId, language);
+    EpisodeTable table = tables.get(key);
+    if (table != null && System.currentTimeMillis() - table.created > maxAge) {
+      tables.remove(key);
+      table = null;
+    }
+    return table;
+  }
+
+  /**
+   * cache the episodes of the series
+   *
+   * @return the created episode table
+   */
+  synchronized EpisodeTable put(String seriesId, String language, List<Episode> episodes) {
+    EpisodeTable table = new EpisodeTable(episodes);
+    tables.put(getKey(seriesId, language), table);
+    return table;
+  }
+
+  /**
+   * remove the series (in all languages) from the cache
+   */
+  synchronized void invalidate(String seriesId) {
+    String prefix = seriesId + "_";
+    for (Iterator<String> it = tables.keySet().iterator(); it.hasNext();) {
+      if (it.next().startsWith(prefix)) {
+        it.remove();
+      }
+    }
+  }
+
+  synchronized void clear() {
+    tables.clear();
+  }
+
+  synchronized int size() {
+    return tables.size();
+  }
+
+  long getHits() {
+    return hits.get();
+  }
+
+  long getMisses() {
+    return misses.get();
+  }
+
+  private String getKey(String seriesId, String language) {
+    return seriesId + "_" + language;
+  }
+
+  /**
+   * The parsed episodes of a series, indexed by aired and DVD season/episode
+   */
+  static class EpisodeTable {
+    private final long                 created = System.currentTimeMillis();
+    private final List<Episode>        episodes;
+    private final Map<String, Episode> aired   = new HashMap<String, Episode>();
+    private final Map<String, Episode> dvd     = new HashMap<String, Episode>();
+
+    EpisodeTable(List<Episode> episodes) {
+      this.episodes = Collections.unmodifiableList(new ArrayList<Episode>(episodes));
+      for (Episode ep : episodes) {
+        // the first one wins - like the former linear search
+        String key = ep.getSeasonNumber() + "x" + ep.getEpisodeNumber();
+        if (!aired.containsKey(key)) {
+          aired.put(key, ep);
+        }
+
+        try {
+          int s = Integer.parseInt(ep.getDvdSeason());
+          // TVDB provides the EP number as e.g. 2.0
+          int e = (int) Math.floor(Double.parseDouble(ep.getDvdEpisodeNumber()));
+          key = s + "x" + e;
+          if (!dvd.containsKey(key)) {
+            dvd.put(key, ep);
+          }
+        }
+        catch (Exception e) {
+          // no DVD order for this episode
+        }
+      }
+    }
+
+    List<Episode> getEpisodes() {
+      return episodes;
+    }
+
+    Episode getEpisode(int season, int episode) {
+      return aired.get(season + "x" + episode);
+    }
+
+    Episode getDvdEpisode(int season, int episode) {
+      return dvd.get(season + "x" + episode);
+    }
+  }
+}
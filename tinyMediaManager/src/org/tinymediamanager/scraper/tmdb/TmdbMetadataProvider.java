@@ -48,6 +48,8 @@ import org.tinymediamanager.scraper.MediaTrailer;
 import org.tinymediamanager.scraper.MediaType;
 import org.tinymediamanager.scraper.MetadataUtil;
 import org.tinymediamanager.scraper.util.CachedUrl;
+import org.tinymediamanager.scraper.util.HttpReplay;
+import org.tinymediamanager.scraper.util.UrlHttpClient;
 import org.tinymediamanager.thirdparty.RingBuffer;
 
 import com.omertron.themoviedbapi.MovieDbException;
@@ -89,7 +91,13 @@ public class TmdbMetadataProvider implements IMediaMetadataProvider, IMediaArtwo
     // create a new instance of the tmdb api
     if (tmdb == null) {
       try {
-        tmdb = new TheMovieDbApi(apiKey);
+        if (HttpReplay.isActive()) {
+          // load via Url to record/replay the requests
+          tmdb = new TheMovieDbApi(apiKey, new UrlHttpClient());
+        }
+        else {
+          tmdb = new TheMovieDbApi(apiKey);
+        }
         if (tmdb.getConfiguration() == null) {
           throw new Exception("Invalid TMDB API key");
         }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper.trakttv;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.tinymediamanager.core.Constants;
+import org.tinymediamanager.core.entities.MediaEntity;
+
+import com.uwetrottmann.trakt.v2.entities.MovieIds;
+import com.uwetrottmann.trakt.v2.entities.ShowIds;
+
+/**
+ * The class TraktIdIndex. A hash index of items by all of their ids (trakt, imdb, tmdb, ...) - so matching Trakt.tv items against ours is a
+ * lookup rather than a comparison with every item. The keys look like <i>imdbId:tt0103064</i> (id name from {@link Constants} + id)
+ *
+ * @author Manuel Laggner
+ */
+public class TraktIdIndex<T> {
+  static final String[]              MOVIE_IDS = { Constants.TRAKTID, Constants.IMDBID, Constants.TMDBID };
+  static final String[]              SHOW_IDS  = { Constants.TRAKTID, Constants.IMDBID, Constants.TMDBID, Constants.TVDBID, Constants.TVRAGEID };
+
+  private final Map<String, List<T>> index     = new HashMap<String, List<T>>();
+
+  /**
+   * add the item with all given keys
+   */
+  public void add(T item, Collection<String> keys) {
+    for (String key : keys) {
+      List<T> items = index.get(key);
+      if (items == null) {
+        items = new ArrayList<T>(1);
+        index.put(key, items);
+      }
+      items.add(item);
+    }
+  }
+
+  /**
+   * find all items with at least one of the given keys
+   *
+   * @return the found items (every item only once) or an empty list
+   */
+  public List<T> find(Collection<String> keys) {
+    List<T> found = null;
+    Set<T> seen = null;
+    for (String key : keys) {
+      List<T> items = index.get(key);
+      if (items == null) {
+        continue;
+      }
+      if (found == null) {
+        found = new ArrayList<T>(items.size());
+        seen = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+      }
+      for (T item : items) {
+        if (seen.add(item)) {
+          found.add(item);
+        }
+      }
+    }
+    if (found == null) {
+      return Collections.emptyList();
+    }
+    return found;
+  }
+
+  public List<T> find(String key) {
+    return find(Collections.singletonList(key));
+  }
+
+  /**
+   * the keys of all set ids of the entity
+   */
+  public static List<String> keys(MediaEntity entity, String... idNames) {
+    List<String> keys = new ArrayList<String>(idNames.length);
+    for (String idName : idNames) {
+      String id = entity.getIdAsString(idName);
+      if (StringUtils.isNotBlank(id) && !"0".equals(id)) {
+        keys.add(idName + ":" + id);
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * the keys of all set ids of the Trakt.tv movie
+   */
+  public static List<String> keys(MovieIds ids) {
+    List<String> keys = new ArrayList<String>(3);
+    add(keys, Constants.TRAKTID, ids.trakt);
+    add(keys, Constants.IMDBID, ids.imdb);
+    add(keys, Constants.TMDBID, ids.tmdb);
+    return keys;
+  }
+
+  /**
+   * the keys of all set ids of the Trakt.tv show
+   */
+  public static List<String> keys(ShowIds ids) {
+    List<String> keys = new ArrayList<String>(5);
+    add(keys, Constants.TRAKTID, ids.trakt);
+    add(keys, Constants.IMDBID, ids.imdb);
+    add(keys, Constants.TMDBID, ids.tmdb);
+    add(keys, Constants.TVDBID, ids.tvdb);
+    add(keys, Constants.TVRAGEID, ids.tvrage);
+    return keys;
+  }
+
+  private static void add(List<String> keys, String idName, Object id) {
+    if (id == null) {
+      return;
+    }
+    String value = String.valueOf(id);
+    if (StringUtils.isNotBlank(value) && !"0".equals(value)) {
+      keys.add(idName + ":" + value);
+    }
+  }
+}
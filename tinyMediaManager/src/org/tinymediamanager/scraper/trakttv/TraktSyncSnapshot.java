@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper.trakttv;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class TraktSyncSnapshot. Holds the keys (see {@link TraktIdIndex}) of all items which were in sync after the last sync with Trakt.tv. With
+ * this snapshot we can tell the difference between <i>removed here</i> and <i>added there</i> on the next sync.
+ *
+ * @author Manuel Laggner
+ */
+public class TraktSyncSnapshot {
+  private static final Logger LOGGER    = LoggerFactory.getLogger(TraktSyncSnapshot.class);
+  public static final String  CACHE_DIR = "cache/trakt";
+
+  private final File          file;
+  private final Properties    keys      = new Properties();
+
+  TraktSyncSnapshot(File file) {
+    this.file = file;
+  }
+
+  /**
+   * load the snapshot of the given sync for the given user
+   *
+   * @param user
+   *          the Trakt.tv user
+   * @param name
+   *          the name of the sync (e.g. movie-collection)
+   * @return the snapshot (empty if there was no sync yet)
+   */
+  public static TraktSyncSnapshot load(String user, String name) {
+    TraktSyncSnapshot snapshot = new TraktSyncSnapshot(getFile(user, name));
+    snapshot.load();
+    return snapshot;
+  }
+
+  /**
+   * remove the snapshot of the given sync for the given user
+   */
+  public static void delete(String user, String name) {
+    FileUtils.deleteQuietly(getFile(user, name));
+  }
+
+  private static File getFile(String user, String name) {
+    return new File(CACHE_DIR, user.replaceAll("[^a-zA-Z0-9_.-]", "_") + "-" + name + ".properties");
+  }
+
+  void load() {
+    keys.clear();
+    if (!file.exists()) {
+      return;
+    }
+    InputStream is = null;
+    try {
+      is = new BufferedInputStream(new FileInputStream(file));
+      keys.load(is);
+    }
+    catch (IOException e) {
+      LOGGER.warn("could not load Trakt.tv sync snapshot: " + e.getMessage());
+      keys.clear();
+    }
+    finally {
+      IOUtils.closeQuietly(is);
+    }
+  }
+
+  public boolean contains(String key) {
+    return keys.containsKey(key);
+  }
+
+  public Set<String> getKeys() {
+    return keys.stringPropertyNames();
+  }
+
+  public boolean isEmpty() {
+    return keys.isEmpty();
+  }
+
+  /**
+   * replace the content of the snapshot
+   */
+  public void setKeys(Collection<String> newKeys) {
+    keys.clear();
+    addKeys(newKeys);
+  }
+
+  public void addKeys(Collection<String> newKeys) {
+    for (String key : newKeys) {
+      keys.setProperty(key, "");
+    }
+  }
+
+  public void removeKey(String key) {
+    keys.remove(key);
+  }
+
+  public void save() {
+    OutputStream os = null;
+    try {
+      os = new BufferedOutputStream(FileUtils.openOutputStream(file));
+      keys.store(os, "Trakt.tv sync snapshot");
+      os.close();
+    }
+    catch (IOException e) {
+      LOGGER.warn("could not save Trakt.tv sync snapshot: " + e.getMessage());
+    }
+    finally {
+      IOUtils.closeQuietly(os);
+    }
+  }
+}
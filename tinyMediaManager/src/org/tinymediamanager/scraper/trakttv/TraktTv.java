@@ -18,7 +18,13 @@ package org.tinymediamanager.scraper.trakttv;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -68,12 +74,21 @@ import com.uwetrottmann.trakt.v2.exceptions.UnauthorizedException;
  * 
  */
 public class TraktTv {
-  private static final String  CLIENT_ID = "a8e7e30fd7fd3f397b6e079f9f023e790f9cbd80a2be57c104089174fa8c6d89";
+  private static final String  CLIENT_ID          = "a8e7e30fd7fd3f397b6e079f9f023e790f9cbd80a2be57c104089174fa8c6d89";
 
-  private static final Logger  LOGGER    = LoggerFactory.getLogger(TraktTv.class);
-  private static final TraktV2 TRAKT     = new TraktV2();
+  private static final Logger  LOGGER             = LoggerFactory.getLogger(TraktTv.class);
+  private static final TraktV2 TRAKT              = new TraktV2();
   private static TraktTv       instance;
 
+  // the amount of items per request; sending all together may result in a timeout
+  private static final int     SYNC_BATCH_SIZE    = 100;
+  private static final int     SHOW_BATCH_SIZE    = 10;
+
+  // the names of the snapshots
+  private static final String  MOVIE_COLLECTION   = "movie-collection";
+  private static final String  MOVIE_WATCHED      = "movie-watched";
+  private static final String  TV_SHOW_COLLECTION = "tvshow-collection";
+
   private SyncResponse         response;
 
   public static synchronized TraktTv getInstance() {
@@ -148,6 +163,20 @@ public class TraktTv {
    * Gets all Trakt movies from collection, matches them to ours, and sends ONLY the new ones back to Trakt
    */
   public void syncTraktMovieCollection(List<Movie> moviesInTmm) {
+    syncTraktMovieCollection(moviesInTmm, false);
+  }
+
+  /**
+   * Syncs Trakt.tv collection<br>
+   * Gets all Trakt movies from collection, matches them to ours (via the ids), and sends ONLY the new ones back to Trakt
+   * 
+   * @param moviesInTmm
+   *          the movies to sync
+   * @param wholeLibrary
+   *          the movies are all movies in tmm; movies which were in sync on the last sync and are not in tmm any more, are being removed from the
+   *          Trakt collection
+   */
+  private void syncTraktMovieCollection(List<Movie> moviesInTmm, boolean wholeLibrary) {
     if (!isEnabled()) {
       return;
     }
@@ -189,83 +218,108 @@ public class TraktTv {
     }
     LOGGER.info("You have " + traktMovies.size() + " movies in your Trakt.tv collection");
 
-    // loop over all movies on trakt
+    TraktIdIndex<BaseMovie> traktIndex = new TraktIdIndex<BaseMovie>();
     for (BaseMovie traktMovie : traktMovies) {
-      // loop over TMM movies, and check if IMDBID match
-      for (int i = tmmMovies.size() - 1; i >= 0; i--) {
-        Movie tmmMovie = tmmMovies.get(i);
-
-        if (matches(tmmMovie, traktMovie.movie.ids)) {
-          // we have a movie match
-
-          // update missing IDs (we get them for free :)
-          boolean dirty = updateIDs(tmmMovie, traktMovie.movie.ids);
-
-          if (traktMovie.collected_at != null && !(traktMovie.collected_at.toDate().equals(tmmMovie.getDateAdded()))) {
-            // always set from trakt, if not matched (Trakt = master)
-            LOGGER.trace("Marking movie '" + tmmMovie.getTitle() + "' as collected on " + traktMovie.collected_at.toDate() + " (was "
-                + tmmMovie.getDateAddedAsString() + ")");
-            tmmMovie.setDateAdded(traktMovie.collected_at.toDate());
-            dirty = true;
-          }
-
-          if (dirty) {
-            tmmMovie.saveToDb();
-          }
-
-          // remove it from our list (no need to add)
-          tmmMovies.remove(i);
-        }
-      }
+      traktIndex.add(traktMovie, TraktIdIndex.keys(traktMovie.movie.ids));
     }
 
-    if (tmmMovies.size() == 0) {
-      LOGGER.info("Already up-to-date - no need to add anything :)");
-      return;
-    }
-
-    // *****************************************************************************
-    // 2) add remaining TMM movies to Trakt collection
-    // *****************************************************************************
-    LOGGER.debug("prepare " + tmmMovies.size() + " movies for Trakt.tv collection sync");
-
-    List<SyncMovie> movies = new ArrayList<SyncMovie>();
+    SyncCounter counter = new SyncCounter("movie collection");
+    TraktSyncSnapshot snapshot = TraktSyncSnapshot.load(getUser(), MOVIE_COLLECTION);
+    TraktIdIndex<Movie> tmmIndex = new TraktIdIndex<Movie>();
+    List<String> inSync = new ArrayList<String>();
+    List<Movie> newMovies = new ArrayList<Movie>();
     int nosync = 0;
+
+    // look up every TMM movie in the Trakt collection
     for (Movie tmmMovie : tmmMovies) {
-      if (tmmMovie.getIdAsInt(Constants.TRAKTID) != 0 || !tmmMovie.getIdAsString(Constants.IMDBID).isEmpty()
-          || tmmMovie.getIdAsInt(Constants.TMDBID) != 0) {
-        movies.add(toSyncMovie(tmmMovie, false));
-      }
-      else {
+      List<String> keys = TraktIdIndex.keys(tmmMovie, TraktIdIndex.MOVIE_IDS);
+      if (keys.isEmpty()) {
         // do not add to Trakt if we do not have at least one ID
         nosync++;
         continue;
       }
+      tmmIndex.add(tmmMovie, keys);
+      counter.compared++;
+
+      List<BaseMovie> matches = traktIndex.find(keys);
+      if (matches.isEmpty()) {
+        newMovies.add(tmmMovie);
+        continue;
+      }
+
+      // we have a movie match
+      BaseMovie traktMovie = matches.get(0);
+
+      // update missing IDs (we get them for free :)
+      boolean dirty = updateIDs(tmmMovie, traktMovie.movie.ids);
+
+      if (traktMovie.collected_at != null && !(traktMovie.collected_at.toDate().equals(tmmMovie.getDateAdded()))) {
+        // always set from trakt, if not matched (Trakt = master)
+        LOGGER.trace("Marking movie '" + tmmMovie.getTitle() + "' as collected on " + traktMovie.collected_at.toDate() + " (was "
+            + tmmMovie.getDateAddedAsString() + ")");
+        tmmMovie.setDateAdded(traktMovie.collected_at.toDate());
+        dirty = true;
+      }
+
+      if (dirty) {
+        tmmMovie.saveToDb();
+      }
+      inSync.add(snapshotKey(TraktIdIndex.keys(traktMovie.movie.ids), keys));
     }
     if (nosync > 0) {
       LOGGER.debug("skipping " + nosync + " movies, because they have not been scraped yet!");
     }
 
-    if (movies.size() == 0) {
-      LOGGER.info("no new movies for Trakt collection sync found.");
-      return;
+    // *****************************************************************************
+    // 2) remove movies from the Trakt collection, which have been removed from TMM since the last sync
+    // *****************************************************************************
+    if (wholeLibrary) {
+      List<SyncMovie> removedMovies = new ArrayList<SyncMovie>();
+      List<String> removedKeys = new ArrayList<String>();
+      for (BaseMovie traktMovie : findSynced(snapshot, traktIndex)) {
+        List<String> traktKeys = TraktIdIndex.keys(traktMovie.movie.ids);
+        if (tmmIndex.find(traktKeys).isEmpty()) {
+          removedMovies.add(toSyncMovie(traktMovie));
+          removedKeys.add(findSnapshotKey(snapshot, traktKeys));
+        }
+      }
+      for (int i = 0; i < removedMovies.size(); i += SYNC_BATCH_SIZE) {
+        List<SyncMovie> batch = removedMovies.subList(i, Math.min(i + SYNC_BATCH_SIZE, removedMovies.size()));
+        LOGGER.info("Removing " + batch.size() + " movies from Trakt.tv collection");
+        if (!send(SyncAction.REMOVE_FROM_COLLECTION, new SyncItems().movies(new ArrayList<SyncMovie>(batch)))) {
+          // keep the movies which have not been removed in the snapshot to retry it with the next sync
+          inSync.addAll(removedKeys.subList(i, removedKeys.size()));
+          break;
+        }
+        counter.removed += batch.size();
+      }
     }
 
-    try {
-      LOGGER.info("Adding " + movies.size() + " movies to Trakt.tv collection");
-      SyncItems items = new SyncItems().movies(movies);
-      response = TRAKT.sync().addItemsToCollection(items);
-      LOGGER.info("Trakt add-to-library status:");
-      printStatus(response);
-    }
-    catch (RetrofitError e) {
-      handleRetrofitError(e);
-      return;
+    // *****************************************************************************
+    // 3) add remaining TMM movies to Trakt collection
+    // *****************************************************************************
+    if (newMovies.isEmpty()) {
+      LOGGER.info("Already up-to-date - no need to add anything :)");
     }
-    catch (UnauthorizedException e) {
-      handleRetrofitError((RetrofitError) e.getCause());
-      return;
+    for (int i = 0; i < newMovies.size(); i += SYNC_BATCH_SIZE) {
+      List<Movie> batch = newMovies.subList(i, Math.min(i + SYNC_BATCH_SIZE, newMovies.size()));
+      List<SyncMovie> movies = new ArrayList<SyncMovie>(batch.size());
+      for (Movie tmmMovie : batch) {
+        movies.add(toSyncMovie(tmmMovie, false));
+      }
+
+      LOGGER.info("Adding " + movies.size() + " movies to Trakt.tv collection");
+      if (!send(SyncAction.ADD_TO_COLLECTION, new SyncItems().movies(movies))) {
+        break;
+      }
+      counter.added += movies.size();
+      for (Movie tmmMovie : batch) {
+        inSync.add(TraktIdIndex.keys(tmmMovie, TraktIdIndex.MOVIE_IDS).get(0));
+      }
     }
+
+    updateSnapshot(snapshot, inSync, wholeLibrary);
+    LOGGER.info(counter.toString());
   }
 
   /**
@@ -276,7 +330,7 @@ public class TraktTv {
     if (!isEnabled()) {
       return;
     }
-    syncTraktMovieCollection(new ArrayList<Movie>(MovieList.getInstance().getMovies()));
+    syncTraktMovieCollection(new ArrayList<Movie>(MovieList.getInstance().getMovies()), true);
   }
 
   /**
@@ -317,6 +371,10 @@ public class TraktTv {
     LOGGER.info("You have " + traktCollection.size() + " movies in your Trakt.tv collection");
     LOGGER.info("You have " + traktWatched.size() + " movies watched");
 
+    // the next sync starts from scratch
+    TraktSyncSnapshot.delete(getUser(), MOVIE_COLLECTION);
+    TraktSyncSnapshot.delete(getUser(), MOVIE_WATCHED);
+
     // *****************************************************************************
     // 2) remove every movie from the COLLECTION state
     // *****************************************************************************
@@ -370,6 +428,21 @@ public class TraktTv {
    * Then update the remaining TMM movies on Trakt as 'seen'.
    */
   public void syncTraktMovieWatched(List<Movie> moviesInTmm) {
+    syncTraktMovieWatched(moviesInTmm, false);
+  }
+
+  /**
+   * Syncs Trakt.tv "seen" flag<br>
+   * Gets all watched movies from Trakt, and sets the "watched" flag on TMM movies. Movies which were watched on both sides on the last sync and
+   * are unwatched in TMM now, are being removed from the Trakt history.<br>
+   * Then update the remaining TMM movies on Trakt as 'seen'.
+   * 
+   * @param moviesInTmm
+   *          the movies to sync
+   * @param wholeLibrary
+   *          the movies are all movies in tmm
+   */
+  private void syncTraktMovieWatched(List<Movie> moviesInTmm, boolean wholeLibrary) {
     if (!isEnabled()) {
       return;
     }
@@ -408,105 +481,118 @@ public class TraktTv {
     }
     LOGGER.info("You have " + traktMovies.size() + " movies marked as 'watched' in your Trakt.tv collection");
 
-    // loop over all watched movies on trakt
+    TraktIdIndex<BaseMovie> traktIndex = new TraktIdIndex<BaseMovie>();
     for (BaseMovie traktWatched : traktMovies) {
+      traktIndex.add(traktWatched, TraktIdIndex.keys(traktWatched.movie.ids));
+    }
 
-      // loop over TMM movies, and check if IMDBID match
-      for (Movie tmmMovie : tmmMovies) {
+    SyncCounter counter = new SyncCounter("movie watched");
+    TraktSyncSnapshot snapshot = TraktSyncSnapshot.load(getUser(), MOVIE_WATCHED);
+    List<String> inSync = new ArrayList<String>();
+    List<SyncMovie> unwatchedMovies = new ArrayList<SyncMovie>();
+    List<String> unwatchedKeys = new ArrayList<String>();
+    List<Movie> tmmWatchedMovies = new ArrayList<Movie>();
 
-        if (matches(tmmMovie, traktWatched.movie.ids)) {
-          // we have a movie match
+    // look up every TMM movie in the Trakt history
+    for (Movie tmmMovie : tmmMovies) {
+      List<String> keys = TraktIdIndex.keys(tmmMovie, TraktIdIndex.MOVIE_IDS);
+      if (keys.isEmpty()) {
+        continue;
+      }
+      counter.compared++;
 
-          // update missing IDs (we get them for free :)
-          boolean dirty = updateIDs(tmmMovie, traktWatched.movie.ids);
+      List<BaseMovie> matches = traktIndex.find(keys);
+      if (matches.isEmpty()) {
+        if (tmmMovie.isWatched()) {
+          tmmWatchedMovies.add(tmmMovie);
+        }
+        continue;
+      }
 
-          if (!tmmMovie.isWatched()) {
-            // save Trakt watched status
-            LOGGER.info("Marking movie '" + tmmMovie.getTitle() + "' as watched");
-            tmmMovie.setWatched(true);
-            dirty = true;
-          }
-          if (traktWatched.last_watched_at != null && !(traktWatched.last_watched_at.toDate().equals(tmmMovie.getLastWatched()))) {
-            // always set from trakt, if not matched (Trakt = master)
-            LOGGER.trace("Marking movie '" + tmmMovie.getTitle() + "' as watched on " + traktWatched.last_watched_at.toDate() + " (was "
-                + tmmMovie.getLastWatched() + ")");
-            tmmMovie.setLastWatched(traktWatched.last_watched_at.toDate());
-            dirty = true;
-          }
+      // we have a movie match
+      BaseMovie traktWatched = matches.get(0);
+      List<String> traktKeys = TraktIdIndex.keys(traktWatched.movie.ids);
+      String key = snapshotKey(traktKeys, keys);
 
-          if (dirty) {
-            tmmMovie.saveToDb();
-          }
+      // update missing IDs (we get them for free :)
+      boolean dirty = updateIDs(tmmMovie, traktWatched.movie.ids);
+
+      if (!tmmMovie.isWatched() && inSnapshot(snapshot, traktKeys)) {
+        // watched on both sides at the last sync; the user unmarked it in TMM since then
+        LOGGER.info("Removing movie '" + tmmMovie.getTitle() + "' from the Trakt.tv history");
+        unwatchedMovies.add(toSyncMovie(traktWatched));
+        unwatchedKeys.add(findSnapshotKey(snapshot, traktKeys));
+      }
+      else {
+        if (!tmmMovie.isWatched()) {
+          // save Trakt watched status
+          LOGGER.info("Marking movie '" + tmmMovie.getTitle() + "' as watched");
+          tmmMovie.setWatched(true);
+          dirty = true;
         }
+        if (traktWatched.last_watched_at != null && !(traktWatched.last_watched_at.toDate().equals(tmmMovie.getLastWatched()))) {
+          // always set from trakt, if not matched (Trakt = master)
+          LOGGER.trace("Marking movie '" + tmmMovie.getTitle() + "' as watched on " + traktWatched.last_watched_at.toDate() + " (was "
+              + tmmMovie.getLastWatched() + ")");
+          tmmMovie.setLastWatched(traktWatched.last_watched_at.toDate());
+          dirty = true;
+        }
+        inSync.add(key);
+      }
+
+      if (dirty) {
+        tmmMovie.saveToDb();
       }
     }
 
     // *****************************************************************************
-    // 2) mark additionally "watched" movies as 'seen' on Trakt
+    // 2) remove the movies from the Trakt history, which have been unmarked in TMM
     // *****************************************************************************
-    // Now get all TMM watched movies...
-    List<Movie> tmmWatchedMovies = new ArrayList<Movie>();
-    for (Movie movie : tmmMovies) {
-      if (movie.isWatched()) {
-        tmmWatchedMovies.add(movie);
+    for (int i = 0; i < unwatchedMovies.size(); i += SYNC_BATCH_SIZE) {
+      List<SyncMovie> batch = unwatchedMovies.subList(i, Math.min(i + SYNC_BATCH_SIZE, unwatchedMovies.size()));
+      if (!send(SyncAction.REMOVE_FROM_HISTORY, new SyncItems().movies(new ArrayList<SyncMovie>(batch)))) {
+        // keep the movies which have not been removed in the snapshot to retry it with the next sync (otherwise they would be marked as
+        // watched in TMM again)
+        inSync.addAll(unwatchedKeys.subList(i, unwatchedKeys.size()));
+        break;
       }
-    }
-    LOGGER.info("You have now " + tmmWatchedMovies.size() + " movies marked as 'watched' in your TMM database");
-
-    // ...and subtract the already watched from Trakt
-    for (int i = tmmWatchedMovies.size() - 1; i >= 0; i--) {
-      for (BaseMovie traktWatched : traktMovies) {
-        Movie tmmMovie = tmmWatchedMovies.get(i);
-        if (matches(tmmMovie, traktWatched.movie.ids)) {
-          tmmWatchedMovies.remove(i);
-          break;
-        }
+      counter.removed += batch.size();
+      for (String key : unwatchedKeys.subList(i, i + batch.size())) {
+        snapshot.removeKey(key);
       }
     }
 
-    if (tmmWatchedMovies.size() == 0) {
-      LOGGER.info("no new watched movies for Trakt sync found.");
-      return;
-    }
-
-    LOGGER.debug("prepare " + tmmWatchedMovies.size() + " movies for Trakt.tv sync");
+    // *****************************************************************************
+    // 3) mark additionally "watched" movies as 'seen' on Trakt
+    // *****************************************************************************
+    LOGGER.info("You have " + tmmWatchedMovies.size() + " movies marked as 'watched' in your TMM database, which are not watched on Trakt.tv");
+    List<Movie> moviesToSync = new ArrayList<Movie>();
     List<SyncMovie> movies = new ArrayList<SyncMovie>();
-    int nosync = 0;
     for (Movie tmmMovie : tmmWatchedMovies) {
-      if (tmmMovie.getIdAsInt(Constants.TRAKTID) != 0 || !tmmMovie.getIdAsString(Constants.IMDBID).isEmpty()
-          || tmmMovie.getIdAsInt(Constants.TMDBID) != 0) {
-        movies.add(toSyncMovie(tmmMovie, true));
-      }
-      else {
-        // do not add to Trakt if we do not have at least one ID
-        nosync++;
-        continue;
+      SyncMovie movie = toSyncMovie(tmmMovie, true);
+      if (movie != null) {
+        moviesToSync.add(tmmMovie);
+        movies.add(movie);
       }
     }
-    if (nosync > 0) {
-      LOGGER.debug("skipping " + nosync + " movies, because they have not been scraped yet!");
-    }
 
-    if (movies.size() == 0) {
+    if (movies.isEmpty()) {
       LOGGER.info("no new watched movies for Trakt sync found.");
-      return;
     }
-
-    try {
-      LOGGER.info("Marking " + movies.size() + " movies as 'watched' to Trakt.tv collection");
-      SyncItems items = new SyncItems().movies(movies);
-      response = TRAKT.sync().addItemsToWatchedHistory(items);
-      LOGGER.info("Trakt mark-as-watched status:");
-      printStatus(response);
-    }
-    catch (RetrofitError e) {
-      handleRetrofitError(e);
-      return;
-    }
-    catch (UnauthorizedException e) {
-      handleRetrofitError((RetrofitError) e.getCause());
-      return;
+    for (int i = 0; i < movies.size(); i += SYNC_BATCH_SIZE) {
+      List<SyncMovie> batch = movies.subList(i, Math.min(i + SYNC_BATCH_SIZE, movies.size()));
+      LOGGER.info("Marking " + batch.size() + " movies as 'watched' to Trakt.tv collection");
+      if (!send(SyncAction.ADD_TO_HISTORY, new SyncItems().movies(new ArrayList<SyncMovie>(batch)))) {
+        break;
+      }
+      counter.added += batch.size();
+      for (Movie tmmMovie : moviesToSync.subList(i, i + batch.size())) {
+        inSync.add(TraktIdIndex.keys(tmmMovie, TraktIdIndex.MOVIE_IDS).get(0));
+      }
     }
+
+    updateSnapshot(snapshot, inSync, wholeLibrary);
+    LOGGER.info(counter.toString());
   }
 
   /**
@@ -518,7 +604,7 @@ public class TraktTv {
     if (!isEnabled()) {
       return;
     }
-    syncTraktMovieWatched(MovieList.getInstance().getMovies());
+    syncTraktMovieWatched(MovieList.getInstance().getMovies(), true);
   }
 
   // @formatter:off
@@ -532,9 +618,22 @@ public class TraktTv {
 
   /**
    * Syncs Trakt.tv collection (gets all IDs & dates, and adds all TMM shows to Trakt)<br>
-   * Do not send diffs, since this is too complicated currently :|
+   * Only the episodes which are not in the Trakt collection yet are being sent
    */
   public void syncTraktTvShowCollection(List<TvShow> tvShowsInTmm) {
+    syncTraktTvShowCollection(tvShowsInTmm, false);
+  }
+
+  /**
+   * Syncs Trakt.tv collection (gets all IDs & dates, and adds all missing TMM episodes to Trakt)
+   * 
+   * @param tvShowsInTmm
+   *          the TV shows to sync
+   * @param wholeLibrary
+   *          the TV shows are all TV shows in tmm; TV shows which were in sync on the last sync and are not in tmm any more, are being removed from
+   *          the Trakt collection
+   */
+  private void syncTraktTvShowCollection(List<TvShow> tvShowsInTmm, boolean wholeLibrary) {
     if (!isEnabled()) {
       return;
     }
@@ -570,71 +669,119 @@ public class TraktTv {
     }
     LOGGER.info("You have " + traktShows.size() + " TvShows in your Trakt.tv collection");
 
+    TraktIdIndex<BaseShow> traktIndex = new TraktIdIndex<BaseShow>();
     for (BaseShow traktShow : traktShows) {
-      for (TvShow tmmShow : tvShows) {
-
-        if (matches(tmmShow, traktShow.show.ids)) {
-          // ok, we have a show match
+      traktIndex.add(traktShow, TraktIdIndex.keys(traktShow.show.ids));
+    }
 
-          // update show IDs from trakt
-          boolean dirty = updateIDs(tmmShow, traktShow.show.ids);
+    SyncCounter counter = new SyncCounter("TV show collection");
+    TraktSyncSnapshot snapshot = TraktSyncSnapshot.load(getUser(), TV_SHOW_COLLECTION);
+    TraktIdIndex<TvShow> tmmIndex = new TraktIdIndex<TvShow>();
+    List<String> inSync = new ArrayList<String>();
+    List<TvShow> showsToSync = new ArrayList<TvShow>();
+    List<SyncShow> syncShows = new ArrayList<SyncShow>();
 
-          // update collection date from trakt (show)
-          if (traktShow.last_collected_at != null && !(traktShow.last_collected_at.toDate().equals(tmmShow.getDateAdded()))) {
-            // always set from trakt, if not matched (Trakt = master)
-            LOGGER.trace("Marking TvShow '" + tmmShow.getTitle() + "' as collected on " + traktShow.last_collected_at.toDate() + " (was "
-                + tmmShow.getDateAddedAsString() + ")");
-            tmmShow.setDateAdded(traktShow.last_collected_at.toDate());
-            dirty = true;
-          }
+    for (TvShow tmmShow : tvShows) {
+      List<String> keys = TraktIdIndex.keys(tmmShow, TraktIdIndex.SHOW_IDS);
+      if (keys.isEmpty()) {
+        // do not add to Trakt if we do not have at least one ID
+        continue;
+      }
+      tmmIndex.add(tmmShow, keys);
+      counter.compared++;
+
+      // the episodes which are already in the Trakt collection
+      Set<String> collectedEpisodes = new HashSet<String>();
+      List<BaseShow> matches = traktIndex.find(keys);
+      if (!matches.isEmpty()) {
+        // ok, we have a show match
+        BaseShow traktShow = matches.get(0);
+
+        // update show IDs from trakt
+        boolean dirty = updateIDs(tmmShow, traktShow.show.ids);
+
+        // update collection date from trakt (show)
+        if (traktShow.last_collected_at != null && !(traktShow.last_collected_at.toDate().equals(tmmShow.getDateAdded()))) {
+          // always set from trakt, if not matched (Trakt = master)
+          LOGGER.trace("Marking TvShow '" + tmmShow.getTitle() + "' as collected on " + traktShow.last_collected_at.toDate() + " (was "
+              + tmmShow.getDateAddedAsString() + ")");
+          tmmShow.setDateAdded(traktShow.last_collected_at.toDate());
+          dirty = true;
+        }
 
-          // update collection date from trakt (episodes)
-          for (BaseSeason bs : traktShow.seasons) {
-            for (BaseEpisode be : bs.episodes) {
-              TvShowEpisode tmmEP = tmmShow.getEpisode(bs.number, be.number);
-              // update ep IDs - NOT YET POSSIBLE
-              // boolean dirty = updateIDs(tmmEP, be.ids);
-
-              if (tmmEP != null && be.collected_at != null && !(be.collected_at.toDate().equals(tmmEP.getDateAdded()))) {
-                tmmEP.setDateAdded(be.collected_at.toDate());
-                dirty = true;
-              }
+        // update collection date from trakt (episodes)
+        Map<String, TvShowEpisode> episodes = indexEpisodes(tmmShow);
+        for (BaseSeason bs : traktShow.seasons) {
+          for (BaseEpisode be : bs.episodes) {
+            String episodeKey = episodeKey(bs.number, be.number);
+            collectedEpisodes.add(episodeKey);
+            TvShowEpisode tmmEP = episodes.get(episodeKey);
+            // update ep IDs - NOT YET POSSIBLE
+            // boolean dirty = updateIDs(tmmEP, be.ids);
+
+            if (tmmEP != null && be.collected_at != null && !(be.collected_at.toDate().equals(tmmEP.getDateAdded()))) {
+              tmmEP.setDateAdded(be.collected_at.toDate());
+              dirty = true;
             }
           }
+        }
 
-          if (dirty) {
-            tmmShow.saveToDb();
-          }
-
+        if (dirty) {
+          tmmShow.saveToDb();
         }
+        inSync.add(snapshotKey(TraktIdIndex.keys(traktShow.show.ids), keys));
+      }
+
+      // only the episodes which are not in the Trakt collection
+      SyncShow show = toSyncShow(tmmShow, false, collectedEpisodes);
+      if (show != null) {
+        showsToSync.add(tmmShow);
+        syncShows.add(show);
       }
     }
 
     // *****************************************************************************
-    // 2) add all our shows to Trakt collection (we have the physical file)
+    // 2) remove shows from the Trakt collection, which have been removed from TMM since the last sync
     // *****************************************************************************
-    LOGGER.info("Adding " + tvShows.size() + " TvShows to Trakt.tv collection");
-    // send show per show; sending all together may result too often in a timeout
-    for (TvShow tvShow : tvShows) {
-      SyncShow show = toSyncShow(tvShow, false);
-      if (show == null) {
-        continue;
-      }
-
-      try {
-        SyncItems items = new SyncItems().shows(show);
-        response = TRAKT.sync().addItemsToCollection(items);
-
-        LOGGER.debug("Trakt add-to-library status: " + tvShow.getTitle());
-        printStatus(response);
+    if (wholeLibrary) {
+      List<SyncShow> removedShows = new ArrayList<SyncShow>();
+      List<String> removedKeys = new ArrayList<String>();
+      for (BaseShow traktShow : findSynced(snapshot, traktIndex)) {
+        List<String> traktKeys = TraktIdIndex.keys(traktShow.show.ids);
+        if (tmmIndex.find(traktKeys).isEmpty()) {
+          removedShows.add(toSyncShow(traktShow));
+          removedKeys.add(findSnapshotKey(snapshot, traktKeys));
+        }
       }
-      catch (RetrofitError e) {
-        handleRetrofitError(e);
+      for (int i = 0; i < removedShows.size(); i += SHOW_BATCH_SIZE) {
+        List<SyncShow> batch = removedShows.subList(i, Math.min(i + SHOW_BATCH_SIZE, removedShows.size()));
+        LOGGER.info("Removing " + batch.size() + " TvShows from Trakt.tv collection");
+        if (!send(SyncAction.REMOVE_FROM_COLLECTION, new SyncItems().shows(new ArrayList<SyncShow>(batch)))) {
+          // keep the shows which have not been removed in the snapshot to retry it with the next sync
+          inSync.addAll(removedKeys.subList(i, removedKeys.size()));
+          break;
+        }
+        counter.removed += batch.size();
       }
-      catch (UnauthorizedException e) {
-        handleRetrofitError((RetrofitError) e.getCause());
+    }
+
+    // *****************************************************************************
+    // 3) add the missing episodes to Trakt collection (we have the physical file)
+    // *****************************************************************************
+    LOGGER.info("Adding " + syncShows.size() + " TvShows to Trakt.tv collection");
+    // send a few shows per request; sending all together may result too often in a timeout
+    for (int i = 0; i < syncShows.size(); i += SHOW_BATCH_SIZE) {
+      List<SyncShow> batch = syncShows.subList(i, Math.min(i + SHOW_BATCH_SIZE, syncShows.size()));
+      if (send(SyncAction.ADD_TO_COLLECTION, new SyncItems().shows(new ArrayList<SyncShow>(batch)))) {
+        counter.added += batch.size();
+        for (TvShow tmmShow : showsToSync.subList(i, i + batch.size())) {
+          inSync.add(TraktIdIndex.keys(tmmShow, TraktIdIndex.SHOW_IDS).get(0));
+        }
       }
     }
+
+    updateSnapshot(snapshot, inSync, wholeLibrary);
+    LOGGER.info(counter.toString());
   }
 
   /**
@@ -645,7 +792,7 @@ public class TraktTv {
     if (!isEnabled()) {
       return;
     }
-    syncTraktTvShowCollection(new ArrayList<TvShow>(TvShowList.getInstance().getTvShows()));
+    syncTraktTvShowCollection(new ArrayList<TvShow>(TvShowList.getInstance().getTvShows()), true);
   }
 
   public void syncTraktTvShowWatched(List<TvShow> tvShowsInTmm) {
@@ -681,72 +828,82 @@ public class TraktTv {
       }
     }
     LOGGER.info("You have " + traktShows.size() + " TvShows marked as watched on Trakt.tv");
-    for (BaseShow traktShow : traktShows) {
-      for (TvShow tmmShow : tvShows) {
-
-        if (matches(tmmShow, traktShow.show.ids)) {
-          // ok, we have a show match
 
-          // update show IDs from trakt
-          boolean dirty = updateIDs(tmmShow, traktShow.show.ids);
+    TraktIdIndex<BaseShow> traktIndex = new TraktIdIndex<BaseShow>();
+    for (BaseShow traktShow : traktShows) {
+      traktIndex.add(traktShow, TraktIdIndex.keys(traktShow.show.ids));
+    }
 
-          // update watched date from trakt (show)
-          if (traktShow.last_watched_at != null && !(traktShow.last_watched_at.toDate().equals(tmmShow.getLastWatched()))) {
-            // always set from trakt, if not matched (Trakt = master)
-            LOGGER.trace("Marking TvShow '" + tmmShow.getTitle() + "' as watched on " + traktShow.last_watched_at.toDate() + " (was "
-                + tmmShow.getLastWatched() + ")");
-            tmmShow.setLastWatched(traktShow.last_watched_at.toDate());
-            dirty = true;
-          }
+    SyncCounter counter = new SyncCounter("TV show watched");
+    List<SyncShow> syncShows = new ArrayList<SyncShow>();
+    for (TvShow tmmShow : tvShows) {
+      List<String> keys = TraktIdIndex.keys(tmmShow, TraktIdIndex.SHOW_IDS);
+      if (keys.isEmpty()) {
+        continue;
+      }
+      counter.compared++;
+
+      // the episodes which are already watched on Trakt
+      Set<String> watchedEpisodes = new HashSet<String>();
+      List<BaseShow> matches = traktIndex.find(keys);
+      if (!matches.isEmpty()) {
+        // ok, we have a show match
+        BaseShow traktShow = matches.get(0);
+
+        // update show IDs from trakt
+        boolean dirty = updateIDs(tmmShow, traktShow.show.ids);
+
+        // update watched date from trakt (show)
+        if (traktShow.last_watched_at != null && !(traktShow.last_watched_at.toDate().equals(tmmShow.getLastWatched()))) {
+          // always set from trakt, if not matched (Trakt = master)
+          LOGGER.trace("Marking TvShow '" + tmmShow.getTitle() + "' as watched on " + traktShow.last_watched_at.toDate() + " (was "
+              + tmmShow.getLastWatched() + ")");
+          tmmShow.setLastWatched(traktShow.last_watched_at.toDate());
+          dirty = true;
+        }
 
-          // update collection date from trakt (episodes)
-          for (BaseSeason bs : traktShow.seasons) {
-            for (BaseEpisode be : bs.episodes) {
-              TvShowEpisode tmmEP = tmmShow.getEpisode(bs.number, be.number);
-              // update ep IDs - NOT YET POSSIBLE
-              // boolean dirty = updateIDs(tmmEP, be.ids);
-
-              if (tmmEP != null && be.last_watched_at != null && !(be.last_watched_at.toDate().equals(tmmEP.getLastWatched()))) {
-                tmmEP.setLastWatched(be.last_watched_at.toDate());
-                tmmEP.setWatched(true);
-                dirty = true;
-              }
+        // update collection date from trakt (episodes)
+        Map<String, TvShowEpisode> episodes = indexEpisodes(tmmShow);
+        for (BaseSeason bs : traktShow.seasons) {
+          for (BaseEpisode be : bs.episodes) {
+            String episodeKey = episodeKey(bs.number, be.number);
+            watchedEpisodes.add(episodeKey);
+            TvShowEpisode tmmEP = episodes.get(episodeKey);
+            // update ep IDs - NOT YET POSSIBLE
+            // boolean dirty = updateIDs(tmmEP, be.ids);
+
+            if (tmmEP != null && be.last_watched_at != null && !(be.last_watched_at.toDate().equals(tmmEP.getLastWatched()))) {
+              tmmEP.setLastWatched(be.last_watched_at.toDate());
+              tmmEP.setWatched(true);
+              dirty = true;
             }
           }
+        }
 
-          if (dirty) {
-            tmmShow.saveToDb();
-          }
+        if (dirty) {
+          tmmShow.saveToDb();
         }
       }
+
+      // only the episodes which are not watched on Trakt
+      SyncShow sync = toSyncShow(tmmShow, true, watchedEpisodes);
+      if (sync != null) {
+        syncShows.add(sync);
+      }
     }
 
     // *****************************************************************************
     // 2) add all our shows to Trakt watched
     // *****************************************************************************
-    LOGGER.info("Adding " + tvShows.size() + " TvShows as watched on Trakt.tv");
-    // send show per show; sending all together may result too often in a timeout
-    for (TvShow show : tvShows) {
-      // get items to sync
-      SyncShow sync = toSyncShow(show, true);
-      if (sync == null) {
-        continue;
-      }
-
-      try {
-        SyncItems items = new SyncItems().shows(sync);
-        response = TRAKT.sync().addItemsToWatchedHistory(items);
-
-        LOGGER.debug("Trakt add-to-library status: " + show.getTitle());
-        printStatus(response);
-      }
-      catch (RetrofitError e) {
-        handleRetrofitError(e);
-      }
-      catch (UnauthorizedException e) {
-        handleRetrofitError((RetrofitError) e.getCause());
+    LOGGER.info("Adding " + syncShows.size() + " TvShows as watched on Trakt.tv");
+    // send a few shows per request; sending all together may result too often in a timeout
+    for (int i = 0; i < syncShows.size(); i += SHOW_BATCH_SIZE) {
+      List<SyncShow> batch = syncShows.subList(i, Math.min(i + SHOW_BATCH_SIZE, syncShows.size()));
+      if (send(SyncAction.ADD_TO_HISTORY, new SyncItems().shows(new ArrayList<SyncShow>(batch)))) {
+        counter.added += batch.size();
       }
     }
+    LOGGER.info(counter.toString());
   }
 
   public void syncTraktTvShowWatched() {
@@ -794,6 +951,9 @@ public class TraktTv {
     LOGGER.info("You have " + traktCollection.size() + " shows in your Trakt.tv collection");
     LOGGER.info("You have " + traktWatched.size() + " shows watched");
 
+    // the next sync starts from scratch
+    TraktSyncSnapshot.delete(getUser(), TV_SHOW_COLLECTION);
+
     // *****************************************************************************
     // 2) remove every shows from the COLLECTION state
     // *****************************************************************************
@@ -850,6 +1010,119 @@ public class TraktTv {
   //  ╚═════╝    ╚═╝   ╚═╝╚══════╝╚══════╝
   // @formatter:on
 
+  private String getUser() {
+    return Globals.settings.getTraktUsername();
+  }
+
+  /**
+   * the key of an item in the snapshot; preferably the first id from Trakt
+   */
+  private static String snapshotKey(List<String> traktKeys, List<String> tmmKeys) {
+    if (!traktKeys.isEmpty()) {
+      return traktKeys.get(0);
+    }
+    return tmmKeys.get(0);
+  }
+
+  /**
+   * the key under which the Trakt item has been stored in the snapshot
+   */
+  private static String findSnapshotKey(TraktSyncSnapshot snapshot, List<String> traktKeys) {
+    for (String key : traktKeys) {
+      if (snapshot.contains(key)) {
+        return key;
+      }
+    }
+    return traktKeys.get(0);
+  }
+
+  private static boolean inSnapshot(TraktSyncSnapshot snapshot, List<String> keys) {
+    for (String key : keys) {
+      if (snapshot.contains(key)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * all Trakt items which were in sync on the last sync (every item only once)
+   */
+  private static <T> List<T> findSynced(TraktSyncSnapshot snapshot, TraktIdIndex<T> traktIndex) {
+    List<T> items = new ArrayList<T>();
+    Set<T> seen = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+    for (String key : snapshot.getKeys()) {
+      for (T item : traktIndex.find(key)) {
+        if (seen.add(item)) {
+          items.add(item);
+        }
+      }
+    }
+    return items;
+  }
+
+  private static void updateSnapshot(TraktSyncSnapshot snapshot, List<String> inSync, boolean wholeLibrary) {
+    if (wholeLibrary) {
+      snapshot.setKeys(inSync);
+    }
+    else {
+      snapshot.addKeys(inSync);
+    }
+    snapshot.save();
+  }
+
+  private static Map<String, TvShowEpisode> indexEpisodes(TvShow tmmShow) {
+    Map<String, TvShowEpisode> episodes = new HashMap<String, TvShowEpisode>();
+    for (TvShowEpisode episode : tmmShow.getEpisodes()) {
+      String key = episodeKey(episode.getSeason(), episode.getEpisode());
+      if (!episodes.containsKey(key)) {
+        episodes.put(key, episode);
+      }
+    }
+    return episodes;
+  }
+
+  private static String episodeKey(int season, int episode) {
+    return season + "x" + episode;
+  }
+
+  /**
+   * send the items to Trakt
+   * 
+   * @return true if the request was successful
+   */
+  private boolean send(SyncAction action, SyncItems items) {
+    try {
+      switch (action) {
+        case ADD_TO_COLLECTION:
+          response = TRAKT.sync().addItemsToCollection(items);
+          break;
+
+        case REMOVE_FROM_COLLECTION:
+          response = TRAKT.sync().deleteItemsFromCollection(items);
+          break;
+
+        case ADD_TO_HISTORY:
+          response = TRAKT.sync().addItemsToWatchedHistory(items);
+          break;
+
+        case REMOVE_FROM_HISTORY:
+          response = TRAKT.sync().deleteItemsFromWatchedHistory(items);
+          break;
+      }
+      LOGGER.debug("Trakt " + action + " status:");
+      printStatus(response);
+      return true;
+    }
+    catch (RetrofitError e) {
+      handleRetrofitError(e);
+    }
+    catch (UnauthorizedException e) {
+      handleRetrofitError((RetrofitError) e.getCause());
+    }
+    return false;
+  }
+
   private boolean updateIDs(TvShow tmmShow, ShowIds ids) {
     boolean dirty = false;
     if (tmmShow.getIdAsString(Constants.IMDBID).isEmpty() && !StringUtils.isEmpty(ids.imdb)) {
@@ -892,38 +1165,6 @@ public class TraktTv {
     return dirty;
   }
 
-  private boolean matches(TvShow tmmShow, ShowIds ids) {
-    if (ids.trakt != null && ids.trakt != 0 && ids.trakt == tmmShow.getIdAsInt(Constants.TRAKTID)) {
-      return true;
-    }
-    if (StringUtils.isNotEmpty(ids.imdb) && ids.imdb.equals(tmmShow.getIdAsString(Constants.IMDBID))) {
-      return true;
-    }
-    if (ids.tmdb != null && ids.tmdb != 0 && ids.tmdb == tmmShow.getIdAsInt(Constants.TMDBID)) {
-      return true;
-    }
-    if (ids.tvdb != null && ids.tvdb != 0 && ids.tvdb == tmmShow.getIdAsInt(Constants.TVDBID)) {
-      return true;
-    }
-    if (ids.tvrage != null && ids.tvrage != 0 && ids.tvrage == tmmShow.getIdAsInt(Constants.TVRAGEID)) {
-      return true;
-    }
-    return false;
-  }
-
-  private boolean matches(Movie tmmMovie, MovieIds ids) {
-    if (ids.trakt != null && ids.trakt != 0 && ids.trakt == tmmMovie.getIdAsInt(Constants.TRAKTID)) {
-      return true;
-    }
-    if (StringUtils.isNotEmpty(ids.imdb) && ids.imdb.equals(tmmMovie.getIdAsString(Constants.IMDBID))) {
-      return true;
-    }
-    if (ids.tmdb != null && ids.tmdb != 0 && ids.tmdb == tmmMovie.getIdAsInt(Constants.TMDBID)) {
-      return true;
-    }
-    return false;
-  }
-
   private SyncMovie toSyncMovie(Movie tmmMovie, boolean watched) {
     SyncMovie movie = null;
 
@@ -960,7 +1201,18 @@ public class TraktTv {
     return movie;
   }
 
-  private SyncShow toSyncShow(TvShow tmmShow, boolean watched) {
+  /**
+   * create the sync item of the show
+   * 
+   * @param tmmShow
+   *          the show
+   * @param watched
+   *          sync the history (true) or the collection (false)
+   * @param skipEpisodes
+   *          the episodes which are already on Trakt (see {@link #episodeKey(int, int)})
+   * @return the sync item or null if there is nothing to send
+   */
+  private SyncShow toSyncShow(TvShow tmmShow, boolean watched, Set<String> skipEpisodes) {
     SyncShow show = null;
     ShowIds ids = new ShowIds();
     if (!tmmShow.getIdAsString(Constants.IMDBID).isEmpty()) {
@@ -985,6 +1237,9 @@ public class TraktTv {
       boolean foundEP = false;
       ArrayList<SyncEpisode> se = new ArrayList<SyncEpisode>();
       for (TvShowEpisode tmmEp : tmmSeason.getEpisodes()) {
+        if (skipEpisodes.contains(episodeKey(tmmSeason.getSeason(), tmmEp.getEpisode()))) {
+          continue;
+        }
         // we have to decide what we send; trakt behaves differenty when sending data to
         // sync collection and sync history.
         if (watched) {
@@ -1136,6 +1391,32 @@ public class TraktTv {
     MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, msg, "Settings.trakttv"));
   }
 
+  private enum SyncAction {
+    ADD_TO_COLLECTION,
+    REMOVE_FROM_COLLECTION,
+    ADD_TO_HISTORY,
+    REMOVE_FROM_HISTORY
+  }
+
+  /**
+   * counts the compared/added/removed items of a sync
+   */
+  private static class SyncCounter {
+    private final String name;
+    private int          compared = 0;
+    private int          added    = 0;
+    private int          removed  = 0;
+
+    private SyncCounter(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public String toString() {
+      return "Trakt.tv " + name + " sync: compared " + compared + ", added " + added + ", removed " + removed;
+    }
+  }
+
   // /**
   // * Maps scraper Genres to internal TMM genres
   // */
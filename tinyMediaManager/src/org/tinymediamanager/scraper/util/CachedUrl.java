@@ -32,6 +32,7 @@ import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.metrics.MetricsRegistry;
 
 /**
  * The Class CachedUrl. Used for caching URL requests. The requests will get cached into the cache folder for a short period (making recurring calls
@@ -228,6 +229,11 @@ public class CachedUrl extends Url {
 
   @Override
   public InputStream getInputStream() throws IOException, InterruptedException {
+    // the responses are recorded/replayed without the url cache (cache hits would not be recorded; no stale cache files on replay)
+    if (HttpReplay.isActive()) {
+      return super.getInputStream();
+    }
+
     try {
       URL u = getUrl();
       return u.openStream();
@@ -247,10 +253,12 @@ public class CachedUrl extends Url {
     try {
       File f = getCachedFile();
       if (!f.exists() || f.length() == 0) {
+        MetricsRegistry.counter("cachedurl.misses").inc();
         cache();
       }
       else {
         LOGGER.debug("Cached File exists: " + f.getAbsolutePath() + " so we'll just use it.");
+        MetricsRegistry.counter("cachedurl.hits").inc();
       }
       // check if its still empty (maybe broken download)
       if (!f.exists() || f.length() == 0) {
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The class CancellationToken. Signals the cancellation of a task to the code working for it: the token is bound to the threads of the task (see
+ * {@link #setCurrent(CancellationToken)}), so deeper layers (e.g. the HTTP requests of the scrapers in {@link Url}) can stop their work without
+ * knowing the task. Running blocking operations register a listener to get aborted immediately.
+ *
+ * @author Manuel Laggner
+ */
+public class CancellationToken {
+  private static final ThreadLocal<CancellationToken> CURRENT   = new ThreadLocal<CancellationToken>();
+
+  private final List<Runnable>                        listeners = new ArrayList<Runnable>();
+  private volatile boolean                            cancelled = false;
+
+  /**
+   * get the token bound to the current thread
+   *
+   * @return the token or null
+   */
+  public static CancellationToken getCurrent() {
+    return CURRENT.get();
+  }
+
+  /**
+   * bind the token to the current thread
+   *
+   * @param token
+   *          the token or null to remove the binding
+   */
+  public static void setCurrent(CancellationToken token) {
+    if (token == null) {
+      CURRENT.remove();
+    }
+    else {
+      CURRENT.set(token);
+    }
+  }
+
+  /**
+   * check the token of the current thread
+   *
+   * @throws InterruptedException
+   *           if the token of the current thread has been cancelled
+   */
+  public static void checkCurrent() throws InterruptedException {
+    CancellationToken token = CURRENT.get();
+    if (token != null && token.isCancelled()) {
+      throw new InterruptedException("task has been cancelled");
+    }
+  }
+
+  /**
+   * cancel the token and abort all registered operations
+   */
+  public void cancel() {
+    List<Runnable> toAbort;
+    synchronized (listeners) {
+      if (cancelled) {
+        return;
+      }
+      cancelled = true;
+      toAbort = new ArrayList<Runnable>(listeners);
+    }
+    for (Runnable listener : toAbort) {
+      listener.run();
+    }
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * register an operation which should be aborted on cancellation; if the token has already been cancelled, the operation is aborted immediately
+   *
+   * @param listener
+   *          the abort of the operation
+   */
+  public void addListener(Runnable listener) {
+    synchronized (listeners) {
+      if (!cancelled) {
+        listeners.add(listener);
+        return;
+      }
+    }
+    listener.run();
+  }
+
+  public void removeListener(Runnable listener) {
+    synchronized (listeners) {
+      listeners.remove(listener);
+    }
+  }
+}
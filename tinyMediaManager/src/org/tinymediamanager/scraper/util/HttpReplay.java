@@ -0,0 +1,237 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.http.Header;
+import org.apache.http.message.BasicHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class HttpReplay. A record/replay layer for the HTTP requests made via {@link Url} (and {@link CachedUrl}). In <i>RECORD</i> mode every
+ * response is stored in the fixture directory; in <i>REPLAY</i> mode the responses are served from there without any network access (optionally
+ * with an artificial latency). This is used to test and measure the scrapers offline.<br>
+ * The mode can also be set with the system properties <i>tmm.http.replay</i> (off/record/replay), <i>tmm.http.fixtures</i> (the fixture directory)
+ * and <i>tmm.http.latency</i> (latency in ms).
+ *
+ * @author Manuel Laggner
+ */
+public class HttpReplay {
+  private static final Logger        LOGGER     = LoggerFactory.getLogger(HttpReplay.class);
+
+  private static final AtomicInteger requests   = new AtomicInteger();
+  private static final AtomicLong    bytes      = new AtomicLong();
+  private static final AtomicLong    fetchTime  = new AtomicLong();
+
+  private static volatile Mode       mode       = Mode.OFF;
+  private static volatile File       fixtureDir = new File(System.getProperty("tmm.http.fixtures", "cache/http-fixtures"));
+  private static volatile int        latency    = Integer.getInteger("tmm.http.latency", 0);
+
+  public enum Mode {
+    OFF, RECORD, REPLAY
+  }
+
+  static {
+    try {
+      mode = Mode.valueOf(System.getProperty("tmm.http.replay", "off").toUpperCase());
+    }
+    catch (IllegalArgumentException e) {
+      LOGGER.warn("unknown HTTP replay mode: " + System.getProperty("tmm.http.replay"));
+    }
+  }
+
+  private HttpReplay() {
+  }
+
+  /**
+   * set the record/replay mode
+   *
+   * @param newMode
+   *          the mode
+   * @param newFixtureDir
+   *          the directory where the responses are stored
+   * @param newLatency
+   *          the artificial latency (in ms) for every replayed response
+   */
+  public static void configure(Mode newMode, File newFixtureDir, int newLatency) {
+    fixtureDir = newFixtureDir;
+    latency = newLatency;
+    mode = newMode;
+    LOGGER.info("HTTP " + newMode + " (fixtures: " + newFixtureDir + ", latency: " + newLatency + "ms)");
+  }
+
+  public static Mode getMode() {
+    return mode;
+  }
+
+  public static boolean isActive() {
+    return mode != Mode.OFF;
+  }
+
+  public static boolean isRecording() {
+    return mode == Mode.RECORD;
+  }
+
+  public static boolean isReplaying() {
+    return mode == Mode.REPLAY;
+  }
+
+  public static File getFixtureDir() {
+    return fixtureDir;
+  }
+
+  /**
+   * the key of the url in the fixture store; API keys are stripped, so the fixtures can be replayed with other keys (and do not contain them)
+   */
+  static String getKey(String url) {
+    String strippedUrl = url.replaceAll("api_key=\\w+", "api_key=").replaceAll("api/\\d+\\w+", "api/");
+    return DigestUtils.md5Hex(strippedUrl);
+  }
+
+  /**
+   * store the response for the url
+   */
+  static void record(String url, int statusCode, String reason, Header[] headers, byte[] content) {
+    String key = getKey(url);
+    try {
+      Properties props = new Properties();
+      props.setProperty("url", url.replaceAll("api_key=\\w+", "api_key=<API_KEY>"));
+      props.setProperty("status", String.valueOf(statusCode));
+      props.setProperty("reason", reason == null ? "" : reason);
+      if (headers != null) {
+        for (int i = 0; i < headers.length; i++) {
+          props.setProperty("header." + i + "." + headers[i].getName(), headers[i].getValue());
+        }
+      }
+      FileUtils.writeByteArrayToFile(new File(fixtureDir, key + ".body"), content);
+      PropertiesUtils.store(props, new File(fixtureDir, key + ".properties"), "recorded response");
+    }
+    catch (IOException e) {
+      LOGGER.warn("could not record response for " + url + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * load the recorded response for the url
+   *
+   * @return the response or null if there is no recorded response
+   */
+  static Response replay(String url) throws IOException {
+    String key = getKey(url);
+    File propFile = new File(fixtureDir, key + ".properties");
+    File bodyFile = new File(fixtureDir, key + ".body");
+
+    if (latency > 0) {
+      try {
+        Thread.sleep(latency);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    if (!propFile.exists() || !bodyFile.exists()) {
+      LOGGER.warn("no recorded response for " + url);
+      return null;
+    }
+
+    Properties props = new Properties();
+    PropertiesUtils.load(props, propFile);
+
+    Response response = new Response();
+    response.statusCode = Integer.parseInt(props.getProperty("status", "200"));
+    response.reason = props.getProperty("reason", "");
+    List<Header> headers = new ArrayList<Header>();
+    for (String name : props.stringPropertyNames()) {
+      if (name.startsWith("header.")) {
+        headers.add(new BasicHeader(name.substring(name.indexOf('.', 7) + 1), props.getProperty(name)));
+      }
+    }
+    response.headers = headers.toArray(new Header[headers.size()]);
+    response.content = FileUtils.readFileToByteArray(bodyFile);
+    return response;
+  }
+
+  /**
+   * count a request for the statistics
+   *
+   * @param size
+   *          the size of the response
+   * @param nanos
+   *          the time spent for the request
+   */
+  static void count(long size, long nanos) {
+    requests.incrementAndGet();
+    bytes.addAndGet(size);
+    fetchTime.addAndGet(nanos);
+  }
+
+  public static void resetStatistics() {
+    requests.set(0);
+    bytes.set(0);
+    fetchTime.set(0);
+  }
+
+  /**
+   * the number of requests (recorded, replayed or live) since the last reset
+   */
+  public static int getRequestCount() {
+    return requests.get();
+  }
+
+  /**
+   * the amount of the received bytes since the last reset
+   */
+  public static long getBytes() {
+    return bytes.get();
+  }
+
+  /**
+   * the time (in ms) spent for fetching the responses since the last reset
+   */
+  public static long getFetchTime() {
+    return fetchTime.get() / 1000000;
+  }
+
+  /**
+   * a recorded response
+   */
+  static class Response {
+    int      statusCode;
+    String   reason;
+    Header[] headers;
+    byte[]   content;
+
+    String getHeader(String name) {
+      for (Header header : headers) {
+        if (header.getName().equalsIgnoreCase(name)) {
+          return header.getValue();
+        }
+      }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import org.apache.commons.io.IOUtils;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+/**
+ * The class PartialHtmlParser. Reads a HTML page only as far as it is needed and builds the jsoup document of this part: the page is read until all
+ * markers (any order) have been found and then up to the next terminator (the end of the element containing the last needed field). The rest of the
+ * page is neither read nor parsed; jsoup closes the open elements at the end. If a marker is missing, the whole page is parsed.<br>
+ * The partial parsing can be switched off with the system property <i>tmm.partialparsing=false</i> (or {@link #setEnabled(boolean)}).
+ *
+ * @author Manuel Laggner
+ */
+public class PartialHtmlParser {
+  private static final int        BUFFER_SIZE = 8192;
+
+  private static volatile boolean enabled     = Boolean.parseBoolean(System.getProperty("tmm.partialparsing", "true"));
+
+  private final String            terminator;
+  private final String[]          markers;
+
+  /**
+   * create a parser for a page type
+   *
+   * @param terminator
+   *          the text where the parsing ends (after all markers have been found)
+   * @param markers
+   *          the texts which have to be read before the parsing ends (e.g. the start of the last needed elements)
+   */
+  public PartialHtmlParser(String terminator, String... markers) {
+    this.terminator = terminator;
+    this.markers = markers;
+  }
+
+  /**
+   * switch the partial parsing on/off; if it is off, the whole pages are parsed
+   */
+  public static void setEnabled(boolean newValue) {
+    enabled = newValue;
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * read and parse the needed part of the page; the stream is closed afterwards
+   *
+   * @param is
+   *          the stream of the page
+   * @param charset
+   *          the charset of the page
+   * @param baseUri
+   *          the base uri for the document
+   * @return the document with the needed part of the page
+   * @throws IOException
+   */
+  public Document parse(InputStream is, String charset, String baseUri) throws IOException {
+    try {
+      if (!enabled) {
+        return Jsoup.parse(is, charset, baseUri);
+      }
+      return Jsoup.parse(read(new InputStreamReader(is, charset)), baseUri);
+    }
+    finally {
+      IOUtils.closeQuietly(is);
+    }
+  }
+
+  /**
+   * read the needed part of the page
+   */
+  String read(Reader reader) throws IOException {
+    StringBuilder html = new StringBuilder(BUFFER_SIZE * 8);
+    char[] buffer = new char[BUFFER_SIZE];
+
+    // the positions where the search of a marker continues; -1 = found
+    int[] searchFrom = new int[markers.length];
+    int openMarkers = markers.length;
+    int markersEnd = 0;
+    int terminatorFrom = 0;
+
+    int read;
+    while ((read = reader.read(buffer)) != -1) {
+      html.append(buffer, 0, read);
+
+      // search the markers in the new part
+      for (int i = 0; i < markers.length && openMarkers > 0; i++) {
+        if (searchFrom[i] < 0) {
+          continue;
+        }
+        int index = html.indexOf(markers[i], searchFrom[i]);
+        if (index >= 0) {
+          searchFrom[i] = -1;
+          openMarkers--;
+          markersEnd = Math.max(markersEnd, index + markers[i].length());
+        }
+        else {
+          // a marker could be split by the buffer
+          searchFrom[i] = Math.max(0, html.length() - markers[i].length() + 1);
+        }
+      }
+
+      // all markers found - look for the terminator
+      if (openMarkers == 0) {
+        int index = html.indexOf(terminator, Math.max(markersEnd, terminatorFrom));
+        if (index >= 0) {
+          html.setLength(index + terminator.length());
+          break;
+        }
+        terminatorFrom = Math.max(0, html.length() - terminator.length() + 1);
+      }
+    }
+
+    return html.toString();
+  }
+}
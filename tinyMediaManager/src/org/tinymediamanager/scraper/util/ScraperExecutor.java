@@ -0,0 +1,366 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.metrics.TaskProfile;
+import org.tinymediamanager.core.threading.TmmThreadPool.TmmThreadFactory;
+
+/**
+ * The class ScraperExecutor. The central executor for the sub requests of the scrapers (e.g. fetching several pages of a movie in parallel). Every
+ * provider gets its own bounded queue, so the amount of concurrent requests to a site is limited - regardless how many scrape workers are running.<br>
+ * Sub requests are bound to the task which submitted them (see {@link #setOwner(Object)}); cancelling the task with {@link #cancel(Object)} cancels
+ * all open sub requests of it. The {@link CancellationToken} and the {@link TaskProfile} of the submitting thread are passed to the sub request.<br>
+ * Do not submit a sub request to the queue of the same provider from within a sub request - this could dead lock a full queue.
+ *
+ * @author Manuel Laggner
+ */
+public class ScraperExecutor {
+  private static final Logger                     LOGGER          = LoggerFactory.getLogger(ScraperExecutor.class);
+  private static final int                        DEFAULT_THREADS = 3;
+
+  private static final Map<String, ProviderQueue> QUEUES          = new HashMap<String, ProviderQueue>();
+  private static final Map<String, Integer>       MAX_THREADS     = new HashMap<String, Integer>();
+  private static final ThreadLocal<Object>        OWNER           = new ThreadLocal<Object>();
+  private static final Set<Object>                CANCELLED       = Collections.synchronizedSet(Collections
+                                                                      .newSetFromMap(new WeakHashMap<Object, Boolean>()));
+  private static final Set<SubRequest<?>>         RUNNING         = Collections.synchronizedSet(new HashSet<SubRequest<?>>());
+
+  private ScraperExecutor() {
+  }
+
+  /**
+   * set the max amount of concurrent sub requests for the provider (default: 3)
+   *
+   * @param providerId
+   *          the id of the provider
+   * @param threads
+   *          the max amount of concurrent sub requests
+   */
+  public static synchronized void setMaxThreads(String providerId, int threads) {
+    MAX_THREADS.put(providerId, threads);
+    ProviderQueue queue = QUEUES.get(providerId);
+    if (queue != null) {
+      queue.resize(threads);
+    }
+  }
+
+  /**
+   * bind the sub requests submitted by the current thread to the given owner (e.g. the task the current thread is working for)
+   *
+   * @param owner
+   *          the owner or null to remove the binding
+   */
+  public static void setOwner(Object owner) {
+    if (owner == null) {
+      OWNER.remove();
+    }
+    else {
+      OWNER.set(owner);
+    }
+  }
+
+  /**
+   * cancel all open sub requests of the owner; sub requests submitted later by this owner are cancelled immediately
+   *
+   * @param owner
+   *          the owner
+   */
+  public static void cancel(Object owner) {
+    if (owner == null) {
+      return;
+    }
+    CANCELLED.add(owner);
+    List<SubRequest<?>> requests;
+    synchronized (RUNNING) {
+      requests = new ArrayList<SubRequest<?>>(RUNNING);
+    }
+    for (SubRequest<?> request : requests) {
+      if (request.owner == owner) {
+        request.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * submit a sub request to the queue of the provider
+   *
+   * @param providerId
+   *          the id of the provider (the queue)
+   * @param callable
+   *          the sub request
+   * @return the future of the sub request
+   */
+  public static <T> Future<T> submit(String providerId, Callable<T> callable) {
+    ProviderQueue queue = getQueue(providerId);
+    SubRequest<T> request = new SubRequest<T>(queue, callable, OWNER.get(), CancellationToken.getCurrent(), TaskProfile.getCurrent());
+    queue.submitted.incrementAndGet();
+
+    RUNNING.add(request);
+    if ((request.owner != null && CANCELLED.contains(request.owner)) || (request.token != null && request.token.isCancelled())) {
+      request.cancel(false);
+      return request;
+    }
+
+    queue.executor.execute(request);
+    return request;
+  }
+
+  /**
+   * get the result of the sub request; failed or cancelled sub requests are logged and return null
+   *
+   * @param future
+   *          the future of the sub request (or null)
+   * @return the result or null
+   */
+  public static <T> T getResult(Future<T> future) {
+    if (future == null) {
+      return null;
+    }
+    try {
+      return future.get();
+    }
+    catch (CancellationException e) {
+      LOGGER.debug("sub request has been cancelled");
+    }
+    catch (InterruptedException e) {
+      LOGGER.debug("interrupted while waiting for a sub request");
+      Thread.currentThread().interrupt();
+    }
+    catch (ExecutionException e) {
+      LOGGER.warn("sub request failed: " + e.getCause());
+    }
+    return null;
+  }
+
+  private static synchronized ProviderQueue getQueue(String providerId) {
+    ProviderQueue queue = QUEUES.get(providerId);
+    if (queue == null) {
+      Integer threads = MAX_THREADS.get(providerId);
+      queue = new ProviderQueue(providerId, threads != null ? threads : DEFAULT_THREADS);
+      QUEUES.put(providerId, queue);
+    }
+    return queue;
+  }
+
+  /**
+   * the amount of sub requests submitted to the queue of the provider
+   */
+  public static long getSubmittedCount(String providerId) {
+    return getQueue(providerId).submitted.get();
+  }
+
+  /**
+   * the amount of finished sub requests of the provider (successful or failed)
+   */
+  public static long getCompletedCount(String providerId) {
+    return getQueue(providerId).completed.get();
+  }
+
+  /**
+   * the amount of failed sub requests of the provider
+   */
+  public static long getFailedCount(String providerId) {
+    return getQueue(providerId).failed.get();
+  }
+
+  /**
+   * the amount of cancelled sub requests of the provider
+   */
+  public static long getCancelledCount(String providerId) {
+    return getQueue(providerId).cancelled.get();
+  }
+
+  /**
+   * the amount of currently running sub requests of the provider
+   */
+  public static int getActiveCount(String providerId) {
+    return getQueue(providerId).executor.getActiveCount();
+  }
+
+  /**
+   * the amount of sub requests of the provider waiting for a free thread
+   */
+  public static int getQueuedCount(String providerId) {
+    return getQueue(providerId).executor.getQueue().size();
+  }
+
+  /**
+   * the average time (in ms) the sub requests of the provider waited for a free thread
+   */
+  public static long getAverageWaitTime(String providerId) {
+    ProviderQueue queue = getQueue(providerId);
+    long started = queue.started.get();
+    return started == 0 ? 0 : queue.waitTime.get() / started / 1000000;
+  }
+
+  /**
+   * the average run time (in ms) of the sub requests of the provider
+   */
+  public static long getAverageRunTime(String providerId) {
+    ProviderQueue queue = getQueue(providerId);
+    long completed = queue.completed.get();
+    return completed == 0 ? 0 : queue.runTime.get() / completed / 1000000;
+  }
+
+  /**
+   * the ids of all providers which used this executor
+   */
+  public static synchronized Set<String> getProviderIds() {
+    return new HashSet<String>(QUEUES.keySet());
+  }
+
+  /**
+   * shut down all queues (running sub requests are being finished)
+   */
+  public static synchronized void shutdown() {
+    for (ProviderQueue queue : QUEUES.values()) {
+      queue.executor.shutdown();
+    }
+    QUEUES.clear();
+  }
+
+  /**
+   * shut down all queues and interrupt the running sub requests
+   */
+  public static synchronized void shutdownNow() {
+    for (ProviderQueue queue : QUEUES.values()) {
+      queue.executor.shutdownNow();
+    }
+    QUEUES.clear();
+  }
+
+  /**
+   * the bounded queue of one provider with its statistics
+   */
+  private static class ProviderQueue {
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong         submitted = new AtomicLong();
+    private final AtomicLong         started   = new AtomicLong();
+    private final AtomicLong         completed = new AtomicLong();
+    private final AtomicLong         failed    = new AtomicLong();
+    private final AtomicLong         cancelled = new AtomicLong();
+    private final AtomicLong         waitTime  = new AtomicLong();
+    private final AtomicLong         runTime   = new AtomicLong();
+
+    private ProviderQueue(String providerId, int threads) {
+      executor = new ThreadPoolExecutor(threads, threads, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new TmmThreadFactory("scraper-"
+          + providerId));
+      executor.allowCoreThreadTimeOut(true);
+    }
+
+    private void resize(int threads) {
+      if (threads > executor.getMaximumPoolSize()) {
+        executor.setMaximumPoolSize(threads);
+        executor.setCorePoolSize(threads);
+      }
+      else {
+        executor.setCorePoolSize(threads);
+        executor.setMaximumPoolSize(threads);
+      }
+    }
+  }
+
+  /**
+   * a sub request which keeps the statistics of its queue up to date
+   */
+  private static class SubRequest<T> extends FutureTask<T> {
+    private final ProviderQueue     queue;
+    private final Object            owner;
+    private final CancellationToken token;
+    private final TaskProfile       profile;
+    private final long              created = System.nanoTime();
+    private long                    start   = 0;
+
+    private SubRequest(ProviderQueue queue, Callable<T> callable, Object owner, CancellationToken token, TaskProfile profile) {
+      super(callable);
+      this.queue = queue;
+      this.owner = owner;
+      this.token = token;
+      this.profile = profile;
+    }
+
+    @Override
+    public void run() {
+      if (isCancelled()) {
+        return;
+      }
+      start = System.nanoTime();
+      queue.started.incrementAndGet();
+      queue.waitTime.addAndGet(start - created);
+      CancellationToken.setCurrent(token);
+      TaskProfile.setCurrent(profile);
+      try {
+        super.run();
+      }
+      finally {
+        CancellationToken.setCurrent(null);
+        TaskProfile.setCurrent(null);
+      }
+    }
+
+    @Override
+    protected void set(T v) {
+      // count before the result is available - so the statistics are up to date for the waiting thread
+      finished();
+      super.set(v);
+    }
+
+    @Override
+    protected void setException(Throwable t) {
+      if (!isCancelled()) {
+        queue.failed.incrementAndGet();
+      }
+      finished();
+      super.setException(t);
+    }
+
+    private void finished() {
+      // cancelled sub requests are counted in done()
+      if (!isCancelled()) {
+        queue.completed.incrementAndGet();
+        queue.runTime.addAndGet(System.nanoTime() - start);
+      }
+    }
+
+    @Override
+    protected void done() {
+      RUNNING.remove(this);
+      if (isCancelled()) {
+        queue.cancelled.incrementAndGet();
+      }
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper.util;
+
+import org.tinymediamanager.core.metrics.MetricsRegistry;
+import org.tinymediamanager.core.metrics.Timer;
+import org.tinymediamanager.scraper.IMediaProvider;
+
+/**
+ * The class ScraperMetrics. Records the calls of the scrapers per provider in the {@link MetricsRegistry}: the duration of every call type
+ * (scraper.&lt;provider&gt;.&lt;call&gt;) and the failed calls (scraper.&lt;provider&gt;.errors).
+ *
+ * @author Manuel Laggner
+ */
+public class ScraperMetrics {
+
+  private ScraperMetrics() {
+  }
+
+  /**
+   * start timing a call of the scraper
+   *
+   * @param provider
+   *          the scraper
+   * @param call
+   *          the type of the call (e.g. search, metadata, artwork)
+   * @return the context to stop the timing
+   */
+  public static Timer.Context start(IMediaProvider provider, String call) {
+    return MetricsRegistry.timer("scraper." + getName(provider) + "." + call).start();
+  }
+
+  /**
+   * count a failed call of the scraper
+   *
+   * @param provider
+   *          the scraper
+   */
+  public static void error(IMediaProvider provider) {
+    MetricsRegistry.counter("scraper." + getName(provider) + ".errors").inc();
+  }
+
+  private static String getName(IMediaProvider provider) {
+    if (provider == null || provider.getProviderInfo() == null) {
+      return "unknown";
+    }
+    return provider.getProviderInfo().getId();
+  }
+}
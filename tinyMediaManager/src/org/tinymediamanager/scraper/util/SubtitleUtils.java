@@ -1,13 +1,11 @@
 package org.tinymediamanager.scraper.util;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.LongBuffer;
-import java.nio.channels.FileChannel;
-import java.nio.channels.FileChannel.MapMode;
 import java.security.MessageDigest;
 
 import org.apache.commons.codec.binary.Hex;
@@ -28,44 +26,8 @@ public class SubtitleUtils {
    * @param file
    * @return hash
    */
-  @SuppressWarnings("resource")
   public static String computeSubDBHash(File file) {
-    long size = file.length();
-    long chunkSizeForFile = Math.min(HASH_CHUNK_SIZE, size);
-
-    FileChannel fileChannel = null;
-    try {
-      fileChannel = new FileInputStream(file).getChannel();
-
-      ByteBuffer head = fileChannel.map(MapMode.READ_ONLY, 0, chunkSizeForFile);
-      ByteBuffer tail = fileChannel.map(MapMode.READ_ONLY, Math.max(size - HASH_CHUNK_SIZE, 0), chunkSizeForFile);
-
-      // md.digest(ByteBuffer.array()) always error *grml
-      final byte[] hbytes = new byte[head.remaining()];
-      head.duplicate().get(hbytes);
-      final byte[] tbytes = new byte[tail.remaining()];
-      tail.duplicate().get(tbytes);
-
-      MessageDigest md = MessageDigest.getInstance("MD5");
-      md.update(hbytes);
-      md.update(tbytes);
-
-      return Hex.encodeHexString(md.digest());
-    }
-    catch (Exception e) {
-      LOGGER.error("Error computing SubDB hash", e);
-    }
-    finally {
-      try {
-        if (fileChannel != null) {
-          fileChannel.close();
-        }
-      }
-      catch (IOException e) {
-        LOGGER.error("Error closing file stream", e);
-      }
-    }
-    return "";
+    return computeHashes(file).getSubDbHash();
   }
 
   /**
@@ -74,38 +36,58 @@ public class SubtitleUtils {
    * @param file
    * @return hash
    */
-  @SuppressWarnings("resource")
   public static String computeOpenSubtitlesHash(File file) {
+    return computeHashes(file).getOpenSubtitlesHash();
+  }
+
+  /**
+   * Computes the OpenSubtitles and the SubDB hash at once; both hashes are built from the first and the last 64 KB of the file, so the file is
+   * read only once for both
+   * 
+   * @param file
+   *          the file to hash
+   * @return the hashes (empty strings if error)
+   */
+  public static Hashes computeHashes(File file) {
     long size = file.length();
-    long chunkSizeForFile = Math.min(HASH_CHUNK_SIZE, size);
+    int chunkSizeForFile = (int) Math.min(HASH_CHUNK_SIZE, size);
 
-    FileChannel fileChannel = null;
+    RandomAccessFile raf = null;
     try {
-      fileChannel = new FileInputStream(file).getChannel();
-      long head = computeOpenSubtitlesHashForChunk(fileChannel.map(MapMode.READ_ONLY, 0, chunkSizeForFile));
-      long tail = computeOpenSubtitlesHashForChunk(fileChannel.map(MapMode.READ_ONLY, Math.max(size - HASH_CHUNK_SIZE, 0), chunkSizeForFile));
+      raf = new RandomAccessFile(file, "r");
+      byte[] head = new byte[chunkSizeForFile];
+      raf.readFully(head);
+      byte[] tail = new byte[chunkSizeForFile];
+      raf.seek(Math.max(size - HASH_CHUNK_SIZE, 0));
+      raf.readFully(tail);
+
+      String openSubtitlesHash = String.format("%016x", size + computeOpenSubtitlesHashForChunk(head) + computeOpenSubtitlesHashForChunk(tail));
 
-      return String.format("%016x", size + head + tail);
+      MessageDigest md = MessageDigest.getInstance("MD5");
+      md.update(head);
+      md.update(tail);
+
+      return new Hashes(openSubtitlesHash, Hex.encodeHexString(md.digest()));
     }
     catch (Exception e) {
-      LOGGER.error("Error computing OpenSubtitles hash", e);
+      LOGGER.error("Error computing subtitle hashes", e);
     }
     finally {
       try {
-        if (fileChannel != null) {
-          fileChannel.close();
+        if (raf != null) {
+          raf.close();
         }
       }
       catch (IOException e) {
         LOGGER.error("Error closing file stream", e);
       }
     }
-    return "";
+    return new Hashes("", "");
   }
 
-  private static long computeOpenSubtitlesHashForChunk(ByteBuffer buffer) {
+  private static long computeOpenSubtitlesHashForChunk(byte[] chunk) {
 
-    LongBuffer longBuffer = buffer.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+    LongBuffer longBuffer = ByteBuffer.wrap(chunk).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
     long hash = 0;
 
     while (longBuffer.hasRemaining()) {
@@ -114,4 +96,25 @@ public class SubtitleUtils {
 
     return hash;
   }
+
+  /**
+   * The OpenSubtitles and SubDB hash of a file
+   */
+  public static class Hashes {
+    private final String openSubtitlesHash;
+    private final String subDbHash;
+
+    public Hashes(String openSubtitlesHash, String subDbHash) {
+      this.openSubtitlesHash = openSubtitlesHash;
+      this.subDbHash = subDbHash;
+    }
+
+    public String getOpenSubtitlesHash() {
+      return openSubtitlesHash;
+    }
+
+    public String getSubDbHash() {
+      return subDbHash;
+    }
+  }
 }
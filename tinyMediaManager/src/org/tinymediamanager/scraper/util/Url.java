@@ -38,16 +38,22 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
 import org.apache.http.StatusLine;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicStatusLine;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.metrics.MetricsRegistry;
+import org.tinymediamanager.core.metrics.Timer;
 
 /**
  * The Class Url. Used to make simple, blocking URL requests. The request is temporarily streamed into a ByteArrayInputStream, before the InputStream
@@ -215,13 +221,21 @@ public class Url {
       return new FileInputStream(file);
     }
 
+    // the task of this request has been cancelled
+    CancellationToken.checkCurrent();
+
+    // offline replay of recorded responses
+    if (HttpReplay.isReplaying()) {
+      return replay();
+    }
+
     BasicHttpContext localContext = new BasicHttpContext();
     ByteArrayInputStream is = null;
 
     // replace our API keys for logging...
     String logUrl = url.replaceAll("api_key=\\w+", "api_key=<API_KEY>").replaceAll("api/\\d+\\w+", "api/<API_KEY>");
     LOGGER.debug("getting " + logUrl);
-    HttpGet httpget = new HttpGet(uri);
+    final HttpGet httpget = new HttpGet(uri);
     RequestConfig requestConfig = RequestConfig.custom().setSocketTimeout(10000).setConnectTimeout(10000).build();
     httpget.setConfig(requestConfig);
 
@@ -230,14 +244,39 @@ public class Url {
       httpget.addHeader(header);
     }
 
+    // abort the request if the task gets cancelled meanwhile
+    CancellationToken token = CancellationToken.getCurrent();
+    Runnable abort = new Runnable() {
+      @Override
+      public void run() {
+        httpget.abort();
+      }
+    };
+    if (token != null) {
+      token.addListener(abort);
+    }
+
     CloseableHttpResponse response = null;
+    long start = System.nanoTime();
+    Timer.Context timer = MetricsRegistry.timer("http.request").start();
     try {
       response = client.execute(httpget, localContext);
       headersResponse = response.getAllHeaders();
       entity = response.getEntity();
       responseStatus = response.getStatusLine();
+      if (responseStatus.getStatusCode() >= 400) {
+        MetricsRegistry.counter("http.errors").inc();
+      }
       if (entity != null) {
-        is = new ByteArrayInputStream(EntityUtils.toByteArray(entity));
+        byte[] content = EntityUtils.toByteArray(entity);
+        is = new ByteArrayInputStream(content);
+        MetricsRegistry.histogram("http.bytes").update(content.length);
+        if (HttpReplay.isActive()) {
+          HttpReplay.count(content.length, System.nanoTime() - start);
+        }
+        if (HttpReplay.isRecording()) {
+          HttpReplay.record(url, responseStatus.getStatusCode(), responseStatus.getReasonPhrase(), headersResponse, content);
+        }
       }
       EntityUtils.consume(entity);
     }
@@ -247,12 +286,28 @@ public class Url {
     }
     catch (UnknownHostException e) {
       LOGGER.error("proxy or host not found/reachable", e);
+      MetricsRegistry.counter("http.errors").inc();
       throw e;
     }
     catch (Exception e) {
-      LOGGER.error("Exception getting url " + logUrl, e);
+      // an aborted request of a cancelled task is no error
+      if ((token != null && token.isCancelled()) || httpget.isAborted()) {
+        LOGGER.debug("aborted request (" + e.getMessage() + "): " + logUrl);
+      }
+      else {
+        LOGGER.error("Exception getting url " + logUrl, e);
+        MetricsRegistry.counter("http.errors").inc();
+      }
     }
     finally {
+      // the latency per host shows which scraper/artwork site is slow
+      long duration = timer.stop();
+      if (uri.getHost() != null) {
+        MetricsRegistry.timer("http.host." + uri.getHost()).update(duration);
+      }
+      if (token != null) {
+        token.removeListener(abort);
+      }
       if (response != null) {
         response.close();
       }
@@ -260,6 +315,29 @@ public class Url {
     return is;
   }
 
+  /**
+   * serve the recorded response (see {@link HttpReplay}); a missing response is handled like a 404
+   */
+  private InputStream replay() throws IOException {
+    long start = System.nanoTime();
+    HttpReplay.Response response = HttpReplay.replay(url);
+    if (response == null) {
+      responseStatus = new BasicStatusLine(HttpVersion.HTTP_1_1, HttpStatus.SC_NOT_FOUND, "no recorded response");
+      headersResponse = new Header[0];
+      entity = null;
+      return null;
+    }
+
+    responseStatus = new BasicStatusLine(HttpVersion.HTTP_1_1, response.statusCode, response.reason);
+    headersResponse = response.headers;
+    ByteArrayEntity replayed = new ByteArrayEntity(response.content);
+    replayed.setContentType(response.getHeader(HttpHeaders.CONTENT_TYPE));
+    replayed.setContentEncoding(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+    entity = replayed;
+    HttpReplay.count(response.content.length, System.nanoTime() - start);
+    return new ByteArrayInputStream(response.content);
+  }
+
   /**
    * is the HTTP status code a 4xx/5xx?
    * 
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
+import org.apache.http.client.methods.HttpGet;
+import org.yamj.api.common.http.DefaultPoolingHttpClient;
+
+/**
+ * The class UrlHttpClient. A http client for the API libraries (like themoviedbapi) which loads the content via {@link Url} - so these requests can be
+ * recorded/replayed too (see {@link HttpReplay}).
+ *
+ * @author Manuel Laggner
+ */
+public class UrlHttpClient extends DefaultPoolingHttpClient {
+
+  @Override
+  public String requestContent(HttpGet httpGet) throws IOException {
+    return requestContent(httpGet, null);
+  }
+
+  @Override
+  public String requestContent(HttpGet httpGet, Charset charset) throws IOException {
+    Url url = new Url(httpGet.getURI().toString());
+    for (Header header : httpGet.getAllHeaders()) {
+      url.addHeader(header.getName(), header.getValue());
+    }
+
+    InputStream is = null;
+    try {
+      is = url.getInputStream();
+      if (is == null || url.isFault()) {
+        throw new IOException("could not get " + httpGet.getURI().getHost() + ": " + url.getStatusLine());
+      }
+      return IOUtils.toString(is, (charset != null ? charset : url.getCharset()).name());
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted");
+    }
+    finally {
+      IOUtils.closeQuietly(is);
+    }
+  }
+}
@@ -1,7 +1,9 @@
 package org.tinymediamanager.scraper.xbmc;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -21,19 +23,30 @@ import org.w3c.dom.NodeList;
 // // new logic - select the crap then drop anything to the right of it
 
 public class XbmcScraperProcessor {
-  public static final String  FUNCTION_SETTINGS = "GetSettings";
-  private static final Logger LOGGER               = Logger.getLogger(XbmcScraperProcessor.class);
-  private boolean             truncateLogging   = true;
+  public static final String                FUNCTION_SETTINGS    = "GetSettings";
+  private static final Logger               LOGGER               = Logger.getLogger(XbmcScraperProcessor.class);
+  private boolean                           truncateLogging      = true;
 
-  private XbmcScraper         scraper           = null;
+  private XbmcScraper                       scraper              = null;
 
   // 20 buffers in total; buffer 0 is always blank
-  private String              buffers[]         = new String[21];
+  private String                            buffers[]            = new String[21];
 
   // options that match those in the <Settings> elements.
-  Map<String, String>         options           = new HashMap<String, String>();
+  Map<String, String>                       options              = new HashMap<String, String>();
 
-  private static final int    PATTERN_OPTIONS   = Pattern.MULTILINE + Pattern.CASE_INSENSITIVE + Pattern.DOTALL;
+  private static final int                  PATTERN_OPTIONS      = Pattern.MULTILINE + Pattern.CASE_INSENSITIVE + Pattern.DOTALL;
+
+  // fixed patterns for the buffer/output processing
+  private static final Pattern              OUTPUT_GROUP_PATTERN = Pattern.compile("\\\\([0-9])");
+  private static final Pattern              BUFFER_PATTERN       = Pattern.compile("\\$\\$([0-9]+)");
+  private static final Pattern              INFO_PATTERN         = Pattern.compile("\\$INFO\\[([^\\]]+)\\]");
+  private static final Pattern              URL_FUNCTION_PATTERN = Pattern.compile("<url\\s+.*function=");
+  private static final Pattern              CHAIN_PATTERN        = Pattern.compile("<chain function=\"(.*)\">(.*)</chain>");
+  private static final Pattern              HTML_TAG_PATTERN     = Pattern.compile("<[^>]+>");
+
+  // compiled scraper expressions (after the buffer references have been replaced); shared by all processors
+  private static final Map<String, Pattern> EXPRESSION_CACHE     = Collections.synchronizedMap(new ExpressionCache(1000));
 
   // private XbmcScraperConfiguration cfg = new XbmcScraperConfiguration();
 
@@ -45,7 +58,7 @@ public class XbmcScraperProcessor {
 
     mergeOptions(this.options);
 
-    LOGGER.debug("XbmcScraperProcessor created using Scraper: " + scraper + "; Complete Logging: " + !truncateLogging);
+    debug("XbmcScraperProcessor created using Scraper: %s; Complete Logging: %s", scraper, !truncateLogging);
 
     clearBuffers();
   }
@@ -70,8 +83,11 @@ public class XbmcScraperProcessor {
       // return;
       // } else {
       // String xmlString = executeFunction(FUNCTION_SETTINGS, null);
+      if (scraper.getSettingsPath() == null) {
+        return;
+      }
       File scraperSettings = new File(scraper.getSettingsPath());
-      if (scraperSettings != null && scraperSettings.exists()) {
+      if (scraperSettings.exists()) {
         DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
         DocumentBuilder parser = factory.newDocumentBuilder();
         // ByteArrayInputStream xmlStream = new
@@ -90,7 +106,7 @@ public class XbmcScraperProcessor {
             String defValue = e.getAttribute("default");
             if (StringUtils.isEmpty(defValue))
               continue;
-            LOGGER.debug("Default Option: " + scraper.getId() + "; " + id + "; " + defValue);
+            debug("Default Option: %s; %s; %s", scraper.getId(), id, defValue);
             // dest.put(id, cfg.getScraperProperty(scraper.getId(), id,
             // defValue));
             dest.put(id, defValue);
@@ -108,7 +124,7 @@ public class XbmcScraperProcessor {
     ScraperFunction func = scraper.getFunction(function);
 
     if (func != null) {
-      LOGGER.debug("** BEGIN Function: " + func.getName() + "; Dest: " + func.getDest() + "; ClearBuffers: " + func.isClearBuffers());
+      debug("** BEGIN Function: %s; Dest: %s; ClearBuffers: %s", func.getName(), func.getDest(), func.isClearBuffers());
 
       // if (func.isClearBuffers()) {
       // clearBuffers();
@@ -118,11 +134,11 @@ public class XbmcScraperProcessor {
 
       executeRegexps(func.getRegExps());
 
-      LOGGER.debug("** END Function: " + func.getName() + "; Dest: " + func.getDest() + "; ClearBuffers: " + func.isClearBuffers());
+      debug("** END Function: %s; Dest: %s; ClearBuffers: %s", func.getName(), func.getDest(), func.isClearBuffers());
       return getBuffer(func.getDest());
     }
     else {
-      LOGGER.debug("** Could not locate Function: " + function + " in the scraper " + scraper.getId());
+      debug("** Could not locate Function: %s in the scraper %s", function, scraper.getId());
       return "";
     }
   }
@@ -131,7 +147,9 @@ public class XbmcScraperProcessor {
     int i = 0;
     for (RegExp r : regExps) {
       i++;
-      System.out.println("Executing " + i + "/" + regExps.length + " - " + r.getExpression().getExpression());
+      if (LOGGER.isTraceEnabled()) {
+        LOGGER.trace("Executing " + i + "/" + regExps.length + " - " + r.getExpression().getExpression());
+      }
       executeRegexp(r);
     }
   }
@@ -143,10 +161,10 @@ public class XbmcScraperProcessor {
       if (not)
         cond = cond.substring(1);
       Boolean b = BooleanUtils.toBooleanObject(options.get(cond));
-      LOGGER.debug("Processing Conditional: " + regex.getConditional() + "; " + b);
+      debug("Processing Conditional: %s; %s", regex.getConditional(), b);
       boolean b2 = (b == null || b.booleanValue() == true);
       if (!(b2 || (not && !b2))) {
-        LOGGER.debug("Condition Not Met: " + regex.getConditional() + "; " + b2);
+        debug("Condition Not Met: %s; %s", regex.getConditional(), b2);
         return;
       }
     }
@@ -158,8 +176,8 @@ public class XbmcScraperProcessor {
   }
 
   private void executeExpression(RegExp r) {
-    LOGGER.debug(String.format("Processing Expression: %s; Dest: %s; Input: %s; Output: %s", r.getExpression().getExpression(), r.getDest(),
-        r.getInput(), r.getOutput()));
+    debug("Processing Expression: %s; Dest: %s; Input: %s; Output: %s", r.getExpression().getExpression(), r.getDest(), r.getInput(),
+        r.getOutput());
     Expression exp = r.getExpression();
 
     String in = getBuffer(r.getInput());
@@ -173,32 +191,53 @@ public class XbmcScraperProcessor {
       return;
     }
 
-    LOGGER.debug("Expression: " + expr);
+    debug("Expression: %s", expr);
     expr = processOutputBuffersForInputBufferReferences(expr);
-    LOGGER.debug("Expression: " + expr);
-    LOGGER.debug("     Input: " + logBuffer(in));
-    Pattern p = Pattern.compile(expr, PATTERN_OPTIONS);
+    debug("Expression: %s", expr);
+    debug("     Input: %s", logBuffer(in));
+    Pattern p = compileExpression(expr);
     Matcher m = p.matcher(in);
     if (m.find()) {
-      LOGGER.debug("Matched: Group Count: " + m.groupCount());
+      debug("Matched: Group Count: %s", m.groupCount());
       setBuffer(r.getDest(), processOutputBuffers(r.getOutput(), toGroupArray(exp.getNoCleanArray(), m)), r.isAppendBuffer());
 
       if (exp.isRepeat()) {
         while (m.find()) {
-          LOGGER.debug("Repeat Matched.  Group Count: " + m.groupCount());
+          debug("Repeat Matched.  Group Count: %s", m.groupCount());
           setBuffer(r.getDest(), processOutputBuffers(r.getOutput(), toGroupArray(exp.getNoCleanArray(), m)), r.isAppendBuffer());
         }
       }
     }
     else {
-      LOGGER.debug(String.format("No Match! Expression: %s; Text: %s;", expr, logBuffer(in)));
+      debug("No Match! Expression: %s; Text: %s;", expr, logBuffer(in));
       if (exp.isClear()) {
-        LOGGER.debug("Clearing Destination Buffer: " + r.getDest());
+        debug("Clearing Destination Buffer: %s", r.getDest());
         setBuffer(r.getDest(), "", false);
       }
     }
   }
 
+  /**
+   * get the compiled pattern for the given (expanded) expression; the same expressions are used over and over again, so they are compiled only once
+   */
+  private static Pattern compileExpression(String expr) {
+    Pattern p = EXPRESSION_CACHE.get(expr);
+    if (p == null) {
+      p = Pattern.compile(expr, PATTERN_OPTIONS);
+      EXPRESSION_CACHE.put(expr, p);
+    }
+    return p;
+  }
+
+  /**
+   * log the message only if debug is enabled; the message is only formatted in this case (no expensive string building for every expression)
+   */
+  private static void debug(String format, Object... args) {
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug(String.format(format, args));
+    }
+  }
+
   private String logBuffer(String in) {
     // if debug is not enabled, then return the whole buffer.
     if (!LOGGER.isDebugEnabled())
@@ -229,16 +268,18 @@ public class XbmcScraperProcessor {
   private String cleanHtml(String group) {
     if (group == null)
       return "";
-    LOGGER.debug("Before Clean Html: " + group);
-    String s = group.replaceAll("<[^>]+>", "");
-    LOGGER.debug("After Clean Html: " + s);
+    if (group.indexOf('<') < 0) {
+      return group;
+    }
+    debug("Before Clean Html: %s", group);
+    String s = HTML_TAG_PATTERN.matcher(group).replaceAll("");
+    debug("After Clean Html: %s", s);
     return s;
   }
 
   private String processOutputBuffers(String output, String groups[]) {
     LOGGER.debug("Processing output buffer replacement.");
-    Pattern p = Pattern.compile("\\\\([0-9])");
-    Matcher m = p.matcher(output);
+    Matcher m = OUTPUT_GROUP_PATTERN.matcher(output);
     StringBuffer sb = new StringBuffer();
 
     int lastStart = 0;
@@ -247,7 +288,7 @@ public class XbmcScraperProcessor {
       lastStart = m.end();
       int g = Integer.parseInt(m.group(1));
       if (g > groups.length) {
-        LOGGER.debug("No Group Replacement for: " + g);
+        debug("No Group Replacement for: %s", g);
         continue;
       }
 
@@ -269,8 +310,10 @@ public class XbmcScraperProcessor {
 
   private String processOutputBuffersForInputBufferReferences(String output) {
     LOGGER.debug("Processing output buffers for input buffer references.");
-    Pattern p = Pattern.compile("\\$\\$([0-9]+)");
-    Matcher m = p.matcher(output);
+    if (output.indexOf("$$") < 0) {
+      return output;
+    }
+    Matcher m = BUFFER_PATTERN.matcher(output);
     StringBuffer sb = new StringBuffer();
 
     int lastStart = 0;
@@ -287,8 +330,10 @@ public class XbmcScraperProcessor {
 
   private String processOutputBuffersForPropertyReferences(String output) {
     LOGGER.debug("Processing output buffers for property references.");
-    Pattern p = Pattern.compile("\\$INFO\\[([^\\]]+)\\]");
-    Matcher m = p.matcher(output);
+    if (output.indexOf("$INFO[") < 0) {
+      return output;
+    }
+    Matcher m = INFO_PATTERN.matcher(output);
     StringBuffer sb = new StringBuffer();
 
     int lastStart = 0;
@@ -330,18 +375,15 @@ public class XbmcScraperProcessor {
     String text = buffers[buffer];
     if (text == null)
       text = "";
-    if (LOGGER.isDebugEnabled()) {
-      LOGGER.debug("Get Int Buffer: " + buffer + "; Text: " + logBuffer(text));
-    }
+    debug("Get Int Buffer: %s; Text: %s", buffer, logBuffer(text));
     return text;
   }
 
   private String getBuffer(String buffer) {
     if (buffer == null)
       buffer = "";
-    LOGGER.debug(String.format("Get String Buffer: %s", buffer));
-    Pattern bufferPattern = Pattern.compile("\\$\\$([0-9]+)");
-    Matcher m = bufferPattern.matcher(buffer);
+    debug("Get String Buffer: %s", buffer);
+    Matcher m = BUFFER_PATTERN.matcher(buffer);
     if (m.find()) {
       StringBuffer sb = new StringBuffer();
       sb.append(getBuffer(Integer.parseInt(m.group(1))));
@@ -351,7 +393,7 @@ public class XbmcScraperProcessor {
       return sb.toString();
     }
     else {
-      LOGGER.debug("getBuffer(): Using raw input: " + logBuffer(buffer));
+      debug("getBuffer(): Using raw input: %s", logBuffer(buffer));
     }
     return buffer;
   }
@@ -360,14 +402,12 @@ public class XbmcScraperProcessor {
     if (text == null)
       text = "";
 
-    if (LOGGER.isDebugEnabled()) {
-      LOGGER.debug(String.format("Set Buffer: %s; Append: %s; Text: %s", buffer, append, logBuffer(text)));
-    }
+    debug("Set Buffer: %s; Append: %s; Text: %s", buffer, append, logBuffer(text));
 
-    Pattern p = Pattern.compile("<url\\s+.*function=");
-    Matcher m = p.matcher(text);
-    if (m.find()) {
-      LOGGER.debug("Processing Sub Function: " + text);
+    // sub functions; only look for them if there is any tag in the text
+    Matcher m = URL_FUNCTION_PATTERN.matcher(text);
+    if (text.indexOf('<') >= 0 && m.find()) {
+      debug("Processing Sub Function: %s", text);
       try {
         XbmcUrl url = new XbmcUrl(text);
         ScraperFunction func = scraper.getFunction(url.getFunctionName());
@@ -388,10 +428,9 @@ public class XbmcScraperProcessor {
     }
 
     // sub Function
-    p = Pattern.compile("<chain function=\"(.*)\">(.*)</chain>");
-    m = p.matcher(text);
-    if (m.find()) {
-      LOGGER.debug("Processing Sub Function: " + text);
+    m = CHAIN_PATTERN.matcher(text);
+    if (text.indexOf('<') >= 0 && m.find()) {
+      debug("Processing Sub Function: %s", text);
       try {
         ScraperFunction func = scraper.getFunction(m.group(1));
         if (func == null) {
@@ -413,7 +452,7 @@ public class XbmcScraperProcessor {
     if (append) {
       String s = buffers[buffer];
       if (s != null) {
-        LOGGER.debug("Appending to buffer: " + buffer);
+        debug("Appending to buffer: %s", buffer);
         text = s + text;
       }
     }
@@ -429,7 +468,7 @@ public class XbmcScraperProcessor {
   private void setBuffers(String[] input) {
     if (input == null)
       return;
-    LOGGER.debug("Set Buffers: # of input Buffers: " + input.length);
+    debug("Set Buffers: # of input Buffers: %s", input.length);
     for (int i = 0; i < input.length; i++) {
       if (input[i] != null)
         setBuffer(i, input[i], false);
@@ -459,4 +498,22 @@ public class XbmcScraperProcessor {
   public XbmcScraperProcessor newSubProcessor(boolean clearBuffers) {
     return new XbmcScraperProcessor(scraper, options, (clearBuffers) ? null : buffers);
   }
+
+  /**
+   * LRU map for the compiled expressions
+   */
+  private static class ExpressionCache extends LinkedHashMap<String, Pattern> {
+    private static final long serialVersionUID = 1L;
+    private final int         maxSize;
+
+    ExpressionCache(int maxSize) {
+      super(256, 0.75f, true);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+      return size() > maxSize;
+    }
+  }
 }
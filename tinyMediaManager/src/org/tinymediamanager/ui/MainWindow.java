@@ -54,6 +54,7 @@ import org.tinymediamanager.ui.components.TextFieldPopupMenu;
 import org.tinymediamanager.ui.components.VerticalTextIcon;
 import org.tinymediamanager.ui.dialogs.LogDialog;
 import org.tinymediamanager.ui.dialogs.MessageHistoryDialog;
+import org.tinymediamanager.ui.dialogs.TaskProfileDialog;
 import org.tinymediamanager.ui.dialogs.UpdateDialog;
 import org.tinymediamanager.ui.movies.MoviePanel;
 import org.tinymediamanager.ui.moviesets.MovieSetPanel;
@@ -222,6 +223,18 @@ public class MainWindow extends JFrame {
       }
     });
 
+    JMenuItem tmmTaskProfiles = new JMenuItem(BUNDLE.getString("tmm.taskprofiles")); //$NON-NLS-1$
+    tmmTaskProfiles.setMnemonic(KeyEvent.VK_P);
+    tools.add(tmmTaskProfiles);
+    tmmTaskProfiles.addActionListener(new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent arg0) {
+        JDialog taskProfileDialog = new TaskProfileDialog();
+        taskProfileDialog.setLocationRelativeTo(MainWindow.getActiveInstance());
+        taskProfileDialog.setVisible(true);
+      }
+    });
+
     tools.addSeparator();
     final JMenu menuWakeOnLan = new JMenu(BUNDLE.getString("tmm.wakeonlan")); //$NON-NLS-1$
     menuWakeOnLan.setMnemonic(KeyEvent.VK_W);
@@ -14,7 +14,10 @@ import javax.swing.JProgressBar;
 
 import org.apache.commons.lang3.StringUtils;
 import org.tinymediamanager.core.threading.TmmTaskHandle;
+import org.tinymediamanager.core.threading.TmmTaskHandle.TaskPriority;
 import org.tinymediamanager.core.threading.TmmTaskHandle.TaskState;
+import org.tinymediamanager.core.threading.TmmTaskManager;
+import org.tinymediamanager.core.threading.TmmTaskScheduler;
 import org.tinymediamanager.ui.IconManager;
 import org.tinymediamanager.ui.UTF8Control;
 
@@ -92,7 +95,7 @@ public class TaskListComponent extends JPanel {
         break;
 
       case QUEUED:
-        dynaLabel.setText(BUNDLE.getString("task.queued"));
+        dynaLabel.setText(BUNDLE.getString("task.queued") + getQueuePosition());
         break;
 
       case CANCELLED:
@@ -117,6 +120,38 @@ public class TaskListComponent extends JPanel {
     else {
       bar.setIndeterminate(true);
     }
+
+    setToolTipText(getQueueStatistics());
+  }
+
+  /**
+   * the position of the queued task in its scheduler
+   */
+  private String getQueuePosition() {
+    TmmTaskScheduler scheduler = TmmTaskManager.getInstance().getScheduler(taskHandle);
+    if (scheduler == null || !(taskHandle instanceof Runnable)) {
+      return "";
+    }
+    int position = scheduler.getQueuePosition((Runnable) taskHandle);
+    if (position == 0) {
+      return "";
+    }
+    return " (" + BUNDLE.getString("task.queueposition") + " " + position + "/" + scheduler.getQueuedCount() + ")";
+  }
+
+  /**
+   * the queue depth and waiting time of the priority class of the task
+   */
+  private String getQueueStatistics() {
+    TmmTaskScheduler scheduler = TmmTaskManager.getInstance().getScheduler(taskHandle);
+    if (scheduler == null) {
+      return null;
+    }
+    TaskPriority priority = TmmTaskManager.getInstance().getPriority(taskHandle);
+    return BUNDLE.getString("task.priority") + ": " + BUNDLE.getString("task.priority." + priority.name()) + " - "
+        + BUNDLE.getString("task.queuewaiting") + ": " + scheduler.getQueuedCount(priority) + ", " + BUNDLE.getString("task.queuerunning") + ": "
+        + scheduler.getRunningCount(priority) + ", " + BUNDLE.getString("task.queuewaittime") + ": " + scheduler.getAverageWaitTime(priority) / 1000
+        + " s";
   }
 
   TmmTaskHandle getHandle() {
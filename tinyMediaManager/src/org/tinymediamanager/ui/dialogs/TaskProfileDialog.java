@@ -0,0 +1,196 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.ui.dialogs;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+import javax.swing.DefaultListModel;
+import javax.swing.JButton;
+import javax.swing.JList;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.ListSelectionModel;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.metrics.TaskProfile;
+import org.tinymediamanager.ui.UTF8Control;
+
+import com.jgoodies.forms.factories.FormFactory;
+import com.jgoodies.forms.layout.ColumnSpec;
+import com.jgoodies.forms.layout.FormLayout;
+import com.jgoodies.forms.layout.RowSpec;
+
+/**
+ * The class TaskProfileDialog. Shows the profiles of the finished tasks (see {@link TaskProfile}).
+ * 
+ * @author Manuel Laggner
+ */
+public class TaskProfileDialog extends TmmDialog {
+  private static final long           serialVersionUID = 4316837497185372410L;
+  /** @wbp.nls.resourceBundle messages */
+  private static final ResourceBundle BUNDLE           = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+  private static final Logger         LOGGER           = LoggerFactory.getLogger(TaskProfileDialog.class);
+
+  private final List<File>            reports;
+  private JList                       listReports;
+  private JTextArea                   taProfile;
+
+  public TaskProfileDialog() {
+    super(BUNDLE.getString("taskprofile.title"), "taskProfile"); //$NON-NLS-1$
+    setBounds(5, 5, 1000, 590);
+
+    getContentPane().setLayout(
+        new FormLayout(new ColumnSpec[] { FormFactory.RELATED_GAP_COLSPEC, ColumnSpec.decode("250px"), FormFactory.RELATED_GAP_COLSPEC,
+            ColumnSpec.decode("default:grow"), FormFactory.RELATED_GAP_COLSPEC, }, new RowSpec[] { FormFactory.RELATED_GAP_ROWSPEC,
+            RowSpec.decode("default:grow"), FormFactory.RELATED_GAP_ROWSPEC, FormFactory.DEFAULT_ROWSPEC, FormFactory.RELATED_GAP_ROWSPEC, }));
+
+    reports = TaskProfile.getReports();
+    DefaultListModel model = new DefaultListModel();
+    for (File report : reports) {
+      model.addElement(report.getName().replaceFirst("\\.json$", ""));
+    }
+
+    JScrollPane scrollPaneReports = new JScrollPane();
+    getContentPane().add(scrollPaneReports, "2, 2, fill, fill");
+
+    listReports = new JList(model);
+    listReports.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+    listReports.addListSelectionListener(new ListSelectionListener() {
+      @Override
+      public void valueChanged(ListSelectionEvent e) {
+        if (!e.getValueIsAdjusting()) {
+          showReport(listReports.getSelectedIndex());
+        }
+      }
+    });
+    scrollPaneReports.setViewportView(listReports);
+
+    JScrollPane scrollPaneProfile = new JScrollPane();
+    getContentPane().add(scrollPaneProfile, "4, 2, fill, fill");
+
+    taProfile = new JTextArea();
+    taProfile.setEditable(false);
+    scrollPaneProfile.setViewportView(taProfile);
+    {
+      JButton btnClose = new JButton(BUNDLE.getString("Button.close")); //$NON-NLS-1$
+      btnClose.addActionListener(new ActionListener() {
+        @Override
+        public void actionPerformed(ActionEvent arg0) {
+          setVisible(false);
+        }
+      });
+      getContentPane().add(btnClose, "4, 4, right, default");
+    }
+
+    if (!reports.isEmpty()) {
+      listReports.setSelectedIndex(0);
+    }
+  }
+
+  @Override
+  public void pack() {
+    // do not let it pack - it looks weird
+  }
+
+  private void showReport(int index) {
+    if (index < 0 || index >= reports.size()) {
+      taProfile.setText("");
+      return;
+    }
+    try {
+      taProfile.setText(format(TaskProfile.readReport(reports.get(index))));
+      taProfile.setCaretPosition(0);
+    }
+    catch (IOException e) {
+      LOGGER.warn("could not read task profile " + reports.get(index).getName() + ": " + e.getMessage());
+      taProfile.setText(e.getLocalizedMessage());
+    }
+  }
+
+  /**
+   * format the report as readable text
+   */
+  @SuppressWarnings("unchecked")
+  private String format(Map<String, Object> report) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(report.get("task")).append(" (").append(report.get("class")).append(")\n");
+    sb.append("started:     ").append(report.get("start")).append('\n');
+    sb.append("wall time:   ").append(report.get("wallTime")).append(" ms");
+    if (Boolean.TRUE.equals(report.get("cancelled"))) {
+      sb.append(" (cancelled)");
+    }
+    sb.append('\n');
+    sb.append("work units:  ").append(report.get("workUnits")).append('\n');
+    sb.append("errors:      ").append(report.get("errors")).append('\n');
+
+    Map<String, Object> threads = (Map<String, Object>) report.get("threads");
+    if (threads != null && !threads.isEmpty()) {
+      sb.append("threads:     ");
+      String separator = "";
+      for (Map.Entry<String, Object> entry : threads.entrySet()) {
+        sb.append(separator).append(entry.getKey()).append('=').append(entry.getValue());
+        separator = ", ";
+      }
+      sb.append('\n');
+    }
+
+    // the phases and timers are summed over all threads
+    appendTimers(sb, "phases", (Map<String, Object>) report.get("phases"));
+    appendTimers(sb, "timers", (Map<String, Object>) report.get("timers"));
+
+    Map<String, Object> counts = (Map<String, Object>) report.get("counts");
+    if (counts != null && !counts.isEmpty()) {
+      sb.append("\ncounts\n");
+      for (Map.Entry<String, Object> entry : counts.entrySet()) {
+        sb.append(String.format("  %-50s %8s%n", entry.getKey(), entry.getValue()));
+      }
+    }
+
+    List<Map<String, Object>> slowest = (List<Map<String, Object>>) report.get("slowest");
+    if (slowest != null && !slowest.isEmpty()) {
+      sb.append("\nslowest\n");
+      for (Map<String, Object> entity : slowest) {
+        sb.append(String.format("  %10s ms  %s%n", entity.get("time"), entity.get("name")));
+      }
+    }
+    return sb.toString();
+  }
+
+  @SuppressWarnings("unchecked")
+  private void appendTimers(StringBuilder sb, String title, Map<String, Object> timers) {
+    if (timers == null || timers.isEmpty()) {
+      return;
+    }
+    sb.append('\n').append(title).append('\n');
+    for (Map.Entry<String, Object> entry : timers.entrySet()) {
+      Map<String, Object> values = (Map<String, Object>) entry.getValue();
+      sb.append(String.format("  %-50s count=%-8s time=%s ms", entry.getKey(), values.get("count"), values.get("time")));
+      if (values.containsKey("max")) {
+        sb.append(" max=").append(values.get("max")).append(" ms");
+      }
+      sb.append('\n');
+    }
+  }
+}
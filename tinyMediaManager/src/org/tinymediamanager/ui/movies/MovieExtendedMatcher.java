@@ -16,20 +16,18 @@
 package org.tinymediamanager.ui.movies;
 
 import java.io.File;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.List;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
-import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.entities.MediaFile;
-import org.tinymediamanager.core.entities.MediaFileAudioStream;
-import org.tinymediamanager.core.movie.MovieMediaSource;
+import org.tinymediamanager.core.movie.MovieFilterIndex;
+import org.tinymediamanager.core.movie.MovieFilterIndex.Field;
+import org.tinymediamanager.core.movie.MovieList;
 import org.tinymediamanager.core.movie.entities.Movie;
 import org.tinymediamanager.core.movie.entities.MovieActor;
 import org.tinymediamanager.core.movie.entities.MovieProducer;
-import org.tinymediamanager.scraper.Certification;
-import org.tinymediamanager.scraper.MediaGenres;
 
 import ca.odell.glazedlists.matchers.Matcher;
 
@@ -45,6 +43,10 @@ public class MovieExtendedMatcher implements Matcher<Movie> {
   }
 
   private HashMap<SearchOptions, Object> searchOptions;
+  private MovieFilterIndex               filterIndex;
+  private Pattern                        castPattern;
+  private BitSet                         matchingMovies;
+  private int                            indexVersion = -1;
 
   /**
    * Instantiates a new movies extended matcher.
@@ -53,7 +55,25 @@ public class MovieExtendedMatcher implements Matcher<Movie> {
    *          the search options
    */
   public MovieExtendedMatcher(HashMap<SearchOptions, Object> searchOptions) {
+    this(searchOptions, MovieList.getInstance().getFilterIndex());
+  }
+
+  /**
+   * Instantiates a new movies extended matcher working on the given filter index.
+   * 
+   * @param searchOptions
+   *          the search options
+   * @param filterIndex
+   *          the index to evaluate the search options against
+   */
+  public MovieExtendedMatcher(HashMap<SearchOptions, Object> searchOptions, MovieFilterIndex filterIndex) {
     this.searchOptions = searchOptions;
+    this.filterIndex = filterIndex;
+
+    String castSearch = (String) searchOptions.get(SearchOptions.CAST);
+    if (StringUtils.isNotEmpty(castSearch)) {
+      castPattern = Pattern.compile("(?i)" + Pattern.quote(castSearch));
+    }
   }
 
   @Override
@@ -63,197 +83,147 @@ public class MovieExtendedMatcher implements Matcher<Movie> {
       return false;
     }
 
-    // check duplicates
+    // check the indexed options
+    int slot = filterIndex.getSlot(movie);
+    if (slot < 0 || !getMatchingMovies().get(slot)) {
+      return false;
+    }
+
+    // check duplicates (not indexed since the flag is set without firing events)
     if (searchOptions.containsKey(SearchOptions.DUPLICATES)) {
       if (!movie.isDuplicate()) {
         return false;
       }
     }
 
-    // check against watched flag
-    if (searchOptions.containsKey(SearchOptions.WATCHED)) {
-      boolean watched = (Boolean) searchOptions.get(SearchOptions.WATCHED);
-      boolean result = !(movie.isWatched() ^ watched);
-      if (result == false) {
+    // check against new movies (not indexed since the flag is set without firing events)
+    if (searchOptions.containsKey(SearchOptions.NEW_MOVIES)) {
+      if (!movie.isNewlyAdded()) {
         return false;
       }
     }
 
-    // check against genre
-    if (searchOptions.containsKey(SearchOptions.GENRE)) {
-      MediaGenres genre = (MediaGenres) searchOptions.get(SearchOptions.GENRE);
-      if (!movie.getGenres().contains(genre)) {
+    // check against cast member
+    if (searchOptions.containsKey(SearchOptions.CAST)) {
+      if (!containsCast(movie)) {
         return false;
       }
     }
 
-    // check against certification
-    if (searchOptions.containsKey(SearchOptions.CERTIFICATION)) {
-      Certification cert = (Certification) searchOptions.get(SearchOptions.CERTIFICATION);
-      if (cert != movie.getCertification()) {
-        return false;
-      }
+    return true;
+  }
+
+  /**
+   * get the bitset of all movies matching the indexed search options; this is being recalculated whenever the index has changed
+   */
+  private synchronized BitSet getMatchingMovies() {
+    int version = filterIndex.getVersion();
+    if (matchingMovies == null || version != indexVersion) {
+      matchingMovies = calculateMatchingMovies();
+      indexVersion = version;
     }
+    return matchingMovies;
+  }
 
-    // check against cast member
-    if (searchOptions.containsKey(SearchOptions.CAST)) {
-      String castSearch = (String) searchOptions.get(SearchOptions.CAST);
-      if (!containsCast(movie, castSearch)) {
-        return false;
-      }
+  private BitSet calculateMatchingMovies() {
+    BitSet result = filterIndex.getAll();
+
+    // check against watched flag
+    if (searchOptions.containsKey(SearchOptions.WATCHED)) {
+      Boolean watched = (Boolean) searchOptions.get(SearchOptions.WATCHED);
+      result.and(filterIndex.get(Field.WATCHED, watched));
+    }
+
+    // check against genre
+    if (searchOptions.containsKey(SearchOptions.GENRE)) {
+      result.and(filterIndex.get(Field.GENRE, searchOptions.get(SearchOptions.GENRE)));
+    }
+
+    // check against certification
+    if (searchOptions.containsKey(SearchOptions.CERTIFICATION)) {
+      result.and(filterIndex.get(Field.CERTIFICATION, searchOptions.get(SearchOptions.CERTIFICATION)));
     }
 
     // check against tag
     if (searchOptions.containsKey(SearchOptions.TAG)) {
-      String tag = (String) searchOptions.get(SearchOptions.TAG);
-      if (!containsTag(movie, tag)) {
-        return false;
-      }
+      result.and(filterIndex.get(Field.TAG, searchOptions.get(SearchOptions.TAG)));
     }
 
     // check against MOVIESET
     if (searchOptions.containsKey(SearchOptions.MOVIESET)) {
-      Boolean isInSet = (Boolean) searchOptions.get(SearchOptions.MOVIESET);
-      if ((movie.getMovieSet() != null) != isInSet) {
-        return false;
-      }
+      result.and(filterIndex.get(Field.IN_MOVIESET, searchOptions.get(SearchOptions.MOVIESET)));
     }
 
     // check against video format
     if (searchOptions.containsKey(SearchOptions.VIDEO_FORMAT)) {
       String videoFormat = (String) searchOptions.get(SearchOptions.VIDEO_FORMAT);
-      if (videoFormat == MediaFile.VIDEO_FORMAT_HD || videoFormat == MediaFile.VIDEO_FORMAT_SD) {
-        if (videoFormat == MediaFile.VIDEO_FORMAT_HD && !isVideoHD(movie.getMediaInfoVideoFormat())) {
-          return false;
-        }
-        if (videoFormat == MediaFile.VIDEO_FORMAT_SD && isVideoHD(movie.getMediaInfoVideoFormat())) {
-          return false;
-        }
+      if (videoFormat == MediaFile.VIDEO_FORMAT_HD) {
+        result.and(getHdMovies());
+      }
+      else if (videoFormat == MediaFile.VIDEO_FORMAT_SD) {
+        result.andNot(getHdMovies());
       }
       else {
-        if (videoFormat != movie.getMediaInfoVideoFormat()) {
-          return false;
-        }
+        result.and(filterIndex.get(Field.VIDEO_FORMAT, videoFormat));
       }
     }
 
     // check against video codec
     if (searchOptions.containsKey(SearchOptions.VIDEO_CODEC)) {
-      String videoCodec = (String) searchOptions.get(SearchOptions.VIDEO_CODEC);
-      if (!videoCodec.equals(movie.getMediaInfoVideoCodec())) {
-        return false;
-      }
+      result.and(filterIndex.get(Field.VIDEO_CODEC, searchOptions.get(SearchOptions.VIDEO_CODEC)));
     }
 
     // check against audio codec
     if (searchOptions.containsKey(SearchOptions.AUDIO_CODEC)) {
-      String audioCodec = (String) searchOptions.get(SearchOptions.AUDIO_CODEC);
-      if (!containsAudioCodec(movie, audioCodec)) {
-        return false;
-      }
+      result.and(filterIndex.get(Field.AUDIO_CODEC, searchOptions.get(SearchOptions.AUDIO_CODEC)));
     }
 
     // check against datasource
     if (searchOptions.containsKey(SearchOptions.DATASOURCE)) {
       String datasource = (String) searchOptions.get(SearchOptions.DATASOURCE);
-      if (!new File(datasource).equals(new File(movie.getDataSource()))) {
-        return false;
-      }
+      result.and(filterIndex.get(Field.DATASOURCE, new File(datasource)));
     }
 
     // check against missing metadata
     if (searchOptions.containsKey(SearchOptions.MISSING_METADATA)) {
-      if (movie.isScraped()) {
-        return false;
-      }
+      result.andNot(filterIndex.get(Field.SCRAPED, Boolean.TRUE));
     }
 
     // check against missing artwork
     if (searchOptions.containsKey(SearchOptions.MISSING_ARTWORK)) {
-      if (movie.getHasImages()) {
-        return false;
-      }
+      result.andNot(filterIndex.get(Field.HAS_IMAGES, Boolean.TRUE));
     }
 
     // check against missing subtitles
     if (searchOptions.containsKey(SearchOptions.MISSING_SUBTITLES)) {
-      if (movie.hasSubtitles()) {
-        return false;
-      }
-    }
-
-    // check against new movies
-    if (searchOptions.containsKey(SearchOptions.NEW_MOVIES)) {
-      if (!movie.isNewlyAdded()) {
-        return false;
-      }
+      result.andNot(filterIndex.get(Field.HAS_SUBTITLES, Boolean.TRUE));
     }
 
     // check against movie source
     if (searchOptions.containsKey(SearchOptions.MEDIA_SOURCE)) {
-      MovieMediaSource mediaSource = (MovieMediaSource) searchOptions.get(SearchOptions.MEDIA_SOURCE);
-      if (movie.getMediaSource() != mediaSource) {
-        return false;
-      }
+      result.and(filterIndex.get(Field.MEDIA_SOURCE, searchOptions.get(SearchOptions.MEDIA_SOURCE)));
     }
 
     // check against year
     if (searchOptions.containsKey(SearchOptions.YEAR)) {
       Integer year = (Integer) searchOptions.get(SearchOptions.YEAR);
-      if (!movie.getYear().equals(year.toString())) {
-        return false;
-      }
-    }
-
-    return true;
-  }
-
-  private boolean isVideoHD(String videoFormat) {
-    if (videoFormat == MediaFile.VIDEO_FORMAT_720P) {
-      return true;
-    }
-    if (videoFormat == MediaFile.VIDEO_FORMAT_1080P) {
-      return true;
-    }
-    if (videoFormat == MediaFile.VIDEO_FORMAT_4K) {
-      return true;
-    }
-    if (videoFormat == MediaFile.VIDEO_FORMAT_8K) {
-      return true;
-    }
-    return false;
-  }
-
-  private boolean containsAudioCodec(Movie movie, String codec) {
-    List<MediaFile> videoFiles = movie.getMediaFiles(MediaFileType.VIDEO);
-
-    if (videoFiles.size() == 0) {
-      return false;
-    }
-
-    MediaFile mf = videoFiles.get(0);
-    for (MediaFileAudioStream stream : mf.getAudioStreams()) {
-      if (codec.equals(stream.getCodec())) {
-        return true;
-      }
+      result.and(filterIndex.get(Field.YEAR, year.toString()));
     }
 
-    return false;
+    return result;
   }
 
-  private boolean containsTag(Movie movie, String tag) {
-    for (String tagInMovie : movie.getTags()) {
-      if (tagInMovie.equals(tag)) {
-        return true;
-      }
-    }
-
-    return false;
+  private BitSet getHdMovies() {
+    BitSet hd = filterIndex.get(Field.VIDEO_FORMAT, MediaFile.VIDEO_FORMAT_720P);
+    hd.or(filterIndex.get(Field.VIDEO_FORMAT, MediaFile.VIDEO_FORMAT_1080P));
+    hd.or(filterIndex.get(Field.VIDEO_FORMAT, MediaFile.VIDEO_FORMAT_4K));
+    hd.or(filterIndex.get(Field.VIDEO_FORMAT, MediaFile.VIDEO_FORMAT_8K));
+    return hd;
   }
 
-  private boolean containsCast(Movie movie, String name) {
-    if (StringUtils.isNotEmpty(name)) {
-      Pattern pattern = Pattern.compile("(?i)" + Pattern.quote(name));
+  private boolean containsCast(Movie movie) {
+    if (castPattern != null) {
+      Pattern pattern = castPattern;
       java.util.regex.Matcher matcher = null;
 
       // director
@@ -17,6 +17,7 @@ package org.tinymediamanager.ui.movies;
 
 import java.awt.Dimension;
 import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
@@ -37,15 +38,19 @@ import javax.swing.JSeparator;
 import javax.swing.JSpinner;
 import javax.swing.JTextField;
 import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingWorker;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
 import org.tinymediamanager.core.Settings;
 import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.movie.MovieDuplicateDetector.DuplicateCluster;
 import org.tinymediamanager.core.movie.MovieList;
 import org.tinymediamanager.core.movie.MovieMediaSource;
 import org.tinymediamanager.core.movie.MovieSettings;
@@ -55,6 +60,7 @@ import org.tinymediamanager.ui.SmallCheckBoxUI;
 import org.tinymediamanager.ui.SmallSpinnerUI;
 import org.tinymediamanager.ui.SmallTextFieldBorder;
 import org.tinymediamanager.ui.UTF8Control;
+import org.tinymediamanager.ui.components.LinkLabel;
 import org.tinymediamanager.ui.components.RoundedPanel;
 import org.tinymediamanager.ui.components.SmallComboBox;
 import org.tinymediamanager.ui.movies.MovieExtendedComparator.MovieInMovieSet;
@@ -62,6 +68,7 @@ import org.tinymediamanager.ui.movies.MovieExtendedComparator.SortColumn;
 import org.tinymediamanager.ui.movies.MovieExtendedComparator.SortOrder;
 import org.tinymediamanager.ui.movies.MovieExtendedComparator.WatchedFlag;
 import org.tinymediamanager.ui.movies.MovieExtendedMatcher.SearchOptions;
+import org.tinymediamanager.ui.movies.dialogs.MovieDuplicatesDialog;
 
 import com.jgoodies.forms.factories.FormFactory;
 import com.jgoodies.forms.layout.ColumnSpec;
@@ -78,6 +85,7 @@ public class MovieExtendedSearchPanel extends RoundedPanel {
   private static final long            serialVersionUID = -4170930017190753789L;
   /** @wbp.nls.resourceBundle messages */
   private static final ResourceBundle  BUNDLE           = ResourceBundle.getBundle("messages", new UTF8Control());              //$NON-NLS-1$
+  private static final Logger          LOGGER           = LoggerFactory.getLogger(MovieExtendedSearchPanel.class);
   private static final float           FONT_SIZE        = Math.round(Globals.settings.getFontSize() * 0.916);
   private static final SmallCheckBoxUI CHECKBOX_UI      = AbstractLookAndFeel.getTheme() != null ? new SmallCheckBoxUI() : null; // hint for WBPro
 
@@ -98,6 +106,7 @@ public class MovieExtendedSearchPanel extends RoundedPanel {
   private JCheckBox                    cbFilterTag;
   private JComboBox                    cbTag;
   private JCheckBox                    cbFilterDuplicates;
+  private LinkLabel                    lblDuplicates;
   private JCheckBox                    cbFilterMovieset;
   private JComboBox                    cbMovieset;
   private JCheckBox                    cbFilterVideoFormat;
@@ -125,6 +134,9 @@ public class MovieExtendedSearchPanel extends RoundedPanel {
   private JLabel                       lblYear;
   private JSpinner                     spYear;
 
+  private List<DuplicateCluster>       duplicates       = new ArrayList<DuplicateCluster>();
+  private DuplicateSearchWorker        duplicateSearch;
+
   /**
    * Instantiates a new movie extended search
    * 
@@ -166,6 +178,18 @@ public class MovieExtendedSearchPanel extends RoundedPanel {
     setComponentFont(lblShowDuplicates);
     add(lblShowDuplicates, "4, 4, right, default");
 
+    lblDuplicates = new LinkLabel("");
+    setComponentFont(lblDuplicates);
+    lblDuplicates.addActionListener(new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        if (!duplicates.isEmpty()) {
+          new MovieDuplicatesDialog(duplicates).setVisible(true);
+        }
+      }
+    });
+    add(lblDuplicates, "6, 4");
+
     cbFilterWatched = new JCheckBox("");
     cbFilterWatched.setUI(CHECKBOX_UI); // $hide$
     cbFilterWatched.setAction(actionFilter);
@@ -503,11 +527,21 @@ public class MovieExtendedSearchPanel extends RoundedPanel {
     public void actionPerformed(ActionEvent e) {
       HashMap<SearchOptions, Object> searchOptions = new HashMap<SearchOptions, Object>();
 
-      // filter duplicates
+      // filter duplicates; the search may hash the files, so it runs in the background and filters when it is finished
+      if (e.getSource() == cbFilterDuplicates && cbFilterDuplicates.isSelected()) {
+        if (duplicateSearch == null || duplicateSearch.isDone()) {
+          lblDuplicates.setText(BUNDLE.getString("movieextendedsearch.duplicates.searching")); //$NON-NLS-1$
+          duplicateSearch = new DuplicateSearchWorker();
+          duplicateSearch.execute();
+        }
+        return;
+      }
       if (cbFilterDuplicates.isSelected()) {
-        movieList.searchDuplicates();
         searchOptions.put(SearchOptions.DUPLICATES, null);
       }
+      else {
+        lblDuplicates.setText("");
+      }
 
       // filter for watched flag
       if (cbFilterWatched.isSelected()) {
@@ -625,6 +659,28 @@ public class MovieExtendedSearchPanel extends RoundedPanel {
     }
   }
 
+  private class DuplicateSearchWorker extends SwingWorker<List<DuplicateCluster>, Void> {
+    @Override
+    protected List<DuplicateCluster> doInBackground() throws Exception {
+      return movieList.searchDuplicates();
+    }
+
+    @Override
+    protected void done() {
+      try {
+        duplicates = get();
+      }
+      catch (Exception e) {
+        LOGGER.warn("duplicate search failed: " + e.getMessage());
+        duplicates = new ArrayList<DuplicateCluster>();
+      }
+      if (cbFilterDuplicates.isSelected()) {
+        lblDuplicates.setText(duplicates.size() + " " + BUNDLE.getString("movieextendedsearch.duplicates.groups")); //$NON-NLS-1$
+      }
+      actionFilter.actionPerformed(new ActionEvent(MovieExtendedSearchPanel.this, ActionEvent.ACTION_PERFORMED, ""));
+    }
+  }
+
   private String[] getVideoFormats() {
     return new String[] { MediaFile.VIDEO_FORMAT_480P, MediaFile.VIDEO_FORMAT_540P, MediaFile.VIDEO_FORMAT_576P, MediaFile.VIDEO_FORMAT_720P,
         MediaFile.VIDEO_FORMAT_1080P, MediaFile.VIDEO_FORMAT_4K, MediaFile.VIDEO_FORMAT_SD, MediaFile.VIDEO_FORMAT_HD }; // MediaFile.VIDEO_FORMAT_8K,
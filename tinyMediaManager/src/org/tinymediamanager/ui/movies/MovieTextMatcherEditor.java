@@ -0,0 +1,122 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.ui.movies;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.JTextComponent;
+
+import org.apache.commons.lang3.StringUtils;
+import org.tinymediamanager.core.movie.MovieList;
+import org.tinymediamanager.core.movie.entities.Movie;
+
+import ca.odell.glazedlists.TextFilterator;
+import ca.odell.glazedlists.matchers.AbstractMatcherEditor;
+import ca.odell.glazedlists.matchers.Matcher;
+
+/**
+ * The Class MovieTextMatcherEditor. Filters the movie list by the text of the search field; the text is being looked up in the full text index of
+ * all movies (title, plot, cast, tags, file names, ...) and additionally matched against the strings of the filterator (like the
+ * TextComponentMatcherEditor does)
+ *
+ * @author Manuel Laggner
+ */
+public class MovieTextMatcherEditor extends AbstractMatcherEditor<Movie> {
+  private final JTextComponent        textComponent;
+  private final TextFilterator<Movie> filterator;
+
+  /**
+   * Instantiates a new movie text matcher editor.
+   *
+   * @param textComponent
+   *          the text component holding the search text
+   * @param filterator
+   *          the filterator for the fallback text search
+   */
+  public MovieTextMatcherEditor(JTextComponent textComponent, TextFilterator<Movie> filterator) {
+    this.textComponent = textComponent;
+    this.filterator = filterator;
+    this.textComponent.getDocument().addDocumentListener(new DocumentListener() {
+      @Override
+      public void removeUpdate(DocumentEvent e) {
+        refilter();
+      }
+
+      @Override
+      public void insertUpdate(DocumentEvent e) {
+        refilter();
+      }
+
+      @Override
+      public void changedUpdate(DocumentEvent e) {
+        refilter();
+      }
+    });
+  }
+
+  private void refilter() {
+    String text = textComponent.getText();
+    if (StringUtils.isBlank(text)) {
+      fireMatchAll();
+      return;
+    }
+
+    Set<Movie> hits = Collections.newSetFromMap(new IdentityHashMap<Movie, Boolean>());
+    hits.addAll(MovieList.getInstance().searchMovies(text, Integer.MAX_VALUE));
+    fireChanged(new MovieTextMatcher(hits, StringUtils.split(text.toLowerCase(Locale.ROOT))));
+  }
+
+  private class MovieTextMatcher implements Matcher<Movie> {
+    private final Set<Movie> hits;
+    private final String[]   words;
+
+    private MovieTextMatcher(Set<Movie> hits, String[] words) {
+      this.hits = hits;
+      this.words = words;
+    }
+
+    @Override
+    public boolean matches(Movie movie) {
+      if (hits.contains(movie)) {
+        return true;
+      }
+
+      // fallback: every word has to be found in one of the filter strings
+      List<String> strings = new ArrayList<String>();
+      filterator.getFilterStrings(strings, movie);
+      for (String word : words) {
+        boolean found = false;
+        for (String string : strings) {
+          if (string != null && string.toLowerCase(Locale.ROOT).contains(word)) {
+            found = true;
+            break;
+          }
+        }
+        if (!found) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -26,6 +26,7 @@ import javax.swing.JOptionPane;
 import org.tinymediamanager.core.movie.MovieSearchAndScrapeOptions;
 import org.tinymediamanager.core.movie.entities.Movie;
 import org.tinymediamanager.core.movie.tasks.MovieScrapeTask;
+import org.tinymediamanager.core.threading.TmmTaskHandle.TaskPriority;
 import org.tinymediamanager.core.threading.TmmTaskManager;
 import org.tinymediamanager.core.threading.TmmThreadPool;
 import org.tinymediamanager.ui.IconManager;
@@ -64,6 +65,10 @@ public class MovieSelectedScrapeAction extends AbstractAction {
       if (dialog.shouldStartScrape()) {
         // scrape
         TmmThreadPool scrapeTask = new MovieScrapeTask(selectedMovies, true, options);
+        if (selectedMovies.size() == 1) {
+          // the user is waiting for this one
+          scrapeTask.setPriority(TaskPriority.INTERACTIVE);
+        }
         if (TmmTaskManager.getInstance().addMainTask(scrapeTask)) {
           JOptionPane.showMessageDialog(null, BUNDLE.getString("onlyoneoperation")); //$NON-NLS-1$
         }
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.ui.movies.dialogs;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+import javax.swing.JButton;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+
+import org.apache.commons.lang3.StringUtils;
+import org.tinymediamanager.core.movie.MovieDuplicateDetector.DuplicateCluster;
+import org.tinymediamanager.core.movie.entities.Movie;
+import org.tinymediamanager.ui.UTF8Control;
+import org.tinymediamanager.ui.dialogs.TmmDialog;
+
+import com.jgoodies.forms.factories.FormFactory;
+import com.jgoodies.forms.layout.ColumnSpec;
+import com.jgoodies.forms.layout.FormLayout;
+import com.jgoodies.forms.layout.RowSpec;
+
+/**
+ * The class MovieDuplicatesDialog. Shows the groups of duplicates with their confidence and the reasons why they have been grouped.
+ * 
+ * @author Manuel Laggner
+ */
+public class MovieDuplicatesDialog extends TmmDialog {
+  private static final long           serialVersionUID = 3018416276471580913L;
+  /** @wbp.nls.resourceBundle messages */
+  private static final ResourceBundle BUNDLE           = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+
+  public MovieDuplicatesDialog(List<DuplicateCluster> duplicates) {
+    super(BUNDLE.getString("duplicates.title"), "movieDuplicates"); //$NON-NLS-1$
+    setBounds(5, 5, 800, 500);
+
+    getContentPane().setLayout(
+        new FormLayout(new ColumnSpec[] { FormFactory.RELATED_GAP_COLSPEC, ColumnSpec.decode("default:grow"), FormFactory.RELATED_GAP_COLSPEC, },
+            new RowSpec[] { FormFactory.RELATED_GAP_ROWSPEC, RowSpec.decode("default:grow"), FormFactory.RELATED_GAP_ROWSPEC,
+                FormFactory.DEFAULT_ROWSPEC, FormFactory.RELATED_GAP_ROWSPEC, }));
+
+    JScrollPane scrollPane = new JScrollPane();
+    getContentPane().add(scrollPane, "2, 2, fill, fill");
+
+    JTextArea taDuplicates = new JTextArea();
+    taDuplicates.setEditable(false);
+    taDuplicates.setText(format(duplicates));
+    taDuplicates.setCaretPosition(0);
+    scrollPane.setViewportView(taDuplicates);
+    {
+      JButton btnClose = new JButton(BUNDLE.getString("Button.close")); //$NON-NLS-1$
+      btnClose.addActionListener(new ActionListener() {
+        @Override
+        public void actionPerformed(ActionEvent arg0) {
+          setVisible(false);
+        }
+      });
+      getContentPane().add(btnClose, "2, 4, right, default");
+    }
+  }
+
+  @Override
+  public void pack() {
+    // do not let it pack - it looks weird
+  }
+
+  /**
+   * format the groups (the most certain first) as readable text
+   */
+  private String format(List<DuplicateCluster> duplicates) {
+    List<DuplicateCluster> sorted = new ArrayList<DuplicateCluster>(duplicates);
+    Collections.sort(sorted, new Comparator<DuplicateCluster>() {
+      @Override
+      public int compare(DuplicateCluster o1, DuplicateCluster o2) {
+        return Float.compare(o2.getConfidence(), o1.getConfidence());
+      }
+    });
+
+    StringBuilder sb = new StringBuilder();
+    for (DuplicateCluster cluster : sorted) {
+      sb.append(String.format(Locale.ROOT, "%3.0f%%", cluster.getConfidence() * 100)).append("  ")
+          .append(StringUtils.join(cluster.getReasons(), ", ")).append('\n');
+      for (Movie movie : cluster.getMovies()) {
+        sb.append("      ").append(movie.getTitle());
+        if (StringUtils.isNotBlank(movie.getYear())) {
+          sb.append(" (").append(movie.getYear()).append(")");
+        }
+        sb.append("  -  ").append(movie.getPath()).append('\n');
+      }
+      sb.append('\n');
+    }
+    return sb.toString();
+  }
+}
@@ -17,17 +17,23 @@ package org.tinymediamanager.ui.tvshows;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
-import org.tinymediamanager.core.MediaFileType;
+import org.tinymediamanager.core.entities.MediaEntity;
 import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.tvshow.TvShowEpisodeFilterIndex;
+import org.tinymediamanager.core.tvshow.TvShowFilterIndex;
+import org.tinymediamanager.core.tvshow.TvShowList;
 import org.tinymediamanager.core.tvshow.entities.TvShow;
 import org.tinymediamanager.core.tvshow.entities.TvShowActor;
 import org.tinymediamanager.core.tvshow.entities.TvShowEpisode;
@@ -35,7 +41,8 @@ import org.tinymediamanager.core.tvshow.entities.TvShowSeason;
 import org.tinymediamanager.scraper.MediaGenres;
 
 /**
- * The class TvShowExtendedMatcher. For search&filter TV shows
+ * The class TvShowExtendedMatcher. For search&filter TV shows. All options which can be expressed by the filter indices of the TvShowList are
+ * being evaluated as bitset operations; only the text/cast search and the new episodes flag are checked on the entities itself
  * 
  * @author Manuel Laggner
  */
@@ -46,7 +53,50 @@ class TvShowExtendedMatcher {
     NEW_EPISODES
   }
 
-  Map<SearchOptions, Object> searchOptions = Collections.synchronizedMap(new HashMap<SearchOptions, Object>());
+  private final Map<SearchOptions, Object>  searchOptions  = Collections.synchronizedMap(new HashMap<SearchOptions, Object>());
+  private final TvShowFilterIndex           tvShowIndex;
+  private final TvShowEpisodeFilterIndex    episodeIndex;
+
+  private Map<SearchOptions, IndexedOption> indexedOptions = null;
+  private BitSet                            matchingTvShows;
+  private Pattern                           textPattern;
+  private Set<MediaEntity>                  textHits;
+  private Pattern                           castPattern;
+  private int                               tvShowIndexVersion;
+  private int                               episodeIndexVersion;
+
+  TvShowExtendedMatcher() {
+    this(TvShowList.getInstance().getTvShowFilterIndex(), TvShowList.getInstance().getEpisodeFilterIndex());
+  }
+
+  TvShowExtendedMatcher(TvShowFilterIndex tvShowIndex, TvShowEpisodeFilterIndex episodeIndex) {
+    this.tvShowIndex = tvShowIndex;
+    this.episodeIndex = episodeIndex;
+  }
+
+  /**
+   * set (or replace) a filter option
+   * 
+   * @param option
+   *          the option to set
+   * @param filterArg
+   *          the argument for this option
+   */
+  public synchronized void setFilter(SearchOptions option, Object filterArg) {
+    searchOptions.put(option, filterArg);
+    indexedOptions = null;
+  }
+
+  /**
+   * remove a filter option
+   * 
+   * @param option
+   *          the option to remove
+   */
+  public synchronized void removeFilter(SearchOptions option) {
+    searchOptions.remove(option);
+    indexedOptions = null;
+  }
 
   public boolean matches(final Object bean) {
     // do nothing if there's nothing to filter
@@ -77,399 +127,240 @@ class TvShowExtendedMatcher {
   }
 
   private boolean tvShowFilterMatch(TvShow tvShow) {
-    if (searchOptions.containsKey(SearchOptions.TEXT)) {
-      if (!filterText(tvShow, (String) searchOptions.get(SearchOptions.TEXT))) {
-        return false;
-      }
-    }
-
-    if (searchOptions.containsKey(SearchOptions.DATASOURCE)) {
-      if (!filterDatasource(tvShow, (String) searchOptions.get(SearchOptions.DATASOURCE))) {
-        return false;
-      }
-    }
-
-    if (searchOptions.containsKey(SearchOptions.CAST)) {
-      if (!filterCrew(tvShow, (String) searchOptions.get(SearchOptions.CAST))) {
-        return false;
-      }
-    }
-
-    if (searchOptions.containsKey(SearchOptions.MISSING_METADATA)) {
-      if (!filterMissingMetadata(tvShow)) {
-        return false;
-      }
-    }
-
-    if (searchOptions.containsKey(SearchOptions.MISSING_ARTWORK)) {
-      if (!filterMissingArtwork(tvShow)) {
-        return false;
-      }
-    }
-
-    if (searchOptions.containsKey(SearchOptions.MISSING_SUBTITLES)) {
-      if (!filterMissingSubtitles(tvShow)) {
-        return false;
-      }
-    }
-
-    if (searchOptions.containsKey(SearchOptions.NEW_EPISODES)) {
-      if (!filterNewEpisodes(tvShow)) {
-        return false;
-      }
-    }
-
-    if (searchOptions.containsKey(SearchOptions.WATCHED)) {
-      if (!filterWatched(tvShow, (Boolean) searchOptions.get(SearchOptions.WATCHED))) {
-        return false;
-      }
-    }
-
-    if (searchOptions.containsKey(SearchOptions.GENRE)) {
-      if (!filterGenre(tvShow, (MediaGenres) searchOptions.get(SearchOptions.GENRE))) {
+    int slot = tvShowIndex.getSlot(tvShow);
+    synchronized (this) {
+      refresh();
+      if (slot < 0 || !matchingTvShows.get(slot)) {
         return false;
       }
     }
 
-    if (searchOptions.containsKey(SearchOptions.TAG)) {
-      if (!filterTag(tvShow, (String) searchOptions.get(SearchOptions.TAG))) {
-        return false;
-      }
+    List<TvShowEpisode> episodes = new ArrayList<TvShowEpisode>(tvShow.getEpisodes());
+    if (!matchesText(tvShow, episodes) || !matchesCrew(tvShow, episodes)) {
+      return false;
     }
 
-    if (searchOptions.containsKey(SearchOptions.VIDEO_CODEC)) {
-      if (!filterVideoCodec(tvShow, (String) searchOptions.get(SearchOptions.VIDEO_CODEC))) {
-        return false;
-      }
+    if (searchOptions.containsKey(SearchOptions.NEW_EPISODES) && !tvShow.isNewlyAdded()) {
+      return false;
     }
 
-    if (searchOptions.containsKey(SearchOptions.AUDIO_CODEC)) {
-      if (!filterAudioCodec(tvShow, (String) searchOptions.get(SearchOptions.AUDIO_CODEC))) {
-        return false;
-      }
-    }
-
-    if (searchOptions.containsKey(SearchOptions.VIDEO_FORMAT)) {
-      if (!filterVideoFormat(tvShow, (String) searchOptions.get(SearchOptions.VIDEO_FORMAT))) {
-        return false;
-      }
-    }
-
-    // fallback
     return true;
   }
 
   private boolean tvShowSeasonFilterMatch(TvShowSeason season) {
-    if (searchOptions.containsKey(SearchOptions.TEXT)) {
-      if (!filterText(season, (String) searchOptions.get(SearchOptions.TEXT))) {
-        return false;
-      }
-    }
-
-    if (searchOptions.containsKey(SearchOptions.CAST)) {
-      if (!filterCrew(season, (String) searchOptions.get(SearchOptions.CAST))) {
-        return false;
-      }
-    }
-
-    if (searchOptions.containsKey(SearchOptions.MISSING_METADATA)) {
-      if (!filterMissingMetadata(season)) {
-        return false;
-      }
-    }
-
-    if (searchOptions.containsKey(SearchOptions.MISSING_ARTWORK)) {
-      if (!filterMissingArtwork(season)) {
-        return false;
-      }
-    }
-
-    if (searchOptions.containsKey(SearchOptions.MISSING_SUBTITLES)) {
-      if (!filterMissingSubtitles(season)) {
-        return false;
-      }
-    }
-
-    if (searchOptions.containsKey(SearchOptions.NEW_EPISODES)) {
-      if (!filterNewEpisodes(season)) {
-        return false;
-      }
-    }
-
-    if (searchOptions.containsKey(SearchOptions.WATCHED)) {
-      if (!filterWatched(season, (Boolean) searchOptions.get(SearchOptions.WATCHED))) {
-        return false;
-      }
-    }
-
-    if (searchOptions.containsKey(SearchOptions.GENRE)) {
-      if (!filterGenre(season, (MediaGenres) searchOptions.get(SearchOptions.GENRE))) {
-        return false;
-      }
-    }
-
-    if (searchOptions.containsKey(SearchOptions.TAG)) {
-      if (!filterTag(season, (String) searchOptions.get(SearchOptions.TAG))) {
-        return false;
-      }
-    }
-
-    if (searchOptions.containsKey(SearchOptions.VIDEO_CODEC)) {
-      if (!filterVideoCodec(season, (String) searchOptions.get(SearchOptions.VIDEO_CODEC))) {
-        return false;
+    List<TvShowEpisode> episodes = new ArrayList<TvShowEpisode>(season.getEpisodes());
+    int tvShowSlot = tvShowIndex.getSlot(season.getTvShow());
+    int[] episodeSlots = new int[episodes.size()];
+    for (int i = 0; i < episodes.size(); i++) {
+      episodeSlots[i] = episodeIndex.getSlot(episodes.get(i));
+    }
+
+    synchronized (this) {
+      refresh();
+      for (IndexedOption option : indexedOptions.values()) {
+        if (!option.matches(tvShowSlot, episodeSlots)) {
+          return false;
+        }
       }
     }
 
-    if (searchOptions.containsKey(SearchOptions.AUDIO_CODEC)) {
-      if (!filterAudioCodec(season, (String) searchOptions.get(SearchOptions.AUDIO_CODEC))) {
-        return false;
-      }
+    if (!matchesText(season.getTvShow(), episodes) || !matchesCrew(season.getTvShow(), episodes)) {
+      return false;
     }
 
-    if (searchOptions.containsKey(SearchOptions.VIDEO_FORMAT)) {
-      if (!filterVideoFormat(season, (String) searchOptions.get(SearchOptions.VIDEO_FORMAT))) {
-        return false;
-      }
+    if (searchOptions.containsKey(SearchOptions.NEW_EPISODES) && !season.isNewlyAdded()) {
+      return false;
     }
 
-    // fallback
     return true;
   }
 
   private boolean tvShowEpisodeFilterMatch(TvShowEpisode episode) {
-    if (searchOptions.containsKey(SearchOptions.TEXT)) {
-      if (!filterText(episode, (String) searchOptions.get(SearchOptions.TEXT))) {
-        return false;
-      }
-    }
-
-    if (searchOptions.containsKey(SearchOptions.CAST)) {
-      if (!filterCrew(episode, (String) searchOptions.get(SearchOptions.CAST))) {
-        return false;
-      }
-    }
-
-    if (searchOptions.containsKey(SearchOptions.MISSING_METADATA)) {
-      if (!filterMissingMetadata(episode)) {
-        return false;
-      }
-    }
-
-    if (searchOptions.containsKey(SearchOptions.MISSING_ARTWORK)) {
-      if (!filterMissingArtwork(episode)) {
-        return false;
-      }
-    }
-
-    if (searchOptions.containsKey(SearchOptions.MISSING_SUBTITLES)) {
-      if (!filterMissingSubtitles(episode)) {
-        return false;
+    int tvShowSlot = tvShowIndex.getSlot(episode.getTvShow());
+    int[] episodeSlots = new int[] { episodeIndex.getSlot(episode) };
+
+    synchronized (this) {
+      refresh();
+      for (IndexedOption option : indexedOptions.values()) {
+        if (!option.matches(tvShowSlot, episodeSlots)) {
+          return false;
+        }
       }
     }
 
-    if (searchOptions.containsKey(SearchOptions.NEW_EPISODES)) {
-      if (!filterNewEpisodes(episode)) {
-        return false;
-      }
+    List<TvShowEpisode> episodes = Collections.singletonList(episode);
+    if (!matchesText(episode.getTvShow(), episodes) || !matchesCrew(episode.getTvShow(), episodes)) {
+      return false;
     }
 
-    if (searchOptions.containsKey(SearchOptions.WATCHED)) {
-      if (!filterWatched(episode, (Boolean) searchOptions.get(SearchOptions.WATCHED))) {
-        return false;
-      }
+    if (searchOptions.containsKey(SearchOptions.NEW_EPISODES) && !episode.isNewlyAdded()) {
+      return false;
     }
 
-    if (searchOptions.containsKey(SearchOptions.GENRE)) {
-      if (!filterGenre(episode, (MediaGenres) searchOptions.get(SearchOptions.GENRE))) {
-        return false;
-      }
-    }
+    return true;
+  }
 
-    if (searchOptions.containsKey(SearchOptions.TAG)) {
-      if (!filterTag(episode, (String) searchOptions.get(SearchOptions.TAG))) {
-        return false;
-      }
+  /**
+   * recalculate the bitsets of the indexed options if the options or one of the indices have changed
+   */
+  private void refresh() {
+    int tvShowVersion = tvShowIndex.getVersion();
+    int episodeVersion = episodeIndex.getVersion();
+    if (indexedOptions != null && tvShowVersion == tvShowIndexVersion && episodeVersion == episodeIndexVersion) {
+      return;
     }
 
-    if (searchOptions.containsKey(SearchOptions.VIDEO_CODEC)) {
-      if (!filterVideoCodec(episode, (String) searchOptions.get(SearchOptions.VIDEO_CODEC))) {
-        return false;
-      }
+    Map<SearchOptions, Object> options;
+    synchronized (searchOptions) {
+      options = new HashMap<SearchOptions, Object>(searchOptions);
     }
 
-    if (searchOptions.containsKey(SearchOptions.AUDIO_CODEC)) {
-      if (!filterAudioCodec(episode, (String) searchOptions.get(SearchOptions.AUDIO_CODEC))) {
-        return false;
+    indexedOptions = new EnumMap<SearchOptions, IndexedOption>(SearchOptions.class);
+    for (Map.Entry<SearchOptions, Object> entry : options.entrySet()) {
+      IndexedOption option = createIndexedOption(entry.getKey(), entry.getValue());
+      if (option != null) {
+        indexedOptions.put(entry.getKey(), option);
       }
     }
 
-    if (searchOptions.containsKey(SearchOptions.VIDEO_FORMAT)) {
-      if (!filterVideoFormat(episode, (String) searchOptions.get(SearchOptions.VIDEO_FORMAT))) {
-        return false;
+    // the TV shows: the show itself or at least one episode has to match every option
+    matchingTvShows = tvShowIndex.getAll();
+    for (IndexedOption option : indexedOptions.values()) {
+      BitSet tvShows = option.tvShows != null ? (BitSet) option.tvShows.clone() : new BitSet();
+      if (option.episodes != null) {
+        for (int i = option.episodes.nextSetBit(0); i >= 0; i = option.episodes.nextSetBit(i + 1)) {
+          TvShowEpisode episode = episodeIndex.getEntity(i);
+          if (episode != null && episode.getTvShow() != null) {
+            int slot = tvShowIndex.getSlot(episode.getTvShow());
+            if (slot >= 0) {
+              tvShows.set(slot);
+            }
+          }
+        }
       }
+      matchingTvShows.and(tvShows);
     }
 
-    // fallback
-    return true;
-  }
-
-  private boolean filterText(TvShow tvShow, String filterText) {
-    return matchesText(tvShow, new ArrayList<TvShowEpisode>(tvShow.getEpisodes()), filterText);
-  }
-
-  private boolean filterText(TvShowSeason season, String filterText) {
-    return matchesText(season.getTvShow(), new ArrayList<TvShowEpisode>(season.getEpisodes()), filterText);
-  }
-
-  private boolean filterText(TvShowEpisode episode, String filterText) {
-    return matchesText(episode.getTvShow(), Arrays.asList(episode), filterText);
-  }
-
-  private boolean filterDatasource(TvShow tvShow, String datasource) {
-    if (new File(tvShow.getDataSource()).equals(new File(datasource))) {
-      return true;
+    // the datasource is only checked for TV shows
+    if (options.containsKey(SearchOptions.DATASOURCE)) {
+      String datasource = (String) options.get(SearchOptions.DATASOURCE);
+      matchingTvShows.and(tvShowIndex.get(TvShowFilterIndex.Field.DATASOURCE, new File(datasource)));
     }
-    return false;
-  }
 
-  private boolean filterCrew(TvShow tvShow, String filterText) {
-    return matchesCrew(tvShow, new ArrayList<TvShowEpisode>(tvShow.getEpisodes()), filterText);
-  }
+    textPattern = createPattern((String) options.get(SearchOptions.TEXT));
+    textHits = searchText((String) options.get(SearchOptions.TEXT));
+    castPattern = createPattern((String) options.get(SearchOptions.CAST));
 
-  private boolean filterCrew(TvShowSeason season, String filterText) {
-    return matchesCrew(season.getTvShow(), new ArrayList<TvShowEpisode>(season.getEpisodes()), filterText);
+    tvShowIndexVersion = tvShowVersion;
+    episodeIndexVersion = episodeVersion;
   }
 
-  private boolean filterCrew(TvShowEpisode episode, String filterText) {
-    return matchesCrew(episode.getTvShow(), Arrays.asList(episode), filterText);
-  }
+  private IndexedOption createIndexedOption(SearchOptions option, Object arg) {
+    switch (option) {
+      case WATCHED:
+        return new IndexedOption(null, episodeIndex.get(TvShowEpisodeFilterIndex.Field.WATCHED, arg));
 
-  private boolean filterMissingMetadata(TvShow tvShow) {
-    return matchesMissingMetadata(tvShow, new ArrayList<TvShowEpisode>(tvShow.getEpisodes()));
-  }
+      case GENRE:
+        return new IndexedOption(tvShowIndex.get(TvShowFilterIndex.Field.GENRE, (MediaGenres) arg), null);
 
-  private boolean filterMissingMetadata(TvShowSeason season) {
-    return matchesMissingMetadata(season.getTvShow(), new ArrayList<TvShowEpisode>(season.getEpisodes()));
-  }
-
-  private boolean filterMissingMetadata(TvShowEpisode episode) {
-    return matchesMissingMetadata(episode.getTvShow(), Arrays.asList(episode));
-  }
+      case TAG:
+        return new IndexedOption(tvShowIndex.get(TvShowFilterIndex.Field.TAG, arg), episodeIndex.get(TvShowEpisodeFilterIndex.Field.TAG, arg));
 
-  private boolean filterMissingArtwork(TvShow tvShow) {
-    return matchesMissingArtwork(tvShow, new ArrayList<TvShowEpisode>(tvShow.getEpisodes()));
-  }
-
-  private boolean filterMissingArtwork(TvShowSeason season) {
-    return matchesMissingArtwork(season.getTvShow(), new ArrayList<TvShowEpisode>(season.getEpisodes()));
-  }
-
-  private boolean filterMissingArtwork(TvShowEpisode episode) {
-    return matchesMissingArtwork(episode.getTvShow(), Arrays.asList(episode));
-  }
-
-  private boolean filterMissingSubtitles(TvShow tvShow) {
-    return matchesMissingSubtitles(new ArrayList<TvShowEpisode>(tvShow.getEpisodes()));
-  }
-
-  private boolean filterMissingSubtitles(TvShowSeason season) {
-    return matchesMissingSubtitles(new ArrayList<TvShowEpisode>(season.getEpisodes()));
-  }
-
-  private boolean filterMissingSubtitles(TvShowEpisode episode) {
-    return matchesMissingSubtitles(Arrays.asList(episode));
-  }
-
-  private boolean filterNewEpisodes(TvShow tvShow) {
-    return tvShow.isNewlyAdded();
-  }
-
-  private boolean filterNewEpisodes(TvShowSeason season) {
-    return season.isNewlyAdded();
-  }
-
-  private boolean filterNewEpisodes(TvShowEpisode episode) {
-    return episode.isNewlyAdded();
-  }
-
-  private boolean filterWatched(TvShow tvShow, Boolean watched) {
-    return matchesWatched(new ArrayList<TvShowEpisode>(tvShow.getEpisodes()), watched);
-  }
-
-  private boolean filterWatched(TvShowSeason season, Boolean watched) {
-    return matchesWatched(new ArrayList<TvShowEpisode>(season.getEpisodes()), watched);
-  }
-
-  private boolean filterWatched(TvShowEpisode episode, Boolean watched) {
-    return matchesWatched(Arrays.asList(episode), watched);
-  }
-
-  private boolean filterGenre(TvShow tvShow, MediaGenres genre) {
-    return matchesGenre(tvShow, genre);
-  }
-
-  private boolean filterGenre(TvShowSeason season, MediaGenres genre) {
-    return matchesGenre(season.getTvShow(), genre);
-  }
-
-  private boolean filterGenre(TvShowEpisode episode, MediaGenres genre) {
-    return matchesGenre(episode.getTvShow(), genre);
-  }
-
-  private boolean filterTag(TvShow tvShow, String tag) {
-    return matchesTag(tvShow, new ArrayList<TvShowEpisode>(tvShow.getEpisodes()), tag);
-  }
-
-  private boolean filterTag(TvShowSeason season, String tag) {
-    return matchesTag(season.getTvShow(), new ArrayList<TvShowEpisode>(season.getEpisodes()), tag);
-  }
+      case VIDEO_CODEC:
+        if (StringUtils.isBlank((String) arg)) {
+          return null;
+        }
+        return new IndexedOption(null, episodeIndex.get(TvShowEpisodeFilterIndex.Field.VIDEO_CODEC, ((String) arg).toLowerCase()));
 
-  private boolean filterTag(TvShowEpisode episode, String tag) {
-    return matchesTag(episode.getTvShow(), Arrays.asList(episode), tag);
-  }
+      case AUDIO_CODEC:
+        if (StringUtils.isBlank((String) arg)) {
+          return null;
+        }
+        return new IndexedOption(null, episodeIndex.get(TvShowEpisodeFilterIndex.Field.AUDIO_CODEC, ((String) arg).toLowerCase()));
 
-  private boolean filterVideoCodec(TvShow tvShow, String codec) {
-    return matchesVideoCodec(tvShow, new ArrayList<TvShowEpisode>(tvShow.getEpisodes()), codec);
-  }
+      case VIDEO_FORMAT:
+        String videoFormat = (String) arg;
+        if (StringUtils.isBlank(videoFormat)) {
+          return null;
+        }
+        if (videoFormat == MediaFile.VIDEO_FORMAT_HD) {
+          return new IndexedOption(null, getHdEpisodes());
+        }
+        if (videoFormat == MediaFile.VIDEO_FORMAT_SD) {
+          BitSet sd = episodeIndex.getAll();
+          sd.andNot(getHdEpisodes());
+          return new IndexedOption(null, sd);
+        }
+        return new IndexedOption(null, episodeIndex.get(TvShowEpisodeFilterIndex.Field.VIDEO_FORMAT, videoFormat));
 
-  private boolean filterVideoCodec(TvShowSeason season, String codec) {
-    return matchesVideoCodec(season.getTvShow(), new ArrayList<TvShowEpisode>(season.getEpisodes()), codec);
-  }
+      case MISSING_METADATA:
+        return new IndexedOption(missing(tvShowIndex.getAll(), tvShowIndex.get(TvShowFilterIndex.Field.SCRAPED, Boolean.TRUE)), missing(
+            episodeIndex.getAll(), episodeIndex.get(TvShowEpisodeFilterIndex.Field.SCRAPED, Boolean.TRUE)));
 
-  private boolean filterVideoCodec(TvShowEpisode episode, String codec) {
-    return matchesVideoCodec(episode.getTvShow(), Arrays.asList(episode), codec);
-  }
+      case MISSING_ARTWORK:
+        return new IndexedOption(missing(tvShowIndex.getAll(), tvShowIndex.get(TvShowFilterIndex.Field.HAS_IMAGES, Boolean.TRUE)), missing(
+            episodeIndex.getAll(), episodeIndex.get(TvShowEpisodeFilterIndex.Field.HAS_IMAGES, Boolean.TRUE)));
 
-  private boolean filterAudioCodec(TvShow tvShow, String codec) {
-    return matchesAudioCodec(tvShow, new ArrayList<TvShowEpisode>(tvShow.getEpisodes()), codec);
-  }
+      case MISSING_SUBTITLES:
+        return new IndexedOption(null, missing(episodeIndex.getAll(), episodeIndex.get(TvShowEpisodeFilterIndex.Field.HAS_SUBTITLES, Boolean.TRUE)));
 
-  private boolean filterAudioCodec(TvShowSeason season, String codec) {
-    return matchesAudioCodec(season.getTvShow(), new ArrayList<TvShowEpisode>(season.getEpisodes()), codec);
+      default:
+        // not indexed
+        return null;
+    }
   }
 
-  private boolean filterAudioCodec(TvShowEpisode episode, String codec) {
-    return matchesAudioCodec(episode.getTvShow(), Arrays.asList(episode), codec);
+  private BitSet missing(BitSet all, BitSet existing) {
+    all.andNot(existing);
+    return all;
   }
 
-  private boolean filterVideoFormat(TvShow tvShow, String format) {
-    return matchesVideoFormat(tvShow, new ArrayList<TvShowEpisode>(tvShow.getEpisodes()), format);
+  private BitSet getHdEpisodes() {
+    BitSet hd = episodeIndex.get(TvShowEpisodeFilterIndex.Field.VIDEO_FORMAT, MediaFile.VIDEO_FORMAT_720P);
+    hd.or(episodeIndex.get(TvShowEpisodeFilterIndex.Field.VIDEO_FORMAT, MediaFile.VIDEO_FORMAT_1080P));
+    hd.or(episodeIndex.get(TvShowEpisodeFilterIndex.Field.VIDEO_FORMAT, MediaFile.VIDEO_FORMAT_4K));
+    hd.or(episodeIndex.get(TvShowEpisodeFilterIndex.Field.VIDEO_FORMAT, MediaFile.VIDEO_FORMAT_8K));
+    return hd;
   }
 
-  private boolean filterVideoFormat(TvShowSeason season, String format) {
-    return matchesVideoFormat(season.getTvShow(), new ArrayList<TvShowEpisode>(season.getEpisodes()), format);
+  private Pattern createPattern(String filterText) {
+    if (StringUtils.isBlank(filterText)) {
+      return null;
+    }
+    return Pattern.compile("(?i)" + Pattern.quote(filterText));
   }
 
-  private boolean filterVideoFormat(TvShowEpisode episode, String format) {
-    return matchesVideoFormat(episode.getTvShow(), Arrays.asList(episode), format);
+  /**
+   * look up the text in the full text index of all TV shows and episodes
+   */
+  private Set<MediaEntity> searchText(String filterText) {
+    Set<MediaEntity> hits = Collections.newSetFromMap(new IdentityHashMap<MediaEntity, Boolean>());
+    if (StringUtils.isNotBlank(filterText)) {
+      hits.addAll(TvShowList.getInstance().searchTvShowsAndEpisodes(filterText, Integer.MAX_VALUE));
+    }
+    return hits;
   }
 
-  private boolean matchesText(TvShow tvShow, List<TvShowEpisode> episodes, String filterText) {
-    if (StringUtils.isBlank(filterText)) {
+  private boolean matchesText(TvShow tvShow, List<TvShowEpisode> episodes) {
+    Pattern pattern;
+    Set<MediaEntity> hits;
+    synchronized (this) {
+      pattern = textPattern;
+      hits = textHits;
+    }
+    if (pattern == null) {
       return true;
     }
 
-    Pattern pattern = Pattern.compile("(?i)" + Pattern.quote(filterText));
+    // the full text index (title, plot, cast, tags, file names, ...) of the TV show and its episodes
+    if (hits.contains(tvShow)) {
+      return true;
+    }
+    for (TvShowEpisode episode : episodes) {
+      if (hits.contains(episode)) {
+        return true;
+      }
+    }
 
     // first: filter on the TV show title
     Matcher matcher = pattern.matcher(tvShow.getTitle());
@@ -489,13 +380,15 @@ class TvShowExtendedMatcher {
     return false;
   }
 
-  private boolean matchesCrew(TvShow tvShow, List<TvShowEpisode> episodes, String filterText) {
-    if (StringUtils.isBlank(filterText)) {
+  private boolean matchesCrew(TvShow tvShow, List<TvShowEpisode> episodes) {
+    Pattern pattern;
+    synchronized (this) {
+      pattern = castPattern;
+    }
+    if (pattern == null) {
       return true;
     }
 
-    Pattern pattern = Pattern.compile("(?i)" + Pattern.quote(filterText));
-
     // first: filter on the base cast of the TV show
     for (TvShowActor actor : tvShow.getActors()) {
       Matcher matcher = pattern.matcher(actor.getName());
@@ -524,147 +417,30 @@ class TvShowExtendedMatcher {
     return false;
   }
 
-  private boolean matchesMissingMetadata(TvShow tvShow, List<TvShowEpisode> episodes) {
-    if (!tvShow.isScraped()) {
-      return true;
-    }
-
-    for (TvShowEpisode episode : episodes) {
-      if (!episode.isScraped()) {
-        return true;
-      }
-    }
-
-    return false;
-  }
-
-  private boolean matchesMissingArtwork(TvShow tvShow, List<TvShowEpisode> episodes) {
-    if (!tvShow.getHasImages()) {
-      return true;
-    }
-
-    for (TvShowEpisode episode : episodes) {
-      if (!episode.getHasImages()) {
-        return true;
-      }
-    }
-
-    return false;
-  }
-
-  private boolean matchesMissingSubtitles(List<TvShowEpisode> episodes) {
-    for (TvShowEpisode episode : episodes) {
-      if (!episode.hasSubtitles()) {
-        return true;
-      }
-    }
-
-    return false;
-  }
-
-  private boolean matchesWatched(List<TvShowEpisode> episodes, boolean watched) {
-    for (TvShowEpisode episode : episodes) {
-      if (episode.isWatched() == watched) {
-        return true;
-      }
-    }
-
-    return false;
-  }
-
-  private boolean matchesGenre(TvShow tvShow, MediaGenres genre) {
-    if (tvShow.getGenres().contains(genre)) {
-      return true;
-    }
-
-    return false;
-  }
+  /**
+   * the bitsets of one indexed option: the option matches if either the TV show or (at least) one of the episodes matches
+   */
+  private static class IndexedOption {
+    private final BitSet tvShows;
+    private final BitSet episodes;
 
-  private boolean matchesTag(TvShow tvShow, List<TvShowEpisode> episodes, String tag) {
-    // search tag in the TV show
-    if (tvShow.getTags().contains(tag)) {
-      return true;
+    private IndexedOption(BitSet tvShows, BitSet episodes) {
+      this.tvShows = tvShows;
+      this.episodes = episodes;
     }
 
-    // search tag in the episodes
-    for (TvShowEpisode episode : episodes) {
-      if (episode.getTags().contains(tag)) {
+    private boolean matches(int tvShowSlot, int[] episodeSlots) {
+      if (tvShows != null && tvShowSlot >= 0 && tvShows.get(tvShowSlot)) {
         return true;
       }
-    }
-
-    return false;
-  }
-
-  private boolean matchesVideoCodec(TvShow tvShow, List<TvShowEpisode> episodes, String codec) {
-    if (StringUtils.isBlank(codec)) {
-      return true;
-    }
-
-    // search codec in the episodes
-    for (TvShowEpisode episode : episodes) {
-      List<MediaFile> mfs = episode.getMediaFiles(MediaFileType.VIDEO);
-      for (MediaFile mf : mfs) {
-        if (mf.getVideoCodec().equalsIgnoreCase(codec)) {
-          return true;
+      if (episodes != null) {
+        for (int slot : episodeSlots) {
+          if (slot >= 0 && episodes.get(slot)) {
+            return true;
+          }
         }
       }
+      return false;
     }
-    return false;
-  }
-
-  private boolean matchesAudioCodec(TvShow tvShow, List<TvShowEpisode> episodes, String codec) {
-    if (StringUtils.isBlank(codec)) {
-      return true;
-    }
-
-    // search codec in the episodes
-    for (TvShowEpisode episode : episodes) {
-      List<MediaFile> mfs = episode.getMediaFiles(MediaFileType.VIDEO);
-      for (MediaFile mf : mfs) {
-        if (mf.getAudioCodec().equalsIgnoreCase(codec)) {
-          return true;
-        }
-      }
-    }
-    return false;
-  }
-
-  private boolean matchesVideoFormat(TvShow tvShow, List<TvShowEpisode> episodes, String videoFormat) {
-    if (StringUtils.isBlank(videoFormat)) {
-      return true;
-    }
-    for (TvShowEpisode episode : episodes) {
-      if (videoFormat == MediaFile.VIDEO_FORMAT_HD || videoFormat == MediaFile.VIDEO_FORMAT_SD) {
-        if (videoFormat == MediaFile.VIDEO_FORMAT_HD && isVideoHD(episode.getMediaInfoVideoFormat())) {
-          return true;
-        }
-        if (videoFormat == MediaFile.VIDEO_FORMAT_SD && !isVideoHD(episode.getMediaInfoVideoFormat())) {
-          return true;
-        }
-      }
-      else {
-        if (videoFormat == episode.getMediaInfoVideoFormat()) {
-          return true;
-        }
-      }
-    }
-    return false;
-  }
-
-  private boolean isVideoHD(String videoFormat) {
-    if (videoFormat == MediaFile.VIDEO_FORMAT_720P) {
-      return true;
-    }
-    if (videoFormat == MediaFile.VIDEO_FORMAT_1080P) {
-      return true;
-    }
-    if (videoFormat == MediaFile.VIDEO_FORMAT_4K) {
-      return true;
-    }
-    if (videoFormat == MediaFile.VIDEO_FORMAT_8K) {
-      return true;
-    }
-    return false;
   }
 }
@@ -23,11 +23,17 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
 
 import javax.swing.JTree;
+import javax.swing.SwingUtilities;
 import javax.swing.event.TreeModelEvent;
 import javax.swing.event.TreeModelListener;
 import javax.swing.tree.DefaultMutableTreeNode;
@@ -42,98 +48,48 @@ import org.tinymediamanager.core.tvshow.entities.TvShowSeason;
 import org.tinymediamanager.ui.tvshows.TvShowExtendedMatcher.SearchOptions;
 
 /**
- * The Class TvShowTreeModel.
- * 
+ * The Class TvShowTreeModel. All changes of the TV shows/episodes are being collected and applied in one batch per EDT tick; the tree is informed
+ * with fine grained insert/remove/change events of the visible (filtered) nodes. The season/episode nodes of a TV show are being created when the
+ * TV show node is being expanded for the first time.
+ *
  * @author Manuel Laggner
  */
 public class TvShowTreeModel implements TreeModel {
-  private TvShowRootTreeNode      root       = new TvShowRootTreeNode();
-  private List<TreeModelListener> listeners  = new ArrayList<TreeModelListener>();
-  private Map<Object, TreeNode>   nodeMap    = Collections.synchronizedMap(new HashMap<Object, TreeNode>());
-  private TvShowList              tvShowList = TvShowList.getInstance();
-  private PropertyChangeListener  propertyChangeListener;
-  private TvShowExtendedMatcher   matcher    = new TvShowExtendedMatcher();
+  private TvShowRootTreeNode            root           = new TvShowRootTreeNode();
+  private List<TreeModelListener>       listeners      = new ArrayList<TreeModelListener>();
+  private Map<Object, TreeNode>         nodeMap        = Collections.synchronizedMap(new HashMap<Object, TreeNode>());
+  private Set<TreeNode>                 loadedNodes    = new HashSet<TreeNode>();
+  private Map<TreeNode, List<TreeNode>> visibleNodes   = new HashMap<TreeNode, List<TreeNode>>();
+  private List<PropertyChangeEvent>     pendingEvents  = new ArrayList<PropertyChangeEvent>();
+  private boolean                       flushScheduled = false;
+  private TvShowList                    tvShowList     = TvShowList.getInstance();
+  private PropertyChangeListener        propertyChangeListener;
+  private TvShowExtendedMatcher         matcher        = new TvShowExtendedMatcher();
 
   /**
    * Instantiates a new tv show tree model.
-   * 
+   *
    * @param tvShows
    *          the tv shows
    */
   public TvShowTreeModel(List<TvShow> tvShows) {
-    // create the listener
+    // create the listener; the events are only collected here and applied in one batch
     propertyChangeListener = new PropertyChangeListener() {
       @Override
       public void propertyChange(PropertyChangeEvent evt) {
-        // added a tv show
-        if (ADDED_TV_SHOW.equals(evt.getPropertyName()) && evt.getNewValue() instanceof TvShow) {
-          TvShow tvShow = (TvShow) evt.getNewValue();
-          addTvShow(tvShow);
-        }
-
-        // removed a tv show
-        if (REMOVED_TV_SHOW.equals(evt.getPropertyName()) && evt.getNewValue() instanceof TvShow) {
-          TvShow tvShow = (TvShow) evt.getNewValue();
-          removeTvShow(tvShow);
-        }
-
-        // added a season
-        if (ADDED_SEASON.equals(evt.getPropertyName()) && evt.getNewValue() instanceof TvShowSeason) {
-          TvShowSeason season = (TvShowSeason) evt.getNewValue();
-          // need to lock it here, because of nested calls
-          synchronized (root) {
-            addTvShowSeason(season, season.getTvShow());
-          }
-        }
-
-        // added an episode
-        if (ADDED_EPISODE.equals(evt.getPropertyName()) && evt.getNewValue() instanceof TvShowEpisode) {
-          TvShowEpisode episode = (TvShowEpisode) evt.getNewValue();
-          addTvShowEpisode(episode, episode.getTvShow().getSeasonForEpisode(episode));
-        }
-
-        // removed an episode
-        if (REMOVED_EPISODE.equals(evt.getPropertyName()) && evt.getNewValue() instanceof TvShowEpisode) {
-          TvShowEpisode episode = (TvShowEpisode) evt.getNewValue();
-          removeTvShowEpisode(episode);
-        }
-
-        // changed the season of an episode
-        if (SEASON.equals(evt.getPropertyName()) && evt.getSource() instanceof TvShowEpisode) {
-          // simply remove it from the tree and readd it
-          TvShowEpisode episode = (TvShowEpisode) evt.getSource();
-          removeTvShowEpisode(episode);
-          addTvShowEpisode(episode, episode.getTvShow().getSeasonForEpisode(episode));
-        }
-
-        // update on changes of tv show
-        if (evt.getSource() instanceof TvShow
-            && (TITLE.equals(evt.getPropertyName()) || HAS_NFO_FILE.equals(evt.getPropertyName()) || HAS_IMAGES.equals(evt.getPropertyName()))) {
-          // inform listeners (root - to update the sum)
-          TreeModelEvent event = new TreeModelEvent(this, root.getPath(), null, null);
-          for (TreeModelListener listener : listeners) {
-            listener.treeNodesChanged(event);
+        synchronized (pendingEvents) {
+          pendingEvents.add(evt);
+          if (flushScheduled) {
+            return;
           }
+          flushScheduled = true;
         }
-        // update on changes of episode
-        if (evt.getSource() instanceof TvShowEpisode) {
-          DefaultMutableTreeNode node = (DefaultMutableTreeNode) nodeMap.get(evt.getSource());
-          if (node != null) {
-            DefaultMutableTreeNode parent = (DefaultMutableTreeNode) node.getParent();
-            int index = parent.getIndex(node);
-            if (index >= 0) {
-              TreeModelEvent event = new TreeModelEvent(this, parent.getPath(), new int[] { index }, new Object[] { node });
-              for (TreeModelListener listener : listeners) {
-                try {
-                  listener.treeNodesChanged(event);
-                }
-                catch (Exception e) {
-                }
-              }
-            }
-
+        SwingUtilities.invokeLater(new Runnable() {
+          @Override
+          public void run() {
+            flush();
           }
-        }
+        });
       }
     };
 
@@ -141,237 +97,430 @@ public class TvShowTreeModel implements TreeModel {
     tvShowList.addPropertyChangeListener(propertyChangeListener);
 
     // build initial tree
+    Batch batch = new Batch();
     for (TvShow tvShow : tvShows) {
-      addTvShow(tvShow);
+      addTvShow(tvShow, batch);
     }
   }
 
   /**
-   * Adds the tv show.
-   * 
-   * @param tvShow
-   *          the tv show
+   * apply all pending changes to the tree and inform the listeners (has to be called on the EDT)
    */
-  private void addTvShow(TvShow tvShow) {
-    synchronized (root) {
-      DefaultMutableTreeNode tvShowNode = new TvShowTreeNode(tvShow);
-      root.add(tvShowNode);
-      nodeMap.put(tvShow, tvShowNode);
-
-      for (TvShowSeason season : new ArrayList<TvShowSeason>(tvShow.getSeasons())) {
-        // check if there is a node for its season
-        TvShowSeasonTreeNode seasonNode = (TvShowSeasonTreeNode) nodeMap.get(season);
-        if (seasonNode == null) {
-          addTvShowSeason(season, tvShow);
-        }
+  void flush() {
+    List<PropertyChangeEvent> events;
+    synchronized (pendingEvents) {
+      events = new ArrayList<PropertyChangeEvent>(pendingEvents);
+      pendingEvents.clear();
+      flushScheduled = false;
+    }
+    if (events.isEmpty()) {
+      return;
+    }
 
-        for (TvShowEpisode episode : new ArrayList<TvShowEpisode>(season.getEpisodes())) {
-          addTvShowEpisode(episode, season);
-        }
+    Batch batch = new Batch();
+    for (PropertyChangeEvent evt : events) {
+      applyEvent(evt, batch);
+    }
+    fireBatch(batch);
+  }
+
+  private void applyEvent(PropertyChangeEvent evt, Batch batch) {
+    // added a tv show
+    if (ADDED_TV_SHOW.equals(evt.getPropertyName()) && evt.getNewValue() instanceof TvShow) {
+      addTvShow((TvShow) evt.getNewValue(), batch);
+      return;
+    }
+
+    // removed a tv show
+    if (REMOVED_TV_SHOW.equals(evt.getPropertyName()) && evt.getNewValue() instanceof TvShow) {
+      removeTvShow((TvShow) evt.getNewValue(), batch);
+      return;
+    }
+
+    // added a season
+    if (ADDED_SEASON.equals(evt.getPropertyName()) && evt.getNewValue() instanceof TvShowSeason) {
+      TvShowSeason season = (TvShowSeason) evt.getNewValue();
+      // empty seasons are not shown; the node is being created with the first episode
+      if (!season.getEpisodes().isEmpty()) {
+        addTvShowSeason(season, batch);
       }
+      return;
+    }
 
-      int index = getIndexOfChild(root, tvShowNode);
+    // added an episode
+    if (ADDED_EPISODE.equals(evt.getPropertyName()) && evt.getNewValue() instanceof TvShowEpisode) {
+      addTvShowEpisode((TvShowEpisode) evt.getNewValue(), batch);
+      return;
+    }
 
-      // inform listeners
-      if (index > -1) {
-        TreeModelEvent event = new TreeModelEvent(this, root.getPath(), new int[] { index }, new Object[] { tvShow });
-        for (TreeModelListener listener : listeners) {
-          listener.treeNodesInserted(event);
-        }
+    // removed an episode
+    if (REMOVED_EPISODE.equals(evt.getPropertyName()) && evt.getNewValue() instanceof TvShowEpisode) {
+      removeTvShowEpisode((TvShowEpisode) evt.getNewValue(), batch);
+      return;
+    }
+
+    // changed the season of an episode
+    if (SEASON.equals(evt.getPropertyName()) && evt.getSource() instanceof TvShowEpisode) {
+      // simply remove it from the tree and readd it
+      TvShowEpisode episode = (TvShowEpisode) evt.getSource();
+      removeTvShowEpisode(episode, batch);
+      addTvShowEpisode(episode, batch);
+      return;
+    }
+
+    // update on changes of tv show; the visibility in the filtered tree may have changed too
+    if (evt.getSource() instanceof TvShow) {
+      TreeNode node = nodeMap.get(evt.getSource());
+      if (node != null) {
+        batch.changed(node);
+        batch.touch(root);
       }
+      return;
+    }
+
+    // update on changes of episode
+    if (evt.getSource() instanceof TvShowEpisode) {
+      TvShowEpisode episode = (TvShowEpisode) evt.getSource();
+      TreeNode node = nodeMap.get(episode);
+      if (node != null) {
+        batch.changed(node);
+        batch.touch(node.getParent());
+        batch.touch(node.getParent().getParent());
+      }
+      batch.touch(root);
     }
-    tvShow.addPropertyChangeListener(propertyChangeListener);
   }
 
   /**
-   * Removes the tv show.
-   * 
+   * Adds the tv show.
+   *
    * @param tvShow
    *          the tv show
+   * @param batch
+   *          the current batch
    */
-  private void removeTvShow(TvShow tvShow) {
-    synchronized (root) {
-      TvShowTreeNode child = (TvShowTreeNode) nodeMap.get(tvShow);
-      DefaultMutableTreeNode parent = root;
-      if (child != null) {
-        int index = getIndexOfChild(parent, child);
-
-        nodeMap.remove(tvShow);
-        for (TvShowEpisode episode : new ArrayList<TvShowEpisode>(tvShow.getEpisodes())) {
-          nodeMap.remove(episode);
-          episode.removePropertyChangeListener(propertyChangeListener);
-        }
+  private void addTvShow(TvShow tvShow, Batch batch) {
+    if (nodeMap.containsKey(tvShow)) {
+      return;
+    }
 
-        tvShow.removePropertyChangeListener(propertyChangeListener);
+    // the children are being created when they are needed
+    DefaultMutableTreeNode tvShowNode = new TvShowTreeNode(tvShow);
+    batch.touch(root);
+    root.add(tvShowNode);
+    nodeMap.put(tvShow, tvShowNode);
 
-        child.removeAllChildren();
-        child.removeFromParent();
+    tvShow.removePropertyChangeListener(propertyChangeListener);
+    tvShow.addPropertyChangeListener(propertyChangeListener);
+    for (TvShowEpisode episode : new ArrayList<TvShowEpisode>(tvShow.getEpisodes())) {
+      episode.removePropertyChangeListener(propertyChangeListener);
+      episode.addPropertyChangeListener(propertyChangeListener);
+    }
+  }
 
-        // inform listeners
-        if (index > -1) {
-          TreeModelEvent event = new TreeModelEvent(this, parent.getPath(), new int[] { index }, new Object[] { child });
-          for (TreeModelListener listener : listeners) {
-            listener.treeNodesRemoved(event);
-          }
-        }
+  /**
+   * Removes the tv show.
+   *
+   * @param tvShow
+   *          the tv show
+   * @param batch
+   *          the current batch
+   */
+  private void removeTvShow(TvShow tvShow, Batch batch) {
+    TvShowTreeNode child = (TvShowTreeNode) nodeMap.remove(tvShow);
+    tvShow.removePropertyChangeListener(propertyChangeListener);
+    for (TvShowEpisode episode : new ArrayList<TvShowEpisode>(tvShow.getEpisodes())) {
+      episode.removePropertyChangeListener(propertyChangeListener);
+    }
+    if (child == null) {
+      return;
+    }
+
+    // clean up all materialized children
+    for (int i = 0; i < child.getChildCount(); i++) {
+      DefaultMutableTreeNode seasonNode = (DefaultMutableTreeNode) child.getChildAt(i);
+      for (int j = 0; j < seasonNode.getChildCount(); j++) {
+        DefaultMutableTreeNode episodeNode = (DefaultMutableTreeNode) seasonNode.getChildAt(j);
+        TvShowEpisode episode = (TvShowEpisode) episodeNode.getUserObject();
+        episode.removePropertyChangeListener(propertyChangeListener);
+        nodeMap.remove(episode);
       }
+      nodeMap.remove(seasonNode.getUserObject());
+      visibleNodes.remove(seasonNode);
     }
+    loadedNodes.remove(child);
+    visibleNodes.remove(child);
+
+    batch.touch(root);
+    child.removeAllChildren();
+    child.removeFromParent();
   }
 
   /**
-   * Adds the tv show season.
-   * 
+   * Adds the tv show season (only if the children of the tv show are already materialized).
+   *
    * @param season
    *          the season
-   * @param tvShow
-   *          the tv show
+   * @param batch
+   *          the current batch
+   * @return the node of the season or null
    */
-  private void addTvShowSeason(TvShowSeason season, TvShow tvShow) {
-    // since we can call this from addEpisode, we have to lock it at calling
-    // synchronized (root) {
-    // get the tv show node
-    TvShowTreeNode parent = (TvShowTreeNode) nodeMap.get(tvShow);
-    TvShowSeasonTreeNode child = new TvShowSeasonTreeNode(season);
-    if (parent != null) {
+  private TvShowSeasonTreeNode addTvShowSeason(TvShowSeason season, Batch batch) {
+    TvShowTreeNode parent = (TvShowTreeNode) nodeMap.get(season.getTvShow());
+    if (parent == null || !loadedNodes.contains(parent)) {
+      return null;
+    }
+
+    TvShowSeasonTreeNode child = (TvShowSeasonTreeNode) nodeMap.get(season);
+    if (child == null) {
+      child = new TvShowSeasonTreeNode(season);
+      batch.touch(parent);
       parent.add(child);
       nodeMap.put(season, child);
-
-      int index = getIndexOfChild(parent, child);
-
-      // inform listeners (tv show)
-      if (index > -1) {
-        TreeModelEvent event = new TreeModelEvent(this, parent.getPath(), new int[] { index }, new Object[] { child });
-        for (TreeModelListener listener : listeners) {
-          listener.treeNodesInserted(event);
-        }
-      }
-
-      // inform listeners (root - to update the sum)
-      TreeModelEvent event = new TreeModelEvent(this, root.getPath(), null, null);
-      for (TreeModelListener listener : listeners) {
-        listener.treeNodesChanged(event);
-      }
     }
-    // }
+    return child;
   }
 
   /**
    * Adds the tv show episode.
-   * 
+   *
    * @param episode
    *          the episode
-   * @param season
-   *          the season
+   * @param batch
+   *          the current batch
    */
-  private void addTvShowEpisode(TvShowEpisode episode, TvShowSeason season) {
-    synchronized (root) {
-      // get the tv show season node
-      TvShowSeasonTreeNode parent = (TvShowSeasonTreeNode) nodeMap.get(season);
-      // no parent (season) here - recreate it
-      if (parent == null) {
-        addTvShowSeason(season, episode.getTvShow());
-        parent = (TvShowSeasonTreeNode) nodeMap.get(season);
-      }
-      TvShowEpisodeTreeNode child = new TvShowEpisodeTreeNode(episode);
-      if (parent != null) {
-        parent.add(child);
-        nodeMap.put(episode, child);
+  private void addTvShowEpisode(TvShowEpisode episode, Batch batch) {
+    episode.removePropertyChangeListener(propertyChangeListener);
+    episode.addPropertyChangeListener(propertyChangeListener);
 
-        int index = getIndexOfChild(parent, child);
+    TreeNode tvShowNode = nodeMap.get(episode.getTvShow());
+    if (tvShowNode == null) {
+      return;
+    }
 
-        // inform listeners
-        if (index > -1) {
-          TreeModelEvent event = new TreeModelEvent(this, parent.getPath(), new int[] { index }, new Object[] { child });
-          for (TreeModelListener listener : listeners) {
-            listener.treeNodesInserted(event);
-          }
-        }
+    // the sums and the filter result of the tv show may have changed
+    batch.changed(tvShowNode);
+    batch.touch(root);
 
-        // inform listeners (root - to update the sum)
-        TreeModelEvent event = new TreeModelEvent(this, root.getPath(), null, null);
-        for (TreeModelListener listener : listeners) {
-          listener.treeNodesChanged(event);
-        }
-      }
+    if (!loadedNodes.contains(tvShowNode) || nodeMap.containsKey(episode)) {
+      return;
+    }
+
+    // get the tv show season node; no parent (season) here - recreate it
+    TvShowSeasonTreeNode parent = addTvShowSeason(episode.getTvShow().getSeasonForEpisode(episode), batch);
+    if (parent != null) {
+      TvShowEpisodeTreeNode child = new TvShowEpisodeTreeNode(episode);
+      batch.touch(parent);
+      parent.add(child);
+      nodeMap.put(episode, child);
     }
-    episode.addPropertyChangeListener(propertyChangeListener);
   }
 
   /**
    * Removes the tv show episode.
-   * 
+   *
    * @param episode
    *          the episode
-   * @param season
-   *          the season
+   * @param batch
+   *          the current batch
    */
-  private void removeTvShowEpisode(TvShowEpisode episode) {
-    synchronized (root) {
-      // get the tv show season node
-      TvShowEpisodeTreeNode child = (TvShowEpisodeTreeNode) nodeMap.get(episode);
-      TvShowSeasonTreeNode parent = null;
-      if (child != null) {
-        parent = (TvShowSeasonTreeNode) child.getParent();
-      }
+  private void removeTvShowEpisode(TvShowEpisode episode, Batch batch) {
+    episode.removePropertyChangeListener(propertyChangeListener);
 
-      if (parent != null && child != null) {
-        int index = getIndexOfChild(parent, child);
-        parent.remove(child);
-        nodeMap.remove(episode);
-        episode.removePropertyChangeListener(propertyChangeListener);
+    TreeNode tvShowNode = nodeMap.get(episode.getTvShow());
+    if (tvShowNode != null) {
+      batch.changed(tvShowNode);
+      batch.touch(root);
+    }
 
-        // inform listeners
-        if (index > -1) {
-          TreeModelEvent event = new TreeModelEvent(this, parent.getPath(), new int[] { index }, new Object[] { child });
-          for (TreeModelListener listener : listeners) {
-            listener.treeNodesRemoved(event);
-          }
-        }
+    TvShowEpisodeTreeNode child = (TvShowEpisodeTreeNode) nodeMap.remove(episode);
+    if (child == null || child.getParent() == null) {
+      return;
+    }
 
-        // remove tv show if there is no more episode in it
-        if (parent.getChildCount() == 0) {
-          TvShowSeason season = null;
-          for (Entry<Object, TreeNode> entry : nodeMap.entrySet()) {
-            if (entry.getValue() == parent) {
-              season = (TvShowSeason) entry.getKey();
-            }
-          }
-          if (season != null) {
-            removeTvShowSeason(season);
-          }
-        }
-      }
+    TvShowSeasonTreeNode parent = (TvShowSeasonTreeNode) child.getParent();
+    batch.touch(parent);
+    parent.remove(child);
+
+    // remove the season if there is no more episode in it
+    if (parent.getChildCount() == 0 && parent.getParent() != null) {
+      batch.touch(parent.getParent());
+      nodeMap.remove(parent.getUserObject());
+      visibleNodes.remove(parent);
+      parent.removeFromParent();
     }
   }
 
   /**
-   * Removes the tv show season.
-   * 
-   * @param season
-   *          the season
+   * create the season/episode nodes of the given tv show node
    */
-  private void removeTvShowSeason(TvShowSeason season) {
-    synchronized (root) {
-      TvShowSeasonTreeNode child = (TvShowSeasonTreeNode) nodeMap.get(season);
-      TvShowTreeNode parent = null;
-      if (child != null) {
-        parent = (TvShowTreeNode) child.getParent();
+  private void loadChildren(TvShowTreeNode tvShowNode) {
+    if (!loadedNodes.add(tvShowNode)) {
+      return;
+    }
+
+    TvShow tvShow = (TvShow) tvShowNode.getUserObject();
+    for (TvShowSeason season : new ArrayList<TvShowSeason>(tvShow.getSeasons())) {
+      List<TvShowEpisode> episodes = new ArrayList<TvShowEpisode>(season.getEpisodes());
+      if (episodes.isEmpty() || nodeMap.containsKey(season)) {
+        continue;
       }
 
-      if (parent != null && child != null) {
-        int index = getIndexOfChild(parent, child);
-        parent.remove(child);
-        nodeMap.remove(season);
+      TvShowSeasonTreeNode seasonNode = new TvShowSeasonTreeNode(season);
+      tvShowNode.add(seasonNode);
+      nodeMap.put(season, seasonNode);
 
-        // inform listeners
-        if (index > -1) {
-          TreeModelEvent event = new TreeModelEvent(this, parent.getPath(), new int[] { index }, new Object[] { child });
-          for (TreeModelListener listener : listeners) {
-            listener.treeNodesRemoved(event);
-          }
+      for (TvShowEpisode episode : episodes) {
+        TvShowEpisodeTreeNode episodeNode = new TvShowEpisodeTreeNode(episode);
+        seasonNode.add(episodeNode);
+        nodeMap.put(episode, episodeNode);
+      }
+    }
+  }
+
+  /**
+   * inform the listeners about all changes of the batch by comparing the visible children of every touched node before and after the changes
+   */
+  private void fireBatch(Batch batch) {
+    for (Map.Entry<TreeNode, List<TreeNode>> entry : batch.snapshots.entrySet()) {
+      TreeNode parent = entry.getKey();
+      List<TreeNode> oldNodes = entry.getValue();
+      // only the children which have already been delivered to the tree are of interest
+      if (oldNodes == null || !isAttached(parent)) {
+        continue;
+      }
+      fireDiff(parent, oldNodes, getVisibleChildren(parent));
+    }
+
+    // changed nodes; grouped by their parent
+    Map<TreeNode, Set<Integer>> changedIndices = new LinkedHashMap<TreeNode, Set<Integer>>();
+    for (TreeNode node : batch.changedNodes) {
+      TreeNode parent = node.getParent();
+      if (parent == null || !isAttached(node) || !visibleNodes.containsKey(parent)) {
+        continue;
+      }
+      int index = visibleNodes.get(parent).indexOf(node);
+      if (index > -1) {
+        Set<Integer> indices = changedIndices.get(parent);
+        if (indices == null) {
+          indices = new TreeSet<Integer>();
+          changedIndices.put(parent, indices);
         }
+        indices.add(index);
       }
     }
+    for (Map.Entry<TreeNode, Set<Integer>> entry : changedIndices.entrySet()) {
+      List<TreeNode> children = visibleNodes.get(entry.getKey());
+      int[] indices = new int[entry.getValue().size()];
+      Object[] nodes = new Object[indices.length];
+      int i = 0;
+      for (Integer index : entry.getValue()) {
+        indices[i] = index;
+        nodes[i] = children.get(index);
+        i++;
+      }
+      fireTreeNodesChanged(new TreeModelEvent(this, ((DefaultMutableTreeNode) entry.getKey()).getPath(), indices, nodes));
+    }
+
+    // inform listeners (root - to update the sum)
+    fireTreeNodesChanged(new TreeModelEvent(this, root.getPath(), null, null));
+  }
+
+  private void fireDiff(TreeNode parent, List<TreeNode> oldNodes, List<TreeNode> newNodes) {
+    Set<TreeNode> oldSet = Collections.newSetFromMap(new IdentityHashMap<TreeNode, Boolean>());
+    oldSet.addAll(oldNodes);
+    Set<TreeNode> newSet = Collections.newSetFromMap(new IdentityHashMap<TreeNode, Boolean>());
+    newSet.addAll(newNodes);
+
+    List<Integer> removedIndices = new ArrayList<Integer>();
+    List<TreeNode> remaining = new ArrayList<TreeNode>();
+    for (int i = 0; i < oldNodes.size(); i++) {
+      if (newSet.contains(oldNodes.get(i))) {
+        remaining.add(oldNodes.get(i));
+      }
+      else {
+        removedIndices.add(i);
+      }
+    }
+
+    List<Integer> insertedIndices = new ArrayList<Integer>();
+    List<TreeNode> kept = new ArrayList<TreeNode>();
+    for (int i = 0; i < newNodes.size(); i++) {
+      if (oldSet.contains(newNodes.get(i))) {
+        kept.add(newNodes.get(i));
+      }
+      else {
+        insertedIndices.add(i);
+      }
+    }
+
+    Object[] path = ((DefaultMutableTreeNode) parent).getPath();
+
+    // the order of the remaining nodes changed - this cannot be expressed with insert/remove events
+    if (!remaining.equals(kept)) {
+      fireTreeStructureChanged(new TreeModelEvent(this, path, null, null));
+      return;
+    }
+
+    if (!removedIndices.isEmpty()) {
+      Object[] children = new Object[removedIndices.size()];
+      for (int i = 0; i < children.length; i++) {
+        children[i] = oldNodes.get(removedIndices.get(i));
+      }
+      fireTreeNodesRemoved(new TreeModelEvent(this, path, toArray(removedIndices), children));
+    }
+
+    if (!insertedIndices.isEmpty()) {
+      Object[] children = new Object[insertedIndices.size()];
+      for (int i = 0; i < children.length; i++) {
+        children[i] = newNodes.get(insertedIndices.get(i));
+      }
+      fireTreeNodesInserted(new TreeModelEvent(this, path, toArray(insertedIndices), children));
+    }
+  }
+
+  private int[] toArray(List<Integer> list) {
+    int[] array = new int[list.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = list.get(i);
+    }
+    return array;
+  }
+
+  private boolean isAttached(TreeNode node) {
+    TreeNode current = node;
+    while (current != null && current != root) {
+      current = current.getParent();
+    }
+    return current == root;
+  }
+
+  private void fireTreeNodesChanged(TreeModelEvent event) {
+    for (TreeModelListener listener : new ArrayList<TreeModelListener>(listeners)) {
+      try {
+        listener.treeNodesChanged(event);
+      }
+      catch (Exception e) {
+      }
+    }
+  }
+
+  private void fireTreeNodesInserted(TreeModelEvent event) {
+    for (TreeModelListener listener : new ArrayList<TreeModelListener>(listeners)) {
+      listener.treeNodesInserted(event);
+    }
+  }
+
+  private void fireTreeNodesRemoved(TreeModelEvent event) {
+    for (TreeModelListener listener : new ArrayList<TreeModelListener>(listeners)) {
+      listener.treeNodesRemoved(event);
+    }
+  }
+
+  private void fireTreeStructureChanged(TreeModelEvent event) {
+    for (TreeModelListener listener : new ArrayList<TreeModelListener>(listeners)) {
+      listener.treeStructureChanged(event);
+    }
   }
 
   @Override
@@ -381,45 +530,45 @@ public class TvShowTreeModel implements TreeModel {
 
   @Override
   public Object getChild(Object parent, int index) {
-    int count = 0;
-    int childCount = getChildCountInternal(parent);
-    for (int i = 0; i < childCount; i++) {
-      Object child = getChildInternal(parent, i);
-      if (matches(child)) {
-        if (count == index) {
-          return child;
-        }
-        count++;
-      }
+    List<TreeNode> children = getVisibleChildren((TreeNode) parent);
+    if (index < 0 || index >= children.size()) {
+      return null;
     }
-    return null;
+    return children.get(index);
   }
 
   @Override
   public int getChildCount(Object parent) {
-    int count = 0;
-    int childCount = getChildCountInternal(parent);
-    for (int i = 0; i < childCount; i++) {
-      Object child = getChildInternal(parent, i);
-      if (matches(child)) {
-        count++;
-      }
-    }
-    return count;
+    return getVisibleChildren((TreeNode) parent).size();
   }
 
   @Override
   public int getIndexOfChild(Object parent, Object childToFind) {
-    int childCount = getChildCountInternal(parent);
-    for (int i = 0; i < childCount; i++) {
-      Object child = getChildInternal(parent, i);
-      if (matches(child)) {
-        if (childToFind.equals(child)) {
-          return i;
+    if (parent == null || childToFind == null) {
+      return -1;
+    }
+    return getVisibleChildren((TreeNode) parent).indexOf(childToFind);
+  }
+
+  /**
+   * get the (cached) list of all children matching the filter
+   */
+  private List<TreeNode> getVisibleChildren(TreeNode parent) {
+    List<TreeNode> children = visibleNodes.get(parent);
+    if (children == null) {
+      if (parent instanceof TvShowTreeNode) {
+        loadChildren((TvShowTreeNode) parent);
+      }
+      children = new ArrayList<TreeNode>(parent.getChildCount());
+      for (int i = 0; i < parent.getChildCount(); i++) {
+        TreeNode child = parent.getChildAt(i);
+        if (matches(child)) {
+          children.add(child);
         }
       }
+      visibleNodes.put(parent, children);
     }
-    return -1;
+    return children;
   }
 
   private boolean matches(Object node) {
@@ -477,30 +626,21 @@ public class TvShowTreeModel implements TreeModel {
   public void valueForPathChanged(TreePath arg0, Object arg1) {
   }
 
-  private int getChildCountInternal(Object node) {
-    return ((TreeNode) node).getChildCount();
-  }
-
-  private Object getChildInternal(Object parent, int index) {
-    return ((TreeNode) parent).getChildAt(index);
-  }
-
   public void setFilter(SearchOptions option, Object filterArg) {
-    if (matcher.searchOptions.containsKey(option)) {
-      matcher.searchOptions.remove(option);
-    }
-    matcher.searchOptions.put(option, filterArg);
+    matcher.setFilter(option, filterArg);
   }
 
   public void removeFilter(SearchOptions option) {
-    if (matcher.searchOptions.containsKey(option)) {
-      matcher.searchOptions.remove(option);
-    }
+    matcher.removeFilter(option);
   }
 
   public void filter(JTree tree) {
+    // apply all pending changes before rebuilding the visible nodes
+    flush();
+
     TreePath selection = tree.getSelectionPath();
     List<TreePath> currOpen = getCurrExpandedPaths(tree);
+    visibleNodes.clear();
     reload();
     reExpandPaths(tree, currOpen);
     restoreSelection(selection, tree);
@@ -530,30 +670,42 @@ public class TvShowTreeModel implements TreeModel {
   }
 
   private void reload() {
-    TreeModelEvent event = new TreeModelEvent(this, root.getPath(), null, null);
-    for (TreeModelListener listener : listeners) {
-      listener.treeStructureChanged(event);
-    }
+    fireTreeStructureChanged(new TreeModelEvent(this, root.getPath(), null, null));
   }
 
   private void restoreSelection(TreePath path, JTree tree) {
     if (path != null) {
       DefaultMutableTreeNode child = (DefaultMutableTreeNode) path.getLastPathComponent();
       DefaultMutableTreeNode parent = (DefaultMutableTreeNode) child.getParent();
-      if (getIndexOfChild(parent, child) > -1) {
+      if (parent != null && getIndexOfChild(parent, child) > -1) {
         tree.setSelectionPath(path);
         return;
       }
     }
 
     // search first valid node to select
-    DefaultMutableTreeNode root = (DefaultMutableTreeNode) getRoot();
-    for (int i = 0; i < root.getChildCount(); i++) {
-      DefaultMutableTreeNode child = (DefaultMutableTreeNode) root.getChildAt(i);
-      if (getIndexOfChild(root, child) > -1) {
-        tree.setSelectionPath(new TreePath(child.getPath()));
-        break;
+    if (getChildCount(root) > 0) {
+      DefaultMutableTreeNode child = (DefaultMutableTreeNode) getChild(root, 0);
+      tree.setSelectionPath(new TreePath(child.getPath()));
+    }
+  }
+
+  /**
+   * all changes of one flush: the visible children of every touched node before the first change and all nodes with changed content
+   */
+  private class Batch {
+    private final Map<TreeNode, List<TreeNode>> snapshots    = new LinkedHashMap<TreeNode, List<TreeNode>>();
+    private final Set<TreeNode>                 changedNodes = new LinkedHashSet<TreeNode>();
+
+    private void touch(TreeNode node) {
+      if (node != null && !snapshots.containsKey(node)) {
+        // the cached children are being recalculated after the batch
+        snapshots.put(node, visibleNodes.remove(node));
       }
     }
+
+    private void changed(TreeNode node) {
+      changedNodes.add(node);
+    }
   }
 }
@@ -22,6 +22,7 @@ import java.util.ResourceBundle;
 import javax.swing.AbstractAction;
 import javax.swing.JOptionPane;
 
+import org.tinymediamanager.core.threading.TmmTaskHandle.TaskPriority;
 import org.tinymediamanager.core.threading.TmmTaskManager;
 import org.tinymediamanager.core.threading.TmmThreadPool;
 import org.tinymediamanager.core.tvshow.TvShowSearchAndScrapeOptions;
@@ -64,6 +65,10 @@ public class TvShowSelectedScrapeAction extends AbstractAction {
       if (dialog.shouldStartScrape()) {
         // scrape
         TmmThreadPool scrapeTask = new TvShowScrapeTask(selectedTvShows, true, options);
+        if (selectedTvShows.size() == 1) {
+          // the user is waiting for this one
+          scrapeTask.setPriority(TaskPriority.INTERACTIVE);
+        }
         if (TmmTaskManager.getInstance().addMainTask(scrapeTask)) {
           JOptionPane.showMessageDialog(null, BUNDLE.getString("onlyoneoperation")); //$NON-NLS-1$
         }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Manuel Laggner
+ *
+ */
+public class FileTransferTest {
+  private File   dir;
+  private File   source;
+  private byte[] content;
+
+  @Before
+  public void setUp() throws Exception {
+    dir = new File(System.getProperty("java.io.tmpdir"), "tmm-filetransfer");
+    FileUtils.deleteQuietly(dir);
+    dir.mkdirs();
+
+    content = new byte[3 * 1024 * 1024 + 17];
+    new Random(42).nextBytes(content);
+    source = new File(dir, "movie.mkv");
+    FileUtils.writeByteArrayToFile(source, content);
+  }
+
+  @After
+  public void tearDown() {
+    FileUtils.deleteQuietly(dir);
+  }
+
+  @Test
+  public void move() throws Exception {
+    File destination = new File(dir, "other/movie.mkv");
+    destination.getParentFile().mkdirs();
+
+    Assert.assertTrue(FileTransfer.move(source, destination, true));
+    Assert.assertFalse(source.exists());
+    Assert.assertTrue(Arrays.equals(content, FileUtils.readFileToByteArray(destination)));
+    Assert.assertFalse(new File(destination.getPath() + FileTransfer.PART_EXTENSION).exists());
+  }
+
+  @Test
+  public void resume() throws Exception {
+    File destination = new File(dir, "copy.mkv");
+
+    // an interrupted copy left the first megabyte
+    File part = new File(destination.getPath() + FileTransfer.PART_EXTENSION);
+    FileUtils.writeByteArrayToFile(part, Arrays.copyOf(content, 1024 * 1024));
+    part.setLastModified(source.lastModified() + 1000);
+
+    Assert.assertTrue(new FileTransfer(source, destination, true).copy());
+    Assert.assertTrue(source.exists());
+    Assert.assertTrue(Arrays.equals(content, FileUtils.readFileToByteArray(destination)));
+  }
+
+  @Test
+  public void stalePartIsDiscarded() throws Exception {
+    File destination = new File(dir, "copy.mkv");
+
+    // the part is older than the source: the source has been changed in the meantime
+    File part = new File(destination.getPath() + FileTransfer.PART_EXTENSION);
+    FileUtils.writeByteArrayToFile(part, new byte[1024]);
+    part.setLastModified(source.lastModified() - 10000);
+
+    Assert.assertTrue(new FileTransfer(source, destination, false).copy());
+    Assert.assertTrue(Arrays.equals(content, FileUtils.readFileToByteArray(destination)));
+  }
+}
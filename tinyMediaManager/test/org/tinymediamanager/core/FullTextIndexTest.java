@@ -0,0 +1,64 @@
+package org.tinymediamanager.core;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FullTextIndexTest {
+
+  private static class Document {
+    private final String title;
+    private final String plot;
+
+    private Document(String title, String plot) {
+      this.title = title;
+      this.plot = plot;
+    }
+  }
+
+  private static class DocumentIndex extends FullTextIndex<Document> {
+    @Override
+    protected void collectTexts(Document document, Map<String, Float> terms) {
+      addText(terms, document.title, 10);
+      addText(terms, document.plot, 1);
+    }
+  }
+
+  @Test
+  public void tokenize() {
+    Assert.assertEquals(Arrays.asList("amelie", "poulain", "2001"), FullTextIndex.tokenize("Amélie (Poulain) - 2001"));
+    Assert.assertTrue(FullTextIndex.tokenize("  ").isEmpty());
+  }
+
+  @Test
+  public void searchAndRank() {
+    DocumentIndex index = new DocumentIndex();
+    Document amelie = new Document("Le fabuleux destin d'Amélie Poulain", "A girl in Paris");
+    Document paris = new Document("Midnight in Paris", "A writer travels back in time");
+    Document matrix = new Document("The Matrix", "A hacker learns about the true nature of his reality");
+    index.update(amelie);
+    index.update(paris);
+    index.update(matrix);
+
+    // accent folding and prefix search
+    Assert.assertEquals(Arrays.asList(amelie), index.search("amel", 10));
+
+    // title matches are ranked before plot matches
+    List<Document> result = index.search("paris", 10);
+    Assert.assertEquals(Arrays.asList(paris, amelie), result);
+
+    // all tokens have to match
+    Assert.assertEquals(Arrays.asList(paris), index.search("paris writer", 10));
+    Assert.assertTrue(index.search("paris hacker", 10).isEmpty());
+
+    // re-index and remove
+    index.update(new Document("x", "y"));
+    Assert.assertEquals(4, index.size());
+    index.remove(paris);
+    Assert.assertEquals(Arrays.asList(amelie), index.search("paris", 10));
+    Assert.assertEquals(1, index.search("a", 1).size());
+  }
+}
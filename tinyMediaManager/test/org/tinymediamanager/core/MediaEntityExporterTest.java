@@ -0,0 +1,220 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.tinymediamanager.core.entities.MediaEntity;
+import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.movie.entities.Movie;
+
+import com.floreysoft.jmte.Engine;
+import com.floreysoft.jmte.NamedRenderer;
+import com.floreysoft.jmte.RenderFormatInfo;
+
+/**
+ * @author Manuel Laggner
+ *
+ */
+public class MediaEntityExporterTest {
+  private File dir;
+  private File exportDir;
+
+  @Before
+  public void setUp() throws Exception {
+    dir = new File(System.getProperty("java.io.tmpdir"), "tmm-export");
+    FileUtils.deleteQuietly(dir);
+    File templateDir = new File(dir, "template");
+    FileUtils.writeStringToFile(new File(templateDir, "template.conf"), "type=MOVIE\nlist=list.jmte\ndetail=detail.jmte\nimages=POSTER:200\n", "UTF-8");
+    FileUtils.writeStringToFile(new File(templateDir, "list.jmte"), "${foreach titles title}${title}\n${end}", "UTF-8");
+    FileUtils.writeStringToFile(new File(templateDir, "detail.jmte"), "<h1>${title}</h1>${title;count}", "UTF-8");
+    exportDir = new File(dir, "export");
+  }
+
+  @After
+  public void tearDown() {
+    FileUtils.deleteQuietly(dir);
+  }
+
+  @Test
+  public void incrementalExport() throws Exception {
+    TestExporter exporter = new TestExporter(new File(dir, "template").getPath());
+
+    List<String> titles = new ArrayList<String>();
+    for (int i = 0; i < 50; i++) {
+      titles.add("Movie " + i);
+    }
+    exporter.export(titles);
+    Assert.assertEquals("<h1>Movie 7</h1>", FileUtils.readFileToString(new File(exportDir, "movies/7.html"), "UTF-8"));
+    Assert.assertTrue(FileUtils.readFileToString(new File(exportDir, "index.html"), "UTF-8").startsWith("Movie 0\nMovie 1\n"));
+    Assert.assertEquals(50, exporter.rendered.get());
+    Assert.assertTrue(new File(exportDir, ".tmm-export-movie").exists());
+
+    // mark all pages to see which have been rewritten
+    long past = System.currentTimeMillis() - 100000;
+    for (int i = 0; i < 50; i++) {
+      new File(exportDir, "movies/" + i + ".html").setLastModified(past);
+    }
+
+    // change one, remove the last one
+    titles.set(3, "Movie & more");
+    titles.remove(49);
+    exporter.rendered.set(0);
+    exporter.export(titles);
+
+    // only the changed page has been rendered again
+    Assert.assertEquals(1, exporter.rendered.get());
+
+    Assert.assertEquals("<h1>Movie &amp; more</h1>", FileUtils.readFileToString(new File(exportDir, "movies/3.html"), "UTF-8"));
+    Assert.assertTrue(new File(exportDir, "movies/3.html").lastModified() != past);
+    Assert.assertEquals(past / 1000, new File(exportDir, "movies/4.html").lastModified() / 1000);
+    Assert.assertFalse(new File(exportDir, "movies/49.html").exists());
+  }
+
+  @Test
+  public void exportImages() throws Exception {
+    TestExporter exporter = new TestExporter(new File(dir, "template").getPath());
+
+    // two movies with the same poster (content)
+    BufferedImage image = new BufferedImage(400, 600, BufferedImage.TYPE_INT_RGB);
+    List<Movie> movies = new ArrayList<Movie>();
+    for (int i = 0; i < 2; i++) {
+      File poster = new File(dir, "movie" + i + "/poster.jpg");
+      poster.getParentFile().mkdirs();
+      ImageIO.write(image, "jpg", poster);
+      movies.add(movieWithPoster(new MediaFile(poster, MediaFileType.POSTER)));
+    }
+    Movie withoutPoster = movieWithPoster(null);
+    movies.add(withoutPoster);
+
+    exporter.exportImages(exportDir, movies);
+    File[] images = new File(exportDir, "images").listFiles();
+    Assert.assertEquals(1, images.length);
+    Assert.assertEquals(200, ImageIO.read(images[0]).getWidth());
+
+    MediaEntityExporter.ImageRenderer renderer = exporter.new ImageRenderer();
+    Assert.assertEquals("images/" + images[0].getName(), renderer.render(movies.get(1), "poster", null));
+    Assert.assertNull(renderer.render(withoutPoster, "poster", null));
+
+    // detail pages in sub folders get the path relative to the page
+    List<MediaEntityExporter.DetailPage> pages = new ArrayList<MediaEntityExporter.DetailPage>();
+    pages.add(new MediaEntityExporter.DetailPage("movies/1.html", "<img src=\"${movie;image(POSTER)}\"/>", "movie", movies.get(1)));
+    exporter.exportDetails(exportDir, pages);
+    Assert.assertEquals("<img src=\"../images/" + images[0].getName() + "\"/>",
+        FileUtils.readFileToString(new File(exportDir, "movies/1.html"), "UTF-8"));
+
+    // a re-export does not touch the unchanged image; a removed one is being deleted
+    long past = System.currentTimeMillis() - 100000;
+    images[0].setLastModified(past);
+    exporter.exportImages(exportDir, movies);
+    Assert.assertEquals(past / 1000, images[0].lastModified() / 1000);
+    exporter.exportImages(exportDir, new ArrayList<Movie>());
+    Assert.assertFalse(images[0].exists());
+  }
+
+  @Test
+  public void changeStamp() throws Exception {
+    Movie movie = movieWithPoster(null);
+    movie.setPlot("plot");
+    String stamp = MediaEntityExporter.getChangeStamp(movie);
+    Assert.assertEquals(stamp, MediaEntityExporter.getChangeStamp(movie));
+
+    movie.setPlot("another plot");
+    Assert.assertFalse(stamp.equals(MediaEntityExporter.getChangeStamp(movie)));
+    movie.setPlot("plot");
+    Assert.assertEquals(stamp, MediaEntityExporter.getChangeStamp(movie));
+  }
+
+  // adding media files needs the database; so we fake the poster
+  private Movie movieWithPoster(final MediaFile poster) {
+    return new Movie() {
+      @Override
+      public List<MediaFile> getMediaFiles(MediaFileType... types) {
+        List<MediaFile> mfs = new ArrayList<MediaFile>();
+        if (poster != null && Arrays.asList(types).contains(poster.getType())) {
+          mfs.add(poster);
+        }
+        return mfs;
+      }
+    };
+  }
+
+  private class TestExporter extends MediaEntityExporter {
+    private final AtomicInteger rendered = new AtomicInteger();
+
+    TestExporter(String pathToTemplate) throws Exception {
+      super(pathToTemplate, TemplateType.MOVIE);
+    }
+
+    @Override
+    protected void registerRenderers(Engine engine) {
+      // counts the rendered detail pages
+      engine.registerNamedRenderer(new NamedRenderer() {
+        @Override
+        public String render(Object o, String format, Locale locale) {
+          rendered.incrementAndGet();
+          return "";
+        }
+
+        @Override
+        public String getName() {
+          return "count";
+        }
+
+        @Override
+        public RenderFormatInfo getFormatInfo() {
+          return null;
+        }
+
+        @Override
+        public Class<?>[] getSupportedClasses() {
+          return new Class[] { String.class };
+        }
+      });
+    }
+
+    @Override
+    public <T extends MediaEntity> void export(List<T> entitiesToExport, String pathToExport) throws Exception {
+    }
+
+    void export(List<String> titles) throws Exception {
+      Map<String, Object> root = new HashMap<String, Object>();
+      root.put("titles", titles);
+      exportList(new File(exportDir, "index.html"), root);
+
+      List<DetailPage> pages = new ArrayList<DetailPage>();
+      for (int i = 0; i < titles.size(); i++) {
+        pages.add(new DetailPage("movies/" + i + ".html", detailTemplate, "title", titles.get(i)));
+      }
+      exportDetails(exportDir, pages);
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Manuel Laggner
+ *
+ */
+public class PropertyChangeCoalescerTest {
+
+  private static class Entity extends AbstractModelObject {
+  }
+
+  @Test
+  public void coalesceEvents() throws Exception {
+    Entity entity = new Entity();
+    Entity child = new Entity();
+    final List<PropertyChangeEvent> events = Collections.synchronizedList(new ArrayList<PropertyChangeEvent>());
+    entity.addPropertyChangeListener(new PropertyChangeListener() {
+      @Override
+      public void propertyChange(PropertyChangeEvent evt) {
+        Assert.assertTrue(SwingUtilities.isEventDispatchThread());
+        events.add(evt);
+      }
+    });
+    // the core listeners are informed immediately in the firing thread
+    final Thread firingThread = Thread.currentThread();
+    final List<PropertyChangeEvent> coreEvents = Collections.synchronizedList(new ArrayList<PropertyChangeEvent>());
+    entity.addPropertyChangeListener(new CorePropertyChangeListener() {
+      @Override
+      public void propertyChange(PropertyChangeEvent evt) {
+        Assert.assertSame(firingThread, Thread.currentThread());
+        coreEvents.add(evt);
+      }
+    });
+
+    long queued = PropertyChangeCoalescer.getQueuedEvents();
+    long delivered = PropertyChangeCoalescer.getDeliveredEvents();
+
+    PropertyChangeCoalescer.suspend();
+    try {
+      PropertyChangeCoalescer.suspend();
+      for (int i = 1; i <= 100; i++) {
+        entity.firePropertyChange("title", "title " + (i - 1), "title " + i);
+      }
+      PropertyChangeCoalescer.resume();
+      Assert.assertTrue(PropertyChangeCoalescer.isSuspended());
+      Assert.assertEquals(100, coreEvents.size());
+
+      entity.firePropertyChange("year", "2000", "2001");
+      entity.firePropertyChange("addedChild", null, child);
+      entity.firePropertyChange("addedChild", null, child);
+      // equal values are not being delivered at all
+      entity.firePropertyChange("plot", "x", "x");
+      // changes which are reverted within the batch neither
+      entity.firePropertyChange("tagline", "a", "b");
+      entity.firePropertyChange("tagline", "b", "a");
+    }
+    finally {
+      PropertyChangeCoalescer.resume();
+    }
+    Assert.assertFalse(PropertyChangeCoalescer.isSuspended());
+
+    // wait for the timed delivery on the EDT
+    Thread.sleep(PropertyChangeCoalescer.DELIVERY_INTERVAL * 3);
+    SwingUtilities.invokeAndWait(new Runnable() {
+      @Override
+      public void run() {
+      }
+    });
+
+    Assert.assertEquals(4, events.size());
+    Assert.assertEquals("title", events.get(0).getPropertyName());
+    Assert.assertEquals("title 0", events.get(0).getOldValue());
+    Assert.assertEquals("title 100", events.get(0).getNewValue());
+    Assert.assertEquals("year", events.get(1).getPropertyName());
+    Assert.assertSame(child, events.get(2).getNewValue());
+    Assert.assertSame(child, events.get(3).getNewValue());
+
+    Assert.assertEquals(106, PropertyChangeCoalescer.getQueuedEvents() - queued);
+    Assert.assertEquals(105, coreEvents.size());
+    Assert.assertEquals(4, PropertyChangeCoalescer.getDeliveredEvents() - delivered);
+  }
+
+  @Test
+  public void notSuspended() throws Exception {
+    Entity entity = new Entity();
+    final List<PropertyChangeEvent> events = Collections.synchronizedList(new ArrayList<PropertyChangeEvent>());
+    entity.addPropertyChangeListener(new PropertyChangeListener() {
+      @Override
+      public void propertyChange(PropertyChangeEvent evt) {
+        events.add(evt);
+      }
+    });
+
+    entity.firePropertyChange("title", "a", "b");
+    entity.firePropertyChange("title", "b", "c");
+    SwingUtilities.invokeAndWait(new Runnable() {
+      @Override
+      public void run() {
+      }
+    });
+    Assert.assertEquals(2, events.size());
+  }
+}
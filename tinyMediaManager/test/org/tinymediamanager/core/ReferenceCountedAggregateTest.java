@@ -0,0 +1,42 @@
+package org.tinymediamanager.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReferenceCountedAggregateTest {
+
+  @Test
+  public void addAndRetractValues() {
+    List<String> values = new ArrayList<String>();
+    ReferenceCountedAggregate<String> aggregate = new ReferenceCountedAggregate<String>(values);
+    Object owner1 = new Object();
+    Object owner2 = new Object();
+
+    Assert.assertTrue(aggregate.update(owner1, Arrays.asList("Action", "Drama")));
+    Assert.assertFalse(aggregate.update(owner2, Arrays.asList("Drama")));
+    Assert.assertEquals(2, values.size());
+    Assert.assertEquals(2, aggregate.getCount("Drama"));
+
+    // owner1 drops drama -> still used by owner2
+    Assert.assertFalse(aggregate.update(owner1, Arrays.asList("Action")));
+    Assert.assertTrue(aggregate.contains("Drama"));
+
+    // owner2 is removed -> drama is gone
+    Assert.assertTrue(aggregate.remove(owner2));
+    Assert.assertFalse(aggregate.contains("Drama"));
+    Assert.assertEquals(Arrays.asList("Action"), values);
+
+    // duplicates and nulls of one owner are counted once
+    Assert.assertFalse(aggregate.update(owner1, Arrays.asList("Action", "Action", null)));
+    Assert.assertEquals(1, aggregate.getCount("Action"));
+
+    Assert.assertTrue(aggregate.update(owner1, Collections.<String> emptyList()));
+    Assert.assertTrue(values.isEmpty());
+    Assert.assertFalse(aggregate.remove(owner1));
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.File;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Manuel Laggner
+ *
+ */
+public class RenamePlanTest {
+
+  @Test
+  public void conflicts() throws Exception {
+    File ds = new File(System.getProperty("java.io.tmpdir"), "tmm-renameplan");
+    FileUtils.deleteQuietly(ds);
+    ds.mkdirs();
+    File existing = new File(ds, "Existing (2000)");
+    existing.mkdirs();
+
+    RenamePlan<String> plan = new RenamePlan<String>();
+
+    // two movies renamed into the same folder
+    RenamePlan.Entry<String> a = new RenamePlan.Entry<String>("a", ds.getPath());
+    a.claimFolder(new File(ds, "a"), new File(ds, "Movie (2000)"));
+    plan.add(a);
+    RenamePlan.Entry<String> b = new RenamePlan.Entry<String>("b", ds.getPath());
+    b.claimFolder(new File(ds, "b"), new File(ds, "movie (2000)"));
+    plan.add(b);
+
+    // a file renamed into the folder of another movie
+    RenamePlan.Entry<String> c = new RenamePlan.Entry<String>("c", ds.getPath());
+    c.claimFolder(new File(ds, "c"), new File(ds, "Other (2001)"));
+    c.claimFile(new File(ds, "c/c.avi"), new File(ds, "Other (2001)/Other.avi"));
+    plan.add(c);
+    RenamePlan.Entry<String> d = new RenamePlan.Entry<String>("d", ds.getPath());
+    d.claimFile(new File(ds, "mmd/d.avi"), new File(ds, "Other (2001)/d.avi"));
+    plan.add(d);
+
+    // destination exists on disk
+    RenamePlan.Entry<String> e = new RenamePlan.Entry<String>("e", ds.getPath());
+    e.claimFolder(new File(ds, "e"), existing);
+    plan.add(e);
+
+    // a multi episode file: same source and destination for two entries
+    RenamePlan.Entry<String> f1 = new RenamePlan.Entry<String>("f1", "other");
+    f1.claimFile(new File(ds, "s01e01e02.avi"), new File(ds, "Season 1/S01E01E02.avi"));
+    plan.add(f1);
+    RenamePlan.Entry<String> f2 = new RenamePlan.Entry<String>("f2", "other");
+    f2.claimFile(new File(ds, "s01e01e02.avi"), new File(ds, "Season 1/S01E01E02.avi"));
+    plan.add(f2);
+
+    List<RenamePlan.Entry<String>> conflicts = plan.checkConflicts();
+    Assert.assertEquals(5, conflicts.size());
+    Assert.assertTrue(a.hasConflict());
+    Assert.assertTrue(b.hasConflict());
+    Assert.assertTrue(c.hasConflict());
+    Assert.assertTrue(d.hasConflict());
+    Assert.assertEquals(existing, e.getConflict());
+    Assert.assertFalse(f1.hasConflict());
+    Assert.assertFalse(f2.hasConflict());
+    Assert.assertEquals(1, plan.getFileSystemCount());
+
+    FileUtils.deleteQuietly(ds);
+  }
+
+  @Test
+  public void dataSourcesOnOneVolume() throws Exception {
+    File tmp = new File(System.getProperty("java.io.tmpdir"));
+    File ds1 = new File(tmp, "tmm-renameplan-ds1");
+    File ds2 = new File(tmp, "tmm-renameplan-ds2");
+    ds1.mkdirs();
+    ds2.mkdirs();
+
+    // two data sources on the same disk are renamed one after another
+    Assert.assertEquals(RenamePlan.getFileSystem(ds1.getPath()), RenamePlan.getFileSystem(ds2.getPath()));
+    RenamePlan<String> plan = new RenamePlan<String>();
+    plan.add(new RenamePlan.Entry<String>("a", RenamePlan.getFileSystem(ds1.getPath())));
+    plan.add(new RenamePlan.Entry<String>("b", RenamePlan.getFileSystem(ds2.getPath())));
+    Assert.assertTrue(plan.checkConflicts().isEmpty());
+    Assert.assertEquals(1, plan.getFileSystemCount());
+
+    RenamePlan.Entry<String> first = plan.next();
+    Assert.assertEquals("a", first.getEntity());
+    plan.done(first);
+    Assert.assertEquals("b", plan.next().getEntity());
+
+    FileUtils.deleteQuietly(ds1);
+    FileUtils.deleteQuietly(ds2);
+  }
+
+  @Test
+  public void onlyOneEntryPerFileSystem() throws Exception {
+    RenamePlan<String> plan = new RenamePlan<String>();
+    plan.add(new RenamePlan.Entry<String>("a1", "a"));
+    plan.add(new RenamePlan.Entry<String>("a2", "a"));
+    plan.add(new RenamePlan.Entry<String>("b1", "b"));
+    Assert.assertTrue(plan.checkConflicts().isEmpty());
+    Assert.assertEquals(2, plan.getFileSystemCount());
+
+    RenamePlan.Entry<String> first = plan.next();
+    RenamePlan.Entry<String> second = plan.next();
+    Assert.assertEquals("a1", first.getEntity());
+    Assert.assertEquals("b1", second.getEntity());
+
+    // a2 is blocked until a1 is done
+    final RenamePlan<String> p = plan;
+    final String[] third = new String[1];
+    Thread worker = new Thread() {
+      @Override
+      public void run() {
+        try {
+          third[0] = p.next().getEntity();
+        }
+        catch (InterruptedException e) {
+        }
+      }
+    };
+    worker.start();
+    worker.join(200);
+    Assert.assertNull(third[0]);
+
+    plan.done(first);
+    worker.join(1000);
+    Assert.assertEquals("a2", third[0]);
+
+    plan.done(second);
+    Assert.assertNull(plan.next());
+  }
+}
@@ -104,4 +104,19 @@ public class UtilsTest {
     Assert.assertEquals("Test one two three", Utils.replacePlaceholders("Test {} {} {}", new String[] { "one", "two", "three" }));
     Assert.assertEquals("Test with empty spaces", Utils.replacePlaceholders("Test {} with {}{}empty spaces", new String[] {}));
   }
+
+  @Test
+  public void crossVolume() {
+    File tmp = new File(System.getProperty("java.io.tmpdir"));
+    // the destination does not need to exist
+    Assert.assertNotNull(Utils.getVolume(new File(tmp, "not/existing/file.mkv")));
+    Assert.assertEquals(Utils.getVolume(tmp), Utils.getVolume(new File(tmp, "not/existing/file.mkv")));
+    Assert.assertFalse(Utils.isCrossVolume(new File(tmp, "a.mkv"), new File(tmp, "b/c.mkv")));
+
+    // /proc is always a mount of its own on Linux
+    if (new File("/proc/mounts").exists()) {
+      Assert.assertEquals("/proc", Utils.getVolume(new File("/proc/self")));
+      Assert.assertTrue(Utils.isCrossVolume(new File("/proc/self"), tmp));
+    }
+  }
 }
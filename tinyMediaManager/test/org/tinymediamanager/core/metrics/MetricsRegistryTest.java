@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.metrics;
+
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Manuel Laggner
+ *
+ */
+public class MetricsRegistryTest {
+
+  @Test
+  public void histogram() {
+    Histogram histogram = MetricsRegistry.histogram("test.histogram");
+    Assert.assertSame(histogram, MetricsRegistry.histogram("test.histogram"));
+
+    for (int i = 1; i <= 100; i++) {
+      histogram.update(i);
+    }
+    Assert.assertEquals(100, histogram.getCount());
+    Assert.assertEquals(1, histogram.getMin());
+    Assert.assertEquals(100, histogram.getMax());
+    Assert.assertEquals(50.5, histogram.getMean(), 0.001);
+    Assert.assertEquals(50, histogram.get50thPercentile());
+    Assert.assertEquals(95, histogram.get95thPercentile());
+    Assert.assertEquals(99, histogram.get99thPercentile());
+
+    // the percentiles follow the last values
+    for (int i = 0; i < Histogram.SAMPLE_SIZE; i++) {
+      histogram.update(1000);
+    }
+    Assert.assertEquals(1000, histogram.get50thPercentile());
+    Assert.assertEquals(1, histogram.getMin());
+
+    histogram.reset();
+    Assert.assertEquals(0, histogram.getCount());
+    Assert.assertEquals(0, histogram.get99thPercentile());
+  }
+
+  @Test
+  public void timerAndCounter() throws Exception {
+    Timer timer = MetricsRegistry.timer("test.timer");
+    Timer.Context context = timer.start();
+    Thread.sleep(20);
+    long duration = context.stop();
+    Assert.assertTrue(duration >= 15);
+    Assert.assertEquals(1, timer.getCount());
+    Assert.assertEquals(duration, timer.getTotalTime());
+
+    Counter counter = MetricsRegistry.counter("test.counter");
+    counter.inc();
+    counter.inc(2);
+    Assert.assertEquals(3, counter.getCount());
+
+    StringWriter writer = new StringWriter();
+    MetricsRegistry.dump(writer);
+    Assert.assertTrue(writer.toString().contains("test.counter"));
+    Assert.assertTrue(writer.toString().contains("count=3"));
+  }
+
+  @Test
+  public void jmx() throws Exception {
+    MetricsRegistry.counter("test.jmx.before").inc();
+    MetricsRegistry.enableJmx();
+    MetricsRegistry.counter("test.jmx.after").inc(5);
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    Assert.assertEquals(1L, server.getAttribute(MetricsRegistry.getObjectName("test.jmx.before"), "Count"));
+    Assert.assertEquals(5L, server.getAttribute(MetricsRegistry.getObjectName("test.jmx.after"), "Count"));
+
+    ObjectName name = MetricsRegistry.getObjectName("http.host.api.example.org:8080");
+    Assert.assertEquals("http", name.getKeyProperty("subsystem"));
+    Assert.assertEquals("host.api.example.org_8080", name.getKeyProperty("name"));
+  }
+}
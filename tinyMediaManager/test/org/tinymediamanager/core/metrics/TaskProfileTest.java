@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.metrics;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Manuel Laggner
+ *
+ */
+public class TaskProfileTest {
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void profile() {
+    TaskProfile profile = new TaskProfile("test task", "TestTask");
+    TaskProfile.setCurrent(profile);
+    try {
+      MetricsRegistry.timer("http.host.example.org").update(100);
+      MetricsRegistry.timer("http.host.example.com").update(50);
+      MetricsRegistry.timer("filesystem.scan").update(10);
+      MetricsRegistry.counter("scraper.test.errors").inc();
+      MetricsRegistry.counter("imagecache.hits").inc(3);
+      for (int i = 1; i <= TaskProfile.SLOWEST_ENTITIES + 5; i++) {
+        profile.addEntity("entity" + i, i);
+      }
+    }
+    finally {
+      TaskProfile.setCurrent(null);
+    }
+    // not bound anymore
+    MetricsRegistry.timer("filesystem.scan").update(1000);
+
+    profile.addPool("test", 4);
+    profile.addWorkUnit();
+    profile.finish();
+    // ignored after the finish
+    profile.addTime("filesystem.scan", 1000);
+
+    Map<String, Object> report = profile.getReport(false);
+    Assert.assertEquals(1, report.get("workUnits"));
+    Assert.assertEquals(1L, report.get("errors"));
+    Assert.assertEquals(4, ((Map<String, Object>) report.get("threads")).get("test"));
+
+    Map<String, Map<String, Object>> phases = (Map<String, Map<String, Object>>) report.get("phases");
+    Assert.assertEquals(150L, phases.get("http").get("time"));
+    Assert.assertEquals(2L, phases.get("http").get("count"));
+    Assert.assertEquals(10L, phases.get("filesystem").get("time"));
+    Assert.assertFalse(phases.containsKey("db"));
+    Assert.assertEquals(3L, ((Map<String, Object>) report.get("counts")).get("imagecache.hits"));
+
+    List<Map<String, Object>> slowest = (List<Map<String, Object>>) report.get("slowest");
+    Assert.assertEquals(TaskProfile.SLOWEST_ENTITIES, slowest.size());
+    Assert.assertEquals("entity15", slowest.get(0).get("name"));
+    Assert.assertEquals(6L, slowest.get(TaskProfile.SLOWEST_ENTITIES - 1).get("time"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void write() throws Exception {
+    File dir = new File(System.getProperty("java.io.tmpdir"), "tmm-profiles-" + System.nanoTime());
+    try {
+      TaskProfile profile = new TaskProfile("test task", "TestTask");
+      profile.addTime("db.save.movie", 20);
+      profile.addEntity("movie", 20);
+      profile.finish();
+
+      File file = profile.write(dir, true);
+      Assert.assertNotNull(file);
+      Assert.assertEquals(1, TaskProfile.getReports(dir).size());
+
+      Map<String, Object> report = TaskProfile.readReport(file);
+      Assert.assertEquals("test task", report.get("task"));
+      Assert.assertEquals(Boolean.TRUE, report.get("cancelled"));
+      Assert.assertEquals(20, ((Map<String, Map<String, Object>>) report.get("phases")).get("db").get("time"));
+      Assert.assertEquals("movie", ((List<Map<String, Object>>) report.get("slowest")).get(0).get("name"));
+    }
+    finally {
+      FileUtils.deleteQuietly(dir);
+    }
+  }
+}
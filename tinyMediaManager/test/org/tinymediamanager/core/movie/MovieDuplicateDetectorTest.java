@@ -0,0 +1,116 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tinymediamanager.core.MediaFileType;
+import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.movie.MovieDuplicateDetector.DuplicateCluster;
+import org.tinymediamanager.core.movie.entities.Movie;
+
+/**
+ * @author Manuel Laggner
+ *
+ */
+public class MovieDuplicateDetectorTest {
+
+  @Test
+  public void findDuplicates() {
+    Movie matrix = movie("The Matrix", "1999", 8160);
+    Movie matrixEncode = movie("Matrix", "1999", 8170); // unscraped, another encode
+    Movie matrixReloaded = movie("The Matrix Reloaded", "2003", 8280);
+    Movie hamlet = movie("Hamlet", "1948", 9300);
+    Movie hamletRemake = movie("Hamlet", "1996", 14520);
+    Movie amelie = movie("Amélie", "2001", 7320);
+    Movie amelie2 = movie("Amelie", "", 0);
+    Movie alien = movie("Alien", "1979", 7020);
+    alien.setImdbId("tt0078748");
+    Movie alienDirectorsCut = movie("Alien - Director's Cut", "1979", 6960);
+    alienDirectorsCut.setImdbId("tt0078748");
+
+    List<Movie> movies = Arrays.asList(matrix, matrixEncode, matrixReloaded, hamlet, hamletRemake, amelie, amelie2, alien, alienDirectorsCut);
+    List<DuplicateCluster> clusters = new MovieDuplicateDetector().findDuplicates(movies);
+
+    Assert.assertEquals(3, clusters.size());
+    for (DuplicateCluster cluster : clusters) {
+      Assert.assertEquals(2, cluster.getMovies().size());
+      if (cluster.getMovies().contains(alien)) {
+        Assert.assertTrue(cluster.getMovies().contains(alienDirectorsCut));
+        Assert.assertEquals(1f, cluster.getConfidence(), 0.001f);
+      }
+      else if (cluster.getMovies().contains(matrix)) {
+        Assert.assertTrue(cluster.getMovies().contains(matrixEncode));
+        Assert.assertTrue(cluster.getConfidence() >= 0.8f);
+      }
+      else {
+        Assert.assertTrue(cluster.getMovies().contains(amelie));
+        Assert.assertTrue(cluster.getMovies().contains(amelie2));
+      }
+    }
+  }
+
+  @Test
+  public void manyMovies() {
+    // 50k different movies + 100 duplicates should not take long
+    Random random = new Random(1);
+    List<Movie> movies = new ArrayList<Movie>();
+    for (int i = 0; i < 50000; i++) {
+      StringBuilder title = new StringBuilder();
+      for (int word = 0; word < 3; word++) {
+        for (int c = 0; c < 4 + random.nextInt(5); c++) {
+          title.append((char) ('a' + random.nextInt(26)));
+        }
+        title.append(' ');
+      }
+      movies.add(movie(title.toString().trim(), String.valueOf(1950 + random.nextInt(60)), 5400 + random.nextInt(3600)));
+    }
+    for (int i = 0; i < 100; i++) {
+      Movie original = movies.get(i * 100);
+      movies.add(movie(original.getTitle().toUpperCase(), original.getYear(), 0));
+    }
+
+    long start = System.currentTimeMillis();
+    List<DuplicateCluster> clusters = new MovieDuplicateDetector().findDuplicates(movies);
+    Assert.assertEquals(100, clusters.size());
+    Assert.assertTrue(System.currentTimeMillis() - start < 30000);
+  }
+
+  // adding media files needs the database; so we fake the video file
+  private Movie movie(String title, String year, final int duration) {
+    Movie movie = new Movie() {
+      @Override
+      public List<MediaFile> getMediaFiles(MediaFileType... types) {
+        List<MediaFile> mfs = new ArrayList<MediaFile>();
+        if (duration > 0 && Arrays.asList(types).contains(MediaFileType.VIDEO)) {
+          MediaFile mf = new MediaFile();
+          mf.setType(MediaFileType.VIDEO);
+          mf.setDuration(duration);
+          mfs.add(mf);
+        }
+        return mfs;
+      }
+    };
+    movie.setTitle(title);
+    movie.setYear(year);
+    return movie;
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tinymediamanager.core.movie.MovieFilterIndex.Field;
+import org.tinymediamanager.core.movie.entities.Movie;
+import org.tinymediamanager.scraper.MediaGenres;
+
+/**
+ * @author Manuel Laggner
+ * 
+ */
+public class MovieFilterIndexTest {
+
+  @Test
+  public void indexAndUpdate() throws Exception {
+    MovieFilterIndex index = new MovieFilterIndex();
+
+    Movie m1 = new Movie();
+    m1.setTitle("Alien");
+    m1.setYear("1979");
+    m1.addGenre(MediaGenres.HORROR);
+    Movie m2 = new Movie();
+    m2.setTitle("Aliens");
+    m2.setYear("1986");
+    m2.addGenre(MediaGenres.ACTION);
+    m2.setWatched(true);
+
+    index.add(m1);
+    index.add(m2);
+    Assert.assertEquals(2, index.size());
+    Assert.assertEquals(1, index.get(Field.GENRE, MediaGenres.HORROR).cardinality());
+    Assert.assertTrue(index.get(Field.WATCHED, Boolean.TRUE).get(index.getSlot(m2)));
+
+    // changes are taken over via property change events
+    int version = index.getVersion();
+    m1.setWatched(true);
+    m1.addGenre(MediaGenres.ACTION);
+    // property change events are being delivered on the EDT
+    SwingUtilities.invokeAndWait(new Runnable() {
+      @Override
+      public void run() {
+      }
+    });
+    Assert.assertTrue(index.getVersion() != version);
+    BitSet result = index.get(Field.WATCHED, Boolean.TRUE);
+    result.and(index.get(Field.GENRE, MediaGenres.ACTION));
+    Assert.assertEquals(2, result.cardinality());
+
+    // removal frees the slot
+    index.remove(m2);
+    Assert.assertEquals(1, index.size());
+    Assert.assertEquals(-1, index.getSlot(m2));
+    Assert.assertFalse(index.get(Field.YEAR, "1986").get(0) || index.get(Field.YEAR, "1986").get(1));
+    Assert.assertEquals(m1, index.getEntities(index.get(Field.YEAR, "1979")).get(0));
+  }
+
+  @Test
+  public void filterBenchmark() {
+    MovieFilterIndex index = new MovieFilterIndex();
+    MediaGenres[] genres = MediaGenres.values();
+    List<Movie> movies = new ArrayList<Movie>();
+    for (int i = 0; i < 50000; i++) {
+      Movie movie = new Movie();
+      movie.setYear(String.valueOf(1950 + i % 60));
+      movie.addGenre(genres[i % genres.length]);
+      movie.setWatched(i % 3 == 0);
+      movies.add(movie);
+      index.add(movie);
+    }
+
+    long start = System.nanoTime();
+    int matches = 0;
+    for (int i = 0; i < 100; i++) {
+      BitSet result = index.getAll();
+      result.and(index.get(Field.WATCHED, Boolean.TRUE));
+      result.and(index.get(Field.GENRE, genres[30 % genres.length]));
+      result.and(index.get(Field.YEAR, "1980"));
+      matches = result.cardinality();
+    }
+    long duration = (System.nanoTime() - start) / 100;
+    System.out.println("combined filter over " + movies.size() + " movies: " + matches + " matches in " + duration / 1000 + " microseconds");
+    Assert.assertTrue(matches > 0);
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie.tasks;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Manuel Laggner
+ *
+ */
+public class MovieUpdateDatasourceTaskTest {
+
+  @Test
+  public void folderStamp() throws Exception {
+    File dir = new File(System.getProperty("java.io.tmpdir"), "tmm-folderstamp/Movie (2015)");
+    FileUtils.deleteQuietly(dir.getParentFile());
+    FileUtils.write(new File(dir, "movie.avi"), "1");
+    dir.setLastModified(1000000000000L);
+
+    String stamp = MovieUpdateDatasourceTask.getFolderStamp(dir);
+    Assert.assertEquals(stamp, MovieUpdateDatasourceTask.getFolderStamp(dir));
+
+    // a new file changes the stamp
+    FileUtils.write(new File(dir, "movie.nfo"), "2");
+    String stamp2 = MovieUpdateDatasourceTask.getFolderStamp(dir);
+    Assert.assertFalse(stamp.equals(stamp2));
+
+    // a changed file too
+    File file = new File(dir, "movie.avi");
+    file.setLastModified(file.lastModified() + 60000);
+    Assert.assertFalse(stamp2.equals(MovieUpdateDatasourceTask.getFolderStamp(dir)));
+
+    FileUtils.deleteQuietly(dir.getParentFile());
+  }
+}
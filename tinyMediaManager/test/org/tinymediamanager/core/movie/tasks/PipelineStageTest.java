@@ -0,0 +1,174 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie.tasks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Manuel Laggner
+ *
+ */
+public class PipelineStageTest {
+
+  @Test
+  public void submitOnce() throws Exception {
+    PipelineStage stage = new PipelineStage("test", 2, null, null);
+    final AtomicInteger runs = new AtomicInteger();
+    Runnable work = new Runnable() {
+      @Override
+      public void run() {
+        runs.incrementAndGet();
+      }
+    };
+
+    Assert.assertTrue(stage.submit("movie1", work));
+    Assert.assertFalse(stage.submit("movie1", work));
+    Assert.assertTrue(stage.submit("movie2", work));
+
+    awaitCompletion(stage);
+    Assert.assertEquals(2, runs.get());
+    Assert.assertEquals(2, stage.getSubmittedCount());
+    Assert.assertEquals(2, stage.getDoneCount());
+
+    // a movie is accepted only once per run, even after it has been processed
+    Assert.assertFalse(stage.submit("movie2", work));
+    stage.shutdown(false);
+  }
+
+  @Test
+  public void discardOnCancel() throws Exception {
+    PipelineStage stage = new PipelineStage("test", 1, null, null);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger runs = new AtomicInteger();
+
+    // block the only worker
+    stage.submit("movie1", new Runnable() {
+      @Override
+      public void run() {
+        started.countDown();
+        try {
+          release.await();
+        }
+        catch (InterruptedException e) {
+        }
+        runs.incrementAndGet();
+      }
+    });
+    Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    Runnable work = new Runnable() {
+      @Override
+      public void run() {
+        runs.incrementAndGet();
+      }
+    };
+    stage.submit("movie2", work);
+    stage.submit("movie3", work);
+    Assert.assertEquals(3, stage.getSubmittedCount());
+
+    // the queued work is discarded, the running one is finished
+    stage.shutdown(true);
+    Assert.assertFalse(stage.submit("movie4", work));
+    Assert.assertEquals(1, stage.getSubmittedCount());
+    release.countDown();
+    awaitCompletion(stage);
+    Assert.assertEquals(1, runs.get());
+    Assert.assertEquals(1, stage.getDoneCount());
+  }
+
+  @Test
+  public void handOver() throws Exception {
+    PipelineStage stage = new PipelineStage("test", 1, null, null);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger runs = new AtomicInteger();
+    Runnable work = new Runnable() {
+      @Override
+      public void run() {
+        started.countDown();
+        try {
+          release.await();
+        }
+        catch (InterruptedException e) {
+        }
+        runs.incrementAndGet();
+      }
+    };
+
+    stage.submit("movie1", work);
+    Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+    stage.submit("movie2", work);
+    stage.submit("movie3", work);
+
+    // the work which has not been started is handed over
+    List<Object> handedOver = stage.handOver();
+    Assert.assertEquals(Arrays.asList("movie2", "movie3"), handedOver);
+    release.countDown();
+    stage.shutdown(false);
+    awaitCompletion(stage);
+    Assert.assertEquals(1, runs.get());
+  }
+
+  @Test
+  public void skipAfterCancel() throws Exception {
+    PipelineStage stage = new PipelineStage("test", 1, null, null);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger runs = new AtomicInteger();
+
+    stage.submit("movie1", new Runnable() {
+      @Override
+      public void run() {
+        started.countDown();
+        try {
+          release.await();
+        }
+        catch (InterruptedException e) {
+        }
+      }
+    });
+    Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+    stage.submit("movie2", new Runnable() {
+      @Override
+      public void run() {
+        runs.incrementAndGet();
+      }
+    });
+
+    // the task has been cancelled: the queued work is skipped
+    stage.cancel();
+    release.countDown();
+    stage.shutdown(false);
+    awaitCompletion(stage);
+    Assert.assertEquals(0, runs.get());
+    Assert.assertEquals(2, stage.getDoneCount());
+  }
+
+  private void awaitCompletion(PipelineStage stage) {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!stage.waitForCompletion(100)) {
+      Assert.assertTrue("pipeline stage did not complete", System.currentTimeMillis() < deadline);
+    }
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.threading;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Manuel Laggner
+ *
+ */
+public class BandwidthLimiterTest {
+
+  @Test
+  public void limit() throws Exception {
+    BandwidthLimiter limiter = new BandwidthLimiter();
+
+    // unlimited
+    long start = System.currentTimeMillis();
+    for (int i = 0; i < 100; i++) {
+      limiter.acquire(1024 * 1024, 0);
+    }
+    Assert.assertTrue(System.currentTimeMillis() - start < 500);
+
+    // 300kB with 200kB/s
+    start = System.currentTimeMillis();
+    for (int i = 0; i < 3; i++) {
+      limiter.acquire(100 * 1000, 200 * 1000);
+    }
+    long duration = System.currentTimeMillis() - start;
+    Assert.assertTrue("took " + duration + "ms", duration >= 1300 && duration < 3000);
+  }
+}
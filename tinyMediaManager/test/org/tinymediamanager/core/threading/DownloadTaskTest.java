@@ -0,0 +1,204 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.threading;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * @author Manuel Laggner
+ *
+ */
+public class DownloadTaskTest {
+  private static final Pattern RANGE         = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+  private HttpServer           server;
+  private File                 dir;
+  private byte[]               content;
+  private final AtomicInteger  rangeRequests = new AtomicInteger();
+  private final AtomicInteger  requests      = new AtomicInteger();
+  private final List<Integer>  rangeStarts   = new CopyOnWriteArrayList<Integer>();
+  // the ETag of the resource for the first and all following requests
+  private volatile String      etag          = "\"v1\"";
+  private volatile String      changedEtag   = "\"v1\"";
+
+  @Before
+  public void setUp() throws Exception {
+    dir = new File(System.getProperty("java.io.tmpdir"), "tmm-download");
+    FileUtils.deleteQuietly(dir);
+    dir.mkdirs();
+
+    content = new byte[10 * 1024 * 1024 + 123];
+    new Random(4711).nextBytes(content);
+
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/trailer.mov", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        int start = 0;
+        int end = content.length - 1;
+        int status = 200;
+        String currentEtag = requests.getAndIncrement() == 0 ? etag : changedEtag;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        if (range != null && (ifRange == null || ifRange.equals(currentEtag))) {
+          Matcher matcher = RANGE.matcher(range);
+          if (matcher.matches()) {
+            start = Integer.parseInt(matcher.group(1));
+            if (!matcher.group(2).isEmpty()) {
+              end = Integer.parseInt(matcher.group(2));
+            }
+            status = 206;
+            rangeRequests.incrementAndGet();
+            rangeStarts.add(start);
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+          }
+        }
+        exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+        exchange.getResponseHeaders().add("ETag", currentEtag);
+        exchange.getResponseHeaders().add("Content-Type", "video/quicktime");
+        exchange.sendResponseHeaders(status, end - start + 1);
+        OutputStream os = exchange.getResponseBody();
+        try {
+          os.write(content, start, end - start + 1);
+        }
+        catch (IOException e) {
+          // client aborted
+        }
+        finally {
+          exchange.close();
+        }
+      }
+    });
+    server.start();
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+    FileUtils.deleteQuietly(dir);
+  }
+
+  private String getUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + "/trailer.mov";
+  }
+
+  /**
+   * the part of the first segment in the current layout
+   */
+  private File getFirstPart(File file) {
+    int count = DownloadTask.getSegmentCount(content.length);
+    return DownloadTask.getPartFile(new File(file.getAbsolutePath() + ".part"), 0, content.length / count - 1);
+  }
+
+  private void writeMeta(File file, String validator) throws IOException {
+    FileUtils.writeStringToFile(new File(file.getAbsolutePath() + ".part.meta"), "url=" + getUrl().replace(":", "\\:") + "\nlength="
+        + content.length + "\nvalidator=" + validator + "\n");
+  }
+
+  private void assertNoParts() {
+    for (String name : dir.list()) {
+      Assert.assertFalse(name, name.contains(".part"));
+    }
+  }
+
+  @Test
+  public void segmentedDownload() throws Exception {
+    File file = new File(dir, "movie-trailer.mov");
+    new DownloadTask(getUrl(), file).run();
+
+    Assert.assertTrue(file.exists());
+    Assert.assertTrue(Arrays.equals(content, FileUtils.readFileToByteArray(file)));
+    Assert.assertTrue(rangeRequests.get() > 1);
+    assertNoParts();
+  }
+
+  @Test
+  public void resumeSegments() throws Exception {
+    File file = new File(dir, "movie-trailer.mov");
+
+    // the first segment has been downloaded partially
+    FileUtils.writeByteArrayToFile(getFirstPart(file), Arrays.copyOf(content, 1000));
+    writeMeta(file, etag);
+
+    new DownloadTask(getUrl(), file).run();
+    Assert.assertTrue(Arrays.equals(content, FileUtils.readFileToByteArray(file)));
+    Assert.assertTrue(rangeStarts.contains(1000));
+    Assert.assertFalse(rangeStarts.contains(0));
+    assertNoParts();
+  }
+
+  @Test
+  public void discardPartsOfChangedResource() throws Exception {
+    File file = new File(dir, "movie-trailer.mov");
+
+    // the part has been downloaded from an older version of the resource
+    FileUtils.writeByteArrayToFile(getFirstPart(file), new byte[1000]);
+    writeMeta(file, "\"v0\"");
+
+    new DownloadTask(getUrl(), file).run();
+    Assert.assertTrue(Arrays.equals(content, FileUtils.readFileToByteArray(file)));
+    Assert.assertFalse(rangeStarts.contains(1000));
+    assertNoParts();
+  }
+
+  @Test
+  public void discardPartsOfOtherLayout() throws Exception {
+    File file = new File(dir, "movie-trailer.mov");
+
+    // the part has been downloaded with another amount of segments
+    File part = DownloadTask.getPartFile(new File(file.getAbsolutePath() + ".part"), 0, 99);
+    FileUtils.writeByteArrayToFile(part, new byte[50]);
+    writeMeta(file, etag);
+
+    new DownloadTask(getUrl(), file).run();
+    Assert.assertTrue(Arrays.equals(content, FileUtils.readFileToByteArray(file)));
+    Assert.assertFalse(part.exists());
+    assertNoParts();
+  }
+
+  @Test
+  public void abortOnResourceChange() throws Exception {
+    File file = new File(dir, "movie-trailer.mov");
+
+    // the resource changes between the probe and the segment requests: If-Range does not match any more
+    changedEtag = "\"v2\"";
+    new DownloadTask(getUrl(), file).run();
+
+    Assert.assertFalse(file.exists());
+    Assert.assertEquals(0, rangeRequests.get());
+    assertNoParts();
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.threading;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Manuel Laggner
+ *
+ */
+public class TaskCheckpointTest {
+
+  @Test
+  public void resume() throws Exception {
+    File file = new File(System.getProperty("java.io.tmpdir"), "tmm-checkpoint/test.txt");
+    FileUtils.deleteQuietly(file);
+
+    // first run: interrupted after two work units
+    TaskCheckpoint checkpoint = new TaskCheckpoint(file);
+    checkpoint.load();
+    Assert.assertEquals(0, checkpoint.size());
+    checkpoint.add("1");
+    checkpoint.add("2");
+    checkpoint.add("2");
+    checkpoint.close();
+
+    // second run
+    checkpoint = new TaskCheckpoint(file);
+    checkpoint.load();
+    Assert.assertEquals(2, checkpoint.size());
+    Assert.assertTrue(checkpoint.contains("1"));
+    Assert.assertTrue(checkpoint.contains("2"));
+    Assert.assertFalse(checkpoint.contains("3"));
+    checkpoint.add("3");
+    checkpoint.delete();
+    Assert.assertFalse(file.exists());
+
+    // outdated checkpoints are discarded
+    checkpoint = new TaskCheckpoint(file);
+    checkpoint.add("1");
+    checkpoint.close();
+    file.setLastModified(System.currentTimeMillis() - TaskCheckpoint.MAX_AGE - 1000);
+    checkpoint = new TaskCheckpoint(file);
+    checkpoint.load();
+    Assert.assertEquals(0, checkpoint.size());
+    Assert.assertFalse(file.exists());
+  }
+
+  @Test
+  public void createId() {
+    Assert.assertEquals(TaskCheckpoint.createId("test", Arrays.asList(1, 2, 3)), TaskCheckpoint.createId("test", Arrays.asList(3, 1, 2)));
+    Assert.assertFalse(TaskCheckpoint.createId("test", Arrays.asList(1, 2)).equals(TaskCheckpoint.createId("test", Arrays.asList(1, 2, 3))));
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.threading;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tinymediamanager.core.threading.TmmTaskHandle.TaskPriority;
+
+/**
+ * @author Manuel Laggner
+ *
+ */
+public class TmmTaskSchedulerTest {
+
+  @Test
+  public void priority() throws Exception {
+    TmmTaskScheduler scheduler = new TmmTaskScheduler("test-priority", 1);
+    final List<String> order = new CopyOnWriteArrayList<String>();
+    final CountDownLatch blocker = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(5);
+
+    // block the only thread, so all other tasks are queued
+    scheduler.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          blocker.await();
+        }
+        catch (InterruptedException e) {
+        }
+        done.countDown();
+      }
+    }, TaskPriority.BACKGROUND, "test");
+
+    scheduler.execute(new NamedTask("background1", order, done), TaskPriority.BACKGROUND, "test");
+    NamedTask background2 = new NamedTask("background2", order, done);
+    scheduler.execute(background2, TaskPriority.BACKGROUND, "test");
+    scheduler.execute(new NamedTask("foreground", order, done), TaskPriority.FOREGROUND, "test");
+    scheduler.execute(new NamedTask("interactive", order, done), TaskPriority.INTERACTIVE, "test");
+
+    Assert.assertEquals(4, scheduler.getQueuedCount());
+    Assert.assertEquals(2, scheduler.getQueuedCount(TaskPriority.BACKGROUND));
+    Assert.assertEquals(4, scheduler.getQueuePosition(background2));
+
+    blocker.countDown();
+    Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+    Assert.assertEquals(4, order.size());
+    Assert.assertEquals("interactive", order.get(0));
+    Assert.assertEquals("foreground", order.get(1));
+    Assert.assertEquals("background1", order.get(2));
+    Assert.assertEquals("background2", order.get(3));
+    Assert.assertEquals(3, scheduler.getSubmittedCount(TaskPriority.BACKGROUND));
+    scheduler.shutdown();
+  }
+
+  @Test
+  public void limits() throws Exception {
+    TmmTaskScheduler scheduler = new TmmTaskScheduler("test-limits", 4);
+    scheduler.setLimit(TaskPriority.BACKGROUND, 2);
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    final CountDownLatch done = new CountDownLatch(6);
+
+    for (int i = 0; i < 6; i++) {
+      scheduler.execute(new Runnable() {
+        @Override
+        public void run() {
+          int now = running.incrementAndGet();
+          synchronized (maxRunning) {
+            maxRunning.set(Math.max(maxRunning.get(), now));
+          }
+          try {
+            Thread.sleep(50);
+          }
+          catch (InterruptedException e) {
+          }
+          running.decrementAndGet();
+          done.countDown();
+        }
+      }, TaskPriority.BACKGROUND, "test");
+    }
+
+    // the other classes still get a thread
+    final CountDownLatch interactive = new CountDownLatch(1);
+    scheduler.execute(new Runnable() {
+      @Override
+      public void run() {
+        interactive.countDown();
+      }
+    }, TaskPriority.INTERACTIVE, "test");
+    Assert.assertTrue(interactive.await(1, TimeUnit.SECONDS));
+
+    Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+    Assert.assertEquals(2, maxRunning.get());
+    scheduler.shutdown();
+  }
+
+  @Test
+  public void groupLimit() throws Exception {
+    TmmTaskScheduler scheduler = new TmmTaskScheduler("test-group", 5);
+    scheduler.setLimit(TaskPriority.INTERACTIVE, 1);
+    scheduler.setLimit(TaskPriority.FOREGROUND, 1);
+    scheduler.setGroupLimit("main", 1);
+    final List<String> order = new CopyOnWriteArrayList<String>();
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch blocker = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(2);
+
+    // a running main task
+    scheduler.execute(new Runnable() {
+      @Override
+      public void run() {
+        started.countDown();
+        try {
+          blocker.await();
+        }
+        catch (InterruptedException e) {
+        }
+        order.add("batch1");
+      }
+    }, TaskPriority.FOREGROUND, "main");
+    Assert.assertTrue(started.await(1, TimeUnit.SECONDS));
+
+    scheduler.execute(new NamedTask("batch2", order, done), TaskPriority.FOREGROUND, "main");
+    NamedTask interactive = new NamedTask("interactive", order, done);
+    scheduler.execute(interactive, TaskPriority.INTERACTIVE, "main");
+
+    // other groups are not blocked by the main tasks
+    final CountDownLatch other = new CountDownLatch(1);
+    scheduler.execute(new NamedTask("other", order, other), TaskPriority.BACKGROUND, "other");
+    Assert.assertTrue(other.await(1, TimeUnit.SECONDS));
+
+    // the interactive main task does not run beside the running one
+    Thread.sleep(100);
+    Assert.assertEquals(2, scheduler.getQueuedCount());
+    Assert.assertEquals(1, scheduler.getQueuePosition(interactive));
+    Assert.assertEquals(0, scheduler.getRunningCount(TaskPriority.INTERACTIVE));
+
+    // but overtakes the queued one
+    blocker.countDown();
+    Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+    Assert.assertEquals(Arrays.asList("other", "batch1", "interactive", "batch2"), order);
+    scheduler.shutdown();
+  }
+
+  @Test
+  public void cancel() throws Exception {
+    TmmTaskScheduler scheduler = new TmmTaskScheduler("test-cancel", 1);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch interrupted = new CountDownLatch(1);
+    final List<String> order = new CopyOnWriteArrayList<String>();
+    final CountDownLatch done = new CountDownLatch(1);
+
+    scheduler.execute(new Runnable() {
+      @Override
+      public void run() {
+        started.countDown();
+        try {
+          Thread.sleep(5000);
+        }
+        catch (InterruptedException e) {
+          interrupted.countDown();
+        }
+      }
+    }, TaskPriority.BACKGROUND, "images");
+    scheduler.execute(new NamedTask("image", order, null), TaskPriority.BACKGROUND, "images");
+    scheduler.execute(new NamedTask("other", order, done), TaskPriority.BACKGROUND, "other");
+    Assert.assertEquals(2, scheduler.getOpenCount("images"));
+
+    Assert.assertTrue(started.await(1, TimeUnit.SECONDS));
+    scheduler.cancel("images");
+    Assert.assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+    Assert.assertTrue(done.await(1, TimeUnit.SECONDS));
+    Assert.assertEquals(Collections.singletonList("other"), order);
+    Assert.assertEquals(0, scheduler.getOpenCount("images"));
+    scheduler.shutdown();
+  }
+
+  private static class NamedTask implements Runnable {
+    private final String         name;
+    private final List<String>   order;
+    private final CountDownLatch done;
+
+    private NamedTask(String name, List<String> order, CountDownLatch done) {
+      this.name = name;
+      this.order = order;
+      this.done = done;
+    }
+
+    @Override
+    public void run() {
+      order.add(name);
+      if (done != null) {
+        done.countDown();
+      }
+    }
+  }
+}
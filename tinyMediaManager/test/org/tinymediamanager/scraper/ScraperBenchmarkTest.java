@@ -0,0 +1,224 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.Assert;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.tinymediamanager.scraper.MediaSearchOptions.SearchParam;
+import org.tinymediamanager.scraper.imdb.ImdbMetadataProvider;
+import org.tinymediamanager.scraper.ofdb.OfdbMetadataProvider;
+import org.tinymediamanager.scraper.tmdb.TmdbMetadataProvider;
+import org.tinymediamanager.scraper.util.HttpReplay;
+import org.tinymediamanager.scraper.util.PartialHtmlParser;
+import org.tinymediamanager.scraper.zelluloid.ZelluloidMetadataProvider;
+
+/**
+ * Scraper throughput benchmark. Runs the scrapers over recorded responses (see {@link HttpReplay}). By default the responses for a few titles in
+ * test/fixtures/http are replayed. For a bigger run record once with <i>-Dtmm.http.replay=record -Dtmm.http.fixtures=&lt;dir&gt;</i> (needs
+ * network), then replay with <i>-Dtmm.http.replay=replay</i> (and optionally <i>-Dtmm.http.latency=&lt;ms&gt;</i>). Other titles can be passed as
+ * file (one title per line) with <i>-Dtmm.benchmark.titles=&lt;file&gt;</i>. The parsing benchmark also uses the pages in test/fixtures/http.
+ *
+ * @author Manuel Laggner
+ */
+public class ScraperBenchmarkTest {
+  private static final String[] MOVIES         = { "The Shawshank Redemption", "The Godfather", "The Dark Knight", "Pulp Fiction", "Schindler's List",
+      "Fight Club", "Forrest Gump", "Inception", "The Matrix", "Goodfellas", "Se7en", "The Silence of the Lambs", "City of God", "Spirited Away",
+      "Saving Private Ryan", "Interstellar", "Leon", "The Green Mile", "The Usual Suspects", "Terminator 2", "Back to the Future", "Psycho",
+      "The Pianist", "Gladiator", "The Lion King", "Memento", "Apocalypse Now", "Alien", "Sunset Boulevard", "Dr. Strangelove", "Casablanca",
+      "Das Boot", "Metropolis", "M", "Amelie", "Citizen Kane", "Vertigo", "Reservoir Dogs", "Braveheart", "Taxi Driver", "Toy Story", "Aliens",
+      "Oldboy", "Heat", "Up", "Good Will Hunting", "Jurassic Park", "Fargo", "No Country for Old Men", "The Big Lebowski", "Lola rennt",
+      "Der Untergang", "Das Leben der Anderen", "Good Bye Lenin", "Die Welle", "Avatar", "Titanic", "Blade Runner", "The Shining", "Jaws" };
+  // the titles with responses in test/fixtures/http
+  private static final String[] FIXTURE_MOVIES = { "Twelve Monkeys", "The Bourne Identity" };
+  private static final File     FIXTURES       = new File("test/fixtures/http");
+
+  private static List<String>   movies         = new ArrayList<String>();
+  private static boolean        fixtureRun     = false;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    String titles = System.getProperty("tmm.benchmark.titles");
+    if (!HttpReplay.isActive()) {
+      // replay the committed responses
+      HttpReplay.configure(HttpReplay.Mode.REPLAY, FIXTURES, 0);
+      fixtureRun = true;
+      movies.addAll(Arrays.asList(FIXTURE_MOVIES));
+    }
+    else if (StringUtils.isNotBlank(titles)) {
+      for (String title : FileUtils.readLines(new File(titles), "UTF-8")) {
+        if (StringUtils.isNotBlank(title)) {
+          movies.add(title.trim());
+        }
+      }
+    }
+    else {
+      movies.addAll(Arrays.asList(MOVIES));
+    }
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    if (fixtureRun) {
+      HttpReplay.configure(HttpReplay.Mode.OFF, FIXTURES, 0);
+    }
+  }
+
+  @Test
+  public void tmdb() throws Exception {
+    benchmarkMovies(new TmdbMetadataProvider());
+  }
+
+  @Test
+  public void imdb() throws Exception {
+    benchmarkMovies(new ImdbMetadataProvider());
+  }
+
+  @Test
+  public void ofdb() throws Exception {
+    benchmarkMovies(new OfdbMetadataProvider());
+  }
+
+  @Test
+  public void zelluloid() throws Exception {
+    benchmarkMovies(new ZelluloidMetadataProvider());
+  }
+
+  @Test
+  public void parsing() throws Exception {
+    // compares the full parsing of the recorded pages with the partial parsing of the scrapers
+    benchmarkParsing("/combined", ImdbMetadataProvider.COMBINED_PAGE, "UTF-8");
+    benchmarkParsing("/plotsummary", ImdbMetadataProvider.PLOTSUMMARY_PAGE, "UTF-8");
+    benchmarkParsing("ofdb.de/film/", OfdbMetadataProvider.MOVIE_PAGE, "UTF-8");
+  }
+
+  private void benchmarkParsing(String urlPart, PartialHtmlParser parser, String charset) throws Exception {
+    List<byte[]> pages = new ArrayList<byte[]>();
+    List<File> files = new ArrayList<File>();
+    for (File dir : new File[] { HttpReplay.getFixtureDir(), FIXTURES }) {
+      if (dir.isDirectory()) {
+        files.addAll(Arrays.asList(dir.listFiles()));
+      }
+    }
+    for (File file : files) {
+      if (!file.getName().endsWith(".properties")) {
+        continue;
+      }
+      Properties props = new Properties();
+      InputStream is = new FileInputStream(file);
+      try {
+        props.load(is);
+      }
+      finally {
+        IOUtils.closeQuietly(is);
+      }
+      File body = new File(file.getParentFile(), file.getName().replace(".properties", ".body"));
+      if (props.getProperty("url", "").contains(urlPart) && body.exists()) {
+        pages.add(FileUtils.readFileToByteArray(body));
+      }
+    }
+    Assert.assertFalse("no recorded pages for " + urlPart, pages.isEmpty());
+
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    long[] full = new long[2];
+    long[] partial = new long[2];
+    for (byte[] page : pages) {
+      long cpu = bean.getCurrentThreadCpuTime();
+      long bytes = getAllocatedBytes(bean);
+      Document fullDoc = Jsoup.parse(new ByteArrayInputStream(page), charset, "");
+      full[0] += bean.getCurrentThreadCpuTime() - cpu;
+      full[1] += getAllocatedBytes(bean) - bytes;
+
+      cpu = bean.getCurrentThreadCpuTime();
+      bytes = getAllocatedBytes(bean);
+      Document partialDoc = parser.parse(new ByteArrayInputStream(page), charset, "");
+      partial[0] += bean.getCurrentThreadCpuTime() - cpu;
+      partial[1] += getAllocatedBytes(bean) - bytes;
+
+      // the partial document is the beginning of the full one
+      Assert.assertTrue(fullDoc.text().startsWith(partialDoc.text()));
+    }
+
+    System.out.println(String.format("%-14s %d pages: full parse %.1f ms/page, %d KB/page; partial parse %.1f ms/page, %d KB/page", urlPart,
+        pages.size(), full[0] / 1000000d / pages.size(), full[1] / 1024 / pages.size(), partial[0] / 1000000d / pages.size(), partial[1] / 1024
+            / pages.size()));
+  }
+
+  private long getAllocatedBytes(ThreadMXBean bean) {
+    // only available in the Oracle/OpenJDK VMs
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return 0;
+  }
+
+  private void benchmarkMovies(IMediaMetadataProvider mp) throws Exception {
+    HttpReplay.resetStatistics();
+    long start = System.currentTimeMillis();
+    int found = 0;
+    for (String title : movies) {
+      try {
+        // the same search options as in the movie list
+        MediaSearchOptions searchOptions = new MediaSearchOptions(MediaType.MOVIE, SearchParam.QUERY, title);
+        searchOptions.set(SearchParam.LANGUAGE, MediaLanguages.en.name());
+        searchOptions.set(SearchParam.COUNTRY, CountryCode.US.getAlpha2());
+        List<MediaSearchResult> results = mp.search(searchOptions);
+        if (results.isEmpty()) {
+          continue;
+        }
+        MediaScrapeOptions options = new MediaScrapeOptions();
+        options.setType(MediaType.MOVIE);
+        options.setResult(results.get(0));
+        MediaMetadata md = mp.getMetadata(options);
+        if (md != null && StringUtils.isNotBlank(md.getStringValue(MediaMetadata.TITLE))) {
+          found++;
+        }
+      }
+      catch (Exception e) {
+        System.out.println(mp.getProviderInfo().getId() + ": could not scrape " + title + " - " + e.getMessage());
+      }
+    }
+    report(mp, movies.size(), found, System.currentTimeMillis() - start);
+    if (fixtureRun) {
+      Assert.assertEquals(movies.size(), found);
+    }
+  }
+
+  private void report(IMediaProvider mp, int titles, int found, long time) {
+    int pages = HttpReplay.getRequestCount();
+    long parseTime = Math.max(0, time - HttpReplay.getFetchTime());
+    System.out.println(String.format("%-12s %s: %d/%d titles, %d pages (%d KB) in %d ms; fetch %d ms; parse %.1f ms/page; %.1f titles/s",
+        mp.getProviderInfo().getId(), HttpReplay.getMode(), found, titles, pages, HttpReplay.getBytes() / 1024, time, HttpReplay.getFetchTime(),
+        pages > 0 ? (double) parseTime / pages : 0d, time > 0 ? titles * 1000d / time : 0d));
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.jsoup.nodes.Document;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.tinymediamanager.core.Constants;
+import org.tinymediamanager.scraper.imdb.ImdbMetadataProvider;
+import org.tinymediamanager.scraper.ofdb.OfdbMetadataProvider;
+import org.tinymediamanager.scraper.util.HttpReplay;
+import org.tinymediamanager.scraper.util.PartialHtmlParser;
+
+/**
+ * The scrapers have to deliver the same metadata with the partial parsing of the pages (see {@link PartialHtmlParser}) as with the full parsing.
+ * The pages are replayed from test/fixtures/http.
+ *
+ * @author Manuel Laggner
+ */
+public class ScraperPartialParsingTest {
+  private static final File FIXTURES = new File("test/fixtures/http");
+
+  @Before
+  public void setUp() {
+    HttpReplay.configure(HttpReplay.Mode.REPLAY, FIXTURES, 0);
+  }
+
+  @After
+  public void tearDown() {
+    PartialHtmlParser.setEnabled(true);
+    HttpReplay.configure(HttpReplay.Mode.OFF, FIXTURES, 0);
+  }
+
+  @Test
+  public void imdb() throws Exception {
+    MediaScrapeOptions options = new MediaScrapeOptions();
+    options.setType(MediaType.MOVIE);
+    options.setImdbId("tt0114746");
+
+    PartialHtmlParser.setEnabled(false);
+    MediaMetadata full = new ImdbMetadataProvider().getMetadata(options);
+    PartialHtmlParser.setEnabled(true);
+    MediaMetadata partial = new ImdbMetadataProvider().getMetadata(options);
+
+    Assert.assertEquals(describe(full), describe(partial));
+    Assert.assertEquals("Twelve Monkeys", partial.getStringValue(MediaMetadata.TITLE));
+    Assert.assertEquals(129, (int) partial.getIntegerValue(MediaMetadata.RUNTIME));
+    Assert.assertEquals("US", partial.getStringValue(MediaMetadata.COUNTRY));
+    Assert.assertEquals("Universal Pictures, Atlas Entertainment, Classico", partial.getStringValue(MediaMetadata.PRODUCTION_COMPANY));
+    Assert.assertEquals(1, partial.getCertifications().size());
+    Assert.assertTrue(partial.getStringValue(MediaMetadata.PLOT).startsWith("An unknown and lethal virus"));
+
+    // the parts after the needed sections are not parsed
+    Document doc = parseFixture(ImdbMetadataProvider.COMBINED_PAGE, "http://www.imdb.com/title/tt0114746/combined");
+    Assert.assertNotNull(doc.getElementById("tn15content"));
+    Assert.assertFalse(doc.text().contains("Fun Stuff"));
+  }
+
+  @Test
+  public void ofdb() throws Exception {
+    MediaSearchResult result = new MediaSearchResult(Constants.OFDBID);
+    result.setUrl("http://www.ofdb.de/film/22523,Die-Bourne-Identitaet");
+    result.setTitle("Die Bourne Identität");
+    result.setOriginalTitle("The Bourne Identity");
+    result.setYear("2002");
+    MediaScrapeOptions options = new MediaScrapeOptions();
+    options.setType(MediaType.MOVIE);
+    options.setResult(result);
+
+    PartialHtmlParser.setEnabled(false);
+    MediaMetadata full = new OfdbMetadataProvider().getMetadata(options);
+    PartialHtmlParser.setEnabled(true);
+    MediaMetadata partial = new OfdbMetadataProvider().getMetadata(options);
+
+    Assert.assertEquals(describe(full), describe(partial));
+    Assert.assertEquals("tt0258463", partial.getId(MediaMetadata.IMDBID));
+    Assert.assertEquals(7.52, partial.getDoubleValue(MediaMetadata.RATING), 0.001);
+    Assert.assertEquals(2, partial.getGenres().size());
+    Assert.assertEquals(3, partial.getCastMembers().size());
+    Assert.assertTrue(partial.getStringValue(MediaMetadata.PLOT).startsWith("Ein Mann wird"));
+
+    // the reviews and versions are not parsed
+    Document doc = parseFixture(OfdbMetadataProvider.MOVIE_PAGE, "http://www.ofdb.de/film/22523,Die-Bourne-Identitaet");
+    Assert.assertFalse(doc.text().contains("Reviews"));
+  }
+
+  private Document parseFixture(PartialHtmlParser parser, String url) throws Exception {
+    return parser.parse(new FileInputStream(new File(FIXTURES, DigestUtils.md5Hex(url) + ".body")), "UTF-8", "");
+  }
+
+  /**
+   * all scraped values of the metadata in a comparable form
+   */
+  private String describe(MediaMetadata md) {
+    StringBuilder sb = new StringBuilder();
+    for (Entry<String, Object> entry : new TreeMap<String, Object>(md.getAllMetadata()).entrySet()) {
+      sb.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+    }
+    sb.append("ids=").append(new TreeMap<String, Object>(md.getIds())).append('\n');
+    sb.append("genres=").append(md.getGenres()).append('\n');
+
+    List<String> values = new ArrayList<String>();
+    for (MediaCastMember cm : md.getCastMembers()) {
+      values.add(cm.getType() + ":" + cm.getName() + ":" + cm.getCharacter() + ":" + cm.getPart() + ":" + cm.getImageUrl());
+    }
+    for (MediaArtwork ma : md.getFanart()) {
+      values.add(ma.getType() + ":" + ma.getPreviewUrl() + ":" + ma.getDefaultUrl());
+    }
+    for (Certification certification : md.getCertifications()) {
+      values.add(certification.name());
+    }
+    Collections.sort(values);
+    sb.append(values);
+    return sb.toString();
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper.anidb;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.tinymediamanager.scraper.MediaEpisodeNumber;
+import org.tinymediamanager.scraper.MediaLanguages;
+import org.tinymediamanager.scraper.MediaMetadata;
+import org.tinymediamanager.scraper.MediaScrapeOptions;
+import org.tinymediamanager.scraper.MediaType;
+import org.tinymediamanager.scraper.util.HttpReplay;
+
+/**
+ * Offline tests of the AniDB episode parsing; the anime XML is replayed from test/fixtures/http
+ *
+ * @author Manuel Laggner
+ */
+public class AniDBMetadataProviderTest {
+
+  @Before
+  public void setUp() {
+    HttpReplay.configure(HttpReplay.Mode.REPLAY, new File("test/fixtures/http"), 0);
+  }
+
+  @After
+  public void tearDown() {
+    HttpReplay.configure(HttpReplay.Mode.OFF, HttpReplay.getFixtureDir(), 0);
+  }
+
+  @Test
+  public void getEpisodeMetadata() throws Exception {
+    AniDBMetadataProvider mp = new AniDBMetadataProvider();
+    MediaScrapeOptions options = new MediaScrapeOptions();
+    options.setType(MediaType.TV_EPISODE);
+    options.setId(mp.getProviderInfo().getId(), "23");
+    options.setLanguage(MediaLanguages.de);
+
+    MediaEpisodeNumber ep1 = new MediaEpisodeNumber(1, 1, false);
+    MediaEpisodeNumber ep2 = new MediaEpisodeNumber(1, 2, false);
+    MediaEpisodeNumber ep3 = new MediaEpisodeNumber(1, 3, false);
+    MediaEpisodeNumber special = new MediaEpisodeNumber(0, 1, false);
+    MediaEpisodeNumber missing = new MediaEpisodeNumber(1, 27, false);
+    MediaEpisodeNumber dvd = new MediaEpisodeNumber(1, 1, true);
+
+    Map<MediaEpisodeNumber, MediaMetadata> metadata = mp.getEpisodeMetadata(options, Arrays.asList(ep1, ep2, ep3, special, missing, dvd));
+    Assert.assertEquals(5, metadata.size());
+    Assert.assertFalse(metadata.containsKey(missing));
+
+    // title: language -> en -> x-jat
+    Assert.assertEquals("Asteroid Blues", metadata.get(ep1).getStringValue(MediaMetadata.TITLE));
+    Assert.assertEquals("Streunender Hund", metadata.get(ep2).getStringValue(MediaMetadata.TITLE));
+    Assert.assertEquals("Honky Tonk Women", metadata.get(ep3).getStringValue(MediaMetadata.TITLE));
+
+    Assert.assertEquals("Spike and Jet hunt the drug dealer Asimov Solensan.", metadata.get(ep1).getStringValue(MediaMetadata.PLOT));
+    Assert.assertEquals("1998-10-24", metadata.get(ep1).getStringValue(MediaMetadata.RELEASE_DATE));
+    Assert.assertEquals(25, (int) metadata.get(ep1).getIntegerValue(MediaMetadata.RUNTIME));
+    Assert.assertEquals(8.37f, metadata.get(ep1).getFloatValue(MediaMetadata.RATING), 0.001f);
+    Assert.assertEquals("23", metadata.get(ep1).getId(mp.getProviderInfo().getId()));
+
+    // specials are in season 0; AniDB has no DVD order
+    Assert.assertEquals("Session XX: Mish-Mash Blues", metadata.get(special).getStringValue(MediaMetadata.TITLE));
+    Assert.assertEquals("Asteroid Blues", metadata.get(dvd).getStringValue(MediaMetadata.TITLE));
+
+    // the single episode API delegates to the bulk one
+    options.setId(MediaMetadata.SEASON_NR, "1");
+    options.setId(MediaMetadata.EPISODE_NR, "2");
+    Assert.assertEquals("Streunender Hund", mp.getEpisodeMetadata(options).getStringValue(MediaMetadata.TITLE));
+    options.setId(MediaMetadata.EPISODE_NR, "27");
+    Assert.assertEquals("", mp.getEpisodeMetadata(options).getStringValue(MediaMetadata.TITLE));
+  }
+
+  @Test
+  public void getEpisodeMetadataWithoutResponse() throws Exception {
+    AniDBMetadataProvider mp = new AniDBMetadataProvider();
+    MediaScrapeOptions options = new MediaScrapeOptions();
+    options.setType(MediaType.TV_EPISODE);
+    options.setId(mp.getProviderInfo().getId(), "999999");
+    options.setLanguage(MediaLanguages.en);
+
+    // not recorded - no episodes but no exception either
+    Assert.assertTrue(mp.getEpisodeMetadata(options, Arrays.asList(new MediaEpisodeNumber(1, 1, false))).isEmpty());
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper.thetvdb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tinymediamanager.scraper.MediaEpisodeNumber;
+import org.tinymediamanager.scraper.MediaLanguages;
+import org.tinymediamanager.scraper.MediaMetadata;
+import org.tinymediamanager.scraper.MediaScrapeOptions;
+import org.tinymediamanager.scraper.MediaType;
+
+import com.omertron.thetvdbapi.model.Episode;
+
+/**
+ * Offline tests of the episode lookup; the episodes are served from the episode cache
+ *
+ * @author Manuel Laggner
+ */
+public class TheTvDbEpisodeMetadataTest {
+
+  @After
+  public void tearDown() {
+    TheTvDbMetadataProvider.clearEpisodeCache();
+  }
+
+  @Test
+  public void getEpisodeMetadata() throws Exception {
+    TheTvDbMetadataProvider mp = new TheTvDbMetadataProvider();
+    TheTvDbMetadataProvider.cacheEpisodes("1", MediaLanguages.en, createEpisodes());
+    long misses = TheTvDbMetadataProvider.getEpisodeCacheMisses();
+
+    MediaScrapeOptions options = new MediaScrapeOptions();
+    options.setType(MediaType.TV_EPISODE);
+    options.setId(mp.getProviderInfo().getId(), "1");
+    options.setLanguage(MediaLanguages.en);
+
+    MediaEpisodeNumber aired = new MediaEpisodeNumber(1, 2, false);
+    MediaEpisodeNumber dvd = new MediaEpisodeNumber(1, 2, true);
+    MediaEpisodeNumber special = new MediaEpisodeNumber(0, 1, false);
+    MediaEpisodeNumber missing = new MediaEpisodeNumber(2, 1, false);
+    MediaEpisodeNumber missingDvd = new MediaEpisodeNumber(0, 1, true);
+
+    Map<MediaEpisodeNumber, MediaMetadata> metadata = mp.getEpisodeMetadata(options,
+        Arrays.asList(aired, dvd, special, missing, missingDvd));
+    Assert.assertEquals(3, metadata.size());
+    Assert.assertFalse(metadata.containsKey(missing));
+    Assert.assertFalse(metadata.containsKey(missingDvd));
+
+    // the aired and the DVD order differ
+    Assert.assertEquals("Pilot Part 2", metadata.get(aired).getStringValue(MediaMetadata.TITLE));
+    Assert.assertEquals("Second", metadata.get(dvd).getStringValue(MediaMetadata.TITLE));
+    Assert.assertEquals(3, (int) metadata.get(dvd).getIntegerValue(MediaMetadata.EPISODE_NR));
+    Assert.assertEquals(2, (int) metadata.get(dvd).getIntegerValue(MediaMetadata.EPISODE_NR_DVD));
+    Assert.assertEquals("Unaired Pilot", metadata.get(special).getStringValue(MediaMetadata.TITLE));
+
+    // the single episode API delegates to the bulk one
+    options.setId(MediaMetadata.SEASON_NR_DVD, "1");
+    options.setId(MediaMetadata.EPISODE_NR_DVD, "1");
+    Assert.assertEquals("Pilot", mp.getEpisodeMetadata(options).getStringValue(MediaMetadata.TITLE));
+    options.setId(MediaMetadata.SEASON_NR, "1");
+    options.setId(MediaMetadata.EPISODE_NR, "4");
+    Assert.assertEquals("", mp.getEpisodeMetadata(options).getStringValue(MediaMetadata.TITLE));
+
+    // all lookups were served from the cache
+    Assert.assertEquals(misses, TheTvDbMetadataProvider.getEpisodeCacheMisses());
+  }
+
+  private List<Episode> createEpisodes() {
+    List<Episode> episodes = new ArrayList<Episode>();
+    // aired order: 1x01 Pilot, 1x02 Pilot Part 2, 1x03 Second; on DVD both pilot parts are one episode
+    episodes.add(createEpisode(1, 1, "1", "1.0", "Pilot"));
+    episodes.add(createEpisode(1, 2, "1", "1.1", "Pilot Part 2"));
+    episodes.add(createEpisode(1, 3, "1", "2.0", "Second"));
+    episodes.add(createEpisode(0, 1, "", "", "Unaired Pilot"));
+    return episodes;
+  }
+
+  private Episode createEpisode(int season, int episode, String dvdSeason, String dvdEpisode, String title) {
+    Episode ep = new Episode();
+    ep.setId(String.valueOf(season * 100 + episode));
+    ep.setSeasonNumber(season);
+    ep.setEpisodeNumber(episode);
+    ep.setDvdSeason(dvdSeason);
+    ep.setDvdEpisodeNumber(dvdEpisode);
+    ep.setEpisodeName(title);
+    ep.setRating("7.5");
+    return ep;
+  }
+}
@@ -0,0 +1,66 @@
+package org.tinymediamanager.scraper.thetvdb;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.omertron.thetvdbapi.model.Episode;
+
+public class TvdbEpisodeCacheTest {
+
+  @Test
+  public void lookup() {
+    TvdbEpisodeCache cache = new TvdbEpisodeCache(2, 60000);
+    Assert.assertNull(cache.get("1", "en"));
+
+    TvdbEpisodeCache.EpisodeTable table = cache.put("1", "en", createEpisodes(1000));
+    Assert.assertSame(table, cache.get("1", "en"));
+    Assert.assertNull(cache.get("1", "de"));
+    Assert.assertEquals(1, cache.getHits());
+    Assert.assertEquals(2, cache.getMisses());
+
+    Assert.assertEquals(1000, table.getEpisodes().size());
+    Assert.assertEquals("S3E7", table.getEpisode(3, 7).getEpisodeName());
+    Assert.assertEquals("S3E7", table.getDvdEpisode(4, 7).getEpisodeName());
+    Assert.assertNull(table.getEpisode(3, 101));
+    Assert.assertNull(table.getDvdEpisode(1, 1)); // no DVD order for season 1
+  }
+
+  @Test
+  public void evictAndInvalidate() throws Exception {
+    TvdbEpisodeCache cache = new TvdbEpisodeCache(2, 60000);
+    cache.put("1", "en", createEpisodes(10));
+    cache.put("1", "de", createEpisodes(10));
+    cache.put("2", "en", createEpisodes(10));
+    Assert.assertEquals(2, cache.size());
+    Assert.assertNull(cache.peek("1", "en"));
+
+    cache.invalidate("1");
+    Assert.assertNull(cache.peek("1", "de"));
+    Assert.assertNotNull(cache.peek("2", "en"));
+
+    // expired
+    cache = new TvdbEpisodeCache(2, 10);
+    cache.put("1", "en", createEpisodes(10));
+    Thread.sleep(20);
+    Assert.assertNull(cache.peek("1", "en"));
+  }
+
+  private List<Episode> createEpisodes(int count) {
+    List<Episode> episodes = new ArrayList<Episode>();
+    for (int i = 0; i < count; i++) {
+      Episode ep = new Episode();
+      ep.setSeasonNumber(i / 100 + 1);
+      ep.setEpisodeNumber(i % 100 + 1);
+      ep.setEpisodeName("S" + ep.getSeasonNumber() + "E" + ep.getEpisodeNumber());
+      if (ep.getSeasonNumber() > 1) {
+        ep.setDvdSeason(String.valueOf(ep.getSeasonNumber() + 1));
+        ep.setDvdEpisodeNumber(ep.getEpisodeNumber() + ".0");
+      }
+      episodes.add(ep);
+    }
+    return episodes;
+  }
+}
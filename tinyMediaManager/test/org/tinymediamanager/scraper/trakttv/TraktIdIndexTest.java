@@ -0,0 +1,84 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper.trakttv;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tinymediamanager.core.Constants;
+import org.tinymediamanager.core.movie.entities.Movie;
+
+import com.uwetrottmann.trakt.v2.entities.MovieIds;
+
+/**
+ * @author Manuel Laggner
+ *
+ */
+public class TraktIdIndexTest {
+
+  @Test
+  public void matchByAnyId() {
+    Movie imdbOnly = new Movie();
+    imdbOnly.setId(Constants.IMDBID, "tt0103064");
+    Movie tmdbOnly = new Movie();
+    tmdbOnly.setId(Constants.TMDBID, 280);
+    Movie noIds = new Movie();
+
+    TraktIdIndex<Movie> index = new TraktIdIndex<Movie>();
+    index.add(imdbOnly, TraktIdIndex.keys(imdbOnly, TraktIdIndex.MOVIE_IDS));
+    index.add(tmdbOnly, TraktIdIndex.keys(tmdbOnly, TraktIdIndex.MOVIE_IDS));
+    Assert.assertTrue(TraktIdIndex.keys(noIds, TraktIdIndex.MOVIE_IDS).isEmpty());
+
+    // a Trakt movie with all ids matches both (but every one only once)
+    MovieIds ids = new MovieIds();
+    ids.trakt = 432;
+    ids.imdb = "tt0103064";
+    ids.tmdb = 280;
+    List<Movie> found = index.find(TraktIdIndex.keys(ids));
+    Assert.assertEquals(Arrays.asList(imdbOnly, tmdbOnly), found);
+
+    MovieIds other = new MovieIds();
+    other.imdb = "tt0088247";
+    other.tmdb = 0;
+    Assert.assertEquals(Arrays.asList("imdbId:tt0088247"), TraktIdIndex.keys(other));
+    Assert.assertTrue(index.find(TraktIdIndex.keys(other)).isEmpty());
+  }
+
+  @Test
+  public void snapshot() throws Exception {
+    File file = new File(System.getProperty("java.io.tmpdir"), "tmm-trakt-snapshot.properties");
+    FileUtils.deleteQuietly(file);
+
+    TraktSyncSnapshot snapshot = new TraktSyncSnapshot(file);
+    snapshot.load();
+    Assert.assertTrue(snapshot.isEmpty());
+
+    snapshot.setKeys(Arrays.asList("traktId:432", "imdbId:tt0088247"));
+    snapshot.save();
+
+    TraktSyncSnapshot loaded = new TraktSyncSnapshot(file);
+    loaded.load();
+    Assert.assertTrue(loaded.contains("traktId:432"));
+    Assert.assertTrue(loaded.contains("imdbId:tt0088247"));
+    Assert.assertEquals(2, loaded.getKeys().size());
+
+    FileUtils.deleteQuietly(file);
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * @author Manuel Laggner
+ *
+ */
+public class HttpReplayTest {
+  private File fixtures = new File(System.getProperty("java.io.tmpdir"), "tmm-http-fixtures");
+
+  @After
+  public void tearDown() {
+    HttpReplay.configure(HttpReplay.Mode.OFF, fixtures, 0);
+    FileUtils.deleteQuietly(fixtures);
+  }
+
+  private HttpServer startServer() throws IOException {
+    HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        byte[] content = "<html>Wäldchen</html>".getBytes("ISO-8859-1");
+        exchange.getResponseHeaders().add("Content-Type", "text/html; charset=ISO-8859-1");
+        exchange.sendResponseHeaders(200, content.length);
+        OutputStream os = exchange.getResponseBody();
+        os.write(content);
+        os.close();
+      }
+    });
+    server.start();
+    return server;
+  }
+
+  @Test
+  public void recordAndReplay() throws Exception {
+    FileUtils.deleteQuietly(fixtures);
+
+    HttpServer server = startServer();
+    String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/movie?api_key=secret";
+
+    // record
+    HttpReplay.configure(HttpReplay.Mode.RECORD, fixtures, 0);
+    HttpReplay.resetStatistics();
+    Url recorded = new Url(url);
+    Assert.assertEquals("<html>Wäldchen</html>", IOUtils.toString(recorded.getInputStream(), recorded.getCharset().name()));
+    Assert.assertEquals(1, HttpReplay.getRequestCount());
+    server.stop(0);
+
+    // the API key is not stored
+    for (File file : fixtures.listFiles()) {
+      Assert.assertFalse(FileUtils.readFileToString(file).contains("secret"));
+    }
+
+    // replay without server (and with another API key)
+    HttpReplay.configure(HttpReplay.Mode.REPLAY, fixtures, 50);
+    long start = System.currentTimeMillis();
+    Url replayed = new Url(url.replace("secret", "other"));
+    InputStream is = replayed.getInputStream();
+    Assert.assertTrue(System.currentTimeMillis() - start >= 50);
+    Assert.assertEquals(200, replayed.getStatusCode());
+    Assert.assertEquals("ISO-8859-1", replayed.getCharset().name());
+    Assert.assertEquals("<html>Wäldchen</html>", IOUtils.toString(is, replayed.getCharset().name()));
+    Assert.assertEquals(2, HttpReplay.getRequestCount());
+
+    // not recorded
+    Url missing = new Url(url.replace("movie", "tv"));
+    Assert.assertNull(missing.getInputStream());
+    Assert.assertTrue(missing.isFault());
+  }
+
+  @Test
+  public void recordCachedUrl() throws Exception {
+    FileUtils.deleteQuietly(fixtures);
+
+    HttpServer server = startServer();
+    String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/cached";
+    try {
+      // the response is in the url cache already
+      IOUtils.toByteArray(new CachedUrl(url).getInputStream());
+
+      // but it is being recorded anyway
+      HttpReplay.configure(HttpReplay.Mode.RECORD, fixtures, 0);
+      HttpReplay.resetStatistics();
+      IOUtils.toByteArray(new CachedUrl(url).getInputStream());
+      Assert.assertEquals(1, HttpReplay.getRequestCount());
+      server.stop(0);
+
+      HttpReplay.configure(HttpReplay.Mode.REPLAY, fixtures, 0);
+      CachedUrl replayed = new CachedUrl(url);
+      Assert.assertEquals("<html>Wäldchen</html>", IOUtils.toString(replayed.getInputStream(), "ISO-8859-1"));
+    }
+    finally {
+      server.stop(0);
+      CachedUrl.removeCachedFileForUrl(url);
+    }
+  }
+}
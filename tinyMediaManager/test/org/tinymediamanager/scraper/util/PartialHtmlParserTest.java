@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jsoup.nodes.Document;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Manuel Laggner
+ *
+ */
+public class PartialHtmlParserTest {
+
+  @Test
+  public void truncate() throws Exception {
+    String html = "<html><body><div id=\"a\">A</div><ul class=\"b\"><li>B</li></ul><div id=\"c\">C</div></body></html>";
+    PartialHtmlParser parser = new PartialHtmlParser("</ul>", "class=\"b\"", "id=\"a\"");
+
+    Assert.assertEquals("<html><body><div id=\"a\">A</div><ul class=\"b\"><li>B</li></ul>", parser.read(new StringReader(html)));
+
+    Document doc = parser.parse(new ByteArrayInputStream(html.getBytes("UTF-8")), "UTF-8", "");
+    Assert.assertEquals("A", doc.getElementById("a").text());
+    Assert.assertEquals("B", doc.getElementsByClass("b").first().text());
+    Assert.assertNull(doc.getElementById("c"));
+  }
+
+  @Test
+  public void missingMarker() throws Exception {
+    String html = "<html><body><div id=\"a\">A</div><ul><li>B</li></ul></body></html>";
+    PartialHtmlParser parser = new PartialHtmlParser("</ul>", "id=\"a\"", "id=\"x\"");
+    Assert.assertEquals(html, parser.read(new StringReader(html)));
+  }
+
+  @Test
+  public void splitBuffer() throws Exception {
+    // the marker and the terminator are split by the read buffer of 8192 chars
+    String start = "<p>" + StringUtils.repeat("x", 8192 - 3 - 2) + "<div id=\"a\">A</div>";
+    String end = StringUtils.repeat("x", 2 * 8192 - start.length() - 2) + "</p>";
+    String html = start + end + "<div>rest</div>";
+    PartialHtmlParser parser = new PartialHtmlParser("</p>", "id=\"a\"");
+    Assert.assertEquals(start + end, parser.read(new StringReader(html)));
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Manuel Laggner
+ *
+ */
+public class ScraperExecutorTest {
+
+  @Test
+  public void bounded() throws Exception {
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    ScraperExecutor.setMaxThreads("test-bounded", 2);
+
+    List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+    for (int i = 0; i < 10; i++) {
+      final int nr = i;
+      futures.add(ScraperExecutor.submit("test-bounded", new Callable<Integer>() {
+        @Override
+        public Integer call() throws Exception {
+          int now = running.incrementAndGet();
+          synchronized (maxRunning) {
+            maxRunning.set(Math.max(maxRunning.get(), now));
+          }
+          Thread.sleep(20);
+          running.decrementAndGet();
+          return nr;
+        }
+      }));
+    }
+
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(Integer.valueOf(i), ScraperExecutor.getResult(futures.get(i)));
+    }
+    Assert.assertEquals(2, maxRunning.get());
+    Assert.assertEquals(10, ScraperExecutor.getSubmittedCount("test-bounded"));
+    Assert.assertEquals(10, ScraperExecutor.getCompletedCount("test-bounded"));
+    Assert.assertTrue(ScraperExecutor.getAverageRunTime("test-bounded") >= 20);
+  }
+
+  @Test
+  public void cancel() throws Exception {
+    Object task = new Object();
+    ScraperExecutor.setMaxThreads("test-cancel", 1);
+    ScraperExecutor.setOwner(task);
+    try {
+      List<Future<String>> futures = new ArrayList<Future<String>>();
+      for (int i = 0; i < 3; i++) {
+        futures.add(ScraperExecutor.submit("test-cancel", new Callable<String>() {
+          @Override
+          public String call() throws Exception {
+            Thread.sleep(5000);
+            return "done";
+          }
+        }));
+      }
+
+      ScraperExecutor.cancel(task);
+      for (Future<String> future : futures) {
+        Assert.assertTrue(future.isCancelled());
+        Assert.assertNull(ScraperExecutor.getResult(future));
+      }
+
+      // later sub requests of the cancelled task are not executed
+      Future<String> future = ScraperExecutor.submit("test-cancel", new Callable<String>() {
+        @Override
+        public String call() throws Exception {
+          return "done";
+        }
+      });
+      Assert.assertTrue(future.isCancelled());
+      Assert.assertEquals(4, ScraperExecutor.getCancelledCount("test-cancel"));
+    }
+    finally {
+      ScraperExecutor.setOwner(null);
+    }
+  }
+
+  @Test
+  public void cancellationToken() throws Exception {
+    final CancellationToken token = new CancellationToken();
+    CancellationToken.setCurrent(token);
+    try {
+      // the token of the submitting thread is passed to the sub request
+      Future<Boolean> future = ScraperExecutor.submit("test-token", new Callable<Boolean>() {
+        @Override
+        public Boolean call() throws Exception {
+          return CancellationToken.getCurrent() == token;
+        }
+      });
+      Assert.assertEquals(Boolean.TRUE, ScraperExecutor.getResult(future));
+
+      final AtomicInteger aborted = new AtomicInteger();
+      Runnable abort = new Runnable() {
+        @Override
+        public void run() {
+          aborted.incrementAndGet();
+        }
+      };
+      token.addListener(abort);
+      token.cancel();
+      token.cancel();
+      Assert.assertEquals(1, aborted.get());
+
+      // requests of a cancelled task are not started at all (see Url)
+      try {
+        CancellationToken.checkCurrent();
+        Assert.fail();
+      }
+      catch (InterruptedException e) {
+        // expected
+      }
+    }
+    finally {
+      CancellationToken.setCurrent(null);
+    }
+  }
+}
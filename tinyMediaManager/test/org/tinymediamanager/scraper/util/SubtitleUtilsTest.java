@@ -0,0 +1,58 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper.util;
+
+import java.io.File;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tinymediamanager.core.entities.MediaFile;
+
+/**
+ * @author Manuel Laggner
+ *
+ */
+public class SubtitleUtilsTest {
+
+  @Test
+  public void computeHashes() throws Exception {
+    File file = new File(System.getProperty("java.io.tmpdir"), "tmm-subtitle-hash.avi");
+    // two little endian longs: 1 and 2
+    byte[] content = new byte[] { 1, 0, 0, 0, 0, 0, 0, 0, 2, 0, 0, 0, 0, 0, 0, 0 };
+    FileUtils.writeByteArrayToFile(file, content);
+
+    // small file: head == tail == the whole file; OpenSubtitles = size + head sum + tail sum
+    SubtitleUtils.Hashes hashes = SubtitleUtils.computeHashes(file);
+    Assert.assertEquals("0000000000000016", hashes.getOpenSubtitlesHash());
+    Assert.assertEquals(DigestUtils.md5Hex(new byte[] { 1, 0, 0, 0, 0, 0, 0, 0, 2, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 2, 0, 0, 0, 0, 0, 0,
+        0 }), hashes.getSubDbHash());
+
+    // the media file keeps the hashes until the file changes
+    MediaFile mf = new MediaFile(file);
+    Assert.assertEquals("0000000000000016", mf.getOpenSubtitlesHash());
+    Assert.assertEquals(hashes.getSubDbHash(), mf.getSubDbHash());
+
+    content[8] = 3;
+    FileUtils.writeByteArrayToFile(file, content);
+    file.setLastModified(file.lastModified() + 2000);
+    Assert.assertEquals("0000000000000018", mf.getOpenSubtitlesHash());
+
+    FileUtils.deleteQuietly(file);
+    Assert.assertEquals("", SubtitleUtils.computeOpenSubtitlesHash(file));
+  }
+}
@@ -0,0 +1,88 @@
+package org.tinymediamanager.scraper.xbmc;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class XbmcScraperProcessorTest {
+  private static File         scraperFolder;
+  private static XbmcScraper  scraper;
+  private static List<String> pages = new ArrayList<String>();
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // a small movie scraper like the XBMC ones: nested regexps, appending buffers, repeated and empty expressions
+    scraperFolder = new File(System.getProperty("java.io.tmpdir"), "metadata.tmm-test.com");
+    FileUtils.writeStringToFile(new File(scraperFolder, "addon.xml"), "<addon id=\"metadata.tmm-test.com\" name=\"test\" version=\"1.0\">"
+        + "<extension point=\"xbmc.metadata.scraper.movies\" language=\"en\" library=\"scraper.xml\"/></addon>", "UTF-8");
+    FileUtils.writeStringToFile(new File(scraperFolder, "scraper.xml"), "<scraper>" //
+        + "<GetDetails dest=\"3\">" //
+        + "<RegExp input=\"$$5\" output=\"&lt;details&gt;\\1&lt;/details&gt;\" dest=\"3\">" //
+        + "<RegExp input=\"$$1\" output=\"&lt;title&gt;\\1&lt;/title&gt;&lt;year&gt;\\2&lt;/year&gt;\" dest=\"5\">"
+        + "<expression>&lt;h1&gt;([^&lt;]*) \\(([0-9]{4})\\)&lt;/h1&gt;</expression></RegExp>" //
+        + "<RegExp input=\"$$1\" output=\"&lt;genre&gt;\\1&lt;/genre&gt;\" dest=\"5+\">"
+        + "<expression repeat=\"yes\">&lt;a class=\"genre\"&gt;([^&lt;]*)&lt;/a&gt;</expression></RegExp>" //
+        + "<RegExp input=\"$$1\" output=\"&lt;plot&gt;\\1&lt;/plot&gt;\" dest=\"5+\">"
+        + "<expression>&lt;div class=\"plot\"&gt;(.*?)&lt;/div&gt;</expression></RegExp>" //
+        + "<expression noclean=\"1\"/>" //
+        + "</RegExp>" //
+        + "</GetDetails>" //
+        + "</scraper>", "UTF-8");
+
+    scraper = new XbmcScraperParser().parseScraper(new XbmcScraper(scraperFolder), Collections.<File> emptyList());
+
+    // the stored "html pages"
+    for (int i = 0; i < 200; i++) {
+      StringBuilder page = new StringBuilder();
+      page.append("<html><head><title>Movie ").append(i).append("</title></head><body>\n");
+      for (int line = 0; line < 50; line++) {
+        page.append("<div class=\"nav\"><a href=\"/page/").append(line).append("\">some navigation</a></div>\n");
+      }
+      page.append("<h1>Movie ").append(i).append(" (").append(1980 + i % 30).append(")</h1>\n");
+      page.append("<a class=\"genre\">Action</a>, <a class=\"genre\">Drama</a>\n");
+      page.append("<div class=\"plot\">The <b>plot</b> of movie ").append(i).append(".</div>\n");
+      page.append("</body></html>");
+      pages.add(page.toString());
+    }
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    FileUtils.deleteQuietly(scraperFolder);
+  }
+
+  @Test
+  public void getDetails() {
+    XbmcScraperProcessor processor = new XbmcScraperProcessor(scraper);
+    String details = processor.executeFunction("GetDetails", new String[] { "", pages.get(42) });
+    Assert.assertEquals(
+        "<details><title>Movie 42</title><year>1992</year><genre>Action</genre><genre>Drama</genre><plot>The plot of movie 42.</plot></details>",
+        details);
+  }
+
+  @Test
+  public void benchmark() {
+    XbmcScraperProcessor processor = new XbmcScraperProcessor(scraper);
+    // warm up
+    for (String page : pages) {
+      processor.executeFunction("GetDetails", new String[] { "", page });
+    }
+
+    long start = System.nanoTime();
+    int runs = 10;
+    for (int run = 0; run < runs; run++) {
+      for (String page : pages) {
+        processor.executeFunction("GetDetails", new String[] { "", page });
+      }
+    }
+    long time = (System.nanoTime() - start) / 1000000;
+    System.out.println("scraped " + runs * pages.size() + " pages in " + time + " ms");
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.ui.tvshows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.JTree;
+import javax.swing.SwingUtilities;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.TreePath;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tinymediamanager.core.tvshow.TvShowList;
+import org.tinymediamanager.core.tvshow.entities.TvShow;
+import org.tinymediamanager.core.tvshow.entities.TvShowEpisode;
+import org.tinymediamanager.core.tvshow.entities.TvShowSeason;
+
+/**
+ * @author Manuel Laggner
+ *
+ */
+public class TvShowTreeModelTest {
+  private static final int SHOWS    = 1000;
+  private static final int SEASONS  = 10;
+  private static final int EPISODES = 10;
+
+  @Test
+  public void incrementalUpdatesBenchmark() throws Exception {
+    final TvShowTreeModel[] model = new TvShowTreeModel[1];
+    final JTree[] tree = new JTree[1];
+    final AtomicInteger treeEvents = new AtomicInteger();
+
+    SwingUtilities.invokeAndWait(new Runnable() {
+      @Override
+      public void run() {
+        model[0] = new TvShowTreeModel(new ArrayList<TvShow>());
+        tree[0] = new JTree(model[0]);
+        tree[0].setRootVisible(false);
+        model[0].addTreeModelListener(new CountingListener(treeEvents));
+      }
+    });
+
+    // simulate a datasource scan: add 1000 shows x 100 episodes from a background thread
+    List<TvShow> tvShows = new ArrayList<TvShow>();
+    long start = System.currentTimeMillis();
+    for (int i = 0; i < SHOWS; i++) {
+      TvShow tvShow = new TvShow();
+      tvShow.setTitle(String.format("Show %04d", i));
+      TvShowList.getInstance().addTvShow(tvShow);
+      tvShows.add(tvShow);
+
+      for (int s = 1; s <= SEASONS; s++) {
+        for (int e = 1; e <= EPISODES; e++) {
+          TvShowEpisode episode = new TvShowEpisode();
+          episode.setTvShow(tvShow);
+          episode.setSeason(s);
+          episode.setEpisode(e);
+          episode.setTitle("Episode " + e);
+          tvShow.addEpisode(episode);
+        }
+      }
+
+      // the user expands the first show while the scan is running
+      if (i == 0) {
+        waitForEdt();
+        SwingUtilities.invokeAndWait(new Runnable() {
+          @Override
+          public void run() {
+            tree[0].expandRow(0);
+          }
+        });
+      }
+    }
+    waitForEdt();
+    long duration = System.currentTimeMillis() - start;
+
+    System.out.println("tree with " + SHOWS + " shows x " + (SEASONS * EPISODES) + " episodes built in " + duration + " ms; "
+        + treeEvents.get() + " tree model events");
+    // the updates are batched per EDT tick; how many batches there are depends on the EDT timing (at worst a few events per show), but it has to be
+    // far less than the two events per episode of the unbatched model
+    Assert.assertTrue(treeEvents.get() > 0);
+    Assert.assertTrue(treeEvents.get() < SHOWS * SEASONS);
+
+    SwingUtilities.invokeAndWait(new Runnable() {
+      @Override
+      public void run() {
+        TvShowTreeModel treeModel = model[0];
+        Object root = treeModel.getRoot();
+        Assert.assertEquals(SHOWS, treeModel.getChildCount(root));
+
+        // the first show has been expanded: the season/episode nodes are materialized
+        Object firstShow = treeModel.getChild(root, 0);
+        Assert.assertEquals(SEASONS, treeModel.getChildCount(firstShow));
+        Assert.assertEquals(EPISODES, treeModel.getChildCount(treeModel.getChild(firstShow, 0)));
+        Assert.assertEquals(1 + SHOWS + SEASONS, tree[0].getRowCount() + (tree[0].isRootVisible() ? 0 : 1));
+
+        // the indices are the ones of the filtered list
+        Object lastShow = treeModel.getChild(root, SHOWS - 1);
+        Assert.assertEquals(SHOWS - 1, treeModel.getIndexOfChild(root, lastShow));
+      }
+    });
+
+    // move all episodes of the first season to a new season: the season node is being removed and a new one inserted
+    TvShow firstShow = tvShows.get(0);
+    for (TvShowEpisode episode : new ArrayList<TvShowEpisode>(firstShow.getEpisodes())) {
+      if (episode.getSeason() == 1) {
+        episode.setSeason(SEASONS + 1);
+      }
+    }
+    waitForEdt();
+
+    SwingUtilities.invokeAndWait(new Runnable() {
+      @Override
+      public void run() {
+        TvShowTreeModel treeModel = model[0];
+        Object showNode = treeModel.getChild(treeModel.getRoot(), 0);
+        Assert.assertEquals(SEASONS, treeModel.getChildCount(showNode));
+        Assert.assertEquals(SHOWS + SEASONS, tree[0].getRowCount());
+        Assert.assertTrue(tree[0].isExpanded(new TreePath(((DefaultMutableTreeNode) showNode).getPath())));
+
+        DefaultMutableTreeNode lastSeason = (DefaultMutableTreeNode) treeModel.getChild(showNode, SEASONS - 1);
+        Assert.assertEquals(SEASONS + 1, ((TvShowSeason) lastSeason.getUserObject()).getSeason());
+        Assert.assertEquals(EPISODES, treeModel.getChildCount(lastSeason));
+      }
+    });
+  }
+
+  /**
+   * property change events and the batched tree updates are being delivered on the EDT
+   */
+  private void waitForEdt() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      SwingUtilities.invokeAndWait(new Runnable() {
+        @Override
+        public void run() {
+        }
+      });
+    }
+  }
+
+  private static class CountingListener implements TreeModelListener {
+    private final AtomicInteger counter;
+
+    private CountingListener(AtomicInteger counter) {
+      this.counter = counter;
+    }
+
+    @Override
+    public void treeNodesChanged(TreeModelEvent e) {
+      counter.incrementAndGet();
+    }
+
+    @Override
+    public void treeNodesInserted(TreeModelEvent e) {
+      counter.incrementAndGet();
+    }
+
+    @Override
+    public void treeNodesRemoved(TreeModelEvent e) {
+      counter.incrementAndGet();
+    }
+
+    @Override
+    public void treeStructureChanged(TreeModelEvent e) {
+      counter.incrementAndGet();
+    }
+  }
+}